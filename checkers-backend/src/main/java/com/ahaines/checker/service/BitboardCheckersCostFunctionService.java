@@ -0,0 +1,48 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.CheckersGeometry;
+
+/**
+ * The {@link CheckersCostFunctionService} heuristic calculated over the masks of a {@link BitboardCheckersBoard}. Piece,
+ * king and edge counts are simply the population counts of the relevant masks.
+ * @author andrewhaines
+ *
+ */
+public class BitboardCheckersCostFunctionService implements CostFunctionService<BitboardCheckersBoard>{
+
+	/**
+	 * The cost of a won state
+	 */
+	public static final int POINTS_FOR_A_WIN = 2000;
+	private static final int POINTS_FOR_A_LOSE = -2000;
+	private static final int PIECE_WEIGHTING = 4;
+	private static final int EDGE_PIECE_WEIGHTING = 1;
+
+	private final TurnDrivenGoalService<BitboardCheckersBoard> goalService;
+
+	public BitboardCheckersCostFunctionService(TurnDrivenGoalService<BitboardCheckersBoard> goalService){
+		this.goalService = goalService;
+	}
+
+	public int calculateCost(BitboardCheckersBoard state) {
+		if (goalService.isStateWon(state, state.getTurn().getId())){
+			return POINTS_FOR_A_WIN;
+		} else if (goalService.isStateWon(state, state.getTurn().nextTurn().getId())){
+			return POINTS_FOR_A_LOSE;
+		}
+		int opponentPieces = state.getPieces(state.getSideToMove());
+		int currentPlayerPieces = state.getPieces(1 - state.getSideToMove());
+
+		// weight the pieceDelta more heavily then the other heuristics
+		int pieceDelta = (Integer.bitCount(currentPlayerPieces) - Integer.bitCount(opponentPieces)) * PIECE_WEIGHTING;
+		pieceDelta += Integer.bitCount(opponentPieces & state.getKings());
+
+		int edgePiecesDelta = (Integer.bitCount(currentPlayerPieces & CheckersGeometry.EDGE_SQUARES) - Integer.bitCount(opponentPieces & CheckersGeometry.EDGE_SQUARES)) * EDGE_PIECE_WEIGHTING;
+
+		return pieceDelta + edgePiecesDelta;
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+public class BitboardCheckersGoalService implements TurnDrivenGoalService<BitboardCheckersBoard>{
+
+	public boolean isStateWon(BitboardCheckersBoard state, int playerId) {
+		return state.getPieces(state.getMapping().getSide(playerId)) == 0; // player has no more pieces left
+	}
+
+	public boolean isStateWon(BitboardCheckersBoard state) {
+		return isStateWon(state, state.getTurn().getId());
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.service.MoveDescriptionService;
+import com.ahaines.ai.search.minmax.service.MoveOrderingService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * Describes the move between 2 {@link BitboardCheckersBoard}s by the squares the piece moved from and to, found from
+ * the difference between the masks of the side that moved.
+ * @author andrewhaines
+ *
+ */
+public class BitboardCheckersMoveDescriptionService implements MoveDescriptionService<BitboardCheckersBoard>{
+
+	public int getMoveKeyCount() {
+		return BitboardCheckersBoard.SQUARE_COUNT * BitboardCheckersBoard.SQUARE_COUNT;
+	}
+
+	public int getMoveKey(BitboardCheckersBoard state, BitboardCheckersBoard successor) {
+		int side = state.getSideToMove();
+		int pieces = state.getPieces(side);
+		int successorPieces = successor.getPieces(side);
+		if (pieces == successorPieces){ // a chain of captures that ends where it started
+			return MoveOrderingService.NO_MOVE_KEY;
+		}
+		int from = Integer.numberOfTrailingZeros(pieces & ~successorPieces);
+		int to = Integer.numberOfTrailingZeros(successorPieces & ~pieces);
+
+		return from * BitboardCheckersBoard.SQUARE_COUNT + to;
+	}
+
+	public boolean isCapture(BitboardCheckersBoard state, BitboardCheckersBoard successor) {
+		return Integer.bitCount(successor.getOccupied()) < Integer.bitCount(state.getOccupied());
+	}
+}
@@ -0,0 +1,209 @@
+package com.ahaines.checker.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
+import com.ahaines.ai.search.service.CachedIterable;
+import com.ahaines.ai.search.service.SuccessorService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.CheckersGeometry;
+import com.ahaines.checkers.model.PackedMove;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Generates the successors of a {@link BitboardCheckersBoard} using the same rules as {@link CheckersSuccessorService}:
+ * men move diagonally forward, kings in all 4 diagonals, a jump must be taken if one is available and a chain of jumps
+ * is continued until no more captures are possible or the piece is crowned. Neighbouring squares are looked up as masks
+ * from the tables of {@link CheckersGeometry} rather then by looking up pieces at {@link com.ahaines.boardgame.model.Position}s.
+ *
+ * The moves are generated in stages, jumps then, only when there are none, single moves. The boards of the successors
+ * are only created as they are iterated over, so a search that prunes the rest of the successors never creates them.
+ * @author andrewhaines
+ *
+ */
+public class BitboardCheckersSuccessorService implements SuccessorService<BitboardCheckersBoard>{
+
+	private static final int[] FIRST_PLAYER_DIRECTIONS = {CheckersGeometry.SOUTH_WEST, CheckersGeometry.SOUTH_EAST};
+	private static final int[] SECOND_PLAYER_DIRECTIONS = {CheckersGeometry.NORTH_WEST, CheckersGeometry.NORTH_EAST};
+	private static final int[] KING_DIRECTIONS = {CheckersGeometry.SOUTH_WEST, CheckersGeometry.SOUTH_EAST, CheckersGeometry.NORTH_WEST, CheckersGeometry.NORTH_EAST};
+
+	/**
+	 * The size of buffer supplied to {@link #generateMoves(BitboardCheckersBoard, long[])} that is large enough for
+	 * the moves of any board.
+	 */
+	public static final int MAX_MOVES = 256;
+
+	private final BoardIdService boardIdService;
+	private final ThreadLocal<long[]> moveBuffers;
+
+	public BitboardCheckersSuccessorService(BoardIdService boardIdService){
+		this.boardIdService = boardIdService;
+		this.moveBuffers = new ThreadLocal<long[]>(){
+
+			@Override
+			protected long[] initialValue(){
+				return new long[MAX_MOVES];
+			}
+		};
+	}
+
+	public Iterable<BitboardCheckersBoard> getSuccessors(BitboardCheckersBoard state) {
+		long[] buffer = moveBuffers.get();
+		
+		return createSuccessors(state, Arrays.copyOf(buffer, generateMoves(state, buffer))); // the buffer is reused by the searches of the successors
+	}
+	
+	/**
+	 * Returns a successor service that only returns the successors that are reached by a jump, none when the side to
+	 * move has no jump to make. As jumps are generated first, the single moves of a board that has jumps are never
+	 * generated and no board is created for a board that has none. This is used to play out the captures of a
+	 * quiescence search.
+	 * @return
+	 */
+	public SuccessorService<BitboardCheckersBoard> getCaptureSuccessorService(){
+		return new SuccessorService<BitboardCheckersBoard>(){
+
+			public Iterable<BitboardCheckersBoard> getSuccessors(BitboardCheckersBoard state) {
+				long[] buffer = moveBuffers.get();
+				int moveCount = generateMoves(state, buffer);
+				if (moveCount == 0 || !PackedMove.isCapture(buffer[0])){ // jumps are forced so the moves are either all jumps or none are
+					return Collections.emptyList();
+				}
+				return createSuccessors(state, Arrays.copyOf(buffer, moveCount));
+			}
+		};
+	}
+	
+	private Iterable<BitboardCheckersBoard> createSuccessors(final BitboardCheckersBoard state, final long[] moves){
+		final int side = state.getSideToMove();
+		final Turn nextTurn = state.getTurn().nextTurn();
+
+		return new CachedIterable<BitboardCheckersBoard>(new AbstractIterator<BitboardCheckersBoard>(){
+
+			private int idx = 0;
+
+			@Override
+			protected BitboardCheckersBoard computeNext() {
+				if (idx == moves.length){
+					return endOfData();
+				}
+				long move = moves[idx++];
+				BitboardCheckersBoard newState = new BitboardCheckersBoard(boardIdService.nextId(), state, nextTurn);
+				newState.movePiece(side, PackedMove.getFrom(move), PackedMove.getTo(move), PackedMove.getCapturedSquares(move), PackedMove.isPromotion(move));
+
+				return newState;
+			}
+		});
+	}
+
+	/**
+	 * Writes the moves that the side to move can make on the board into the supplied buffer as {@link PackedMove}s,
+	 * in the same order as the successors returned by {@link #getSuccessors(BitboardCheckersBoard)}. No objects are
+	 * created.
+	 * @param state
+	 * @param buffer Must hold at least {@link #MAX_MOVES} moves
+	 * @return The number of moves written
+	 */
+	public int generateMoves(BitboardCheckersBoard state, long[] buffer) {
+		int side = state.getSideToMove();
+
+		return generateMoves(side, state.getPieces(side), state.getPieces(1 - side), state.getKings(), buffer);
+	}
+
+	/**
+	 * Writes the moves that the side to move can make on a board described by the supplied masks into the buffer as
+	 * {@link PackedMove}s. This lets positions be enumerated without creating boards, as is done by
+	 * {@link EndgameTablebaseGenerator}.
+	 * @param side The side to move ({@link BitboardCheckersBoard#FIRST_PLAYER} or {@link BitboardCheckersBoard#SECOND_PLAYER})
+	 * @param sidePieces The mask of the pieces of the side to move
+	 * @param opponentPieces The mask of the pieces of the opponent
+	 * @param kings The mask of the pieces of either side that are kings
+	 * @param buffer Must hold at least {@link #MAX_MOVES} moves
+	 * @return The number of moves written
+	 */
+	public static int generateMoves(int side, int sidePieces, int opponentPieces, int kings, long[] buffer) {
+		int empty = ~(sidePieces | opponentPieces);
+		int moveCount = 0;
+
+		int pieces = sidePieces;
+		while (pieces != 0){
+			int square = Integer.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+
+			// the square the piece leaves is empty for the rest of its chain
+			moveCount = addAllJumpMoves(side, square, square, isKing(kings, square), 0, opponentPieces, empty | (1 << square), buffer, moveCount);
+		}
+
+		if (moveCount > 0){ // jumps must be taken if they are available
+			return moveCount;
+		}
+
+		pieces = sidePieces;
+		while (pieces != 0){
+			int square = Integer.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			boolean isKing = isKing(kings, square);
+
+			for (int direction: getDirections(side, isKing)){
+				int to = CheckersGeometry.getNeighbourMask(direction, square) & empty;
+				if (to != 0){
+					buffer[moveCount++] = PackedMove.encode(square, Integer.numberOfTrailingZeros(to), 0, isPromotion(side, to, isKing));
+				}
+			}
+		}
+		return moveCount;
+	}
+
+	/**
+	 * Adds all the moves that result from a chain of jumps continued by the piece at the supplied square.
+	 * @param fromSquare The square the chain started from
+	 * @param square The square the piece is currently on
+	 * @param captured The squares captured so far in the chain, which are no longer occupied
+	 * @param empty The squares that were empty before the chain along with the square it started from. The piece
+	 * can never land on the square it is on so this does not change as the piece moves
+	 * @return the number of moves in the buffer. This is unchanged if no jump was possible from this square
+	 */
+	private static int addAllJumpMoves(int side, int fromSquare, int square, boolean isKing, int captured, int opponentPieces, int empty, long[] buffer, int moveCount){
+		for (int direction: getDirections(side, isKing)){
+			int capture = CheckersGeometry.getNeighbourMask(direction, square) & opponentPieces & ~captured;
+			if (capture == 0){
+				continue;
+			}
+			int to = CheckersGeometry.getJumpMask(direction, square) & (empty | captured);
+			if (to == 0){
+				continue;
+			}
+			int toSquare = Integer.numberOfTrailingZeros(to);
+			boolean promote = isPromotion(side, to, isKing);
+			int chainCaptured = captured | capture;
+
+			// only chain additional jumps if the piece hasnt been crowned
+			int chainMoveCount = promote?moveCount:addAllJumpMoves(side, fromSquare, toSquare, isKing, chainCaptured, opponentPieces, empty, buffer, moveCount);
+			if (chainMoveCount == moveCount){
+				buffer[moveCount] = PackedMove.encode(fromSquare, toSquare, chainCaptured, promote);
+				chainMoveCount++;
+			}
+			moveCount = chainMoveCount;
+		}
+		return moveCount;
+	}
+
+	private static boolean isKing(int kings, int square){
+		return (kings & (1 << square)) != 0;
+	}
+
+	private static boolean isPromotion(int side, int to, boolean isKing){
+		if (isKing){
+			return false;
+		}
+		return (to & ((side == BitboardCheckersBoard.FIRST_PLAYER)?CheckersGeometry.LAST_ROW_SQUARES:CheckersGeometry.FIRST_ROW_SQUARES)) != 0;
+	}
+
+	private static int[] getDirections(int side, boolean isKing){
+		if (isKing){
+			return KING_DIRECTIONS;
+		}
+		return (side == BitboardCheckersBoard.FIRST_PLAYER)?FIRST_PLAYER_DIRECTIONS:SECOND_PLAYER_DIRECTIONS;
+	}
+}
@@ -0,0 +1,57 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.BitboardCheckersBoard.PieceMapping;
+import com.ahaines.checkers.model.CheckersBoard;
+
+/**
+ * Converts between the {@link CheckersBoard} exposed by {@link CheckersGame} and the state representation that
+ * the game is searched with.
+ * @author andrewhaines
+ *
+ * @param <B>
+ */
+interface CheckersBoardAdapter<B extends TurnDrivenState> {
+
+	B fromCheckersBoard(CheckersBoard board);
+
+	CheckersBoard toCheckersBoard(B board);
+
+	static class IdentityCheckersBoardAdapter implements CheckersBoardAdapter<CheckersBoard>{
+
+		public CheckersBoard fromCheckersBoard(CheckersBoard board) {
+			return board;
+		}
+
+		public CheckersBoard toCheckersBoard(CheckersBoard board) {
+			return board;
+		}
+	}
+
+	static class BitboardCheckersBoardAdapter implements CheckersBoardAdapter<BitboardCheckersBoard>{
+
+		private final PieceMapping mapping;
+		private final BoardIdService boardIdService;
+		private BitboardCheckersBoard lastConvertedBoard;
+		private CheckersBoard lastConversion;
+
+		BitboardCheckersBoardAdapter(PieceMapping mapping, BoardIdService boardIdService){
+			this.mapping = mapping;
+			this.boardIdService = boardIdService;
+		}
+
+		public BitboardCheckersBoard fromCheckersBoard(CheckersBoard board) {
+			return BitboardCheckersBoard.fromCheckersBoard(board.getId(), board, mapping);
+		}
+
+		public CheckersBoard toCheckersBoard(BitboardCheckersBoard board) {
+			// the current state is asked for repeatedly by clients so only convert when it has changed
+			if (board != lastConvertedBoard){
+				lastConversion = board.toCheckersBoard(boardIdService.nextId());
+				lastConvertedBoard = board;
+			}
+			return lastConversion;
+		}
+	}
+}
@@ -1,16 +1,11 @@
 package com.ahaines.checker.service;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
 import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
-import com.ahaines.boardgame.model.Player;
 import com.ahaines.boardgame.model.PlayerLookup;
-import com.ahaines.boardgame.model.Position;
 import com.ahaines.checkers.model.CheckersBoard;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersStats;
@@ -36,35 +31,28 @@ public class CheckersCostFunctionService implements CostFunctionService<Checkers
 	private static final int POINTS_FOR_A_LOSE = -2000;
 	private static final int PIECE_WEIGHTING = 4;
 	private static final int EDGE_PIECE_WEIGHTING = 1;
-	private final PlayerLookup<CheckersPieceDescription> playerLookup;
-	private final Set<Position> edgePositions;
 	private final TurnDrivenGoalService<CheckersBoard> goalService;
 	private final Logger LOG = LoggerFactory.getLogger(CheckersCostFunctionService.class);
 	
-	public CheckersCostFunctionService(PlayerLookup<CheckersPieceDescription> playerLookup, TurnDrivenGoalService<CheckersBoard> goalService){
-		this.playerLookup = playerLookup;
-		this.edgePositions = new HashSet<Position>();
-		populateEdgePositionSet(edgePositions);
+	public CheckersCostFunctionService(TurnDrivenGoalService<CheckersBoard> goalService){
 		this.goalService = goalService;
 	}
-
-	private void populateEdgePositionSet(Set<Position> edgePositions) {
-		for (int i = 0 ; i < CheckersBoard.CHECKERS_BOARD_MAX; i++){ 
-			// both edges along x
-			edgePositions.add(new Position(i, 0));
-			edgePositions.add(new Position(i, CheckersBoard.CHECKERS_BOARD_MAX-1));
-			
-			// both edges along y
-			
-			edgePositions.add(new Position(0, i));
-			edgePositions.add(new Position(CheckersBoard.CHECKERS_BOARD_MAX-1, i));
-		}
+	
+	/**
+	 * Players are now found by id from the counts of the board so the lookup is no longer needed. Use
+	 * {@link #CheckersCostFunctionService(TurnDrivenGoalService)}.
+	 * @param playerLookup
+	 * @param goalService
+	 */
+	public CheckersCostFunctionService(PlayerLookup<CheckersPieceDescription> playerLookup, TurnDrivenGoalService<CheckersBoard> goalService){
+		this(goalService);
 	}
 
+	/**
+	 * The counts used are kept up to date by the board as pieces are moved (see {@link CheckersStats}) so the board is
+	 * not scanned.
+	 */
 	public int calculateCost(CheckersBoard state) {
-		Player<CheckersPieceDescription> currentPlayer = playerLookup.getPlayer(state.getTurn().nextTurn().getId());
-		Player<CheckersPieceDescription> opponent = playerLookup.getPlayer(state.getTurn().getId());
-		
 		if (goalService.isStateWon(state, state.getTurn().getId())){
 			//LOG.debug("Found win state for user: "+currentPlayer);
 			return POINTS_FOR_A_WIN;
@@ -73,8 +61,8 @@ public class CheckersCostFunctionService implements CostFunctionService<Checkers
 			return POINTS_FOR_A_LOSE;
 		}
 		CheckersStats stats = state.getBoardStats();
-		Counts opponentCounts = stats.getCounts(opponent);
-		Counts currentPlayerCounts = stats.getCounts(currentPlayer);
+		Counts opponentCounts = stats.getCounts(state.getTurn().getId());
+		Counts currentPlayerCounts = stats.getCounts(state.getTurn().nextTurn().getId());
 		int opponentCount = opponentCounts.getTotalPieceCount();
 		int playerCount = currentPlayerCounts.getTotalPieceCount();
 		
@@ -82,24 +70,10 @@ public class CheckersCostFunctionService implements CostFunctionService<Checkers
 		int pieceDelta = (playerCount - opponentCount) * PIECE_WEIGHTING;
 		pieceDelta += opponentCounts.getKingPieceCount();
 		
-		int edgePiecesHeld = getPieceHeldInPositions(state, edgePositions, currentPlayer);
-		int edgePieceOpponentHolds = getPieceHeldInPositions(state, edgePositions, opponent);
-		
-		int edgePiecesDelta = (edgePiecesHeld - edgePieceOpponentHolds) * EDGE_PIECE_WEIGHTING;
+		int edgePiecesDelta = (currentPlayerCounts.getEdgePieceCount() - opponentCounts.getEdgePieceCount()) * EDGE_PIECE_WEIGHTING;
 		
 		return pieceDelta + edgePiecesDelta;
 		
 	}
 
-	private int getPieceHeldInPositions(CheckersBoard board, Set<Position> positions, Player<CheckersPieceDescription> player) {
-		int count = 0;
-		
-		for (Position pos: positions){
-			if (board.holdsPieceAtPoint(player, pos)){
-				count++;
-			}
-		}
-		return count;
-	}
-
 }
@@ -1,17 +1,38 @@
 package com.ahaines.checker.service;
 
 import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.ahaines.ai.search.game.GameFinishedException;
+import com.ahaines.ai.search.game.LazySmpSearchService;
+import com.ahaines.ai.search.game.OpeningBook;
 import com.ahaines.ai.search.game.TurnDrivenGameService;
+import com.ahaines.ai.search.mcts.service.MonteCarloTreeSearchService;
+import com.ahaines.ai.search.mcts.service.MonteCarloTreeSearchService.MonteCarloTreeSearchServiceBuilder;
 import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
 import com.ahaines.ai.search.minmax.service.AlphaBetaPrunningSuccessorService;
+import com.ahaines.ai.search.minmax.service.AspirationWindowSearchService.AspirationWindowSearchServiceBuilder;
+import com.ahaines.ai.search.minmax.service.IterativeDeepeningSuccessorService;
+import com.ahaines.ai.search.minmax.service.LateMoveReductionPolicy;
 import com.ahaines.ai.search.minmax.service.MinMaxSuccessorService;
+import com.ahaines.ai.search.minmax.service.MoveDescriptionService;
+import com.ahaines.ai.search.minmax.service.MoveOrderingService;
+import com.ahaines.ai.search.minmax.service.MtdfSearchService.MtdfSearchServiceBuilder;
+import com.ahaines.ai.search.minmax.service.PrincipalVariationSearchSuccessorService;
+import com.ahaines.ai.search.minmax.service.TranspositionTableSuccessorService;
 import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.ai.search.minmax.service.WindowedSearchService.WindowedSearchServiceBuilder;
 import com.ahaines.ai.search.service.CachedSuccessorService;
+import com.ahaines.ai.search.service.SearchService;
+import com.ahaines.ai.search.service.SplitService;
+import com.ahaines.ai.search.service.SplitService.IndependentSplitService;
 import com.ahaines.ai.search.service.SuccessorNodeService;
 import com.ahaines.ai.search.service.SuccessorService;
+import com.ahaines.ai.search.service.ZobristStateKeyService;
 import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
 import com.ahaines.ai.search.service.heurstic.service.HeuristicSearchService.HeuristicSearchServiceBuilder;
 import com.ahaines.boardgame.model.Piece;
@@ -19,24 +40,34 @@ import com.ahaines.boardgame.model.PieceLookup;
 import com.ahaines.boardgame.model.Player;
 import com.ahaines.boardgame.model.PlayerLookup;
 import com.ahaines.boardgame.model.Position;
+import com.ahaines.boardgame.model.ZobristHashable;
+import com.ahaines.checker.service.CheckersBoardAdapter.BitboardCheckersBoardAdapter;
+import com.ahaines.checker.service.CheckersBoardAdapter.IdentityCheckersBoardAdapter;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.BitboardCheckersBoard.PieceMapping;
 import com.ahaines.checkers.model.CheckersBoard;
 import com.ahaines.checkers.model.CheckersPiece;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
 import com.ahaines.checkers.model.Move;
+import com.ahaines.checkers.model.PackedMove;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 public class CheckersGame {
 
-	private final TurnDrivenGameService<CheckersBoard> gameService;
+	private final GameDriver<?> gameService;
 	private final CheckersPieceLookup pieceLookup;
 	private final BoardIdService boardIdService;
+	private final PieceMapping mapping;
+	private final BitboardCheckersSuccessorService moveGenerator;
 	
-	private CheckersGame(TurnDrivenGameService<CheckersBoard> gameService, CheckersPieceLookup pieceLookup, BoardIdService boardIdService){
+	private CheckersGame(GameDriver<?> gameService, CheckersPieceLookup pieceLookup, PieceMapping mapping, BoardIdService boardIdService){
 		this.gameService = gameService;
 		this.pieceLookup = pieceLookup;
+		this.mapping = mapping;
 		this.boardIdService = boardIdService;
+		this.moveGenerator = new BitboardCheckersSuccessorService(boardIdService);
 	}
 	
 	public Boolean isWon() {
@@ -62,8 +93,13 @@ public class CheckersGame {
 	
 	public CheckersBoard playMove(Iterable<Move> moves) throws GameFinishedException {
 		CheckersBoard board = gameService.getCurrentState();
+		List<Move> reverseStack = Lists.reverse(Lists.newArrayList(moves));
+		
+		if (!isPermittedMove(board, PackedMove.encode(reverseStack))){
+			throw new IllegalArgumentException("The move "+reverseStack+" is not permitted by the game rules");
+		}
+		
 		CheckersBoard nextState = new CheckersBoard(boardIdService.nextId(), board);
-		Iterable<Move> reverseStack = Lists.reverse(Lists.newArrayList(moves));
 		for (Move move: reverseStack){
 			
 			Piece<CheckersPieceDescription> piece = getPieceAtPossition(move.getFrom(), nextState);
@@ -90,6 +126,27 @@ public class CheckersGame {
 		return gameService.getCurrentState();
 	}
 	
+	/**
+	 * Checks the proposed move against the moves available on the board
+	 * @param board
+	 * @param proposedMove
+	 * @return
+	 */
+	private boolean isPermittedMove(CheckersBoard board, long proposedMove){
+		if (proposedMove == PackedMove.NO_MOVE){
+			return false;
+		}
+		long[] permittedMoves = new long[BitboardCheckersSuccessorService.MAX_MOVES];
+		int moveCount = moveGenerator.generateMoves(BitboardCheckersBoard.fromCheckersBoard(board.getId(), board, mapping), permittedMoves);
+		
+		for (int i = 0; i < moveCount; i++){
+			if (PackedMove.isSamePath(permittedMoves[i], proposedMove)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private void removeAnyCapturedPieces(Move move, CheckersBoard nextState){
 		int takenPieceXCoord = (move.getFrom().getXCoord()+move.getTo().getXCoord()) / 2;
 		int takenPieceYCoord = (move.getFrom().getYCoord()+move.getTo().getYCoord()) / 2;
@@ -113,17 +170,120 @@ public class CheckersGame {
 		return piece;
 	}
 
+	/**
+	 * The ways each move of the computer can be searched, set with
+	 * {@link CheckersGameBuilder#setSearchStrategy(SearchStrategy)}. Each strategy says which of the ways of searching
+	 * with more then 1 thread, and which other options of the builder, it can be combined with.
+	 * @author andrewhaines
+	 *
+	 */
+	public static enum SearchStrategy{
+		/**
+		 * Searches every move to the depth limit without pruning
+		 */
+		MINIMAX(false, true, true, true),
+		/**
+		 * Prunes the moves that can not be chosen (see {@link AlphaBetaPrunningSuccessorService}). The default.
+		 */
+		ALPHA_BETA(false, true, true, true),
+		/**
+		 * Searches using {@link PrincipalVariationSearchSuccessorService} in place of alpha beta pruning. This is most
+		 * effective with {@link CheckersGameBuilder#useMoveOrdering(boolean)}.
+		 */
+		PRINCIPAL_VARIATION(true, false, true, true),
+		/**
+		 * Searches each move by MTD(f) (see {@link com.ahaines.ai.search.minmax.service.MtdfSearchService}), a series of
+		 * null window principal variation searches that converge on the cost of the move. A transposition table is
+		 * always used to hold the bounds found by each search and the node cache is not used.
+		 */
+		MTDF(true, false, true, true),
+		/**
+		 * Searches each move within a window either side of the cost found when the same state was last searched, such
+		 * as by the previous iteration of {@link CheckersGameBuilder#setMoveTimeBudget(long)}, widening it whenever the
+		 * cost falls outside (see {@link com.ahaines.ai.search.minmax.service.AspirationWindowSearchService}). The size
+		 * of the window must be set by {@link CheckersGameBuilder#setAspirationWindow(int)}. This is best used with a
+		 * transposition table and the node cache is not used.
+		 */
+		ASPIRATION_WINDOW(true, false, true, true),
+		/**
+		 * Chooses moves by Monte Carlo tree search (see {@link MonteCarloTreeSearchService}) rather then by searching to
+		 * the depth limit. Each move is searched for the move time budget or, when there is none, until the playout
+		 * limit (see {@link CheckersGameBuilder#setPlayoutLimit(int)}). Playouts are made by the number of threads set
+		 * by {@link CheckersGameBuilder#setSearchThreads(int)}, all searching the same tree. The other search options
+		 * have no effect other then on how the moves available are found.
+		 */
+		MONTE_CARLO_TREE_SEARCH(false, true, false, false);
+		
+		private final boolean principalVariation;
+		private final boolean searchThreadsSupported;
+		private final boolean lazySmpHelpersSupported;
+		private final boolean ponderingSupported;
+		
+		private SearchStrategy(boolean principalVariation, boolean searchThreadsSupported, boolean lazySmpHelpersSupported, boolean ponderingSupported){
+			this.principalVariation = principalVariation;
+			this.searchThreadsSupported = searchThreadsSupported;
+			this.lazySmpHelpersSupported = lazySmpHelpersSupported;
+			this.ponderingSupported = ponderingSupported;
+		}
+		
+		/**
+		 * Returns true if moves are searched by {@link PrincipalVariationSearchSuccessorService}
+		 */
+		public boolean isPrincipalVariation(){
+			return principalVariation;
+		}
+		
+		/**
+		 * Returns true if each move can be searched by more then 1 thread. See {@link CheckersGameBuilder#setSearchThreads(int)}
+		 */
+		public boolean isSearchThreadsSupported(){
+			return searchThreadsSupported;
+		}
+		
+		/**
+		 * Returns true if helpers can search alongside the main search. See {@link CheckersGameBuilder#setLazySmpHelpers(int)}
+		 */
+		public boolean isLazySmpHelpersSupported(){
+			return lazySmpHelpersSupported;
+		}
+		
+		/**
+		 * Returns true if the predicted reply can be searched in advance. See {@link CheckersGameBuilder#usePondering(boolean)}
+		 */
+		public boolean isPonderingSupported(){
+			return ponderingSupported;
+		}
+	}
+
 	public static class CheckersGameBuilder{
 		
 		private static final int DEFAULT_DEPTH_LIMIT = 40;
+		private static final int DEFAULT_TRANSPOSITION_TABLE_SIZE = 1 << 18;
 		private boolean useCaching;
-		private boolean useAlphaBetaPrunning;
+		private SearchStrategy searchStrategy;
+		private boolean useMoveOrdering;
+		private int aspirationWindow;
+		private boolean useLateMoveReductions;
+		private int playoutLimit;
+		private boolean useTranspositionTable;
+		private int transpositionTableSize;
 		private int depthLimit;
+		private int quiescenceDepthLimit;
+		private long moveTimeBudget;
+		private int searchThreads;
+		private int lazySmpHelpers;
+		private boolean usePondering;
+		private EndgameTablebase endgameTablebase;
+		private PieceSquareTable pieceSquareTable;
+		private OpeningBook openingBook;
 		private CostFunctionService<CheckersBoard> checkersCostFunctionService;
 		private PlayerLookup<CheckersPieceDescription> playerLookup;
 		private final BoardIdService boardIdService;
 		private TurnDrivenGoalService<CheckersBoard> checkersGoalService;
 		private Turn startingTurn;
+		private boolean useBitboards;
+		private CostFunctionService<BitboardCheckersBoard> bitboardCostFunctionService;
+		private int bitboardPointsForAWin;
 		
 		public <T extends Enum<T> & Turn> CheckersGameBuilder(PlayerLookup<CheckersPieceDescription> playerLookup, BoardIdService boardIdService, Class<T> turnType){
 			
@@ -133,11 +293,24 @@ public class CheckersGame {
 			this.playerLookup = playerLookup;
 			
 			// defaults
-			checkersGoalService = new CheckersGoalService(playerLookup);
-			this.checkersCostFunctionService = new CheckersCostFunctionService(playerLookup, checkersGoalService);
+			checkersGoalService = new CheckersGoalService();
+			this.checkersCostFunctionService = new CheckersCostFunctionService(checkersGoalService);
 			this.useCaching = true;
-			this.useAlphaBetaPrunning = true;
+			this.searchStrategy = SearchStrategy.ALPHA_BETA;
+			this.useMoveOrdering = false;
+			this.aspirationWindow = 0;
+			this.useLateMoveReductions = false;
+			this.playoutLimit = MonteCarloTreeSearchService.DEFAULT_PLAYOUT_LIMIT;
+			this.useBitboards = false;
+			this.useTranspositionTable = false;
+			this.transpositionTableSize = DEFAULT_TRANSPOSITION_TABLE_SIZE;
+			this.bitboardCostFunctionService = new BitboardCheckersCostFunctionService(new BitboardCheckersGoalService());
+			this.bitboardPointsForAWin = BitboardCheckersCostFunctionService.POINTS_FOR_A_WIN;
 			this.depthLimit = DEFAULT_DEPTH_LIMIT;
+			this.quiescenceDepthLimit = 0;
+			this.moveTimeBudget = TurnDrivenGameService.NO_TIME_BUDGET;
+			this.searchThreads = 1;
+			this.lazySmpHelpers = 0;
 			this.boardIdService = boardIdService;
 			
 			// random starting turn
@@ -152,8 +325,115 @@ public class CheckersGame {
 			return this;
 		}
 		
+		/**
+		 * Sets the search strategy to {@link SearchStrategy#ALPHA_BETA} or, if false, {@link SearchStrategy#MINIMAX}
+		 * @param val
+		 * @return
+		 */
 		public CheckersGameBuilder useAlphaBetaPrunning(boolean val){
-			this.useAlphaBetaPrunning = val;
+			return setSearchStrategy(val?SearchStrategy.ALPHA_BETA:SearchStrategy.MINIMAX);
+		}
+		
+		/**
+		 * Sets how each move of the computer is searched. Defaults to {@link SearchStrategy#ALPHA_BETA}.
+		 * @param searchStrategy
+		 * @return
+		 */
+		public CheckersGameBuilder setSearchStrategy(SearchStrategy searchStrategy){
+			this.searchStrategy = searchStrategy;
+			return this;
+		}
+		
+		/**
+		 * Orders the moves searched with alpha beta pruning (see {@link MoveOrderingService}) so that more of the tree
+		 * is pruned. Has no effect with {@link SearchStrategy#MINIMAX}. Note that moves are not ordered
+		 * when searching with more then 1 thread (see {@link #setSearchThreads(int)}) as the order would then depend on
+		 * when each thread recorded its cut offs, so the move chosen could differ from a serial search.
+		 * @param val
+		 * @return
+		 */
+		public CheckersGameBuilder useMoveOrdering(boolean val){
+			this.useMoveOrdering = val;
+			return this;
+		}
+		
+		/**
+		 * Sets how far either side of the last cost of a state it is searched within by
+		 * {@link SearchStrategy#ASPIRATION_WINDOW}, which requires a window to be set.
+		 * @param aspirationWindow
+		 * @return
+		 */
+		public CheckersGameBuilder setAspirationWindow(int aspirationWindow){
+			if (aspirationWindow < 1){
+				throw new IllegalArgumentException("aspiration window must be positive: "+aspirationWindow);
+			}
+			this.aspirationWindow = aspirationWindow;
+			return this;
+		}
+		
+		/**
+		 * Searches quiet moves that come late in the order moves are searched to a reduced depth, searching them again
+		 * to the full depth if they prove better then the best move so far (see {@link LateMoveReductionPolicy}). This
+		 * can only be used with the search strategies that search by principal variation (see
+		 * {@link SearchStrategy#isPrincipalVariation()}) and is most effective with {@link #useMoveOrdering(boolean)}.
+		 * @param val
+		 * @return
+		 */
+		public CheckersGameBuilder useLateMoveReductions(boolean val){
+			this.useLateMoveReductions = val;
+			return this;
+		}
+		
+		/**
+		 * Sets the maximum number of playouts made for each move when searching by Monte Carlo tree search. See
+		 * {@link SearchStrategy#MONTE_CARLO_TREE_SEARCH}
+		 * @param playoutLimit
+		 * @return
+		 */
+		public CheckersGameBuilder setPlayoutLimit(int playoutLimit){
+			if (playoutLimit < 1){
+				throw new IllegalArgumentException("at least 1 playout is required: "+playoutLimit);
+			}
+			this.playoutLimit = playoutLimit;
+			return this;
+		}
+		
+		public CheckersGameBuilder useTranspositionTable(boolean val){
+			this.useTranspositionTable = val;
+			return this;
+		}
+		
+		/**
+		 * Sets the number of entries held in the transposition table. This is rounded up to the next power of 2.
+		 * @param size
+		 * @return
+		 */
+		public CheckersGameBuilder setTranspositionTableSize(int size){
+			this.transpositionTableSize = size;
+			return this;
+		}
+		
+		/**
+		 * Searches the game using {@link BitboardCheckersBoard} states rather then {@link CheckersBoard}s. The game is
+		 * still exposed using {@link CheckersBoard}s.
+		 * @param val
+		 * @return
+		 */
+		public CheckersGameBuilder useBitboards(boolean val){
+			this.useBitboards = val;
+			return this;
+		}
+		
+		/**
+		 * Sets the cost function used when the game is searched using bitboards. See {@link #useBitboards(boolean)}
+		 * @param costFunctionService
+		 * @param pointsForAWin The cost the cost function gives a won state, which wins found in an endgame
+		 * tablebase are costed from
+		 * @return
+		 */
+		public CheckersGameBuilder setBitboardCostFunctionService(CostFunctionService<BitboardCheckersBoard> costFunctionService, int pointsForAWin){
+			this.bitboardCostFunctionService = costFunctionService;
+			this.bitboardPointsForAWin = pointsForAWin;
 			return this;
 		}
 		
@@ -173,27 +453,317 @@ public class CheckersGame {
 			return this;
 		}
 		
+		/**
+		 * Sets the number of captures that are played out beyond the depth limit before a state is evaluated, so that a
+		 * state is not evaluated just before a piece is lost (see {@link MinMaxSuccessorService}). This lets a lower depth
+		 * limit be searched for the same strength of play. 0, the default, evaluates states at the depth limit.
+		 * @param quiescenceDepthLimit
+		 * @return
+		 */
+		public CheckersGameBuilder setQuiescenceDepthLimit(int quiescenceDepthLimit){
+			if (quiescenceDepthLimit < 0){
+				throw new IllegalArgumentException("quiescence depth limit can not be negative: "+quiescenceDepthLimit);
+			}
+			this.quiescenceDepthLimit = quiescenceDepthLimit;
+			
+			return this;
+		}
+		
+		/**
+		 * Searches each move by iterative deepening for the supplied number of milliseconds rather then straight to
+		 * the depth limit. Note that the node cache is not used when searching this way as it would retain the trees
+		 * of earlier iterations. Use with {@link #useTranspositionTable(boolean)} to carry results between iterations.
+		 * @param moveTimeBudget
+		 * @return
+		 */
+		public CheckersGameBuilder setMoveTimeBudget(long moveTimeBudget){
+			this.moveTimeBudget = moveTimeBudget;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the number of threads each move is searched with. When more then 1, the moves available are searched in
+		 * parallel in a {@link ForkJoinPool} of this size. The same move is chosen as when searching with a single thread.
+		 * Note that the node cache is not used when searching in parallel. Only the search strategies that support it can
+		 * be searched with more then 1 thread (see {@link SearchStrategy#isSearchThreadsSupported()}).
+		 * @param searchThreads
+		 * @return
+		 */
+		public CheckersGameBuilder setSearchThreads(int searchThreads){
+			if (searchThreads < 1){
+				throw new IllegalArgumentException("at least 1 search thread is required: "+searchThreads);
+			}
+			this.searchThreads = searchThreads;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the number of helper threads that search each move alongside the main search, sharing results through
+		 * the transposition table (Lazy SMP). The move found by the main search is always the one played. Helpers
+		 * require a move time budget (see {@link #setMoveTimeBudget(long)}) and imply the use of a transposition table.
+		 * They can only be used with a single search thread and the search strategies that support them (see
+		 * {@link SearchStrategy#isLazySmpHelpersSupported()}).
+		 * @param lazySmpHelpers
+		 * @return
+		 */
+		public CheckersGameBuilder setLazySmpHelpers(int lazySmpHelpers){
+			if (lazySmpHelpers < 0){
+				throw new IllegalArgumentException("number of helpers can not be negative: "+lazySmpHelpers);
+			}
+			this.lazySmpHelpers = lazySmpHelpers;
+			
+			return this;
+		}
+		
+		/**
+		 * Searches the reply the opponent is predicted to make while they think about their move (pondering). See
+		 * {@link TurnDrivenGameService#setPondering(boolean)}. Pondering can only be used with the search strategies that
+		 * support it (see {@link SearchStrategy#isPonderingSupported()}).
+		 * @param val
+		 * @return
+		 */
+		public CheckersGameBuilder usePondering(boolean val){
+			this.usePondering = val;
+			
+			return this;
+		}
+		
+		/**
+		 * Ends the search at positions held in the supplied endgame tablebase, costing them by their exact result. See
+		 * {@link EndgameTablebaseGoalService}. The tablebase can only be used with bitboards.
+		 * @param endgameTablebase
+		 * @return
+		 */
+		public CheckersGameBuilder setEndgameTablebase(EndgameTablebase endgameTablebase){
+			this.endgameTablebase = endgameTablebase;
+			
+			return this;
+		}
+		
+		/**
+		 * Costs the boards searched by the weights of the supplied piece square table (see
+		 * {@link PieceSquareTableCostFunctionService}) in place of the bitboard cost function. The table can only be used
+		 * with bitboards.
+		 * @param pieceSquareTable
+		 * @return
+		 */
+		public CheckersGameBuilder setPieceSquareTable(PieceSquareTable pieceSquareTable){
+			this.pieceSquareTable = pieceSquareTable;
+			
+			return this;
+		}
+		
+		/**
+		 * Plays the moves of the computer from the supplied opening book while the game is in it, such as one written
+		 * by {@link CheckersOpeningBookGenerator}. See {@link TurnDrivenGameService#setOpeningBook(OpeningBook, com.ahaines.ai.search.service.StateKeyService, SuccessorService)}
+		 * @param openingBook
+		 * @return
+		 */
+		public CheckersGameBuilder setOpeningBook(OpeningBook openingBook){
+			this.openingBook = openingBook;
+			
+			return this;
+		}
+		
 		public CheckersGame build(){
+			if (lazySmpHelpers > 0 && moveTimeBudget == TurnDrivenGameService.NO_TIME_BUDGET){
+				throw new IllegalStateException("a move time budget is required to search with helpers");
+			}
+			if (searchThreads > 1 && !searchStrategy.isSearchThreadsSupported()){
+				throw new IllegalStateException(searchStrategy+" can only be used with a single search thread");
+			}
+			if (lazySmpHelpers > 0 && !searchStrategy.isLazySmpHelpersSupported()){
+				throw new IllegalStateException("helpers can not be used with "+searchStrategy);
+			}
+			if (lazySmpHelpers > 0 && searchThreads > 1){
+				throw new IllegalStateException("helpers can not be used with more then 1 search thread");
+			}
+			if (usePondering && !searchStrategy.isPonderingSupported()){
+				throw new IllegalStateException("pondering can not be used with "+searchStrategy);
+			}
+			if (useLateMoveReductions && !searchStrategy.isPrincipalVariation()){
+				throw new IllegalStateException("late move reductions can not be used with "+searchStrategy);
+			}
+			if (searchStrategy == SearchStrategy.ASPIRATION_WINDOW && aspirationWindow == 0){
+				throw new IllegalStateException("an aspiration window is required to search with "+searchStrategy);
+			}
+			if ((endgameTablebase != null || pieceSquareTable != null) && !useBitboards){
+				throw new IllegalStateException("an endgame tablebase or piece square table can only be used with bitboards");
+			}
 			
 			CheckersPieceLookup pieceLookup = new CheckersPieceLookup(playerLookup);
 			
-			SuccessorService<CheckersBoard> checkersSuccessorService = new CheckersSuccessorService(playerLookup, pieceLookup,  boardIdService);
+			CheckersBoard startingState = createStartingState(playerLookup, pieceLookup);
+			PieceMapping mapping = new PieceMapping(playerLookup, pieceLookup);
+			
+			if (useBitboards){
+
+				CheckersBoardAdapter<BitboardCheckersBoard> adapter = new BitboardCheckersBoardAdapter(mapping, boardIdService);
+				BitboardCheckersSuccessorService checkersSuccessorService = new BitboardCheckersSuccessorService(boardIdService);
+				
+				TurnDrivenGoalService<BitboardCheckersBoard> goalService = new BitboardCheckersGoalService();
+				TurnDrivenGoalService<BitboardCheckersBoard> searchGoalService = goalService;
+				CostFunctionService<BitboardCheckersBoard> costFunctionService = bitboardCostFunctionService;
+				int pointsForAWin = bitboardPointsForAWin;
+				if (pieceSquareTable != null){
+					costFunctionService = new PieceSquareTableCostFunctionService(goalService, pieceSquareTable);
+					pointsForAWin = PieceSquareTableCostFunctionService.POINTS_FOR_A_WIN;
+				}
+				if (endgameTablebase != null){
+					searchGoalService = new EndgameTablebaseGoalService(goalService, endgameTablebase);
+					costFunctionService = new EndgameTablebaseCostFunctionService(costFunctionService, pointsForAWin, endgameTablebase);
+				}
+				return new CheckersGame(createGameDriver(checkersSuccessorService, checkersSuccessorService.getCaptureSuccessorService(), goalService, searchGoalService, costFunctionService, new BitboardCheckersMoveDescriptionService(), adapter, startingState), pieceLookup, mapping, boardIdService);
+			}
+			
+			CheckersSuccessorService checkersSuccessorService = new CheckersSuccessorService(playerLookup, pieceLookup,  boardIdService);
 			
-			MinMaxSuccessorService<CheckersBoard> minMaxSuccessorFunction = new MinMaxSuccessorService<CheckersBoard>(checkersSuccessorService, checkersGoalService, checkersCostFunctionService);
-			SuccessorNodeService<MinMaxState<CheckersBoard>> successorNodeService = minMaxSuccessorFunction;
+			return new CheckersGame(createGameDriver(checkersSuccessorService, checkersSuccessorService.getCaptureSuccessorService(), checkersGoalService, checkersGoalService, checkersCostFunctionService, new CheckersMoveDescriptionService(pieceLookup), new IdentityCheckersBoardAdapter(), startingState), pieceLookup, mapping, boardIdService);
+		}
+		
+		/**
+		 * @param captureSuccessorService Generates only the successors reached by a capture, for the quiescence search
+		 * @param goalService Decides when the game has been won
+		 * @param searchGoalService Decides the states the search goes no further then
+		 */
+		private <B extends TurnDrivenState & ZobristHashable> GameDriver<B> createGameDriver(SuccessorService<B> checkersSuccessorService, SuccessorService<B> captureSuccessorService, TurnDrivenGoalService<B> goalService, TurnDrivenGoalService<B> searchGoalService, CostFunctionService<B> costFunctionService, MoveDescriptionService<B> moveDescriptionService, CheckersBoardAdapter<B> adapter, CheckersBoard startingState){
+			MinMaxSuccessorService<B> minMaxSuccessorFunction = new MinMaxSuccessorService<B>(checkersSuccessorService, searchGoalService, costFunctionService, captureSuccessorService, quiescenceDepthLimit);
+			SuccessorNodeService<MinMaxState<B>> successorNodeService = minMaxSuccessorFunction;
+			SplitService<MinMaxState<B>> splitService = new IndependentSplitService<MinMaxState<B>>();
 			
-			if (useAlphaBetaPrunning){
-				successorNodeService = new AlphaBetaPrunningSuccessorService<CheckersBoard>(minMaxSuccessorFunction);
+			TranspositionTable transpositionTable = null;
+			if (useTranspositionTable || searchStrategy == SearchStrategy.MTDF || lazySmpHelpers > 0){
+				transpositionTable = new TranspositionTable(transpositionTableSize);
 			}
 			
-			if (useCaching){
-				successorNodeService = new CachedSuccessorService<MinMaxState<CheckersBoard>>(successorNodeService);
+			if (searchStrategy.isPrincipalVariation()){
+				successorNodeService = new PrincipalVariationSearchSuccessorService<B>(minMaxSuccessorFunction, createMoveOrderingService(moveDescriptionService, transpositionTable));
+			} else if (searchStrategy != SearchStrategy.MINIMAX){
+				AlphaBetaPrunningSuccessorService<B> alphaBetaPrunningService = new AlphaBetaPrunningSuccessorService<B>(minMaxSuccessorFunction, createMoveOrderingService(moveDescriptionService, transpositionTable));
+				successorNodeService = alphaBetaPrunningService;
+				splitService = alphaBetaPrunningService;
 			}
-			HeuristicSearchServiceBuilder<MinMaxState<CheckersBoard>> searchService = new HeuristicSearchServiceBuilder<MinMaxState<CheckersBoard>>(successorNodeService);
 			
-			CheckersBoard startingState = createStartingState(playerLookup, pieceLookup);
+			if (transpositionTable != null){
+				successorNodeService = new TranspositionTableSuccessorService<B>(successorNodeService, transpositionTable, new ZobristStateKeyService<B>());
+			}
 			
-			return new CheckersGame(new TurnDrivenGameService<CheckersBoard>(searchService.build(), startingState, checkersGoalService, depthLimit), pieceLookup, boardIdService);
+			IterativeDeepeningSuccessorService<B> iterativeDeepeningService = null;
+			if (moveTimeBudget != TurnDrivenGameService.NO_TIME_BUDGET){
+				iterativeDeepeningService = new IterativeDeepeningSuccessorService<B>(successorNodeService);
+				successorNodeService = iterativeDeepeningService;
+			} else if (useCaching && searchThreads == 1 && !isWindowedSearch()){ // cached states would keep the windows of earlier searches
+				successorNodeService = new CachedSuccessorService<MinMaxState<B>>(successorNodeService);
+			}
+			SearchService<MinMaxState<B>> searchService;
+			ForkJoinPool forkJoinPool = null;
+			if (isWindowedSearch()){
+				searchService = createWindowedSearchService(successorNodeService, iterativeDeepeningService, moveDescriptionService);
+			} else{
+				HeuristicSearchServiceBuilder<MinMaxState<B>> searchServiceBuilder = new HeuristicSearchServiceBuilder<MinMaxState<B>>(successorNodeService)
+						.useDepthReductionPolicy(createDepthReductionPolicy(moveDescriptionService));
+				
+				if (searchThreads > 1){
+					forkJoinPool = new ForkJoinPool(searchThreads);
+					searchServiceBuilder.useForkJoinPool(forkJoinPool, splitService);
+				}
+				searchService = searchServiceBuilder.build();
+			}
+			
+			TurnDrivenGameService<B> gameService = new TurnDrivenGameService<B>(searchService, adapter.fromCheckersBoard(startingState), goalService, depthLimit, iterativeDeepeningService);
+			if (searchStrategy == SearchStrategy.MONTE_CARLO_TREE_SEARCH){
+				gameService.setMonteCarloTreeSearchService(new MonteCarloTreeSearchServiceBuilder<B>(checkersSuccessorService, goalService)
+						.setPlayoutLimit(playoutLimit)
+						.setSearchThreads(searchThreads)
+						.build());
+			}
+			gameService.setTranspositionTable(transpositionTable);
+			gameService.setMoveTimeBudget(moveTimeBudget);
+			gameService.setPondering(usePondering);
+			if (openingBook != null){
+				gameService.setOpeningBook(openingBook, new ZobristStateKeyService<B>(), checkersSuccessorService);
+			}
+			
+			if (lazySmpHelpers > 0){
+				gameService.setLazySmpSearchService(createLazySmpSearchService(checkersSuccessorService, captureSuccessorService, searchGoalService, costFunctionService, moveDescriptionService, transpositionTable));
+			}
+			
+			return new GameDriver<B>(gameService, adapter, forkJoinPool);
+		}
+		
+		/**
+		 * Returns true if moves are searched by a number of searches with the start state restricted to a window
+		 */
+		private boolean isWindowedSearch(){
+			return searchStrategy == SearchStrategy.MTDF || searchStrategy == SearchStrategy.ASPIRATION_WINDOW;
+		}
+		
+		private <B extends TurnDrivenState> SearchService<MinMaxState<B>> createWindowedSearchService(SuccessorNodeService<MinMaxState<B>> successorNodeService, IterativeDeepeningSuccessorService<B> iterativeDeepeningService, MoveDescriptionService<B> moveDescriptionService){
+			WindowedSearchServiceBuilder<B> searchServiceBuilder;
+			if (searchStrategy == SearchStrategy.MTDF){
+				searchServiceBuilder = new MtdfSearchServiceBuilder<B>(successorNodeService);
+			} else{
+				searchServiceBuilder = new AspirationWindowSearchServiceBuilder<B>(successorNodeService, aspirationWindow);
+			}
+			return searchServiceBuilder.setIterativeDeepeningService(iterativeDeepeningService)
+					.useDepthReductionPolicy(createDepthReductionPolicy(moveDescriptionService))
+					.build();
+		}
+		
+		/**
+		 * Returns the policy to reduce the depth moves are searched to or null if every move is searched to the full depth
+		 */
+		private <B extends TurnDrivenState> LateMoveReductionPolicy<B> createDepthReductionPolicy(MoveDescriptionService<B> moveDescriptionService){
+			return useLateMoveReductions?new LateMoveReductionPolicy<B>(moveDescriptionService):null;
+		}
+		
+		/**
+		 * Returns the service to order moves with, which searches the best move recorded in the transposition table
+		 * first when there is one, or null if moves are not ordered
+		 */
+		private <B extends TurnDrivenState & ZobristHashable> MoveOrderingService<B> createMoveOrderingService(MoveDescriptionService<B> moveDescriptionService, TranspositionTable transpositionTable){
+			if (!useMoveOrdering || searchThreads > 1){
+				return null;
+			}
+			if (transpositionTable == null){
+				return new MoveOrderingService<B>(moveDescriptionService);
+			}
+			return new MoveOrderingService<B>(moveDescriptionService, transpositionTable, new ZobristStateKeyService<B>());
+		}
+		
+		/**
+		 * Creates the helpers, each with its own chain of search services recording to the transposition table of the
+		 * main search. The underlying checkers services hold no search state so are shared.
+		 */
+		private <B extends TurnDrivenState & ZobristHashable> LazySmpSearchService<B> createLazySmpSearchService(SuccessorService<B> checkersSuccessorService, SuccessorService<B> captureSuccessorService, TurnDrivenGoalService<B> goalService, CostFunctionService<B> costFunctionService, MoveDescriptionService<B> moveDescriptionService, TranspositionTable transpositionTable){
+			LazySmpSearchService<B> lazySmpSearchService = new LazySmpSearchService<B>();
+			
+			for (int i = 0; i < lazySmpHelpers; i++){
+				MinMaxSuccessorService<B> minMaxSuccessorFunction = new MinMaxSuccessorService<B>(checkersSuccessorService, goalService, costFunctionService, captureSuccessorService, quiescenceDepthLimit);
+				SuccessorNodeService<MinMaxState<B>> successorNodeService = minMaxSuccessorFunction;
+				
+				if (searchStrategy.isPrincipalVariation()){
+					successorNodeService = new PrincipalVariationSearchSuccessorService<B>(minMaxSuccessorFunction, createMoveOrderingService(moveDescriptionService, transpositionTable));
+				} else if (searchStrategy != SearchStrategy.MINIMAX){
+					successorNodeService = new AlphaBetaPrunningSuccessorService<B>(minMaxSuccessorFunction, createMoveOrderingService(moveDescriptionService, transpositionTable));
+				}
+				successorNodeService = new TranspositionTableSuccessorService<B>(successorNodeService, transpositionTable, new ZobristStateKeyService<B>());
+				
+				IterativeDeepeningSuccessorService<B> iterativeDeepeningService = new IterativeDeepeningSuccessorService<B>(successorNodeService, i + 1); // vary the move order of each helper
+				
+				SearchService<MinMaxState<B>> searchService;
+				if (isWindowedSearch()){
+					searchService = createWindowedSearchService(iterativeDeepeningService, iterativeDeepeningService, moveDescriptionService);
+				} else{
+					searchService = new HeuristicSearchServiceBuilder<MinMaxState<B>>(iterativeDeepeningService)
+							.useDepthReductionPolicy(createDepthReductionPolicy(moveDescriptionService))
+							.build();
+				}
+				lazySmpSearchService.addHelper(searchService, iterativeDeepeningService);
+			}
+			return lazySmpSearchService;
 		}
 
 		private CheckersBoard createStartingState(PlayerLookup<CheckersPieceDescription> playerLookup, PieceLookup<CheckersPieceDescription> pieceLookup) {
@@ -245,4 +815,114 @@ public class CheckersGame {
 	public void setDepthLimit(int newDepthLimit) {
 		this.gameService.setDepthLimit(newDepthLimit);
 	}
+	
+	/**
+	 * Cancels the search of the move the computer is currently making, which then plays the best move found so far.
+	 * This can be called from a thread other then the one calling {@link #getNextMove()}, including before the move has
+	 * started, in which case the next move is cancelled.
+	 */
+	public void cancelSearch() {
+		this.gameService.cancelSearch();
+	}
+	
+	/**
+	 * Turns pondering on or off. Turning it off also stops any search of the predicted reply and releases the thread
+	 * it is made on. See {@link CheckersGameBuilder#usePondering(boolean)}
+	 * @param pondering
+	 */
+	public void setPondering(boolean pondering) {
+		this.gameService.setPondering(pondering);
+	}
+	
+	/**
+	 * Returns the number of moves the computer has played from the opening book. See
+	 * {@link CheckersGameBuilder#setOpeningBook(OpeningBook)}
+	 * @return
+	 */
+	public int getBookMoves() {
+		return this.gameService.getBookMoves();
+	}
+	
+	/**
+	 * Changes the time each move is searched for. The game must have been built with a move time budget.
+	 * See {@link CheckersGameBuilder#setMoveTimeBudget(long)}
+	 * @param moveTimeBudget
+	 */
+	public void setMoveTimeBudget(long moveTimeBudget) {
+		this.gameService.setMoveTimeBudget(moveTimeBudget);
+	}
+	
+	/**
+	 * Stops any search pondered on and releases the threads the game searches with. No further moves can be made by
+	 * the computer.
+	 */
+	public void shutdown() {
+		this.gameService.shutdown();
+	}
+	
+	/**
+	 * Drives a {@link TurnDrivenGameService} of the state representation the game is searched with, exposing the
+	 * states as {@link CheckersBoard}s.
+	 * @author andrewhaines
+	 *
+	 * @param <B>
+	 */
+	private static class GameDriver<B extends TurnDrivenState> {
+		
+		private final TurnDrivenGameService<B> gameService;
+		private final CheckersBoardAdapter<B> adapter;
+		private final ForkJoinPool forkJoinPool;
+		
+		/**
+		 * @param forkJoinPool The pool the game service searches in parallel with or null if it searches with a single thread
+		 */
+		private GameDriver(TurnDrivenGameService<B> gameService, CheckersBoardAdapter<B> adapter, ForkJoinPool forkJoinPool){
+			this.gameService = gameService;
+			this.adapter = adapter;
+			this.forkJoinPool = forkJoinPool;
+		}
+		
+		public boolean playNextMove() throws GameFinishedException{
+			return gameService.playNextMove();
+		}
+		
+		public boolean playNextMove(CheckersBoard proposedState) throws GameFinishedException{
+			return gameService.playNextMove(adapter.fromCheckersBoard(proposedState));
+		}
+		
+		public CheckersBoard getCurrentState(){
+			return adapter.toCheckersBoard(gameService.getCurrentState());
+		}
+		
+		public boolean isStateWon(){
+			return gameService.isStateWon();
+		}
+		
+		public void setDepthLimit(int newDepthLimit) {
+			gameService.setDepthLimit(newDepthLimit);
+		}
+		
+		public void setMoveTimeBudget(long moveTimeBudget) {
+			gameService.setMoveTimeBudget(moveTimeBudget);
+		}
+		
+		public void cancelSearch() {
+			gameService.cancelSearch();
+		}
+		
+		public void setPondering(boolean pondering) {
+			gameService.setPondering(pondering);
+		}
+		
+		public int getBookMoves() {
+			return gameService.getBookMoves();
+		}
+		
+		public void shutdown() {
+			gameService.shutdown();
+			if (forkJoinPool != null){
+				forkJoinPool.shutdown();
+			}
+		}
+	}
 }
@@ -7,14 +7,20 @@ import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 
 public class CheckersGoalService implements TurnDrivenGoalService<CheckersBoard>{
 
-	private final PlayerLookup<CheckersPieceDescription> playerLookup;
+	public CheckersGoalService(){
+	}
 	
+	/**
+	 * Players are now found by id from the counts of the board so the lookup is no longer needed. Use
+	 * {@link #CheckersGoalService()}.
+	 * @param playerLookup
+	 */
 	public CheckersGoalService(PlayerLookup<CheckersPieceDescription> playerLookup){
-		this.playerLookup = playerLookup;
+		this();
 	}
 	
 	public boolean isStateWon(CheckersBoard state, int playerId) {
-		int playerPieceCount = state.getBoardStats().getPieceCountForPlayer(playerLookup.getPlayer(playerId));
+		int playerPieceCount = state.getBoardStats().getPieceCountForPlayer(playerId);
 		return playerPieceCount == 0; // player has no more pieces left
 	}
 
@@ -0,0 +1,65 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.service.MoveDescriptionService;
+import com.ahaines.ai.search.minmax.service.MoveOrderingService;
+import com.ahaines.checkers.model.CheckersBoard;
+import com.ahaines.checkers.model.CheckersGeometry;
+
+/**
+ * Describes the move between 2 {@link CheckersBoard}s by the state indexes the piece moved from and to, found by
+ * comparing the squares held by the player that moved.
+ * @author andrewhaines
+ *
+ */
+public class CheckersMoveDescriptionService implements MoveDescriptionService<CheckersBoard>{
+
+	private final CheckersPieceLookup pieceLookup;
+
+	public CheckersMoveDescriptionService(CheckersPieceLookup pieceLookup){
+		this.pieceLookup = pieceLookup;
+	}
+
+	public int getMoveKeyCount() {
+		return CheckersGeometry.STATE_INDEX_COUNT * CheckersGeometry.STATE_INDEX_COUNT;
+	}
+
+	public int getMoveKey(CheckersBoard state, CheckersBoard successor) {
+		int playerWithMoveId = state.getTurn().getId();
+		int from = CheckersGeometry.NO_SQUARE;
+		int to = CheckersGeometry.NO_SQUARE;
+
+		for (int square = 0; square < CheckersGeometry.STATE_INDEX_COUNT; square++){
+			int pieceId = state.getPieceIdAt(square);
+			int successorPieceId = successor.getPieceIdAt(square);
+			if (pieceId != successorPieceId){
+				if (isHeldBy(pieceId, playerWithMoveId)){
+					from = square;
+				} else if (isHeldBy(successorPieceId, playerWithMoveId)){
+					to = square;
+				}
+			}
+		}
+		if (from == CheckersGeometry.NO_SQUARE || to == CheckersGeometry.NO_SQUARE){ // a chain of captures that ends where it started
+			return MoveOrderingService.NO_MOVE_KEY;
+		}
+		return from * CheckersGeometry.STATE_INDEX_COUNT + to;
+	}
+
+	public boolean isCapture(CheckersBoard state, CheckersBoard successor) {
+		return countPieces(successor) < countPieces(state);
+	}
+
+	private boolean isHeldBy(int pieceId, int playerId){
+		return pieceId != CheckersBoard.EMPTY_SQUARE && pieceLookup.getPiece(pieceId).getPlayer().getPlayerId().getId() == playerId;
+	}
+
+	private static int countPieces(CheckersBoard board){
+		int count = 0;
+		for (int square = 0; square < CheckersGeometry.STATE_INDEX_COUNT; square++){
+			if (board.getPieceIdAt(square) != CheckersBoard.EMPTY_SQUARE){
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,96 @@
+package com.ahaines.checker.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.ahaines.ai.search.game.OpeningBookBuilder;
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
+import com.ahaines.ai.search.minmax.service.AlphaBetaPrunningSuccessorService;
+import com.ahaines.ai.search.minmax.service.MinMaxSuccessorService;
+import com.ahaines.ai.search.minmax.service.MoveOrderingService;
+import com.ahaines.ai.search.minmax.service.TranspositionTableSuccessorService;
+import com.ahaines.ai.search.service.StateKeyService;
+import com.ahaines.ai.search.service.ZobristStateKeyService;
+import com.ahaines.ai.search.service.heurstic.service.HeuristicSearchService.HeuristicSearchServiceBuilder;
+import com.ahaines.boardgame.model.Piece;
+import com.ahaines.boardgame.model.Player;
+import com.ahaines.boardgame.model.Player.PlayerType;
+import com.ahaines.boardgame.model.PlayerLookup;
+import com.ahaines.boardgame.model.SimplePlayerId;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.BitboardCheckersBoard.PieceMapping;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+
+/**
+ * Writes an opening book for checkers (see {@link OpeningBookBuilder}) covering the openings of either player moving
+ * first. Positions are searched with alpha beta pruning, move ordering and a transposition table on bitboards. As
+ * Zobrist keys are the same for either board representation the book can be used whether or not a game uses
+ * bitboards (see {@link CheckersGame.CheckersGameBuilder#setOpeningBook(com.ahaines.ai.search.game.OpeningBook)}).
+ * The book is intended to be built once, with:
+ *
+ * <pre>java com.ahaines.checker.service.CheckersOpeningBookGenerator &lt;plies&gt; &lt;search depth&gt; &lt;file&gt;</pre>
+ * @author andrewhaines
+ *
+ */
+public class CheckersOpeningBookGenerator {
+
+	private static final int TRANSPOSITION_TABLE_SIZE = 1 << 20;
+
+	private final PlayerLookup<CheckersPieceDescription> playerLookup;
+	private final OpeningBookBuilder<BitboardCheckersBoard> openingBookBuilder;
+
+	/**
+	 * Creates a generator for the players of a game. The ids of the players are part of the keys of the positions in
+	 * the book, so they must be the ids of the players of the games it is used in.
+	 * @param playerLookup
+	 * @param searchDepthLimit
+	 */
+	public CheckersOpeningBookGenerator(PlayerLookup<CheckersPieceDescription> playerLookup, int searchDepthLimit){
+		this.playerLookup = playerLookup;
+
+		BitboardCheckersGoalService goalService = new BitboardCheckersGoalService();
+		BitboardCheckersMoveDescriptionService moveDescriptionService = new BitboardCheckersMoveDescriptionService();
+		StateKeyService<BitboardCheckersBoard> keyService = new ZobristStateKeyService<BitboardCheckersBoard>();
+		TranspositionTable transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_SIZE);
+
+		MinMaxSuccessorService<BitboardCheckersBoard> minMaxSuccessorService = new MinMaxSuccessorService<BitboardCheckersBoard>(new BitboardCheckersSuccessorService(new IncrementalBoardIdService()), goalService, new BitboardCheckersCostFunctionService(goalService));
+		AlphaBetaPrunningSuccessorService<BitboardCheckersBoard> alphaBetaPrunningService = new AlphaBetaPrunningSuccessorService<BitboardCheckersBoard>(minMaxSuccessorService, new MoveOrderingService<BitboardCheckersBoard>(moveDescriptionService, transpositionTable, keyService));
+		TranspositionTableSuccessorService<BitboardCheckersBoard> successorService = new TranspositionTableSuccessorService<BitboardCheckersBoard>(alphaBetaPrunningService, transpositionTable, keyService);
+
+		this.openingBookBuilder = new OpeningBookBuilder<BitboardCheckersBoard>(new HeuristicSearchServiceBuilder<MinMaxState<BitboardCheckersBoard>>(successorService).build(), goalService, keyService, searchDepthLimit)
+				.setTranspositionTable(transpositionTable);
+	}
+
+	public static void main(String[] args) throws IOException{
+		if (args.length != 3){
+			System.err.println("usage: CheckersOpeningBookGenerator <plies> <search depth> <file>");
+			System.exit(1);
+		}
+		Player<CheckersPieceDescription> compPlayer = new Player<CheckersPieceDescription>(new SimplePlayerId(SimpleTurn.MAX.getId(), "computer"), PlayerType.COMPUTER, new ArrayList<Piece<CheckersPieceDescription>>());
+		Player<CheckersPieceDescription> player = new Player<CheckersPieceDescription>(new SimplePlayerId(SimpleTurn.MIN.getId(), "player"), PlayerType.HUMAN, new ArrayList<Piece<CheckersPieceDescription>>());
+
+		new CheckersOpeningBookGenerator(new CheckersPlayerLookup(compPlayer, player), Integer.parseInt(args[1])).generate(Integer.parseInt(args[0]), new File(args[2]));
+	}
+
+	/**
+	 * Writes the book of every position within the supplied number of plies of the start of a game to the file
+	 * @param plies
+	 * @param file
+	 * @throws IOException
+	 */
+	public void generate(int plies, File file) throws IOException{
+		PieceMapping mapping = new PieceMapping(playerLookup, new CheckersPieceLookup(playerLookup));
+
+		for (SimpleTurn startingTurn: SimpleTurn.values()){
+			CheckersGame game = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), SimpleTurn.class)
+					.useBitboards(true)
+					.setStartingTurn(startingTurn)
+					.build();
+			openingBookBuilder.addOpenings(BitboardCheckersBoard.fromCheckersBoard(0, game.getCurrentState(), mapping), plies);
+		}
+		openingBookBuilder.write(file);
+	}
+}
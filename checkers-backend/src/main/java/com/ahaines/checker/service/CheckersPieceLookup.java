@@ -22,7 +22,9 @@ import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
 public class CheckersPieceLookup implements PieceLookup<CheckersPieceDescription>{
 
 	private static final int NUMBER_OF_STARTING_PIECES_PER_PLAYER = 12;
+	private static final int PIECE_ID_MASK = (1 << 14) - 1;
 	private final Map<Integer, CheckersPieceDescription> pieces;
+	private final CheckersPieceDescription[] piecesByIndex;
 	
 	public CheckersPieceLookup(PlayerLookup<CheckersPieceDescription> playerLookup){
 		Map<Integer, CheckersPieceDescription> pieces = new HashMap<Integer, CheckersPieceDescription>();
@@ -46,6 +48,17 @@ public class CheckersPieceLookup implements PieceLookup<CheckersPieceDescription
 		}
 		
 		this.pieces = Collections.unmodifiableMap(pieces);
+		
+		// pieces are looked up for every square visited when searching so also index them by the parts of their
+		// guid to avoid boxing the id
+		this.piecesByIndex = new CheckersPieceDescription[(1 << 3) * NUMBER_OF_STARTING_PIECES_PER_PLAYER]; // 1 type bit and 2 player bits
+		for (CheckersPieceDescription piece: pieces.values()){
+			piecesByIndex[getIndex(piece.getId())] = piece;
+		}
+	}
+	
+	private static int getIndex(int guid){
+		return (guid >>> 14) * NUMBER_OF_STARTING_PIECES_PER_PLAYER + (guid & PIECE_ID_MASK);
 	}
 	
 	private CheckersPieceDescription createPieceForPlayer(Player<CheckersPieceDescription> player, int i, Type type) {
@@ -72,6 +85,9 @@ public class CheckersPieceLookup implements PieceLookup<CheckersPieceDescription
 	}
 
 	public CheckersPieceDescription getPiece(int id) {
+		if (id >= 0 && (id & PIECE_ID_MASK) < NUMBER_OF_STARTING_PIECES_PER_PLAYER && getIndex(id) < piecesByIndex.length){
+			return piecesByIndex[getIndex(id)];
+		}
 		return pieces.get(id);
 	}
 	public Collection<CheckersPieceDescription> getAllPieces() {
@@ -2,7 +2,7 @@ package com.ahaines.checker.service;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.ahaines.boardgame.model.Player;
@@ -14,7 +14,7 @@ public class CheckersPlayerLookup implements PlayerLookup<CheckersPieceDescripti
 	private final Map<Integer, Player<CheckersPieceDescription>> players;
 	
 	public CheckersPlayerLookup(Player<CheckersPieceDescription> player1, Player<CheckersPieceDescription> player2){
-		Map<Integer, Player<CheckersPieceDescription>> players = new HashMap<Integer, Player<CheckersPieceDescription>>();
+		Map<Integer, Player<CheckersPieceDescription>> players = new LinkedHashMap<Integer, Player<CheckersPieceDescription>>();
 		
 		players.put(player1.getPlayerId().getId(), player1);
 		players.put(player2.getPlayerId().getId(), player2);
@@ -1,126 +1,159 @@
 package com.ahaines.checker.service;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.EnumMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
-import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
+import com.ahaines.ai.search.service.CachedIterable;
 import com.ahaines.ai.search.service.SuccessorService;
-import com.ahaines.boardgame.model.Piece;
-import com.ahaines.boardgame.model.Player;
 import com.ahaines.boardgame.model.PlayerLookup;
-import com.ahaines.boardgame.model.Position;
 import com.ahaines.checkers.model.CheckersBoard;
-import com.ahaines.checkers.model.CheckersPiece;
+import com.ahaines.checkers.model.CheckersGeometry;
+import com.ahaines.checkers.model.CheckersMove;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
+import com.google.common.collect.AbstractIterator;
 
+/**
+ * Generates the moves available from a {@link CheckersBoard}. Moves are found by making and unmaking them on a single
+ * scratch board held for each thread, rather then copying a board for every candidate, and are described by compact
+ * {@link CheckersMove}s. The lists moves are collected in and the chain of captures being followed are held for each
+ * thread along with the board so that only the moves returned are allocated. Boards are only created for the moves
+ * that are finally returned by {@link #getSuccessors(CheckersBoard)}, and only as they are iterated over; callers
+ * that can work with the moves directly should use {@link #getMoves(CheckersBoard)} along with
+ * {@link CheckersBoard#makeMove(CheckersMove)} and {@link CheckersBoard#unmakeMove(CheckersMove)}. Neighbouring
+ * squares are found from the tables of {@link CheckersGeometry}.
+ * @author andrewhaines
+ *
+ */
 public class CheckersSuccessorService implements SuccessorService<CheckersBoard>{
 
+	private static final int MAX_CAPTURES = 12;
 	private final PlayerLookup<CheckersPieceDescription> playerLookup;
 	private final CheckersPieceLookup pieceLookup;
 	private final BoardIdService boardIdService;
+	private final ThreadLocal<MoveCollector> collectors;
 	
-	public CheckersSuccessorService(PlayerLookup<CheckersPieceDescription> playerLookup, CheckersPieceLookup pieceLookup, BoardIdService boardIdService){
+	public CheckersSuccessorService(PlayerLookup<CheckersPieceDescription> playerLookup, final CheckersPieceLookup pieceLookup, BoardIdService boardIdService){
 		this.playerLookup = playerLookup;
 		this.pieceLookup = pieceLookup;
 		this.boardIdService = boardIdService;
+		this.collectors = new ThreadLocal<MoveCollector>(){
+			
+			@Override
+			protected MoveCollector initialValue(){
+				return new MoveCollector(new CheckersBoard(0, null, pieceLookup)); // the turn is copied along with the board
+			}
+		};
 	}
+	
 	public Iterable<CheckersBoard> getSuccessors(CheckersBoard state) {
-		Collection<CheckersBoard> possibleMoves = new LinkedList<CheckersBoard>();
+		return createSuccessors(state, getMoves(state));
+	}
+	
+	/**
+	 * Returns a successor service that only returns the successors that are reached by a jump, none when the player
+	 * with the turn has no jump to make. Boards are only created for the jumps. This is used to play out the captures
+	 * of a quiescence search.
+	 * @return
+	 */
+	public SuccessorService<CheckersBoard> getCaptureSuccessorService(){
+		return new SuccessorService<CheckersBoard>(){
+
+			public Iterable<CheckersBoard> getSuccessors(CheckersBoard state) {
+				List<CheckersMove> moves = getMoves(state);
+				if (moves.isEmpty() || !moves.get(0).isCapture()){ // jumps are forced so the moves are either all jumps or none are
+					return Collections.emptyList();
+				}
+				return createSuccessors(state, moves);
+			}
+		};
+	}
+	
+	private Iterable<CheckersBoard> createSuccessors(final CheckersBoard state, List<CheckersMove> moveList){
+		final Iterator<CheckersMove> moves = moveList.iterator();
 		
-		Player<CheckersPieceDescription> player1 = playerLookup.getAllPlayers().iterator().next(); //first player plays on the north of the board
-		Player<CheckersPieceDescription> playerWithMove = playerLookup.getPlayer(state.getTurn().getId());
+		return new CachedIterable<CheckersBoard>(new AbstractIterator<CheckersBoard>(){
+
+			@Override
+			protected CheckersBoard computeNext() {
+				if (!moves.hasNext()){
+					return endOfData();
+				}
+				return state.createSuccessor(boardIdService.nextId(), moves.next());
+			}
+		});
+	}
+	
+	/**
+	 * Returns the moves that the player with the turn can make on the supplied board, which is left unchanged.
+	 * If any pieces can be captured then only the completed chains of captures are returned (ie take precedence
+	 * of jump moves to insist that if a piece can be taken then it should).
+	 * @param state
+	 * @return
+	 */
+	public List<CheckersMove> getMoves(CheckersBoard state) {
+		int player1Id = playerLookup.getAllPlayers().iterator().next().getPlayerId().getId(); //first player plays on the north of the board
+		int playerWithMoveId = state.getTurn().getId();
 		
 		int sideMultiplier = 1;
-		if (player1.getPlayerId().getId() != playerWithMove.getPlayerId().getId()){ // this is the guy that moves north so negate their y coords
+		if (player1Id != playerWithMoveId){ // this is the guy that moves north so negate their y coords
 			sideMultiplier = -1;
 		}
 		
-		Map<MoveType, Collection<CheckersBoard>> possibleMovesType = new EnumMap<MoveType, Collection<CheckersBoard>>(MoveType.class);
-			
-		for (Piece<CheckersPieceDescription> piece: state.getPieces(playerWithMove)){
-			
-			addAllStatesFromPiece(state.getTurn().nextTurn(), piece, state, playerWithMove, sideMultiplier, possibleMovesType, false);
-			
+		MoveCollector collector = collectors.get();
+		collector.reset(state, playerWithMoveId);
+		CheckersBoard board = collector.board;
+		
+		for (int square = 0; square < CheckersGeometry.STATE_INDEX_COUNT; square++){
+			int pieceId = board.getPieceIdAt(square);
+			if (pieceId != CheckersBoard.EMPTY_SQUARE && getPlayerId(pieceId) == playerWithMoveId){
+				addAllMovesFromPiece(square, pieceId, board, sideMultiplier, collector);
+			}
 		}
 		
-		// now add jump moves or single moves, not both (ie take precedence of jump moves to insist that if a piece can be taken then it should).
+		// now add jump moves or single moves, not both.
 		
-		if (possibleMovesType.containsKey(MoveType.JUMP)){
-			possibleMoves.addAll(possibleMovesType.get(MoveType.JUMP));
-		} else if (possibleMovesType.containsKey(MoveType.SINGLE)){
-			possibleMoves.addAll(possibleMovesType.get(MoveType.SINGLE));
-		}
-		return possibleMoves;
+		return new ArrayList<CheckersMove>(collector.jumpMoves.isEmpty()?collector.singleMoves:collector.jumpMoves);
 	}
 	
-	private void addAllStatesFromPiece(Turn nextTurn, Piece<CheckersPieceDescription> piece, CheckersBoard state, Player<CheckersPieceDescription> playerWithMove, int sideMultiplier, Map<MoveType, Collection<CheckersBoard>> possibleMoves, boolean isJumpMove) {
-		//move left
-		Position left = new Position(piece.getPlacement());
-		left.move(-1, sideMultiplier);
-		
-		Position right = new Position(piece.getPlacement());
-		right.move(1, sideMultiplier);
-		
+	private void addAllMovesFromPiece(int square, int pieceId, CheckersBoard board, int sideMultiplier, MoveCollector collector) {
 		boolean movePossible = false;
-		movePossible |= addAllStatesFromInitialMove(nextTurn, piece, left, true, state, playerWithMove, sideMultiplier, possibleMoves, isJumpMove);
-		movePossible |= addAllStatesFromInitialMove(nextTurn, piece, right, false, state, playerWithMove, sideMultiplier, possibleMoves, isJumpMove);
+		movePossible |= addAllMovesFromInitialMove(square, pieceId, CheckersGeometry.getDirection(-1, sideMultiplier), sideMultiplier, board, collector);
+		movePossible |= addAllMovesFromInitialMove(square, pieceId, CheckersGeometry.getDirection(1, sideMultiplier), sideMultiplier, board, collector);
 		
-		if (piece.getPiece().getType() == Type.KING){ // consider the other multiplier for the kings (ie the other direction
-			Position otherDirectionLeft = new Position(piece.getPlacement());
-			sideMultiplier = -sideMultiplier;
-			otherDirectionLeft.move(-1, sideMultiplier);
-			
-			Position otherDirectionRight = new Position(piece.getPlacement());
-			otherDirectionRight.move(1, sideMultiplier);
-			
-			movePossible |= addAllStatesFromInitialMove(nextTurn, piece, otherDirectionLeft, true, state, playerWithMove, sideMultiplier, possibleMoves, isJumpMove);
-			movePossible |= addAllStatesFromInitialMove(nextTurn, piece, otherDirectionRight, false, state, playerWithMove, sideMultiplier, possibleMoves, isJumpMove);
+		if (pieceLookup.getPiece(pieceId).getType() == Type.KING){ // consider the other multiplier for the kings (ie the other direction
+			movePossible |= addAllMovesFromInitialMove(square, pieceId, CheckersGeometry.getDirection(-1, -sideMultiplier), -sideMultiplier, board, collector);
+			movePossible |= addAllMovesFromInitialMove(square, pieceId, CheckersGeometry.getDirection(1, -sideMultiplier), -sideMultiplier, board, collector);
 		}
-		if (!movePossible && isJumpMove){ // no further move was possible from this jump move so add state as a possible move
-			addToPossibleMovesMap(MoveType.JUMP, state, possibleMoves);
+		if (!movePossible && collector.isJumping()){ // no further move was possible from this jump move so add it as a possible move
+			collector.addJumpMove(square, pieceId);
 		}
-
 	}
+	
 	/**
 	 * 
-	 * @param piece
-	 * @param newPosition
-	 * @param leftOrientatedMove
-	 * @param state
-	 * @param playerWithMove
-	 * @param sideMultiplier
-	 * @param possibleMoves
-	 * @param considerSingleMoves
-	 * @return Whether a move was possible with this move
+	 * @return Whether a move was possible in this direction
 	 */
-	private boolean addAllStatesFromInitialMove(Turn nextTurn, Piece<CheckersPieceDescription> piece, Position newPosition, boolean leftOrientatedMove, CheckersBoard state, Player<CheckersPieceDescription> playerWithMove, int sideMultiplier, Map<MoveType, Collection<CheckersBoard>> possibleMoves, boolean isJumpMove){
+	private boolean addAllMovesFromInitialMove(int square, int pieceId, int direction, int sideMultiplier, CheckersBoard board, MoveCollector collector){
+		int newSquare = CheckersGeometry.getNeighbourStateIndex(direction, square);
 		
-		if (state.isValidBoardPosition(newPosition)){
-			Piece<CheckersPieceDescription> atPotentialMove = CheckersBoard.getPieceAtPosition(state, newPosition);
-			if (atPotentialMove != null && atPotentialMove.getPlayer().getPlayerId() != playerWithMove.getPlayerId()){ // favor a move to capture a piece if it is possible.
+		if (newSquare != CheckersGeometry.NO_SQUARE){
+			int atPotentialMove = board.getPieceIdAt(newSquare);
+			if (atPotentialMove != CheckersBoard.EMPTY_SQUARE && getPlayerId(atPotentialMove) != collector.playerWithMoveId){ // favor a move to capture a piece if it is possible.
 				// check that there is an adjacent free square that we can jump to before we can capture a piece.
 				
-				Position jumpSpace = new Position(newPosition);
-				if (leftOrientatedMove){
-					jumpSpace.move(-1, sideMultiplier);
-				} else{
-					jumpSpace.move(1, sideMultiplier);
-				}
-				if (state.isValidBoardPosition(jumpSpace) && CheckersBoard.getPieceAtPosition(state, jumpSpace) == null){ // we can move to this location after we have jumped the opponents piece only if it is in range of the board and not occupied by another piece
-					addAllCapturedMoves(nextTurn, piece, atPotentialMove, jumpSpace, state, possibleMoves,playerWithMove, sideMultiplier);
+				int jumpSquare = CheckersGeometry.getJumpStateIndex(direction, square);
+				if (jumpSquare != CheckersGeometry.NO_SQUARE && board.getPieceIdAt(jumpSquare) == CheckersBoard.EMPTY_SQUARE){ // we can move to this location after we have jumped the opponents piece only if it is in range of the board and not occupied by another piece
+					addAllCapturedMoves(square, pieceId, newSquare, atPotentialMove, jumpSquare, board, sideMultiplier, collector);
 					return true;
 				} 
 			}
-			else if (atPotentialMove == null && !isJumpMove && !possibleMoves.containsKey(MoveType.JUMP)){// we can move here as it is unoccupied and this is not a jump move and we havent seen a jump move yet on this piece
-				
-				CheckersBoard newState = new CheckersBoard(boardIdService.nextId(), state, nextTurn);
-				movePiece(new CheckersPiece(piece), newState, newPosition);
+			else if (atPotentialMove == CheckersBoard.EMPTY_SQUARE && !collector.isJumping() && collector.jumpMoves.isEmpty()){// we can move here as it is unoccupied and this is not a jump move and we havent seen a jump move yet
 				
-				addToPossibleMovesMap(MoveType.SINGLE, newState, possibleMoves);
+				collector.singleMoves.add(new CheckersMove(square, newSquare, pieceId, ammendPiece(pieceId, newSquare)));
 				return true;
 			}
 			// if we get to here then the space is occupied by our own piece so is not a valid move
@@ -128,62 +161,98 @@ public class CheckersSuccessorService implements SuccessorService<CheckersBoard>
 		return false;
 	}
 	
-	private void addToPossibleMovesMap(MoveType type, CheckersBoard newState, Map<MoveType, Collection<CheckersBoard>> possibleMoves) {
+	private void addAllCapturedMoves(int square, int pieceId, int capturedSquare, int capturedPieceId, int newSquare, CheckersBoard board, int sideMultiplier, MoveCollector collector) {
+		int newPieceId = ammendPiece(pieceId, newSquare);
 		
-		Collection<CheckersBoard> movesOfThisType = possibleMoves.get(type);
-		if (movesOfThisType == null){
-			movesOfThisType = new LinkedList<CheckersBoard>();
-		}
-		movesOfThisType.add(newState);
-		possibleMoves.put(type, movesOfThisType);
-		
-	}
-	private void addAllCapturedMoves(Turn nextTurn, Piece<CheckersPieceDescription> piece, Piece<CheckersPieceDescription> capturedPiece, Position newPosition, CheckersBoard oldState, Map<MoveType, Collection<CheckersBoard>> possibleMoves, Player<CheckersPieceDescription> playerWithMove, int sideMultiplier) {
-		// remove opponent piece.
-		
-		CheckersBoard newState = new CheckersBoard(boardIdService.nextId(), oldState, nextTurn); // note there is a possibility when using multiple jumps of captured pieces that this new state might simply be forgotten as another jump state succeeds it.
-		
-		// move piece to new position
-		Piece<CheckersPieceDescription> newPiece = movePiece(new CheckersPiece(piece), newState, newPosition);
-				
-		newState.removePiece(capturedPiece);
+		collector.pushCapture(square, pieceId, capturedSquare, capturedPieceId);
+		board.makeJump(square, newSquare, newPieceId, capturedSquare);
 		
 		// now chain additional moves only if the piece hasnt changed (ie hasnt been upgraded)
-		if (newPiece.getPiece().equals(piece.getPiece())){
-			addAllStatesFromPiece(nextTurn, newPiece, newState, playerWithMove, sideMultiplier, possibleMoves, true);
+		if (newPieceId == pieceId){
+			addAllMovesFromPiece(newSquare, newPieceId, board, sideMultiplier, collector);
 		} else{
-			addToPossibleMovesMap(MoveType.JUMP, newState, possibleMoves);
+			collector.addJumpMove(newSquare, newPieceId);
 		}
-	}
-	
-	private Piece<CheckersPieceDescription> movePiece(Piece<CheckersPieceDescription> piece, CheckersBoard newState, Position newPosition){
-		
 		
-		newState.removePiece(piece);
-		piece = ammendPiece(piece, newState, newPosition);
-		
-		newState.addPiece(piece);
-
-		return piece;
+		board.unmakeJump(square, newSquare, pieceId, capturedSquare, capturedPieceId);
+		collector.popCapture();
 	}
 	
-	private Piece<CheckersPieceDescription> ammendPiece(Piece<CheckersPieceDescription> piece, CheckersBoard oldState, Position newPosition) {
-		
-		if (piece.getPiece().getType() == Type.STANDARD){
+	private int ammendPiece(int pieceId, int newSquare) {
+		CheckersPieceDescription piece = pieceLookup.getPiece(pieceId);
+		if (piece.getType() == Type.STANDARD){
 			// no need to check if this is a move forward or back ward as this is a new move so the direction is handled in the calling code
-			if (newPosition.getYCoord() == oldState.getBoardExtremity().getYCoord()-1 || newPosition.getYCoord() == 0){
+			if (CheckersGeometry.isCrowningStateIndex(newSquare)){
 				// upgrading to king as it is on the y border
 				
-				return new Piece<CheckersPieceDescription>(newPosition, pieceLookup.getKingForPiece(piece.getPiece()));
+				return pieceLookup.getKingForPiece(piece).getId();
 			}
 		}
-		piece.getPlacement().setCoords(newPosition.getXCoord(), newPosition.getYCoord());
-		
-		return piece;
+		return pieceId;
+	}
+	
+	private int getPlayerId(int pieceId){
+		return pieceLookup.getPiece(pieceId).getPlayer().getPlayerId().getId();
 	}
 	
-	private static enum MoveType {
-		SINGLE,
-		JUMP
+	/**
+	 * Collects the moves found from a board along with the chain of captures currently being followed. Each thread
+	 * reuses the same collector, and the scratch board it holds, for every board it finds the moves of.
+	 * @author andrewhaines
+	 *
+	 */
+	private static class MoveCollector {
+		
+		private final CheckersBoard board;
+		private int playerWithMoveId;
+		private final List<CheckersMove> singleMoves;
+		private final List<CheckersMove> jumpMoves;
+		private final int[] capturedSquares;
+		private final int[] capturedPieceIds;
+		private int captureCount;
+		private int jumpFrom;
+		private int jumpPieceId;
+		
+		private MoveCollector(CheckersBoard board){
+			this.board = board;
+			this.singleMoves = new ArrayList<CheckersMove>();
+			this.jumpMoves = new ArrayList<CheckersMove>();
+			this.capturedSquares = new int[MAX_CAPTURES];
+			this.capturedPieceIds = new int[MAX_CAPTURES];
+			this.captureCount = 0;
+		}
+		
+		/**
+		 * Clears the moves collected from the last board and copies the supplied board on to the scratch board
+		 */
+		private void reset(CheckersBoard state, int playerWithMoveId){
+			board.copyFrom(state);
+			this.playerWithMoveId = playerWithMoveId;
+			singleMoves.clear();
+			jumpMoves.clear();
+			captureCount = 0;
+		}
+		
+		private boolean isJumping(){
+			return captureCount > 0;
+		}
+		
+		private void pushCapture(int from, int pieceId, int capturedSquare, int capturedPieceId){
+			if (captureCount == 0){
+				jumpFrom = from;
+				jumpPieceId = pieceId;
+			}
+			capturedSquares[captureCount] = capturedSquare;
+			capturedPieceIds[captureCount] = capturedPieceId;
+			captureCount++;
+		}
+		
+		private void popCapture(){
+			captureCount--;
+		}
+		
+		private void addJumpMove(int to, int placedPieceId){
+			jumpMoves.add(new CheckersMove(jumpFrom, to, jumpPieceId, placedPieceId, Arrays.copyOf(capturedSquares, captureCount), Arrays.copyOf(capturedPieceIds, captureCount)));
+		}
 	}
 }
@@ -0,0 +1,261 @@
+package com.ahaines.checker.service;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * The exact results of checkers positions with few pieces, read from the files written by
+ * {@link EndgameTablebaseGenerator}. Positions are divided into slices by the number of men and kings each side has
+ * and each slice is held in a file of its own, with a byte for every position in the order given by
+ * {@link #getIndex(int, int, int, int)}. The files are memory mapped so that probing reads the byte straight from the
+ * page cache without holding the tablebase on the heap.
+ *
+ * Results are from the perspective of the side to move and are encoded in an int (see {@link #isWin(int)},
+ * {@link #isLoss(int)} and {@link #getDistance(int)}), so that probing creates no objects.
+ * @author andrewhaines
+ *
+ */
+public class EndgameTablebase {
+
+	/**
+	 * The result of a position that is not held in the tablebase
+	 */
+	public static final int NOT_FOUND = 0;
+	public static final int DRAW = 1;
+
+	/**
+	 * The greatest number of plies a win or loss can be from the end of the game
+	 */
+	public static final int MAX_DISTANCE = 126;
+
+	/**
+	 * The most pieces a tablebase can be generated for, as the positions of each slice are indexed by an int
+	 */
+	public static final int MAX_PIECES = 6;
+
+	static final int MAGIC = 0x43544231;
+	static final int HEADER_SIZE = 8;
+	static final String FILE_EXTENSION = ".ctb";
+
+	private static final int[][] BINOMIALS = new int[BitboardCheckersBoard.SQUARE_COUNT + 1][MAX_PIECES + 1];
+
+	static{
+		for (int n = 0; n <= BitboardCheckersBoard.SQUARE_COUNT; n++){
+			BINOMIALS[n][0] = 1;
+			for (int k = 1; k <= Math.min(n, MAX_PIECES); k++){
+				BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + ((k < n)?BINOMIALS[n - 1][k]:0);
+			}
+		}
+	}
+
+	private final Map<Integer, MappedByteBuffer> slices;
+	private final int maxPieces;
+
+	private EndgameTablebase(Map<Integer, MappedByteBuffer> slices, int maxPieces){
+		this.slices = slices;
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * Maps every slice file in the supplied directory
+	 * @param directory
+	 * @return
+	 * @throws IOException if a file can not be mapped or was not written by {@link EndgameTablebaseGenerator}
+	 */
+	public static EndgameTablebase open(File directory) throws IOException{
+		File[] files = directory.listFiles(new FilenameFilter(){
+
+			public boolean accept(File dir, String name) {
+				return name.endsWith(FILE_EXTENSION);
+			}
+		});
+		if (files == null){
+			throw new IOException("tablebase directory does not exist: "+directory);
+		}
+		Map<Integer, MappedByteBuffer> slices = new HashMap<Integer, MappedByteBuffer>();
+		int maxPieces = 0;
+		for (File file: files){
+			RandomAccessFile sliceFile = new RandomAccessFile(file, "r");
+			try{
+				MappedByteBuffer slice = sliceFile.getChannel().map(MapMode.READ_ONLY, 0, sliceFile.length()); // the mapping remains valid once the file is closed
+				if (slice.getInt(0) != MAGIC){
+					throw new IOException("not a tablebase file: "+file);
+				}
+				int firstMen = slice.get(4);
+				int firstKings = slice.get(5);
+				int secondMen = slice.get(6);
+				int secondKings = slice.get(7);
+				if (slice.capacity() != HEADER_SIZE + getSliceSize(firstMen, firstKings, secondMen, secondKings)){
+					throw new IOException("tablebase file is truncated: "+file);
+				}
+				slices.put(getMaterialKey(firstMen, firstKings, secondMen, secondKings), slice);
+				maxPieces = Math.max(maxPieces, firstMen + firstKings + secondMen + secondKings);
+			} finally{
+				sliceFile.close();
+			}
+		}
+		return new EndgameTablebase(slices, maxPieces);
+	}
+
+	/**
+	 * Returns the most pieces of the positions held
+	 * @return
+	 */
+	public int getMaxPieces(){
+		return maxPieces;
+	}
+
+	/**
+	 * Returns the result of the board for its side to move or {@link #NOT_FOUND}
+	 * @param board
+	 * @return
+	 */
+	public int probe(BitboardCheckersBoard board){
+		return probe(board.getSideToMove(), board.getPieces(BitboardCheckersBoard.FIRST_PLAYER), board.getPieces(BitboardCheckersBoard.SECOND_PLAYER), board.getKings());
+	}
+
+	/**
+	 * Returns the result of the position described by the supplied masks for its side to move or {@link #NOT_FOUND}
+	 * @param sideToMove
+	 * @param firstPlayerPieces
+	 * @param secondPlayerPieces
+	 * @param kings
+	 * @return
+	 */
+	public int probe(int sideToMove, int firstPlayerPieces, int secondPlayerPieces, int kings){
+		if (Integer.bitCount(firstPlayerPieces | secondPlayerPieces) > maxPieces){
+			return NOT_FOUND;
+		}
+		MappedByteBuffer slice = slices.get(getMaterialKey(firstPlayerPieces, secondPlayerPieces, kings));
+		if (slice == null){
+			return NOT_FOUND;
+		}
+		return slice.get(HEADER_SIZE + getIndex(sideToMove, firstPlayerPieces, secondPlayerPieces, kings)) & 0xFF;
+	}
+
+	/**
+	 * Returns true if the result is a win for the side to move
+	 * @param result
+	 * @return
+	 */
+	public static boolean isWin(int result){
+		return result > DRAW && (result & 1) == 1;
+	}
+
+	/**
+	 * Returns true if the result is a loss for the side to move
+	 * @param result
+	 * @return
+	 */
+	public static boolean isLoss(int result){
+		return result > DRAW && (result & 1) == 0;
+	}
+
+	/**
+	 * Returns the number of plies the result is from the end of the game when both sides play their best moves
+	 * @param result A win or a loss
+	 * @return
+	 */
+	public static int getDistance(int result){
+		return (result - 2) >> 1;
+	}
+
+	static int encodeWin(int distance){
+		return 3 + (distance << 1);
+	}
+
+	static int encodeLoss(int distance){
+		return 2 + (distance << 1);
+	}
+
+	/**
+	 * Returns the number of positions in the slice with the supplied numbers of pieces, which includes positions
+	 * that can not be reached such as men on the row they would have been crowned on.
+	 */
+	static int getSliceSize(int firstMen, int firstKings, int secondMen, int secondKings){
+		int free = BitboardCheckersBoard.SQUARE_COUNT;
+		int size = 2; // either side can have the move
+		for (int count: new int[]{firstMen, firstKings, secondMen, secondKings}){
+			size *= BINOMIALS[free][count];
+			free -= count;
+		}
+		return size;
+	}
+
+	static int getMaterialKey(int firstMen, int firstKings, int secondMen, int secondKings){
+		return firstMen | (firstKings << 4) | (secondMen << 8) | (secondKings << 12);
+	}
+
+	private static int getMaterialKey(int firstPlayerPieces, int secondPlayerPieces, int kings){
+		return getMaterialKey(Integer.bitCount(firstPlayerPieces & ~kings), Integer.bitCount(firstPlayerPieces & kings), Integer.bitCount(secondPlayerPieces & ~kings), Integer.bitCount(secondPlayerPieces & kings));
+	}
+
+	/**
+	 * Returns the index of the position within its slice. The squares of the first players men, then its kings, then
+	 * the second players men and kings are each ranked among the squares the previous pieces leave free (as a
+	 * combinatorial number), and the ranks combined with the side to move.
+	 */
+	static int getIndex(int sideToMove, int firstPlayerPieces, int secondPlayerPieces, int kings){
+		int occupied = 0;
+		int index = 0;
+		for (int pieces: new int[]{firstPlayerPieces & ~kings, firstPlayerPieces & kings, secondPlayerPieces & ~kings, secondPlayerPieces & kings}){
+			index = index * BINOMIALS[BitboardCheckersBoard.SQUARE_COUNT - Integer.bitCount(occupied)][Integer.bitCount(pieces)] + getRank(pieces, occupied);
+			occupied |= pieces;
+		}
+		return (index << 1) | sideToMove;
+	}
+
+	private static int getRank(int pieces, int occupied){
+		int rank = 0;
+		int k = 1;
+		while (pieces != 0){
+			int square = Integer.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+
+			int freeSquare = square - Integer.bitCount(occupied & ((1 << square) - 1)); // the position of the square among those left free
+			rank += BINOMIALS[freeSquare][k++];
+		}
+		return rank;
+	}
+
+	/**
+	 * Returns the mask of the count squares, among those not occupied, with the supplied rank. The inverse of
+	 * {@link #getRank(int, int)}
+	 */
+	static int getPieces(int rank, int count, int occupied){
+		int pieces = 0;
+		int freeSquare = BitboardCheckersBoard.SQUARE_COUNT - Integer.bitCount(occupied) - 1;
+		for (int k = count; k > 0; k--){
+			while (BINOMIALS[freeSquare][k] > rank){
+				freeSquare--;
+			}
+			rank -= BINOMIALS[freeSquare][k];
+			pieces |= 1 << getSquareOfFreeSquare(freeSquare, occupied);
+			freeSquare--;
+		}
+		return pieces;
+	}
+
+	private static int getSquareOfFreeSquare(int freeSquare, int occupied){
+		int free = ~occupied;
+		for (int i = 0; i < freeSquare; i++){
+			free &= free - 1;
+		}
+		return Integer.numberOfTrailingZeros(free);
+	}
+
+	/**
+	 * Returns the number of ways the supplied number of pieces can be placed on free squares
+	 */
+	static int getBinomial(int freeSquares, int pieces){
+		return BINOMIALS[freeSquares][pieces];
+	}
+}
@@ -0,0 +1,44 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * Costs the positions held in an {@link EndgameTablebase} by their exact result, delegating the rest to another cost
+ * function. Like the heuristic, costs are from the perspective of the player that moved in to the position. A
+ * position won for them costs what the other cost function gives a won position less the number of plies until it
+ * is won, so that tablebase wins outweigh any heuristic evaluation and quicker wins cost more and slower losses cost
+ * less.
+ * @author andrewhaines
+ *
+ */
+public class EndgameTablebaseCostFunctionService implements CostFunctionService<BitboardCheckersBoard>{
+
+	private final CostFunctionService<BitboardCheckersBoard> costFunctionService;
+	private final int pointsForAWin;
+	private final EndgameTablebase tablebase;
+
+	/**
+	 * @param costFunctionService Costs the positions not held in the tablebase
+	 * @param pointsForAWin The cost the cost function gives a won position, which is greater then any heuristic
+	 * evaluation it makes
+	 * @param tablebase
+	 */
+	public EndgameTablebaseCostFunctionService(CostFunctionService<BitboardCheckersBoard> costFunctionService, int pointsForAWin, EndgameTablebase tablebase){
+		this.costFunctionService = costFunctionService;
+		this.pointsForAWin = pointsForAWin;
+		this.tablebase = tablebase;
+	}
+
+	public int calculateCost(BitboardCheckersBoard state) {
+		int result = tablebase.probe(state);
+		if (result == EndgameTablebase.NOT_FOUND){
+			return costFunctionService.calculateCost(state);
+		} else if (result == EndgameTablebase.DRAW){
+			return 0;
+		}
+		int cost = pointsForAWin - EndgameTablebase.getDistance(result);
+
+		return EndgameTablebase.isLoss(result)?cost:-cost; // the result is for the side to move
+	}
+}
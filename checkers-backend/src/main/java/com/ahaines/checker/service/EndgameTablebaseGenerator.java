@@ -0,0 +1,229 @@
+package com.ahaines.checker.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.CheckersGeometry;
+import com.ahaines.checkers.model.PackedMove;
+
+/**
+ * Builds the files of an {@link EndgameTablebase} for every position with up to a given number of pieces by
+ * retrograde analysis: positions are solved backwards from the end of the game, one ply at a time. A position whose
+ * side to move has no moves is lost in 0 plies. A position is then won in n plies if it has a move to a position lost
+ * in n - 1 plies, and lost in n plies if all of its moves are to positions won in n - 1 plies or fewer. Positions that
+ * are never solved are draws.
+ *
+ * Slices are solved in order of the number of pieces and, for the same number of pieces, of the number of men, so
+ * that the slices reached by captures and crownings are always solved first. Generating all positions of 4 pieces
+ * or more takes some time and is intended to be done once, with:
+ *
+ * <pre>java com.ahaines.checker.service.EndgameTablebaseGenerator &lt;max pieces&gt; &lt;directory&gt;</pre>
+ * @author andrewhaines
+ *
+ */
+public class EndgameTablebaseGenerator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EndgameTablebaseGenerator.class);
+
+	private final Map<Integer, byte[]> solvedSlices;
+	private final long[] moves;
+	private int maxDistance;
+
+	public EndgameTablebaseGenerator(){
+		this.solvedSlices = new HashMap<Integer, byte[]>();
+		this.moves = new long[BitboardCheckersSuccessorService.MAX_MOVES];
+		this.maxDistance = 0;
+	}
+
+	public static void main(String[] args) throws IOException{
+		if (args.length != 2){
+			System.err.println("usage: EndgameTablebaseGenerator <max pieces> <directory>");
+			System.exit(1);
+		}
+		new EndgameTablebaseGenerator().generate(Integer.parseInt(args[0]), new File(args[1]));
+	}
+
+	/**
+	 * Writes the slices of every position with 2 to maxPieces pieces in to the directory
+	 * @param maxPieces
+	 * @param directory
+	 * @throws IOException
+	 */
+	public void generate(int maxPieces, File directory) throws IOException{
+		if (maxPieces < 2 || maxPieces > EndgameTablebase.MAX_PIECES){
+			throw new IllegalArgumentException("tablebases can only be generated for 2 to "+EndgameTablebase.MAX_PIECES+" pieces: "+maxPieces);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()){
+			throw new IOException("unable to create tablebase directory: "+directory);
+		}
+		for (int pieces = 2; pieces <= maxPieces; pieces++){
+			for (int men = 0; men <= pieces; men++){
+				for (int firstPieces = 1; firstPieces < pieces; firstPieces++){
+					int secondPieces = pieces - firstPieces;
+					for (int firstMen = Math.max(0, men - secondPieces); firstMen <= Math.min(men, firstPieces); firstMen++){
+						int secondMen = men - firstMen;
+
+						byte[] slice = solve(firstMen, firstPieces - firstMen, secondMen, secondPieces - secondMen);
+						write(slice, firstMen, firstPieces - firstMen, secondMen, secondPieces - secondMen, directory);
+					}
+				}
+			}
+		}
+	}
+
+	private byte[] solve(int firstMen, int firstKings, int secondMen, int secondKings){
+		long startTime = System.currentTimeMillis();
+		byte[] slice = new byte[EndgameTablebase.getSliceSize(firstMen, firstKings, secondMen, secondKings)];
+		solvedSlices.put(EndgameTablebase.getMaterialKey(firstMen, firstKings, secondMen, secondKings), slice); // moves within the slice are looked up in it as it is solved
+
+		int[] counts = {firstMen, firstKings, secondMen, secondKings};
+		int[] radices = new int[counts.length];
+		int free = BitboardCheckersBoard.SQUARE_COUNT;
+		for (int i = 0; i < counts.length; i++){
+			radices[i] = EndgameTablebase.getBinomial(free, counts[i]);
+			free -= counts[i];
+		}
+		int[] pieces = new int[counts.length];
+
+		boolean solvedAny = true;
+		for (int distance = 0; solvedAny || distance <= maxDistance + 1; distance++){ // positions can still be solved by moves in to slices with longer distances
+			solvedAny = false;
+			for (int index = 0; index < slice.length; index++){
+				if (slice[index] != EndgameTablebase.NOT_FOUND){
+					continue;
+				}
+				getPieces(index >> 1, counts, radices, pieces);
+				if (!isReachable(pieces)){
+					continue;
+				}
+				int side = index & 1;
+				int firstPlayerPieces = pieces[0] | pieces[1];
+				int secondPlayerPieces = pieces[2] | pieces[3];
+				int kings = pieces[1] | pieces[3];
+
+				int result = solve(side, firstPlayerPieces, secondPlayerPieces, kings, distance);
+				if (result != EndgameTablebase.NOT_FOUND){
+					if (distance > EndgameTablebase.MAX_DISTANCE){
+						throw new IllegalStateException("positions are solved further then "+EndgameTablebase.MAX_DISTANCE+" plies from the end of the game");
+					}
+					slice[index] = (byte)result;
+					solvedAny = true;
+					maxDistance = Math.max(maxDistance, distance);
+				}
+			}
+		}
+		for (int index = 0; index < slice.length; index++){
+			if (slice[index] == EndgameTablebase.NOT_FOUND && isReachable(getPieces(index >> 1, counts, radices, pieces))){
+				slice[index] = EndgameTablebase.DRAW;
+			}
+		}
+		LOG.info("solved slice {} in {}ms", getFileName(firstMen, firstKings, secondMen, secondKings), System.currentTimeMillis() - startTime);
+
+		return slice;
+	}
+
+	/**
+	 * Returns the result of the position if it is won or lost in the supplied number of plies, or
+	 * {@link EndgameTablebase#NOT_FOUND}
+	 */
+	private int solve(int side, int firstPlayerPieces, int secondPlayerPieces, int kings, int distance){
+		int sidePieces = (side == BitboardCheckersBoard.FIRST_PLAYER)?firstPlayerPieces:secondPlayerPieces;
+		int opponentPieces = (side == BitboardCheckersBoard.FIRST_PLAYER)?secondPlayerPieces:firstPlayerPieces;
+		int moveCount = BitboardCheckersSuccessorService.generateMoves(side, sidePieces, opponentPieces, kings, moves);
+		if (moveCount == 0){
+			return EndgameTablebase.encodeLoss(0);
+		}
+		if (distance == 0){
+			return EndgameTablebase.NOT_FOUND;
+		}
+		boolean allMovesLose = true;
+		for (int i = 0; i < moveCount; i++){
+			int result = getResultAfterMove(side, sidePieces, opponentPieces, kings, moves[i]);
+			boolean known = result > EndgameTablebase.DRAW && EndgameTablebase.getDistance(result) < distance; // only results solved by earlier plies
+
+			if (known && EndgameTablebase.isLoss(result)){ // the opponent loses after this move
+				return EndgameTablebase.encodeWin(distance);
+			}
+			allMovesLose &= known && EndgameTablebase.isWin(result);
+		}
+		return allMovesLose?EndgameTablebase.encodeLoss(distance):EndgameTablebase.NOT_FOUND;
+	}
+
+	/**
+	 * Returns the result for the opponent of the position reached by the move
+	 */
+	private int getResultAfterMove(int side, int sidePieces, int opponentPieces, int kings, long move){
+		int fromBit = 1 << PackedMove.getFrom(move);
+		int toBit = 1 << PackedMove.getTo(move);
+		int captured = PackedMove.getCapturedSquares(move);
+		boolean isKing = (kings & fromBit) != 0 || PackedMove.isPromotion(move);
+
+		sidePieces = (sidePieces & ~fromBit) | toBit;
+		opponentPieces &= ~captured;
+		kings &= ~(fromBit | captured);
+		if (isKing){
+			kings |= toBit;
+		}
+		if (opponentPieces == 0){ // all of the opponents pieces have been taken
+			return EndgameTablebase.encodeLoss(0);
+		}
+		int firstPlayerPieces = (side == BitboardCheckersBoard.FIRST_PLAYER)?sidePieces:opponentPieces;
+		int secondPlayerPieces = (side == BitboardCheckersBoard.FIRST_PLAYER)?opponentPieces:sidePieces;
+		byte[] slice = solvedSlices.get(EndgameTablebase.getMaterialKey(Integer.bitCount(firstPlayerPieces & ~kings), Integer.bitCount(firstPlayerPieces & kings), Integer.bitCount(secondPlayerPieces & ~kings), Integer.bitCount(secondPlayerPieces & kings)));
+
+		return slice[EndgameTablebase.getIndex(1 - side, firstPlayerPieces, secondPlayerPieces, kings)] & 0xFF;
+	}
+
+	/**
+	 * Fills the masks of the first players men, its kings and the second players men and kings from the index of the
+	 * position without the side to move.
+	 * @return the pieces
+	 */
+	private static int[] getPieces(int index, int[] counts, int[] radices, int[] pieces){
+		int[] ranks = new int[counts.length];
+		for (int i = counts.length - 1; i >= 0; i--){
+			ranks[i] = index % radices[i];
+			index /= radices[i];
+		}
+		int occupied = 0;
+		for (int i = 0; i < counts.length; i++){
+			pieces[i] = EndgameTablebase.getPieces(ranks[i], counts[i], occupied);
+			occupied |= pieces[i];
+		}
+		return pieces;
+	}
+
+	/**
+	 * Returns false if a man is on the row it would have been crowned on
+	 */
+	private static boolean isReachable(int[] pieces){
+		return (pieces[0] & CheckersGeometry.LAST_ROW_SQUARES) == 0 && (pieces[2] & CheckersGeometry.FIRST_ROW_SQUARES) == 0;
+	}
+
+	private static void write(byte[] slice, int firstMen, int firstKings, int secondMen, int secondKings, File directory) throws IOException{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, getFileName(firstMen, firstKings, secondMen, secondKings)))));
+		try{
+			out.writeInt(EndgameTablebase.MAGIC);
+			out.writeByte(firstMen);
+			out.writeByte(firstKings);
+			out.writeByte(secondMen);
+			out.writeByte(secondKings);
+			out.write(slice);
+		} finally{
+			out.close();
+		}
+	}
+
+	static String getFileName(int firstMen, int firstKings, int secondMen, int secondKings){
+		return firstMen+"-"+firstKings+"-"+secondMen+"-"+secondKings+EndgameTablebase.FILE_EXTENSION;
+	}
+}
@@ -0,0 +1,32 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * Treats the positions held in an {@link EndgameTablebase} as goals of the search, so that the
+ * {@link com.ahaines.ai.search.service.heurstic.service.GoalFilteringSuccessorService} searches no further then them
+ * and they are costed as leaves by {@link EndgameTablebaseCostFunctionService}. Whether a player has actually won is
+ * still decided by the supplied goal service, so this should only be given to the search and never used to decide
+ * whether the game is over.
+ * @author andrewhaines
+ *
+ */
+public class EndgameTablebaseGoalService implements TurnDrivenGoalService<BitboardCheckersBoard>{
+
+	private final TurnDrivenGoalService<BitboardCheckersBoard> goalService;
+	private final EndgameTablebase tablebase;
+
+	public EndgameTablebaseGoalService(TurnDrivenGoalService<BitboardCheckersBoard> goalService, EndgameTablebase tablebase){
+		this.goalService = goalService;
+		this.tablebase = tablebase;
+	}
+
+	public boolean isStateWon(BitboardCheckersBoard state) {
+		return goalService.isStateWon(state) || tablebase.probe(state) != EndgameTablebase.NOT_FOUND;
+	}
+
+	public boolean isStateWon(BitboardCheckersBoard state, int playerId) {
+		return goalService.isStateWon(state, playerId);
+	}
+}
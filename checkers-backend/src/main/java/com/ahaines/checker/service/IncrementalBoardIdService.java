@@ -1,11 +1,13 @@
 package com.ahaines.checker.service;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class IncrementalBoardIdService implements BoardIdService{
 
-	private int nextId = 0;
+	private final AtomicInteger nextId = new AtomicInteger(0); // boards can be generated by parallel searches
 	
 	public int nextId() {
-		return nextId++;
+		return nextId.getAndIncrement();
 	}
 
 }
@@ -0,0 +1,225 @@
+package com.ahaines.checker.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * The weight of a man or king on each square of the board, in the opening and in the endgame, as used by
+ * {@link PieceSquareTableCostFunctionService}. Squares are numbered from the side of the board the player starts on,
+ * so the same weights apply to either player: square 0 is on their back row and square 31 on the row their men are
+ * crowned on. The weights of the second player are held mirrored so that evaluating a board only indexes arrays.
+ *
+ * Weights are read from a text file (see {@link #load(File)}) so that they can be changed without rebuilding. The
+ * file has a section for each phase and piece type, headed by its name (for instance <code>opening man</code>) and
+ * followed by the 32 weights of the section in the order of the squares. Anything after a <code>#</code> on a line is
+ * ignored. The weights the engine is shipped with are read by {@link #loadDefault()}.
+ * @author andrewhaines
+ *
+ */
+public class PieceSquareTable {
+
+	public static final int OPENING = 0;
+	public static final int ENDGAME = 1;
+	public static final int MAN = 0;
+	public static final int KING = 1;
+
+	static final int PHASE_COUNT = 2;
+	static final int TYPE_COUNT = 2;
+	private static final String[] PHASE_NAMES = {"opening", "endgame"};
+	private static final String[] TYPE_NAMES = {"man", "king"};
+	private static final String DEFAULT_WEIGHTS_LOCATION = "/weights/piece-square-table.txt";
+	private static final int SQUARES_PER_ROW = 4;
+
+	/**
+	 * Weights indexed by side, phase, type and square
+	 */
+	private final int[] weights;
+
+	private PieceSquareTable(){
+		this.weights = new int[2 * PHASE_COUNT * TYPE_COUNT * BitboardCheckersBoard.SQUARE_COUNT];
+	}
+
+	/**
+	 * Reads the weights the engine is shipped with
+	 * @return
+	 */
+	public static PieceSquareTable loadDefault(){
+		InputStream in = PieceSquareTable.class.getResourceAsStream(DEFAULT_WEIGHTS_LOCATION);
+		if (in == null){
+			throw new IllegalStateException("default weights are missing: "+DEFAULT_WEIGHTS_LOCATION);
+		}
+		try{
+			return load(in);
+		} catch (IOException e){
+			throw new IllegalStateException("unable to read default weights", e);
+		}
+	}
+
+	/**
+	 * Reads the weights from the supplied file
+	 * @param file
+	 * @return
+	 * @throws IOException if the file can not be read or is not a valid weight file
+	 */
+	public static PieceSquareTable load(File file) throws IOException{
+		return load(new FileInputStream(file));
+	}
+
+	/**
+	 * Reads the weights from the supplied stream, which is closed once read
+	 * @param in
+	 * @return
+	 * @throws IOException if the stream can not be read or is not a valid weight file
+	 */
+	public static PieceSquareTable load(InputStream in) throws IOException{
+		PieceSquareTable table = new PieceSquareTable();
+		int[] squareCounts = new int[PHASE_COUNT * TYPE_COUNT];
+		int section = -1;
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		try{
+			String line;
+			while ((line = reader.readLine()) != null){
+				int commentStart = line.indexOf('#');
+				if (commentStart >= 0){
+					line = line.substring(0, commentStart);
+				}
+				String[] tokens = line.trim().split("\\s+");
+				for (int i = 0; i < tokens.length; i++){
+					String token = tokens[i];
+					if (token.isEmpty()){
+						continue;
+					}
+					int phase = indexOf(PHASE_NAMES, token);
+					if (phase >= 0){
+						if (i + 1 == tokens.length || indexOf(TYPE_NAMES, tokens[i + 1]) < 0){
+							throw new IOException("phase "+token+" is not followed by a piece type");
+						}
+						section = phase * TYPE_COUNT + indexOf(TYPE_NAMES, tokens[++i]);
+						continue;
+					}
+					if (section < 0){
+						throw new IOException("weight "+token+" is not in a section");
+					}
+					if (squareCounts[section] == BitboardCheckersBoard.SQUARE_COUNT){
+						throw new IOException("section "+getSectionName(section)+" has more then "+BitboardCheckersBoard.SQUARE_COUNT+" weights");
+					}
+					try{
+						table.setWeight(section / TYPE_COUNT, section % TYPE_COUNT, squareCounts[section]++, Integer.parseInt(token));
+					} catch (NumberFormatException e){
+						throw new IOException("weight is not a number: "+token);
+					}
+				}
+			}
+		} finally{
+			reader.close();
+		}
+		for (int i = 0; i < squareCounts.length; i++){
+			if (squareCounts[i] != BitboardCheckersBoard.SQUARE_COUNT){
+				throw new IOException("section "+getSectionName(i)+" has "+squareCounts[i]+" weights rather then "+BitboardCheckersBoard.SQUARE_COUNT);
+			}
+		}
+		return table;
+	}
+
+	private static int indexOf(String[] names, String name){
+		for (int i = 0; i < names.length; i++){
+			if (names[i].equals(name)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String getSectionName(int section){
+		return PHASE_NAMES[section / TYPE_COUNT]+" "+TYPE_NAMES[section % TYPE_COUNT];
+	}
+
+	/**
+	 * Writes the weights to the supplied file in the format read by {@link #load(File)}
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException{
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try{
+			for (int phase = 0; phase < PHASE_COUNT; phase++){
+				for (int type = 0; type < TYPE_COUNT; type++){
+					out.println(PHASE_NAMES[phase]+" "+TYPE_NAMES[type]);
+					for (int square = 0; square < BitboardCheckersBoard.SQUARE_COUNT; square++){
+						out.print((square % SQUARES_PER_ROW == 0)?"\t":" ");
+						out.print(getWeight(phase, type, square));
+						if (square % SQUARES_PER_ROW == SQUARES_PER_ROW - 1){
+							out.println();
+						}
+					}
+				}
+			}
+		} finally{
+			out.close();
+		}
+		if (out.checkError()){
+			throw new IOException("unable to write weights to: "+file);
+		}
+	}
+
+	/**
+	 * Returns the weight of a piece on the square, numbered from the side of the board its player starts on
+	 * @param phase
+	 * @param type
+	 * @param square
+	 * @return
+	 */
+	public int getWeight(int phase, int type, int square){
+		return weights[getIndex(BitboardCheckersBoard.FIRST_PLAYER, phase, type, square)];
+	}
+
+	/**
+	 * Sets the weight of a piece on the square, numbered from the side of the board its player starts on. The table
+	 * must not be changed while it is being used to evaluate boards.
+	 * @param phase
+	 * @param type
+	 * @param square
+	 * @param weight
+	 */
+	public void setWeight(int phase, int type, int square, int weight){
+		weights[getIndex(BitboardCheckersBoard.FIRST_PLAYER, phase, type, square)] = weight;
+		weights[getIndex(BitboardCheckersBoard.SECOND_PLAYER, phase, type, BitboardCheckersBoard.SQUARE_COUNT - 1 - square)] = weight; // turning the board around maps square s to 31 - s
+	}
+
+	/**
+	 * Returns the sum of the weights of the supplied men and kings of the side in the phase, with squares as
+	 * numbered on the board
+	 * @param side
+	 * @param phase
+	 * @param men
+	 * @param kings
+	 * @return
+	 */
+	public int getScore(int side, int phase, int men, int kings){
+		int manOffset = getIndex(side, phase, MAN, 0);
+		int kingOffset = getIndex(side, phase, KING, 0);
+		int score = 0;
+		while (men != 0){
+			score += weights[manOffset + Integer.numberOfTrailingZeros(men)];
+			men &= men - 1;
+		}
+		while (kings != 0){
+			score += weights[kingOffset + Integer.numberOfTrailingZeros(kings)];
+			kings &= kings - 1;
+		}
+		return score;
+	}
+
+	private static int getIndex(int side, int phase, int type, int square){
+		return (((side * PHASE_COUNT) + phase) * TYPE_COUNT + type) * BitboardCheckersBoard.SQUARE_COUNT + square;
+	}
+}
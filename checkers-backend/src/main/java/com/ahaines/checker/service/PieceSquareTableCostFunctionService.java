@@ -0,0 +1,76 @@
+package com.ahaines.checker.service;
+
+import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * Costs a {@link BitboardCheckersBoard} by the weights of a {@link PieceSquareTable}, which value each man and king
+ * by the square it is on. The weights of the opening and the endgame are blended by the number of pieces left on the
+ * board, from all opening weights with {@link #OPENING_PIECE_COUNT} pieces to all endgame weights with none, so that
+ * the cost does not jump as pieces are taken. Like {@link BitboardCheckersCostFunctionService}, costs are from the
+ * perspective of the player that moved in to the state and evaluating a board only loops over the bits of its masks.
+ * @author andrewhaines
+ *
+ */
+public class PieceSquareTableCostFunctionService implements CostFunctionService<BitboardCheckersBoard>{
+
+	/**
+	 * The number of pieces at the start of the game
+	 */
+	public static final int OPENING_PIECE_COUNT = 24;
+
+	/**
+	 * The cost of a won state, which is greater then the weights of a whole side can add up to
+	 */
+	public static final int POINTS_FOR_A_WIN = 20000;
+	private static final int POINTS_FOR_A_LOSE = -20000;
+
+	private final TurnDrivenGoalService<BitboardCheckersBoard> goalService;
+	private final PieceSquareTable pieceSquareTable;
+
+	public PieceSquareTableCostFunctionService(TurnDrivenGoalService<BitboardCheckersBoard> goalService, PieceSquareTable pieceSquareTable){
+		this.goalService = goalService;
+		this.pieceSquareTable = pieceSquareTable;
+	}
+
+	public int calculateCost(BitboardCheckersBoard state) {
+		if (goalService.isStateWon(state, state.getTurn().getId())){
+			return POINTS_FOR_A_WIN;
+		} else if (goalService.isStateWon(state, state.getTurn().nextTurn().getId())){
+			return POINTS_FOR_A_LOSE;
+		}
+		return calculateHeuristicCost(pieceSquareTable, state);
+	}
+
+	/**
+	 * Returns the cost of the state given by the weights of the table, without regard to whether it is won
+	 * @param pieceSquareTable
+	 * @param state
+	 * @return
+	 */
+	static int calculateHeuristicCost(PieceSquareTable pieceSquareTable, BitboardCheckersBoard state){
+		int side = 1 - state.getSideToMove();
+
+		return calculateHeuristicCost(pieceSquareTable, side, state.getPieces(side), state.getPieces(1 - side), state.getKings());
+	}
+
+	/**
+	 * Returns the cost of the masks of a board to the supplied side
+	 * @param pieceSquareTable
+	 * @param side
+	 * @param pieces The pieces of the side
+	 * @param opponentPieces
+	 * @param kings
+	 * @return
+	 */
+	static int calculateHeuristicCost(PieceSquareTable pieceSquareTable, int side, int pieces, int opponentPieces, int kings){
+		int opponentSide = 1 - side;
+
+		int opening = pieceSquareTable.getScore(side, PieceSquareTable.OPENING, pieces & ~kings, pieces & kings) - pieceSquareTable.getScore(opponentSide, PieceSquareTable.OPENING, opponentPieces & ~kings, opponentPieces & kings);
+		int endgame = pieceSquareTable.getScore(side, PieceSquareTable.ENDGAME, pieces & ~kings, pieces & kings) - pieceSquareTable.getScore(opponentSide, PieceSquareTable.ENDGAME, opponentPieces & ~kings, opponentPieces & kings);
+
+		int phase = Math.min(Integer.bitCount(pieces | opponentPieces), OPENING_PIECE_COUNT);
+		return (opening * phase + endgame * (OPENING_PIECE_COUNT - phase)) / OPENING_PIECE_COUNT;
+	}
+}
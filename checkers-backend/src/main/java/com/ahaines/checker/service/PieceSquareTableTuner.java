@@ -0,0 +1,203 @@
+package com.ahaines.checker.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.service.DaemonThreadFactory;
+import com.ahaines.ai.search.service.WorkerFutures;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.google.common.collect.Lists;
+
+/**
+ * Tunes the weights of a {@link PieceSquareTable} to the results of recorded games (see {@link TuningPositions}). The
+ * cost of each position is mapped to the chance of the first player winning by a logistic curve and the error of the
+ * weights is the mean squared difference between this and the result of the game. Each weight is then moved up or
+ * down by a step for as long as doing so lowers the error, halving the step whenever no weight can be improved. The
+ * positions are split between threads to calculate the error. The tuner is intended to be run offline, with:
+ *
+ * <pre>java com.ahaines.checker.service.PieceSquareTableTuner &lt;positions file&gt; &lt;passes&gt; &lt;weights file&gt; [&lt;starting weights file&gt;]</pre>
+ * @author andrewhaines
+ *
+ */
+public class PieceSquareTableTuner {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PieceSquareTableTuner.class);
+
+	/**
+	 * The scale of costs given to the logistic curve, at which a lead of a man in the opening, about 100, gives the
+	 * leading player a 73% chance of winning
+	 */
+	public static final double DEFAULT_SCALE = 0.01;
+
+	private static final int INITIAL_STEP = 8;
+
+	private final PieceSquareTable pieceSquareTable;
+	private final TuningPositions positions;
+	private final double scale;
+	private final int threads;
+	private final ExecutorService executorService;
+	private final int[] occupiedSquares;
+
+	public PieceSquareTableTuner(PieceSquareTable pieceSquareTable, TuningPositions positions, double scale, int threads){
+		if (positions.size() == 0){
+			throw new IllegalArgumentException("there are no positions to tune to");
+		}
+		this.pieceSquareTable = pieceSquareTable;
+		this.positions = positions;
+		this.scale = scale;
+		this.threads = threads;
+		this.executorService = (threads > 1)?Executors.newFixedThreadPool(threads - 1, new DaemonThreadFactory("pst-tuner")):null;
+		this.occupiedSquares = getOccupiedSquares(positions);
+	}
+
+	public static void main(String[] args) throws IOException{
+		if (args.length != 3 && args.length != 4){
+			System.err.println("usage: PieceSquareTableTuner <positions file> <passes> <weights file> [<starting weights file>]");
+			System.exit(1);
+		}
+		PieceSquareTable pieceSquareTable = (args.length == 4)?PieceSquareTable.load(new File(args[3])):PieceSquareTable.loadDefault();
+		TuningPositions positions = TuningPositions.load(new File(args[0]));
+		LOG.info("read {} positions", positions.size());
+
+		PieceSquareTableTuner tuner = new PieceSquareTableTuner(pieceSquareTable, positions, DEFAULT_SCALE, Runtime.getRuntime().availableProcessors());
+		try{
+			tuner.tune(Integer.parseInt(args[1]));
+		} finally{
+			tuner.shutdown();
+		}
+		pieceSquareTable.write(new File(args[2]));
+	}
+
+	/**
+	 * Returns the squares, numbered from the side of the board each player starts on, that men and kings are on in
+	 * any of the positions. The weights of other squares have no effect on the error so are not tuned.
+	 */
+	private static int[] getOccupiedSquares(TuningPositions positions){
+		int[] occupiedSquares = new int[PieceSquareTable.TYPE_COUNT];
+		for (int i = 0; i < positions.size(); i++){
+			int kings = positions.getKings(i);
+			int firstPlayerPieces = positions.getFirstPlayerPieces(i);
+			int secondPlayerPieces = positions.getSecondPlayerPieces(i);
+
+			// turning the board around maps square s to 31 - s
+			occupiedSquares[PieceSquareTable.MAN] |= (firstPlayerPieces & ~kings) | Integer.reverse(secondPlayerPieces & ~kings);
+			occupiedSquares[PieceSquareTable.KING] |= (firstPlayerPieces & kings) | Integer.reverse(secondPlayerPieces & kings);
+		}
+		return occupiedSquares;
+	}
+
+	/**
+	 * Tunes the weights of the table until no step improves them or the supplied number of passes over the weights
+	 * have been made
+	 * @param passLimit
+	 * @return The error of the tuned weights
+	 */
+	public double tune(int passLimit){
+		double error = calculateError();
+		LOG.info("starting error is {}", error);
+
+		int passes = 0;
+		for (int step = INITIAL_STEP; step > 0 && passes < passLimit; step /= 2){
+			boolean improved = true;
+			while (improved && passes < passLimit){
+				improved = false;
+				passes++;
+				for (int phase = 0; phase < PieceSquareTable.PHASE_COUNT; phase++){
+					for (int type = 0; type < PieceSquareTable.TYPE_COUNT; type++){
+						for (int square = 0; square < BitboardCheckersBoard.SQUARE_COUNT; square++){
+							if ((occupiedSquares[type] & (1 << square)) == 0){
+								continue;
+							}
+							double newError = step(phase, type, square, step, error);
+							if (newError < error){
+								error = newError;
+								improved = true;
+							}
+						}
+					}
+				}
+				LOG.info("error after pass {} with a step of {} is {}", new Object[]{passes, step, error});
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * Moves the weight up or down by the step if either lowers the error, returning the error of the weights left
+	 */
+	private double step(int phase, int type, int square, int step, double error){
+		int weight = pieceSquareTable.getWeight(phase, type, square);
+
+		pieceSquareTable.setWeight(phase, type, square, weight + step);
+		double newError = calculateError();
+		if (newError < error){
+			return newError;
+		}
+		pieceSquareTable.setWeight(phase, type, square, weight - step);
+		newError = calculateError();
+		if (newError < error){
+			return newError;
+		}
+		pieceSquareTable.setWeight(phase, type, square, weight);
+		return error;
+	}
+
+	/**
+	 * Returns the mean squared difference between the chance of the first player winning each position, as given by
+	 * its cost, and the result of its game
+	 * @return
+	 */
+	public double calculateError(){
+		int positionsPerThread = (positions.size() + threads - 1) / threads;
+		List<Future<Double>> calculators = Lists.newArrayList();
+		for (int from = positionsPerThread; from < positions.size(); from += positionsPerThread){
+			calculators.add(executorService.submit(new ErrorCalculator(from, Math.min(from + positionsPerThread, positions.size()))));
+		}
+		double error = new ErrorCalculator(0, Math.min(positionsPerThread, positions.size())).call(); // this thread calculates as well
+		for (Future<Double> calculator: calculators){
+			error += WorkerFutures.waitFor(calculator, "error calculation");
+		}
+		return error / positions.size();
+	}
+
+	/**
+	 * Releases the threads of the tuner. No further tuning can be done.
+	 */
+	public void shutdown(){
+		if (executorService != null){
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Sums the squared errors of a range of the positions
+	 */
+	private class ErrorCalculator implements Callable<Double>{
+
+		private final int from;
+		private final int to;
+
+		private ErrorCalculator(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+
+		public Double call(){
+			double error = 0;
+			for (int i = from; i < to; i++){
+				int cost = PieceSquareTableCostFunctionService.calculateHeuristicCost(pieceSquareTable, BitboardCheckersBoard.FIRST_PLAYER, positions.getFirstPlayerPieces(i), positions.getSecondPlayerPieces(i), positions.getKings(i));
+				double difference = positions.getResult(i) / (double)TuningPositions.WIN - 1 / (1 + Math.exp(-scale * cost));
+				error += difference * difference;
+			}
+			return error;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.ahaines.checker.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+
+/**
+ * Positions taken from recorded games along with the result of the game they were taken from, as used by
+ * {@link PieceSquareTableTuner}. Each position is held as the masks of a {@link BitboardCheckersBoard} in arrays of
+ * primitives, 13 bytes a position, so that millions of positions can be held in memory.
+ *
+ * Positions are read from a text file (see {@link #load(File)}) with a position on each line: the pieces of the first
+ * player, the pieces of the second player and the kings, each a mask in hex, followed by the result of the game for
+ * the first player as <code>1</code>, <code>0.5</code> or <code>0</code>. Anything after a <code>#</code> on a line is
+ * ignored. Positions should be quiet, with no piece able to be taken, as they are costed without being searched.
+ * @author andrewhaines
+ *
+ */
+public class TuningPositions {
+
+	/**
+	 * The result of a game lost by the first player
+	 */
+	public static final int LOSS = 0;
+
+	/**
+	 * The result of a drawn game
+	 */
+	public static final int DRAW = 1;
+
+	/**
+	 * The result of a game won by the first player
+	 */
+	public static final int WIN = 2;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int[] firstPlayerPieces;
+	private int[] secondPlayerPieces;
+	private int[] kings;
+	private byte[] results;
+	private int size;
+
+	public TuningPositions(){
+		this.firstPlayerPieces = new int[INITIAL_CAPACITY];
+		this.secondPlayerPieces = new int[INITIAL_CAPACITY];
+		this.kings = new int[INITIAL_CAPACITY];
+		this.results = new byte[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Reads the positions of the supplied file, a line at a time
+	 * @param file
+	 * @return
+	 * @throws IOException if the file can not be read or a line is not a valid position
+	 */
+	public static TuningPositions load(File file) throws IOException{
+		TuningPositions positions = new TuningPositions();
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try{
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null){
+				lineNumber++;
+				int commentStart = line.indexOf('#');
+				if (commentStart >= 0){
+					line = line.substring(0, commentStart);
+				}
+				line = line.trim();
+				if (line.isEmpty()){
+					continue;
+				}
+				String[] tokens = line.split("\\s+");
+				if (tokens.length != 4){
+					throw new IOException("line "+lineNumber+" is not a position: "+line);
+				}
+				try{
+					positions.add(Integer.parseUnsignedInt(tokens[0], 16), Integer.parseUnsignedInt(tokens[1], 16), Integer.parseUnsignedInt(tokens[2], 16), parseResult(tokens[3]));
+				} catch (IllegalArgumentException e){ // includes NumberFormatException
+					throw new IOException("line "+lineNumber+" is not a position: "+line, e);
+				}
+			}
+		} finally{
+			reader.close();
+		}
+		return positions;
+	}
+
+	private static int parseResult(String result){
+		if (result.equals("1")){
+			return WIN;
+		} else if (result.equals("0.5")){
+			return DRAW;
+		} else if (result.equals("0")){
+			return LOSS;
+		}
+		throw new IllegalArgumentException("result is not 1, 0.5 or 0: "+result);
+	}
+
+	/**
+	 * Adds a position to the set
+	 * @param firstPlayerPieces
+	 * @param secondPlayerPieces
+	 * @param kings
+	 * @param result One of {@link #WIN}, {@link #DRAW} or {@link #LOSS}
+	 */
+	public void add(int firstPlayerPieces, int secondPlayerPieces, int kings, int result){
+		if ((firstPlayerPieces & secondPlayerPieces) != 0 || (kings & ~(firstPlayerPieces | secondPlayerPieces)) != 0){
+			throw new IllegalArgumentException("pieces overlap or a king is not on a piece");
+		}
+		if (result < LOSS || result > WIN){
+			throw new IllegalArgumentException("unknown result: "+result);
+		}
+		if (size == results.length){
+			int capacity = size * 2;
+			this.firstPlayerPieces = Arrays.copyOf(this.firstPlayerPieces, capacity);
+			this.secondPlayerPieces = Arrays.copyOf(this.secondPlayerPieces, capacity);
+			this.kings = Arrays.copyOf(this.kings, capacity);
+			this.results = Arrays.copyOf(this.results, capacity);
+		}
+		this.firstPlayerPieces[size] = firstPlayerPieces;
+		this.secondPlayerPieces[size] = secondPlayerPieces;
+		this.kings[size] = kings;
+		this.results[size] = (byte)result;
+		size++;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public int getFirstPlayerPieces(int position){
+		return firstPlayerPieces[position];
+	}
+
+	public int getSecondPlayerPieces(int position){
+		return secondPlayerPieces[position];
+	}
+
+	public int getKings(int position){
+		return kings[position];
+	}
+
+	/**
+	 * Returns the result of the game for the first player, one of {@link #WIN}, {@link #DRAW} or {@link #LOSS}
+	 * @param position
+	 * @return
+	 */
+	public int getResult(int position){
+		return results[position];
+	}
+}
@@ -0,0 +1,504 @@
+package com.ahaines.checkers.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.boardgame.model.Board;
+import com.ahaines.boardgame.model.BoardFormater;
+import com.ahaines.boardgame.model.Piece;
+import com.ahaines.boardgame.model.PieceLookup;
+import com.ahaines.boardgame.model.Player;
+import com.ahaines.boardgame.model.PlayerLookup;
+import com.ahaines.boardgame.model.Position;
+import com.ahaines.boardgame.model.ZobristHashable;
+import com.ahaines.boardgame.model.ZobristKeys;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
+
+/**
+ * A checkers board that represents its state as 3 32 bit masks over the 32 playable (dark) squares of the
+ * board: one for each player's pieces and one marking which of those pieces are kings. Copying a board is
+ * therefore just copying 3 ints rather then an array and a map of stats, and move generation can be done
+ * with shifts over the masks rather then by constructing {@link Position} and {@link Piece} objects for each
+ * square looked at.
+ *
+ * The playable squares are numbered row by row from the origin, 4 to a row:
+ *
+ *     x:  0  1  2  3  4  5  6  7
+ *  y:0 |    0     1     2     3
+ *  y:1 | 4     5     6     7
+ *  y:2 |    8     9    10    11
+ *  ...
+ *
+ * Note that as only the player and type of a piece is held, pieces returned via the {@link Board} methods
+ * are canonical descriptions of a player's standard or king piece rather then the individual pieces that
+ * were added to the board. Similarly only the dark squares (where x+y is odd) can hold a piece.
+ *
+ * The Zobrist key of the board is maintained as pieces are moved, added and removed and is the same as that of
+ * the equivalent {@link CheckersBoard}.
+ * @author andrewhaines
+ *
+ */
+public class BitboardCheckersBoard implements Board<CheckersPieceDescription>, Identifiable, TurnDrivenState, ZobristHashable{
+
+	public static final int SQUARE_COUNT = 32;
+
+	/**
+	 * The player that starts on the north of the board (y = 0) and moves with increasing y
+	 */
+	public static final int FIRST_PLAYER = 0;
+
+	/**
+	 * The player that starts on the south of the board (y = 7) and moves with decreasing y
+	 */
+	public static final int SECOND_PLAYER = 1;
+
+	public static final int NO_SQUARE = -1;
+
+	private static final int SQUARES_PER_ROW = 4;
+
+	private final int id;
+	private final Turn turn;
+	private final PieceMapping mapping;
+	private int firstPlayerPieces;
+	private int secondPlayerPieces;
+	private int kings;
+	private long pieceKey;
+	private int newMoveSquare;
+
+	public BitboardCheckersBoard(int id, Turn turn, PieceMapping mapping){
+		this(id, turn, mapping, 0, 0, 0);
+	}
+
+	public BitboardCheckersBoard(int id, Turn turn, PieceMapping mapping, int firstPlayerPieces, int secondPlayerPieces, int kings){
+		this.id = id;
+		this.turn = turn;
+		this.mapping = mapping;
+		this.firstPlayerPieces = firstPlayerPieces;
+		this.secondPlayerPieces = secondPlayerPieces;
+		this.kings = kings;
+		this.pieceKey = generatePieceKey();
+		this.newMoveSquare = NO_SQUARE;
+	}
+
+	/**
+	 * Copy constructor for an existing board. Note that this constructor will automatically advance the players move.
+	 *
+	 * @param id
+	 * @param previousState
+	 */
+	public BitboardCheckersBoard(int id, BitboardCheckersBoard previousState){
+		this(id, previousState, previousState.getTurn().nextTurn());
+	}
+
+	public BitboardCheckersBoard(int id, BitboardCheckersBoard previousState, Turn turn){
+		this.id = id;
+		this.turn = turn;
+		this.mapping = previousState.mapping;
+		this.firstPlayerPieces = previousState.firstPlayerPieces;
+		this.secondPlayerPieces = previousState.secondPlayerPieces;
+		this.kings = previousState.kings;
+		this.pieceKey = previousState.pieceKey;
+		this.newMoveSquare = previousState.newMoveSquare;
+	}
+
+	private long generatePieceKey(){
+		long key = 0;
+		int occupied = getOccupied();
+
+		while (occupied != 0){
+			int square = Integer.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			key ^= getPieceKey(square);
+		}
+		return key;
+	}
+
+	private long getPieceKey(int square){
+		int bit = 1 << square;
+		int side = ((firstPlayerPieces & bit) != 0)?FIRST_PLAYER:SECOND_PLAYER;
+
+		return mapping.getZobristKey(side, (kings & bit) != 0, square);
+	}
+
+	/**
+	 * Creates a bitboard representation of the supplied board.
+	 * @param id
+	 * @param board
+	 * @param mapping
+	 * @return
+	 */
+	public static BitboardCheckersBoard fromCheckersBoard(int id, CheckersBoard board, PieceMapping mapping){
+		BitboardCheckersBoard bitboard = new BitboardCheckersBoard(id, board.getTurn(), mapping);
+
+		for (Piece<CheckersPieceDescription> piece: board.getPieces()){
+			bitboard.addPiece(piece);
+		}
+		if (board.getNewMove() != null){
+			bitboard.newMoveSquare = getSquare(board.getNewMove());
+		}
+		return bitboard;
+	}
+
+	/**
+	 * Creates an array backed representation of this board. The last piece moved is added last so that
+	 * {@link CheckersBoard#getNewMove()} is retained.
+	 * @param id
+	 * @return
+	 */
+	public CheckersBoard toCheckersBoard(int id){
+		CheckersBoard board = new CheckersBoard(id, turn, mapping.getPieceLookup());
+
+		Piece<CheckersPieceDescription> newMovePiece = null;
+		for (Piece<CheckersPieceDescription> piece: getPieces()){
+			if (getSquare(piece.getPlacement()) == newMoveSquare){
+				newMovePiece = piece;
+			} else{
+				board.addPiece(piece);
+			}
+		}
+		if (newMovePiece != null){
+			board.addPiece(newMovePiece);
+		}
+		return board;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public Turn getTurn() {
+		return turn;
+	}
+
+	public PieceMapping getMapping(){
+		return mapping;
+	}
+
+	/**
+	 * Returns the side ({@link #FIRST_PLAYER} or {@link #SECOND_PLAYER}) that has the move on this board
+	 * @return
+	 */
+	public int getSideToMove(){
+		return mapping.getSide(turn.getId());
+	}
+
+	/**
+	 * Returns the mask of the pieces held by the supplied side
+	 * @param side
+	 * @return
+	 */
+	public int getPieces(int side){
+		return (side == FIRST_PLAYER)?firstPlayerPieces:secondPlayerPieces;
+	}
+
+	public int getKings(){
+		return kings;
+	}
+
+	public int getOccupied(){
+		return firstPlayerPieces | secondPlayerPieces;
+	}
+
+	public int getEmpty(){
+		return ~getOccupied();
+	}
+
+	public long getZobristKey(){
+		return pieceKey ^ ZobristKeys.getTurnKey(turn.getId());
+	}
+
+	/**
+	 * Moves the piece of the supplied side from one square to another removing any pieces on the captured
+	 * squares. The piece is upgraded to a king if promote is set.
+	 * @param side
+	 * @param fromSquare
+	 * @param toSquare
+	 * @param capturedSquares mask of the opponent squares taken by this move
+	 * @param promote
+	 */
+	public void movePiece(int side, int fromSquare, int toSquare, int capturedSquares, boolean promote){
+		int fromBit = 1 << fromSquare;
+		int toBit = 1 << toSquare;
+		boolean wasKing = (kings & fromBit) != 0;
+		boolean isKing = wasKing || promote;
+
+		pieceKey ^= mapping.getZobristKey(side, wasKing, fromSquare) ^ mapping.getZobristKey(side, isKing, toSquare);
+		int captured = capturedSquares;
+		while (captured != 0){
+			int square = Integer.numberOfTrailingZeros(captured);
+			captured &= captured - 1;
+			pieceKey ^= mapping.getZobristKey(1 - side, (kings & (1 << square)) != 0, square);
+		}
+		if (side == FIRST_PLAYER){
+			firstPlayerPieces = (firstPlayerPieces & ~fromBit) | toBit;
+			secondPlayerPieces &= ~capturedSquares;
+		} else{
+			secondPlayerPieces = (secondPlayerPieces & ~fromBit) | toBit;
+			firstPlayerPieces &= ~capturedSquares;
+		}
+		kings &= ~(fromBit | capturedSquares);
+		if (isKing){
+			kings |= toBit;
+		}
+		newMoveSquare = toSquare;
+	}
+
+	/**
+	 * Returns the playable square index of the supplied position or {@link #NO_SQUARE} if it is not a
+	 * playable square on the board
+	 * @param pos
+	 * @return
+	 */
+	public static int getSquare(Position pos){
+		return getSquare(pos.getXCoord(), pos.getYCoord());
+	}
+
+	public static int getSquare(int x, int y){
+		if (x < 0 || x >= CheckersBoard.CHECKERS_BOARD_MAX || y < 0 || y >= CheckersBoard.CHECKERS_BOARD_MAX || ((x + y) & 1) == 0){
+			return NO_SQUARE;
+		}
+		return (y * SQUARES_PER_ROW) + (x >> 1);
+	}
+
+	public static int getXCoord(int square){
+		int y = getYCoord(square);
+		return ((square & (SQUARES_PER_ROW - 1)) << 1) + (((y & 1) == 0)?1:0);
+	}
+
+	public static int getYCoord(int square){
+		return square / SQUARES_PER_ROW;
+	}
+
+	public static Position getPosition(int square){
+		return new Position(getXCoord(square), getYCoord(square));
+	}
+
+	public Iterable<Piece<CheckersPieceDescription>> getPieces(Player<CheckersPieceDescription> player) {
+		return getPiecesInMask(getPieces(mapping.getSide(player)));
+	}
+
+	public Iterable<Piece<CheckersPieceDescription>> getPieces() {
+		return getPiecesInMask(getOccupied());
+	}
+
+	private List<Piece<CheckersPieceDescription>> getPiecesInMask(int mask){
+		List<Piece<CheckersPieceDescription>> pieces = new ArrayList<Piece<CheckersPieceDescription>>(Integer.bitCount(mask));
+
+		while (mask != 0){
+			int square = Integer.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+			pieces.add(getPieceAtSquare(square));
+		}
+		return pieces;
+	}
+
+	private Piece<CheckersPieceDescription> getPieceAtSquare(int square){
+		int bit = 1 << square;
+		int side = ((firstPlayerPieces & bit) != 0)?FIRST_PLAYER:SECOND_PLAYER;
+
+		return new Piece<CheckersPieceDescription>(getPosition(square), mapping.getPieceDescription(side, (kings & bit) != 0));
+	}
+
+	public Position getBoardExtremity() {
+		return mapping.getExtremity();
+	}
+
+	public Collection<Piece<CheckersPieceDescription>> getPiecesAtPlacement(Position pos) {
+		int square = getSquare(pos);
+		if (square == NO_SQUARE || (getOccupied() & (1 << square)) == 0){ // there are no pieces here
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(getPieceAtSquare(square));
+	}
+
+	public boolean holdsPieceAtPoint(Player<CheckersPieceDescription> player, Position pos){
+		int square = getSquare(pos);
+
+		return square != NO_SQUARE && (getPieces(mapping.getSide(player)) & (1 << square)) != 0;
+	}
+
+	public void removePiece(Piece<CheckersPieceDescription> piece) {
+		int square = getSquareOrFail(piece.getPlacement());
+		int bit = 1 << square;
+		int side = mapping.getSide(piece.getPlayer());
+		boolean king = piece.getPiece().getType() == Type.KING;
+
+		if ((getPieces(side) & bit) == 0 || ((kings & bit) != 0) != king){ // the key and masks must be changed by the same piece
+			throw new IllegalStateException("State does not contain piece at this position: "+piece);
+		}
+		pieceKey ^= getPieceKey(square);
+		if (side == FIRST_PLAYER){
+			firstPlayerPieces &= ~bit;
+		} else{
+			secondPlayerPieces &= ~bit;
+		}
+		kings &= ~bit;
+	}
+
+	public void addPiece(Piece<CheckersPieceDescription> piece) {
+		int square = getSquareOrFail(piece.getPlacement());
+		int bit = 1 << square;
+		if ((getOccupied() & bit) != 0){
+			throw new IllegalStateException("State already contains piece at this position: "+piece);
+		}
+		if (mapping.getSide(piece.getPlayer()) == FIRST_PLAYER){
+			firstPlayerPieces |= bit;
+		} else{
+			secondPlayerPieces |= bit;
+		}
+		if (piece.getPiece().getType() == Type.KING){
+			kings |= bit;
+		}
+		pieceKey ^= getPieceKey(square);
+		newMoveSquare = square;
+	}
+
+	private static int getSquareOrFail(Position pos){
+		int square = getSquare(pos);
+		if (square == NO_SQUARE){
+			throw new IllegalArgumentException("position: "+pos+" is not a playable square of a checkers board");
+		}
+		return square;
+	}
+
+	public boolean isValidBoardPosition(Position pos) {
+		return pos.getXCoord() >= 0 && pos.getXCoord() < getBoardExtremity().getXCoord()
+				&& pos.getYCoord() >= 0 && pos.getYCoord() < getBoardExtremity().getYCoord();
+	}
+
+	/**
+	 * Returns a view of the piece counts derived from the masks of this board, so the counts follow the board as it
+	 * changes.
+	 */
+	public Stats<CheckersPieceDescription> getBoardStats() {
+		return new Stats<CheckersPieceDescription>(){
+
+			public int getPieceCountForPlayer(Player<?> player) {
+				return Integer.bitCount(getPieces(mapping.getSide(player)));
+			}
+		};
+	}
+
+	public Position getNewMove() {
+		return (newMoveSquare == NO_SQUARE)?null:getPosition(newMoveSquare);
+	}
+
+	@Override
+	public int hashCode(){
+		long key = getZobristKey();
+		return (int)(key ^ (key >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj){
+		if (obj instanceof BitboardCheckersBoard){
+			BitboardCheckersBoard other = (BitboardCheckersBoard)obj;
+
+			return firstPlayerPieces == other.firstPlayerPieces
+					&& secondPlayerPieces == other.secondPlayerPieces
+					&& kings == other.kings
+					&& turn.getId() == other.turn.getId();
+		}
+		return false;
+	}
+
+	public String toString(){
+		return BoardFormater.toString(this, CheckersBoard.CHECKERS_BOARD_MAX * 7, getNewMove());
+	}
+
+	/**
+	 * Maps the players and pieces of a game onto the sides of a {@link BitboardCheckersBoard}. The first player
+	 * returned from the {@link PlayerLookup} is taken as the {@link BitboardCheckersBoard#FIRST_PLAYER} to match
+	 * the orientation used when generating moves on a {@link CheckersBoard}. One instance should be shared by all
+	 * boards of a game.
+	 * @author andrewhaines
+	 *
+	 */
+	public static class PieceMapping {
+
+		private final Player<CheckersPieceDescription> firstPlayer;
+		private final Player<CheckersPieceDescription> secondPlayer;
+		private final CheckersPieceDescription[][] pieceDescriptions;
+		private final long[][] zobristKeys;
+		private final PieceLookup<CheckersPieceDescription> pieceLookup;
+		private final Position extremity;
+
+		public PieceMapping(PlayerLookup<CheckersPieceDescription> playerLookup, PieceLookup<CheckersPieceDescription> pieceLookup){
+			if (playerLookup.getAllPlayers().size() != 2){
+				throw new IllegalArgumentException("2 players are required for checkers");
+			}
+			List<Player<CheckersPieceDescription>> players = new ArrayList<Player<CheckersPieceDescription>>(playerLookup.getAllPlayers());
+			this.firstPlayer = players.get(FIRST_PLAYER);
+			this.secondPlayer = players.get(SECOND_PLAYER);
+			this.pieceLookup = pieceLookup;
+			this.extremity = new Position(CheckersBoard.CHECKERS_BOARD_MAX, CheckersBoard.CHECKERS_BOARD_MAX);
+			this.pieceDescriptions = new CheckersPieceDescription[2][2];
+
+			// use the lowest id piece of each player and type as the canonical description
+			for (CheckersPieceDescription piece: pieceLookup.getAllPieces()){
+				int side = getSide(piece.getPlayer());
+				int type = (piece.getType() == Type.KING)?1:0;
+				CheckersPieceDescription current = pieceDescriptions[side][type];
+				if (current == null || current.getId() > piece.getId()){
+					pieceDescriptions[side][type] = piece;
+				}
+			}
+
+			// index the keys by the position in the state array of a CheckersBoard so both representations share keys
+			this.zobristKeys = new long[4][SQUARE_COUNT];
+			for (int side = FIRST_PLAYER; side <= SECOND_PLAYER; side++){
+				int playerId = getPlayer(side).getPlayerId().getId();
+				for (int square = 0; square < SQUARE_COUNT; square++){
+					int stateIndex = CheckersBoard.getStateIndex(getXCoord(square), getYCoord(square));
+					zobristKeys[side << 1][square] = ZobristKeys.getPieceKey(stateIndex, CheckersBoard.getZobristPieceKind(playerId, false));
+					zobristKeys[(side << 1) | 1][square] = ZobristKeys.getPieceKey(stateIndex, CheckersBoard.getZobristPieceKind(playerId, true));
+				}
+			}
+		}
+
+		/**
+		 * Returns the Zobrist key of a piece of the supplied side and type on the supplied square
+		 * @param side
+		 * @param king
+		 * @param square
+		 * @return
+		 */
+		public long getZobristKey(int side, boolean king, int square){
+			return zobristKeys[(side << 1) | (king?1:0)][square];
+		}
+
+		public int getSide(Player<?> player){
+			return getSide(player.getPlayerId().getId());
+		}
+
+		public int getSide(int playerId){
+			if (firstPlayer.getPlayerId().getId() == playerId){
+				return FIRST_PLAYER;
+			} else if (secondPlayer.getPlayerId().getId() == playerId){
+				return SECOND_PLAYER;
+			}
+			throw new IllegalArgumentException("player id: "+playerId+" is not a valid player in the game");
+		}
+
+		public Player<CheckersPieceDescription> getPlayer(int side){
+			return (side == FIRST_PLAYER)?firstPlayer:secondPlayer;
+		}
+
+		public CheckersPieceDescription getPieceDescription(int side, boolean king){
+			return pieceDescriptions[side][king?1:0];
+		}
+
+		public PieceLookup<CheckersPieceDescription> getPieceLookup() {
+			return pieceLookup;
+		}
+
+		public Position getExtremity(){
+			return extremity;
+		}
+	}
+}
@@ -8,15 +8,18 @@ import com.ahaines.boardgame.model.Piece;
 import com.ahaines.boardgame.model.PieceLookup;
 import com.ahaines.boardgame.model.Position;
 import com.ahaines.boardgame.model.SimpleArrayBackedBoard;
+import com.ahaines.boardgame.model.ZobristKeys;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
 
 public class CheckersBoard extends SimpleArrayBackedBoard<CheckersPieceDescription, CheckersStats> implements Identifiable, TurnDrivenState{
 
 	public static final int CHECKERS_BOARD_MAX = 8;
+	public static final int EMPTY_SQUARE = 0;
 	private static int NEXT_INT = 0;
 	
 	private final int id;
-	private final Turn turn;
+	private Turn turn;
 
 	public CheckersBoard(int id, Turn turn, PieceLookup<CheckersPieceDescription> pieceLookup) {
 		super(pieceLookup, CHECKERS_BOARD_MAX, CHECKERS_BOARD_MAX);
@@ -74,6 +77,144 @@ public class CheckersBoard extends SimpleArrayBackedBoard<CheckersPieceDescripti
 		return piece.getId();
 	}
 	
+	/**
+	 * Pieces of the same player and type are interchangeable in checkers so only these make up the kind of the piece
+	 */
+	@Override
+	protected int getZobristPieceKind(CheckersPieceDescription piece) {
+		return getZobristPieceKind(piece.getPlayer().getPlayerId().getId(), piece.getType() == Type.KING);
+	}
+	
+	/**
+	 * Returns the kind used in the Zobrist key of a piece of the supplied player and type. This is shared with
+	 * {@link BitboardCheckersBoard} so that the same position has the same key in either representation.
+	 * @param playerId
+	 * @param king
+	 * @return
+	 */
+	public static int getZobristPieceKind(int playerId, boolean king){
+		return (playerId << 1) | (king?1:0);
+	}
+	
+	/**
+	 * Returns the Zobrist key of the pieces on this board combined with the player that has the move. Note that
+	 * unlike {@link #equals(Object)}, the key therefore distinguishes between boards that only differ by turn.
+	 */
+	@Override
+	public long getZobristKey(){
+		return super.getZobristKey() ^ ZobristKeys.getTurnKey(turn.getId());
+	}
+	
+	/**
+	 * Returns the index of the supplied position in the state array of this board
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static int getStateIndex(int x, int y){
+		return (x * CHECKERS_BOARD_MAX) + y;
+	}
+	
+	/**
+	 * Returns the id of the piece at the supplied coordinates or {@link #EMPTY_SQUARE}. The coordinates must be on
+	 * the board.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getPieceIdAt(int x, int y){
+		return state[getStateIndex(x, y)];
+	}
+	
+	/**
+	 * Returns the id of the piece at the supplied index of the state array or {@link #EMPTY_SQUARE}.
+	 * @param stateIndex
+	 * @return
+	 */
+	public int getPieceIdAt(int stateIndex){
+		return state[stateIndex];
+	}
+	
+	/**
+	 * Applies the move to this board in place and passes the turn to the next player.
+	 * @param move
+	 */
+	public void makeMove(CheckersMove move){
+		for (int i = 0; i < move.getCaptureCount(); i++){
+			clearPiece(move.getCapturedSquare(i));
+		}
+		clearPiece(move.getFrom());
+		placePiece(move.getTo(), move.getPlacedPieceId());
+		setNewMove(move.getTo());
+		turn = turn.nextTurn();
+	}
+	
+	/**
+	 * Reverts a move previously applied with {@link #makeMove(CheckersMove)}, passing the turn back. As checkers
+	 * has 2 players this is the next turn of the player that now has the move. Note that {@link #getNewMove()}
+	 * is not reverted.
+	 * @param move
+	 */
+	public void unmakeMove(CheckersMove move){
+		clearPiece(move.getTo());
+		placePiece(move.getFrom(), move.getPieceId());
+		for (int i = 0; i < move.getCaptureCount(); i++){
+			placePiece(move.getCapturedSquare(i), move.getCapturedPieceId(i));
+		}
+		turn = turn.nextTurn();
+	}
+	
+	/**
+	 * Applies a single jump of a chain of captures without passing the turn or recording the new move. This is used
+	 * when following chains of captures on a scratch board so that no {@link CheckersMove} is created for each step.
+	 * @param from
+	 * @param to
+	 * @param placedPieceId The piece placed on the square jumped to
+	 * @param capturedSquare
+	 */
+	public void makeJump(int from, int to, int placedPieceId, int capturedSquare){
+		clearPiece(capturedSquare);
+		clearPiece(from);
+		placePiece(to, placedPieceId);
+	}
+	
+	/**
+	 * Reverts a jump previously applied with {@link #makeJump(int, int, int, int)}
+	 * @param from
+	 * @param to
+	 * @param pieceId The piece that jumped
+	 * @param capturedSquare
+	 * @param capturedPieceId
+	 */
+	public void unmakeJump(int from, int to, int pieceId, int capturedSquare, int capturedPieceId){
+		clearPiece(to);
+		placePiece(from, pieceId);
+		placePiece(capturedSquare, capturedPieceId);
+	}
+	
+	/**
+	 * Returns a new board of the state reached by applying the move to this board, which is left unchanged.
+	 * @param id
+	 * @param move
+	 * @return
+	 */
+	public CheckersBoard createSuccessor(int id, CheckersMove move){
+		CheckersBoard successor = new CheckersBoard(id, this, turn);
+		successor.makeMove(move);
+		
+		return successor;
+	}
+	
+	/**
+	 * Replaces the contents of this board, including the turn, with a copy of the supplied board so that the board
+	 * can be reused when searching.
+	 * @param board
+	 */
+	public void copyFrom(CheckersBoard board){
+		super.copyFrom(board);
+		this.turn = board.turn;
+	}
+	
 	public static Piece<CheckersPieceDescription> getPieceAtPosition(CheckersBoard board, Position position) {
 		Iterator<Piece<CheckersPieceDescription>> pieces = board.getPiecesAtPlacement(position).iterator();
 		
@@ -96,5 +237,24 @@ public class CheckersBoard extends SimpleArrayBackedBoard<CheckersPieceDescripti
 	protected CheckersStats createStat(CheckersStats stats) {
 		return new CheckersStats(stats);
 	}
+	
+	@Override
+	protected CheckersStats copyStat(CheckersStats stats, CheckersStats existingStats) {
+		existingStats.copyFrom(stats);
+		return existingStats;
+	}
+
+	/**
+	 * Counts the piece by where it is placed so that the edge pieces of each player are kept up to date
+	 */
+	@Override
+	protected void addPieceStat(CheckersStats stats, CheckersPieceDescription piece, int idx) {
+		stats.addPiece(piece, idx);
+	}
+
+	@Override
+	protected void removePieceStat(CheckersStats stats, CheckersPieceDescription piece, int idx) {
+		stats.removePiece(piece, idx);
+	}
 
 }
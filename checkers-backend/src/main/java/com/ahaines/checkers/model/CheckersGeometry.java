@@ -0,0 +1,213 @@
+package com.ahaines.checkers.model;
+
+/**
+ * Precomputed geometry of a checkers board. For each square and diagonal direction the tables hold the neighbouring
+ * square and the square landed on when jumping the neighbour so that moves can be generated without creating
+ * {@link com.ahaines.boardgame.model.Position}s or checking that coordinates are on the board. Squares off the board
+ * are held as {@link #NO_SQUARE} or an empty mask.
+ *
+ * The tables are held both for the 32 playable squares, numbered as in {@link BitboardCheckersBoard#getSquare(int, int)},
+ * and for every index of the state array of a {@link CheckersBoard} (see {@link CheckersBoard#getStateIndex(int, int)}),
+ * which can also hold pieces on the unplayable squares.
+ * @author andrewhaines
+ *
+ */
+public final class CheckersGeometry {
+
+	public static final int SQUARE_COUNT = BitboardCheckersBoard.SQUARE_COUNT;
+	public static final int STATE_INDEX_COUNT = CheckersBoard.CHECKERS_BOARD_MAX * CheckersBoard.CHECKERS_BOARD_MAX;
+	public static final int NO_SQUARE = BitboardCheckersBoard.NO_SQUARE;
+
+	// increasing y, decreasing x
+	public static final int SOUTH_WEST = 0;
+	// increasing y, increasing x
+	public static final int SOUTH_EAST = 1;
+	// decreasing y, decreasing x
+	public static final int NORTH_WEST = 2;
+	// decreasing y, increasing x
+	public static final int NORTH_EAST = 3;
+	public static final int DIRECTION_COUNT = 4;
+
+	/**
+	 * Squares on rows 0 and 7 and columns 0 and 7
+	 */
+	public static final int EDGE_SQUARES;
+	/**
+	 * Squares on 2 edges
+	 */
+	public static final int CORNER_SQUARES;
+	public static final int FIRST_ROW_SQUARES;
+	public static final int LAST_ROW_SQUARES;
+	/**
+	 * State indexes on rows 0 and 7 and columns 0 and 7
+	 */
+	public static final long EDGE_STATE_INDEXES;
+	/**
+	 * State indexes on rows 0 and 7, where men are crowned
+	 */
+	public static final long CROWNING_STATE_INDEXES;
+
+	private static final int[][] NEIGHBOURS = new int[DIRECTION_COUNT][SQUARE_COUNT];
+	private static final int[][] JUMPS = new int[DIRECTION_COUNT][SQUARE_COUNT];
+	private static final int[][] NEIGHBOUR_MASKS = new int[DIRECTION_COUNT][SQUARE_COUNT];
+	private static final int[][] JUMP_MASKS = new int[DIRECTION_COUNT][SQUARE_COUNT];
+	private static final int[] STATE_INDEXES = new int[SQUARE_COUNT];
+	private static final int[][] STATE_INDEX_NEIGHBOURS = new int[DIRECTION_COUNT][STATE_INDEX_COUNT];
+	private static final int[][] STATE_INDEX_JUMPS = new int[DIRECTION_COUNT][STATE_INDEX_COUNT];
+
+	static{
+		int edgeSquares = 0;
+		int cornerSquares = 0;
+		int firstRowSquares = 0;
+		int lastRowSquares = 0;
+		int max = CheckersBoard.CHECKERS_BOARD_MAX - 1;
+
+		for (int square = 0; square < SQUARE_COUNT; square++){
+			int x = BitboardCheckersBoard.getXCoord(square);
+			int y = BitboardCheckersBoard.getYCoord(square);
+
+			for (int direction = 0; direction < DIRECTION_COUNT; direction++){
+				int xShift = getXShift(direction);
+				int yShift = getYShift(direction);
+
+				NEIGHBOURS[direction][square] = BitboardCheckersBoard.getSquare(x + xShift, y + yShift);
+				JUMPS[direction][square] = BitboardCheckersBoard.getSquare(x + 2 * xShift, y + 2 * yShift);
+				NEIGHBOUR_MASKS[direction][square] = toMask(NEIGHBOURS[direction][square]);
+				JUMP_MASKS[direction][square] = toMask(JUMPS[direction][square]);
+			}
+			STATE_INDEXES[square] = CheckersBoard.getStateIndex(x, y);
+
+			int edges = ((x == 0 || x == max)?1:0) + ((y == 0 || y == max)?1:0);
+			if (edges > 0){
+				edgeSquares |= 1 << square;
+			}
+			if (edges > 1){
+				cornerSquares |= 1 << square;
+			}
+			if (y == 0){
+				firstRowSquares |= 1 << square;
+			} else if (y == max){
+				lastRowSquares |= 1 << square;
+			}
+		}
+		EDGE_SQUARES = edgeSquares;
+		CORNER_SQUARES = cornerSquares;
+		FIRST_ROW_SQUARES = firstRowSquares;
+		LAST_ROW_SQUARES = lastRowSquares;
+
+		long edgeStateIndexes = 0;
+		long crowningStateIndexes = 0;
+		for (int x = 0; x <= max; x++){
+			for (int y = 0; y <= max; y++){
+				int idx = CheckersBoard.getStateIndex(x, y);
+				for (int direction = 0; direction < DIRECTION_COUNT; direction++){
+					STATE_INDEX_NEIGHBOURS[direction][idx] = getStateIndex(x + getXShift(direction), y + getYShift(direction));
+					STATE_INDEX_JUMPS[direction][idx] = getStateIndex(x + 2 * getXShift(direction), y + 2 * getYShift(direction));
+				}
+				if (x == 0 || x == max || y == 0 || y == max){
+					edgeStateIndexes |= 1L << idx;
+				}
+				if (y == 0 || y == max){
+					crowningStateIndexes |= 1L << idx;
+				}
+			}
+		}
+		EDGE_STATE_INDEXES = edgeStateIndexes;
+		CROWNING_STATE_INDEXES = crowningStateIndexes;
+	}
+
+	private CheckersGeometry(){}
+
+	private static int getStateIndex(int x, int y){
+		if (x < 0 || x >= CheckersBoard.CHECKERS_BOARD_MAX || y < 0 || y >= CheckersBoard.CHECKERS_BOARD_MAX){
+			return NO_SQUARE;
+		}
+		return CheckersBoard.getStateIndex(x, y);
+	}
+	
+	private static int toMask(int square){
+		return (square == NO_SQUARE)?0:(1 << square);
+	}
+
+	public static int getXShift(int direction){
+		return (direction == SOUTH_WEST || direction == NORTH_WEST)?-1:1;
+	}
+
+	public static int getYShift(int direction){
+		return (direction == SOUTH_WEST || direction == SOUTH_EAST)?1:-1;
+	}
+
+	/**
+	 * Returns the direction of a diagonal step
+	 * @param xShift -1 or 1
+	 * @param yShift -1 or 1
+	 * @return
+	 */
+	public static int getDirection(int xShift, int yShift){
+		return ((yShift > 0)?SOUTH_WEST:NORTH_WEST) + ((xShift > 0)?1:0);
+	}
+
+	/**
+	 * Returns the square neighbouring the supplied square in the direction or {@link #NO_SQUARE} if it is off the board
+	 * @param direction
+	 * @param square
+	 * @return
+	 */
+	public static int getNeighbour(int direction, int square){
+		return NEIGHBOURS[direction][square];
+	}
+
+	/**
+	 * Returns the square landed on when jumping the neighbour of the supplied square in the direction or
+	 * {@link #NO_SQUARE} if it is off the board
+	 * @param direction
+	 * @param square
+	 * @return
+	 */
+	public static int getJump(int direction, int square){
+		return JUMPS[direction][square];
+	}
+
+	public static int getNeighbourMask(int direction, int square){
+		return NEIGHBOUR_MASKS[direction][square];
+	}
+
+	public static int getJumpMask(int direction, int square){
+		return JUMP_MASKS[direction][square];
+	}
+
+	/**
+	 * Returns the index of the square in the state array of a {@link CheckersBoard}
+	 * @param square
+	 * @return
+	 */
+	public static int getStateIndex(int square){
+		return STATE_INDEXES[square];
+	}
+
+	/**
+	 * Returns the state index neighbouring the supplied state index in the direction or {@link #NO_SQUARE} if it is
+	 * off the board
+	 * @param direction
+	 * @param stateIndex
+	 * @return
+	 */
+	public static int getNeighbourStateIndex(int direction, int stateIndex){
+		return STATE_INDEX_NEIGHBOURS[direction][stateIndex];
+	}
+
+	/**
+	 * Returns the state index landed on when jumping the neighbour of the supplied state index in the direction or
+	 * {@link #NO_SQUARE} if it is off the board
+	 * @param direction
+	 * @param stateIndex
+	 * @return
+	 */
+	public static int getJumpStateIndex(int direction, int stateIndex){
+		return STATE_INDEX_JUMPS[direction][stateIndex];
+	}
+
+	public static boolean isCrowningStateIndex(int stateIndex){
+		return (CROWNING_STATE_INDEXES & (1L << stateIndex)) != 0;
+	}
+}
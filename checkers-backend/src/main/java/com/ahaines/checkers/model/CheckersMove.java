@@ -0,0 +1,106 @@
+package com.ahaines.checkers.model;
+
+import java.util.Arrays;
+
+/**
+ * A compact description of a move on a {@link CheckersBoard}. Squares are held as indexes of the board's state
+ * array (see {@link CheckersBoard#getStateIndex(int, int)}) and pieces by their ids so a move holds everything
+ * needed to both apply it to a board and revert it again (see {@link CheckersBoard#makeMove(CheckersMove)} and
+ * {@link CheckersBoard#unmakeMove(CheckersMove)}) without creating any other objects.
+ * @author andrewhaines
+ *
+ */
+public class CheckersMove {
+
+	private static final int[] NO_CAPTURES = new int[0];
+
+	private final int from;
+	private final int to;
+	private final int pieceId;
+	private final int placedPieceId;
+	private final int[] capturedSquares;
+	private final int[] capturedPieceIds;
+
+	/**
+	 * Creates a move of a piece to an empty square that captures nothing.
+	 * @param from
+	 * @param to
+	 * @param pieceId The id of the piece moved
+	 * @param placedPieceId The id of the piece placed on the destination, which differs from the piece moved when it is crowned
+	 */
+	public CheckersMove(int from, int to, int pieceId, int placedPieceId){
+		this(from, to, pieceId, placedPieceId, NO_CAPTURES, NO_CAPTURES);
+	}
+
+	public CheckersMove(int from, int to, int pieceId, int placedPieceId, int[] capturedSquares, int[] capturedPieceIds){
+		if (capturedSquares.length != capturedPieceIds.length){
+			throw new IllegalArgumentException("a piece id is required for each captured square");
+		}
+		this.from = from;
+		this.to = to;
+		this.pieceId = pieceId;
+		this.placedPieceId = placedPieceId;
+		this.capturedSquares = capturedSquares;
+		this.capturedPieceIds = capturedPieceIds;
+	}
+
+	public int getFrom() {
+		return from;
+	}
+
+	public int getTo() {
+		return to;
+	}
+
+	public int getPieceId() {
+		return pieceId;
+	}
+
+	public int getPlacedPieceId() {
+		return placedPieceId;
+	}
+
+	public int getCaptureCount(){
+		return capturedSquares.length;
+	}
+
+	public int getCapturedSquare(int idx){
+		return capturedSquares[idx];
+	}
+
+	public int getCapturedPieceId(int idx){
+		return capturedPieceIds[idx];
+	}
+
+	public boolean isCapture(){
+		return capturedSquares.length > 0;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + from;
+		result = prime * result + to;
+		result = prime * result + pieceId;
+		result = prime * result + placedPieceId;
+		result = prime * result + Arrays.hashCode(capturedSquares);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		CheckersMove other = (CheckersMove) obj;
+		return from == other.from && to == other.to && pieceId == other.pieceId && placedPieceId == other.placedPieceId
+				&& Arrays.equals(capturedSquares, other.capturedSquares) && Arrays.equals(capturedPieceIds, other.capturedPieceIds);
+	}
+
+	@Override
+	public String toString(){
+		return "from: "+from+" to: "+to+" capturing: "+Arrays.toString(capturedSquares);
+	}
+}
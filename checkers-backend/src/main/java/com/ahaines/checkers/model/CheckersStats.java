@@ -1,100 +1,214 @@
 package com.ahaines.checkers.model;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import com.ahaines.boardgame.model.Board.Stats;
+import com.ahaines.boardgame.model.Board.MutableStats;
 import com.ahaines.boardgame.model.Player;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
 
-public class CheckersStats implements Stats<CheckersPieceDescription>{
+/**
+ * The counts of the pieces each player has on a {@link CheckersBoard}. These are updated as pieces are added and
+ * removed, including the count of pieces on the edge of the board, so that a board can be evaluated without scanning
+ * it. The counts of the 2 players are held in an array and found by player id so that no hashing is needed.
+ * @author andrewhaines
+ *
+ */
+public class CheckersStats implements MutableStats<CheckersPieceDescription>{
+
+	private static final int PLAYER_COUNT = 2;
+
+	private final Counts[] pieceCounts;
 
-	
-	private final Map<Player<CheckersPieceDescription>, Counts> pieceCounts;
-	
 	public CheckersStats(){
-		this.pieceCounts = new HashMap<Player<CheckersPieceDescription>, Counts>();
+		this.pieceCounts = new Counts[PLAYER_COUNT];
 	}
-	
+
 	/**
 	 * Copy constructor that does a deep copy...
-	 * 
+	 *
 	 * @param stats
 	 */
 	public CheckersStats(CheckersStats stats) {
-		this.pieceCounts = new HashMap<Player<CheckersPieceDescription>, Counts>();
-		
-		for (Entry<Player<CheckersPieceDescription>, Counts> stat: stats.pieceCounts.entrySet()){
-			pieceCounts.put(stat.getKey(), new Counts(stat.getValue()));
+		this.pieceCounts = new Counts[PLAYER_COUNT];
+
+		for (int i = 0; i < PLAYER_COUNT; i++){
+			if (stats.pieceCounts[i] != null){
+				pieceCounts[i] = new Counts(stats.pieceCounts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the counts with those of the supplied stats. The existing counts are overwritten where they are of the
+	 * same player so that a board reused for searching does not allocate new stats.
+	 * @param stats
+	 */
+	public void copyFrom(CheckersStats stats){
+		for (int i = 0; i < PLAYER_COUNT; i++){
+			Counts counts = stats.pieceCounts[i];
+			if (counts == null){
+				pieceCounts[i] = null;
+			} else if (pieceCounts[i] != null && pieceCounts[i].playerId == counts.playerId){
+				pieceCounts[i].copyFrom(counts);
+			} else{
+				pieceCounts[i] = new Counts(counts);
+			}
 		}
 	}
 
+	/**
+	 * Removes the piece without regard to where it was. Use {@link #removePiece(CheckersPieceDescription, int)} to
+	 * keep the count of edge pieces.
+	 */
 	public void removePiece(CheckersPieceDescription piece){
-		Player<CheckersPieceDescription> player = piece.getPlayer();
-		Counts currentCounts = this.pieceCounts.get(player);
-		if (currentCounts == null){
-			currentCounts = new Counts();
-		} 
-		currentCounts.removePiece(piece);
-		pieceCounts.put(player, currentCounts);
+		getOrCreateCounts(piece).removePiece(piece);
 	}
-	
+
+	/**
+	 * Adds the piece without regard to where it is. Use {@link #addPiece(CheckersPieceDescription, int)} to keep the
+	 * count of edge pieces.
+	 */
 	public void addPiece(CheckersPieceDescription piece){
-		Player<CheckersPieceDescription> player = piece.getPlayer();
-		Counts currentCounts = this.pieceCounts.get(player);
-		if (currentCounts == null){
-			currentCounts = new Counts();	
+		getOrCreateCounts(piece).addPiece(piece);
+	}
+
+	/**
+	 * Removes the piece taken from the supplied index of the state array of the board
+	 * @param piece
+	 * @param stateIndex
+	 */
+	public void removePiece(CheckersPieceDescription piece, int stateIndex){
+		getOrCreateCounts(piece).removePiece(piece, stateIndex);
+	}
+
+	/**
+	 * Adds the piece placed at the supplied index of the state array of the board
+	 * @param piece
+	 * @param stateIndex
+	 */
+	public void addPiece(CheckersPieceDescription piece, int stateIndex){
+		getOrCreateCounts(piece).addPiece(piece, stateIndex);
+	}
+
+	private Counts getOrCreateCounts(CheckersPieceDescription piece){
+		int playerId = piece.getPlayer().getPlayerId().getId();
+		for (int i = 0; i < PLAYER_COUNT; i++){
+			if (pieceCounts[i] == null){
+				pieceCounts[i] = new Counts(playerId);
+				return pieceCounts[i];
+			} else if (pieceCounts[i].playerId == playerId){
+				return pieceCounts[i];
+			}
 		}
-		currentCounts.addPiece(piece);
-		pieceCounts.put(player, currentCounts);
+		throw new IllegalStateException("checkers only has "+PLAYER_COUNT+" players: "+piece.getPlayer());
 	}
-	
+
 	public int getPieceCountForPlayer(Player<?> player){
-		return pieceCounts.get(player).getTotalPieceCount();
+		return getPieceCountForPlayer(player.getPlayerId().getId());
+	}
+
+	/**
+	 * Returns the number of pieces the player with the supplied id has
+	 * @param playerId
+	 * @return
+	 */
+	public int getPieceCountForPlayer(int playerId){
+		Counts counts = getCounts(playerId);
+
+		return (counts == null)?0:counts.getTotalPieceCount();
 	}
-	
+
 	public Counts getCounts(Player<CheckersPieceDescription> player){
-		return pieceCounts.get(player);
+		return getCounts(player.getPlayerId().getId());
+	}
+
+	/**
+	 * Returns the counts of the player with the supplied id or null if they have never had a piece on the board
+	 * @param playerId
+	 * @return
+	 */
+	public Counts getCounts(int playerId){
+		for (Counts counts: pieceCounts){
+			if (counts != null && counts.playerId == playerId){
+				return counts;
+			}
+		}
+		return null;
 	}
-	
+
 	public static class Counts {
-		
-		private final AtomicInteger pieceCount;
-		private final AtomicInteger kingPieceCount;
+
+		// each board has its own counts so these are never shared between threads
+		private final int playerId;
+		private int pieceCount;
+		private int kingPieceCount;
+		private int edgePieceCount;
 
 		public Counts(Counts value) {
-			this.pieceCount = new AtomicInteger(value.pieceCount.get());
-			this.kingPieceCount = new AtomicInteger(value.getKingPieceCount());
+			this.playerId = value.playerId;
+			this.pieceCount = value.pieceCount;
+			this.kingPieceCount = value.kingPieceCount;
+			this.edgePieceCount = value.edgePieceCount;
+		}
+
+		public Counts(int playerId) {
+			this.playerId = playerId;
+			this.pieceCount = 0;
+			this.kingPieceCount = 0;
+			this.edgePieceCount = 0;
+		}
+
+		private void copyFrom(Counts value) {
+			this.pieceCount = value.pieceCount;
+			this.kingPieceCount = value.kingPieceCount;
+			this.edgePieceCount = value.edgePieceCount;
 		}
 
 		public int getTotalPieceCount() {
-			return pieceCount.get();
+			return pieceCount;
 		}
 
 		public void addPiece(CheckersPieceDescription piece) {
-			pieceCount.incrementAndGet();
+			pieceCount++;
 			if (piece.getType() == Type.KING){
-				kingPieceCount.incrementAndGet();
+				kingPieceCount++;
 			}
 		}
 
 		public void removePiece(CheckersPieceDescription piece) {
-			pieceCount.decrementAndGet();
+			pieceCount--;
 			if (piece.getType() == Type.KING){
-				kingPieceCount.decrementAndGet();
+				kingPieceCount--;
+			}
+		}
+
+		public void addPiece(CheckersPieceDescription piece, int stateIndex) {
+			addPiece(piece);
+			if (isEdge(stateIndex)){
+				edgePieceCount++;
 			}
 		}
 
-		public Counts() {
-			this.pieceCount = new AtomicInteger();
-			this.kingPieceCount = new AtomicInteger();
+		public void removePiece(CheckersPieceDescription piece, int stateIndex) {
+			removePiece(piece);
+			if (isEdge(stateIndex)){
+				edgePieceCount--;
+			}
+		}
+
+		private static boolean isEdge(int stateIndex){
+			return (CheckersGeometry.EDGE_STATE_INDEXES & (1L << stateIndex)) != 0;
 		}
 
 		public int getKingPieceCount() {
-			return kingPieceCount.get();
+			return kingPieceCount;
+		}
+
+		/**
+		 * Returns the number of pieces on the edge of the board, which can not be taken
+		 * @return
+		 */
+		public int getEdgePieceCount() {
+			return edgePieceCount;
 		}
 	}
 
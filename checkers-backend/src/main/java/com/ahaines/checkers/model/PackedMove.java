@@ -0,0 +1,115 @@
+package com.ahaines.checkers.model;
+
+import java.util.List;
+
+import com.ahaines.boardgame.model.Position;
+
+/**
+ * Packs a move on a {@link BitboardCheckersBoard} into a single long so that moves can be generated, ordered,
+ * stored and compared without creating any objects. Squares are the playable square indexes of
+ * {@link BitboardCheckersBoard#getSquare(Position)}. The low 32 bits hold the mask of the squares captured
+ * by the move, followed by the square moved from, the square moved to and a flag set when the piece moved is
+ * crowned:
+ *
+ * crowned
+ *  |    to     from            captured squares
+ * <X><XXXXX><XXXXX><XXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXX>
+ *  42 41-37  36-32               31-0
+ * @author andrewhaines
+ *
+ */
+public final class PackedMove {
+
+	public static final long NO_MOVE = -1;
+
+	private static final long CAPTURED_MASK = 0xFFFFFFFFL;
+	private static final int FROM_SHIFT = 32;
+	private static final int TO_SHIFT = 37;
+	private static final int PROMOTION_SHIFT = 42;
+	private static final int SQUARE_MASK = 0x1F;
+
+	private PackedMove(){}
+
+	public static long encode(int fromSquare, int toSquare, int capturedSquares, boolean promote){
+		return (capturedSquares & CAPTURED_MASK)
+				| ((long)fromSquare << FROM_SHIFT)
+				| ((long)toSquare << TO_SHIFT)
+				| ((promote?1L:0L) << PROMOTION_SHIFT);
+	}
+
+	/**
+	 * Encodes the sequence of steps of a single piece, in the order they were played. Each step either moves to a
+	 * neighbouring square or jumps over the square between, and starts where the step before it ended. As the steps
+	 * do not say whether the piece is crowned, compare the result using {@link #isSamePath(long, long)}.
+	 * @param steps
+	 * @return The packed move or {@link #NO_MOVE} if a step is not between playable squares or does not start where
+	 * the step before it ended
+	 */
+	public static long encode(List<Move> steps){
+		if (steps.isEmpty()){
+			return NO_MOVE;
+		}
+		int captured = 0;
+		Position lastTo = steps.get(0).getFrom();
+		for (Move step: steps){
+			if (!step.getFrom().equals(lastTo)){ // the piece can not be picked up part way through a move
+				return NO_MOVE;
+			}
+			lastTo = step.getTo();
+			int xShift = step.getTo().getXCoord() - step.getFrom().getXCoord();
+			int yShift = step.getTo().getYCoord() - step.getFrom().getYCoord();
+			if (Math.abs(xShift) == 2 && Math.abs(yShift) == 2){
+				int capturedSquare = BitboardCheckersBoard.getSquare(step.getFrom().getXCoord() + xShift / 2, step.getFrom().getYCoord() + yShift / 2);
+				if (capturedSquare == BitboardCheckersBoard.NO_SQUARE){
+					return NO_MOVE;
+				}
+				captured |= 1 << capturedSquare;
+			}
+		}
+		int fromSquare = BitboardCheckersBoard.getSquare(steps.get(0).getFrom());
+		int toSquare = BitboardCheckersBoard.getSquare(steps.get(steps.size() - 1).getTo());
+		if (fromSquare == BitboardCheckersBoard.NO_SQUARE || toSquare == BitboardCheckersBoard.NO_SQUARE){
+			return NO_MOVE;
+		}
+		return encode(fromSquare, toSquare, captured, false);
+	}
+
+	public static int getFrom(long move){
+		return (int)(move >>> FROM_SHIFT) & SQUARE_MASK;
+	}
+
+	public static int getTo(long move){
+		return (int)(move >>> TO_SHIFT) & SQUARE_MASK;
+	}
+
+	public static int getCapturedSquares(long move){
+		return (int)(move & CAPTURED_MASK);
+	}
+
+	public static boolean isCapture(long move){
+		return getCapturedSquares(move) != 0;
+	}
+
+	public static boolean isPromotion(long move){
+		return ((move >>> PROMOTION_SHIFT) & 1) != 0;
+	}
+
+	/**
+	 * Returns true if the moves go from and to the same squares capturing the same pieces, regardless of whether
+	 * they are recorded as crowning the piece.
+	 * @param move
+	 * @param otherMove
+	 * @return
+	 */
+	public static boolean isSamePath(long move, long otherMove){
+		long promotionMask = ~(1L << PROMOTION_SHIFT);
+		return (move & promotionMask) == (otherMove & promotionMask);
+	}
+
+	public static String toString(long move){
+		if (move == NO_MOVE){
+			return "no move";
+		}
+		return "from: "+BitboardCheckersBoard.getPosition(getFrom(move))+" to: "+BitboardCheckersBoard.getPosition(getTo(move))+" capturing: "+Integer.bitCount(getCapturedSquares(move))+(isPromotion(move)?" crowned":"");
+	}
+}
@@ -0,0 +1,436 @@
+package com.ahaines.checker.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
+import com.ahaines.ai.search.minmax.service.MinMaxSuccessorService;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.heurstic.service.HeuristicSearchService.HeuristicSearchServiceBuilder;
+import com.ahaines.boardgame.model.Board.MutableStats;
+import com.ahaines.boardgame.model.Board.Stats;
+import com.ahaines.boardgame.model.Piece;
+import com.ahaines.boardgame.model.Player;
+import com.ahaines.boardgame.model.Player.PlayerType;
+import com.ahaines.boardgame.model.PlayerId;
+import com.ahaines.boardgame.model.PlayerLookup;
+import com.ahaines.boardgame.model.Position;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.BitboardCheckersBoard.PieceMapping;
+import com.ahaines.checkers.model.CheckersBoard;
+import com.ahaines.checkers.model.CheckersGeometry;
+import com.ahaines.checkers.model.CheckersPiece;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
+import com.ahaines.checkers.model.Move;
+import com.ahaines.checkers.model.PackedMove;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class BitboardCheckersSuccessorServiceUnitTest {
+
+	private static enum Players implements PlayerId, Turn {
+		PLAYER1(SimpleTurn.MAX, "Alice"),
+		PLAYER2(SimpleTurn.MIN, "Bob");
+
+		private final int id;
+		private final String playerName;
+		private final Turn turn;
+
+		private Players(Turn turn, String playerName){
+			this.id = turn.getMultiplier();
+			this.playerName = playerName;
+			this.turn = turn;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public String getPlayerName() {
+			return playerName;
+		}
+
+		public int getMultiplier() {
+			return turn.getMultiplier();
+		}
+
+		public Turn nextTurn() {
+			return (this == PLAYER1)?PLAYER2:PLAYER1;
+		}
+	}
+
+	private BitboardCheckersSuccessorService candidate;
+	private CheckersSuccessorService arraySuccessorService;
+	private BitboardCheckersCostFunctionService costFunctionService;
+	private CheckersCostFunctionService arrayCostFunctionService;
+	private Player<CheckersPieceDescription> player1;
+	private Player<CheckersPieceDescription> player2;
+	private CheckersPieceLookup checkersPieceLookup;
+	private PieceMapping mapping;
+
+	@Before
+	public void before(){
+		player1 = new Player<CheckersPieceDescription>(Players.PLAYER1, PlayerType.COMPUTER, Collections.<Piece<CheckersPieceDescription>>emptyList());
+		player2 = new Player<CheckersPieceDescription>(Players.PLAYER2, PlayerType.HUMAN, Collections.<Piece<CheckersPieceDescription>>emptyList());
+
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1, player2);
+		BoardIdService boardIdService = new IncrementalBoardIdService();
+		this.checkersPieceLookup = new CheckersPieceLookup(playerLookup);
+		this.mapping = new PieceMapping(playerLookup, checkersPieceLookup);
+		this.candidate = new BitboardCheckersSuccessorService(boardIdService);
+		this.arraySuccessorService = new CheckersSuccessorService(playerLookup, checkersPieceLookup, boardIdService);
+		this.costFunctionService = new BitboardCheckersCostFunctionService(new BitboardCheckersGoalService());
+		this.arrayCostFunctionService = new CheckersCostFunctionService(new CheckersGoalService());
+	}
+
+	@Test
+	public void givenPositionsAndSquares_whenConvertingBetweenThem_thenSquaresAreNumberedFromTheOriginAlongEachRow(){
+		assertThat(BitboardCheckersBoard.getSquare(new Position(1, 0)), is(equalTo(0)));
+		assertThat(BitboardCheckersBoard.getSquare(new Position(7, 0)), is(equalTo(3)));
+		assertThat(BitboardCheckersBoard.getSquare(new Position(0, 1)), is(equalTo(4)));
+		assertThat(BitboardCheckersBoard.getSquare(new Position(6, 7)), is(equalTo(31)));
+		assertThat(BitboardCheckersBoard.getSquare(new Position(0, 0)), is(equalTo(BitboardCheckersBoard.NO_SQUARE)));
+
+		for (int square = 0; square < BitboardCheckersBoard.SQUARE_COUNT; square++){
+			assertThat(BitboardCheckersBoard.getSquare(BitboardCheckersBoard.getPosition(square)), is(equalTo(square)));
+		}
+	}
+
+	@Test
+	public void givenGeometryTables_whenLookingUpSquares_thenTablesMatchTheBoardCoordinates(){
+		assertThat(CheckersGeometry.EDGE_SQUARES, is(equalTo(0xF818181F)));
+		assertThat(CheckersGeometry.CORNER_SQUARES, is(equalTo((1 << BitboardCheckersBoard.getSquare(7, 0)) | (1 << BitboardCheckersBoard.getSquare(0, 7)))));
+		
+		for (int square = 0; square < CheckersGeometry.SQUARE_COUNT; square++){
+			int x = BitboardCheckersBoard.getXCoord(square);
+			int y = BitboardCheckersBoard.getYCoord(square);
+			
+			assertThat(CheckersGeometry.getStateIndex(square), is(equalTo(CheckersBoard.getStateIndex(x, y))));
+			for (int direction = 0; direction < CheckersGeometry.DIRECTION_COUNT; direction++){
+				int xShift = CheckersGeometry.getXShift(direction);
+				int yShift = CheckersGeometry.getYShift(direction);
+				
+				assertThat(CheckersGeometry.getDirection(xShift, yShift), is(equalTo(direction)));
+				assertThat(CheckersGeometry.getNeighbour(direction, square), is(equalTo(BitboardCheckersBoard.getSquare(x + xShift, y + yShift))));
+				assertThat(CheckersGeometry.getJump(direction, square), is(equalTo(BitboardCheckersBoard.getSquare(x + 2 * xShift, y + 2 * yShift))));
+			}
+		}
+	}
+	
+	@Test
+	public void givenStartingBoard_whenConvertingToAndFromBitboard_thenBoardsAreEquivalent(){
+		CheckersBoard board = createStartingBoard();
+
+		BitboardCheckersBoard bitboard = BitboardCheckersBoard.fromCheckersBoard(1, board, mapping);
+
+		assertThat(bitboard.getPieces(BitboardCheckersBoard.FIRST_PLAYER), is(equalTo(0x00000FFF)));
+		assertThat(bitboard.getPieces(BitboardCheckersBoard.SECOND_PLAYER), is(equalTo(0xFFF00000)));
+		assertThat(bitboard.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(12)));
+		assertThat(BitboardCheckersBoard.fromCheckersBoard(2, bitboard.toCheckersBoard(2), mapping), is(equalTo(bitboard)));
+	}
+
+	@Test
+	public void givenCapture_whenCallingGetBoardStats_thenReadOnlyCountsOfTheMasksReturned(){
+		CheckersBoard board = new CheckersBoard(1, Players.PLAYER1, checkersPieceLookup);
+		board.addPiece(new CheckersPiece(new Position(2, 3), getPiece(player1, 0)));
+		board.addPiece(new CheckersPiece(new Position(3, 4), getPiece(player2, 0)));
+		board.addPiece(new CheckersPiece(new Position(6, 7), getPiece(player2, 1)));
+		BitboardCheckersBoard bitboard = BitboardCheckersBoard.fromCheckersBoard(1, board, mapping);
+		
+		BitboardCheckersBoard captured = Iterators.getOnlyElement(candidate.getSuccessors(bitboard).iterator());
+		Stats<CheckersPieceDescription> stats = captured.getBoardStats();
+		
+		assertThat(stats instanceof MutableStats, is(equalTo(false)));
+		assertThat(stats.getPieceCountForPlayer(player1), is(equalTo(1)));
+		assertThat(stats.getPieceCountForPlayer(player2), is(equalTo(1)));
+		assertThat(bitboard.getBoardStats().getPieceCountForPlayer(player2), is(equalTo(2)));
+	}
+
+	@Test
+	public void givenStartingBoard_whenIteratingOverTheFirstSuccessor_thenOnlyItsBoardIsCreated(){
+		final AtomicInteger boardsCreated = new AtomicInteger();
+		BitboardCheckersSuccessorService countingCandidate = new BitboardCheckersSuccessorService(new BoardIdService(){
+			
+			public int nextId() {
+				return boardsCreated.incrementAndGet();
+			}
+		});
+		
+		Iterable<BitboardCheckersBoard> successors = countingCandidate.getSuccessors(BitboardCheckersBoard.fromCheckersBoard(1, createStartingBoard(), mapping));
+		BitboardCheckersBoard firstSuccessor = successors.iterator().next();
+		
+		assertThat(boardsCreated.get(), is(equalTo(1)));
+		assertThat(successors.iterator().next(), is(sameInstance(firstSuccessor))); // iterating again returns the boards already created
+		assertThat(Lists.newArrayList(successors).size(), is(equalTo(7)));
+		assertThat(boardsCreated.get(), is(equalTo(7)));
+	}
+	
+	/**
+	 *
+	 *    |---------------
+	 *    |  K
+	 *    |   O
+	 *    |    .
+	 *    |     O O
+	 *    |
+	 */
+	@Test
+	public void givenMultiPieceJumpForKing_whenCallingGetSuccessors_thenReturnsOnlyTheCompletedChainOfCaptures(){
+		CheckersBoard board = new CheckersBoard(1, Players.PLAYER1, checkersPieceLookup);
+		board.addPiece(new CheckersPiece(new Position(1, 0), checkersPieceLookup.getKingForPiece(getPiece(player1, 0))));
+		board.addPiece(new CheckersPiece(new Position(2, 1), getPiece(player2, 0)));
+		board.addPiece(new CheckersPiece(new Position(4, 3), getPiece(player2, 1)));
+		board.addPiece(new CheckersPiece(new Position(6, 3), getPiece(player2, 2)));
+
+		List<BitboardCheckersBoard> successorStates = Lists.newArrayList(candidate.getSuccessors(BitboardCheckersBoard.fromCheckersBoard(1, board, mapping)));
+
+		assertThat(successorStates.size(), is(equalTo(1)));
+		BitboardCheckersBoard successor = successorStates.get(0);
+		assertThat(successor.getTurn(), is(equalTo((Turn)Players.PLAYER2)));
+		assertThat(successor.getNewMove(), is(equalTo(new Position(7, 2))));
+		assertThat(successor.getBoardStats().getPieceCountForPlayer(player2), is(equalTo(0)));
+		assertThat(successor.holdsPieceAtPoint(player1, new Position(7, 2)), is(equalTo(true)));
+		assertThat(successor.getKings(), is(equalTo(1 << BitboardCheckersBoard.getSquare(7, 2))));
+	}
+
+	@Test
+	public void givenMultiPieceJumpForKing_whenCallingGenerateMoves_thenPackedMoveMatchesTheStepsOfTheChain(){
+		CheckersBoard board = new CheckersBoard(1, Players.PLAYER1, checkersPieceLookup);
+		board.addPiece(new CheckersPiece(new Position(1, 0), checkersPieceLookup.getKingForPiece(getPiece(player1, 0))));
+		board.addPiece(new CheckersPiece(new Position(2, 1), getPiece(player2, 0)));
+		board.addPiece(new CheckersPiece(new Position(4, 3), getPiece(player2, 1)));
+		board.addPiece(new CheckersPiece(new Position(6, 3), getPiece(player2, 2)));
+		
+		long[] moves = new long[BitboardCheckersSuccessorService.MAX_MOVES];
+		int moveCount = candidate.generateMoves(BitboardCheckersBoard.fromCheckersBoard(1, board, mapping), moves);
+		
+		assertThat(moveCount, is(equalTo(1)));
+		assertThat(PackedMove.getFrom(moves[0]), is(equalTo(BitboardCheckersBoard.getSquare(1, 0))));
+		assertThat(PackedMove.getTo(moves[0]), is(equalTo(BitboardCheckersBoard.getSquare(7, 2))));
+		assertThat(Integer.bitCount(PackedMove.getCapturedSquares(moves[0])), is(equalTo(3)));
+		assertThat(PackedMove.isPromotion(moves[0]), is(equalTo(false)));
+		
+		List<Move> steps = Lists.newArrayList(new Move(new Position(1, 0), new Position(3, 2)), new Move(new Position(3, 2), new Position(5, 4)), new Move(new Position(5, 4), new Position(7, 2)));
+		assertThat(PackedMove.isSamePath(PackedMove.encode(steps), moves[0]), is(equalTo(true)));
+		assertThat(PackedMove.isSamePath(PackedMove.encode(steps.subList(0, 2)), moves[0]), is(equalTo(false)));
+		assertThat(PackedMove.encode(Lists.newArrayList(steps.get(0), steps.get(2))), is(equalTo(PackedMove.NO_MOVE))); // the second step does not start where the first ended
+	}
+	
+	@Test
+	public void givenRandomGames_whenCallingGetSuccessors_thenReturnsTheSameSuccessorsAndCostsAsTheArrayBackedBoard(){
+		Random random = new Random(42);
+
+		for (int game = 0; game < 20; game++){
+			CheckersBoard board = createStartingBoard();
+
+			for (int move = 0; move < 200; move++){
+				List<CheckersBoard> arraySuccessors = Lists.newArrayList(arraySuccessorService.getSuccessors(board));
+				Set<BitboardCheckersBoard> expectedSuccessors = new HashSet<BitboardCheckersBoard>();
+				for (CheckersBoard arraySuccessor: arraySuccessors){
+					BitboardCheckersBoard expectedSuccessor = BitboardCheckersBoard.fromCheckersBoard(arraySuccessor.getId(), arraySuccessor, mapping);
+					expectedSuccessors.add(expectedSuccessor);
+
+					assertThat(costFunctionService.calculateCost(expectedSuccessor), is(equalTo(arrayCostFunctionService.calculateCost(arraySuccessor))));
+				}
+
+				Set<BitboardCheckersBoard> successors = new HashSet<BitboardCheckersBoard>(Lists.newArrayList(candidate.getSuccessors(BitboardCheckersBoard.fromCheckersBoard(board.getId(), board, mapping))));
+
+				assertThat(successors, is(equalTo(expectedSuccessors)));
+
+				if (arraySuccessors.isEmpty()){
+					break;
+				}
+				board = arraySuccessors.get(random.nextInt(arraySuccessors.size()));
+			}
+		}
+	}
+
+	@Test
+	public void givenRandomGames_whenMakingMoves_thenIncrementalCountsMatchAScanOfTheBoard(){
+		Random random = new Random(11);
+
+		for (int game = 0; game < 20; game++){
+			CheckersBoard board = createStartingBoard();
+
+			for (int move = 0; move < 200; move++){
+				for (Player<CheckersPieceDescription> player: Lists.newArrayList(player1, player2)){
+					int edgePieces = 0;
+					long edgeStateIndexes = CheckersGeometry.EDGE_STATE_INDEXES;
+					while (edgeStateIndexes != 0){
+						int stateIndex = Long.numberOfTrailingZeros(edgeStateIndexes);
+						edgeStateIndexes &= edgeStateIndexes - 1;
+
+						if (board.holdsPieceAtIndex(player, stateIndex)){
+							edgePieces++;
+						}
+					}
+					assertThat(board.getBoardStats().getCounts(player).getEdgePieceCount(), is(equalTo(edgePieces)));
+					assertThat(board.getBoardStats().getPieceCountForPlayer(player), is(equalTo(Lists.newArrayList(board.getPieces(player)).size())));
+				}
+
+				List<CheckersBoard> arraySuccessors = Lists.newArrayList(arraySuccessorService.getSuccessors(board));
+				if (arraySuccessors.isEmpty()){
+					break;
+				}
+				board = arraySuccessors.get(random.nextInt(arraySuccessors.size()));
+			}
+		}
+	}
+
+	@Test
+	public void givenRandomGames_whenMakingMoves_thenZobristKeysAreMaintainedAndMatchTheArrayBackedBoard(){
+		Random random = new Random(7);
+
+		for (int game = 0; game < 20; game++){
+			CheckersBoard board = createStartingBoard();
+
+			for (int move = 0; move < 200; move++){
+				BitboardCheckersBoard bitboard = BitboardCheckersBoard.fromCheckersBoard(board.getId(), board, mapping);
+				assertThat(bitboard.getZobristKey(), is(equalTo(board.getZobristKey())));
+
+				for (BitboardCheckersBoard successor: candidate.getSuccessors(bitboard)){
+					BitboardCheckersBoard recreated = new BitboardCheckersBoard(successor.getId(), successor.getTurn(), mapping, successor.getPieces(BitboardCheckersBoard.FIRST_PLAYER), successor.getPieces(BitboardCheckersBoard.SECOND_PLAYER), successor.getKings());
+
+					assertThat(successor.getZobristKey(), is(equalTo(recreated.getZobristKey())));
+				}
+
+				List<CheckersBoard> arraySuccessors = Lists.newArrayList(arraySuccessorService.getSuccessors(board));
+				if (arraySuccessors.isEmpty()){
+					break;
+				}
+				board = arraySuccessors.get(random.nextInt(arraySuccessors.size()));
+			}
+		}
+	}
+
+	/**
+	 *
+	 *    |---------------
+	 *    |       O
+	 *    |
+	 *    |
+	 *    |  O
+	 *    |   X
+	 *    |
+	 *    |     X
+	 *    |      X
+	 */
+	@Test
+	public void givenCaptureThatIsRecaptured_whenSearchingWithQuiescence_thenRecaptureIsCosted(){
+		CheckersBoard board = new CheckersBoard(1, Players.PLAYER1, checkersPieceLookup);
+		board.addPiece(new CheckersPiece(new Position(7, 0), getPiece(player1, 0)));
+		board.addPiece(new CheckersPiece(new Position(2, 3), getPiece(player1, 1)));
+		board.addPiece(new CheckersPiece(new Position(3, 4), getPiece(player2, 0)));
+		board.addPiece(new CheckersPiece(new Position(5, 6), getPiece(player2, 1)));
+		board.addPiece(new CheckersPiece(new Position(6, 7), getPiece(player2, 2)));
+		BitboardCheckersBoard bitboard = BitboardCheckersBoard.fromCheckersBoard(1, board, mapping);
+		
+		int staticCost = searchCaptureCost(bitboard, 0);
+		int quiescentCost = searchCaptureCost(bitboard, 4);
+		
+		assertThat("static cost "+staticCost+" should see even pieces", staticCost, is(equalTo(0)));
+		/*
+		 * X jumps to leave 2 pieces each, O's recapture is forced and leaves a quiet board with X a piece down. That
+		 * board is costed by O, who moved to it, at a piece (4) and, 2 moves from the start, scaled to 4 / 2 * 10000 + 1.
+		 * Negated for the side that recaptured, this is the cost of X's capture.
+		 */
+		assertThat(quiescentCost, is(equalTo(-20001)));
+	}
+	
+	@Test
+	public void givenStartingBoard_whenCallingGetCaptureSuccessors_thenNoSuccessorsReturned(){
+		BitboardCheckersBoard bitboard = BitboardCheckersBoard.fromCheckersBoard(1, createStartingBoard(), mapping);
+		
+		assertThat(Lists.newArrayList(candidate.getCaptureSuccessorService().getSuccessors(bitboard)).isEmpty(), is(equalTo(true)));
+	}
+	
+	private int searchCaptureCost(BitboardCheckersBoard bitboard, int quiescenceDepthLimit){
+		BitboardCheckersGoalService goalService = new BitboardCheckersGoalService();
+		MinMaxSuccessorService<BitboardCheckersBoard> minMaxSuccessorService = new MinMaxSuccessorService<BitboardCheckersBoard>(candidate, goalService, costFunctionService, candidate.getCaptureSuccessorService(), quiescenceDepthLimit);
+		
+		Node<MinMaxState<BitboardCheckersBoard>> startNode = new Node<MinMaxState<BitboardCheckersBoard>>(null, new MinMaxState<BitboardCheckersBoard>(bitboard));
+		new HeuristicSearchServiceBuilder<MinMaxState<BitboardCheckersBoard>>(minMaxSuccessorService).build().depthFirstSearch(startNode, 1);
+		
+		List<Node<MinMaxState<BitboardCheckersBoard>>> children = Lists.newArrayList(startNode.getChildren());
+		assertThat(children.size(), is(equalTo(1))); // the capture is forced
+		
+		return children.get(0).getState().getCost();
+	}
+
+	@Test
+	public void givenSamePiecesWithDifferentPlayersToMove_whenCallingGetZobristKey_thenKeysDiffer(){
+		CheckersBoard board = createStartingBoard();
+		CheckersBoard otherTurn = new CheckersBoard(2, board, Players.PLAYER2);
+
+		assertThat(otherTurn.equals(board), is(equalTo(true)));
+		assertThat(otherTurn.getZobristKey() == board.getZobristKey(), is(equalTo(false)));
+	}
+
+	@Test
+	public void givenPieceOfTheOtherPlayer_whenRemovingFromBitboard_thenExceptionThrownAndBoardUnchanged(){
+		BitboardCheckersBoard board = BitboardCheckersBoard.fromCheckersBoard(1, createStartingBoard(), mapping);
+		long key = board.getZobristKey();
+		int occupied = board.getOccupied();
+
+		try{
+			board.removePiece(new CheckersPiece(new Position(1, 0), getPiece(player2, 0)));
+			assertThat("removing the other player's piece should fail", false, is(equalTo(true)));
+		} catch (IllegalStateException e){
+			// expected
+		}
+		assertThat(board.getZobristKey(), is(equalTo(key)));
+		assertThat(board.getOccupied(), is(equalTo(occupied)));
+
+		board.removePiece(new CheckersPiece(new Position(1, 0), getPiece(player1, 0)));
+		assertThat(board.getOccupied(), is(equalTo(occupied & ~(1 << BitboardCheckersBoard.getSquare(1, 0)))));
+		assertThat(board.getZobristKey() == key, is(equalTo(false)));
+	}
+
+	private CheckersPieceDescription getPiece(Player<CheckersPieceDescription> player, int idx){
+		return getPieces(player).get(idx);
+	}
+
+	private List<CheckersPieceDescription> getPieces(Player<CheckersPieceDescription> player){
+		List<CheckersPieceDescription> pieces = Lists.newArrayList();
+		for (CheckersPieceDescription piece: checkersPieceLookup.getAllPieces()){
+			if (piece.getPlayer().equals(player) && piece.getType() == Type.STANDARD){
+				pieces.add(piece);
+			}
+		}
+		return pieces;
+	}
+
+	private CheckersBoard createStartingBoard(){
+		CheckersBoard board = new CheckersBoard(1, Players.PLAYER1, checkersPieceLookup);
+
+		Iterator<CheckersPieceDescription> player1Pieces = getPieces(player1).iterator();
+		Iterator<CheckersPieceDescription> player2Pieces = getPieces(player2).iterator();
+
+		for (int y = 0; y < CheckersBoard.CHECKERS_BOARD_MAX; y++){
+			for (int x = 0; x < CheckersBoard.CHECKERS_BOARD_MAX; x++){
+				if ((x + y) % 2 == 1 && y < 3){
+					board.addPiece(new CheckersPiece(new Position(x, y), player1Pieces.next()));
+				} else if ((x + y) % 2 == 1 && y > 4){
+					board.addPiece(new CheckersPiece(new Position(x, y), player2Pieces.next()));
+				}
+			}
+		}
+		return board;
+	}
+}
@@ -1,12 +1,17 @@
 package com.ahaines.checker.service;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import com.ahaines.ai.search.game.GameFinishedException;
+import com.ahaines.ai.search.game.OpeningBook;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
 
@@ -17,6 +22,7 @@ import com.ahaines.boardgame.model.PlayerId;
 import com.ahaines.boardgame.model.PlayerLookup;
 import com.ahaines.boardgame.model.Position;
 import com.ahaines.checkers.model.CheckersBoard;
+import com.ahaines.checkers.model.Move;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
 
@@ -141,6 +147,598 @@ public class CheckersGameUnitTest {
 		assertPiece(board, player2, Type.STANDARD, new Position(6,7));
 	}
 	
+	@Test
+	public void givenNewBitboardGame_whenCallingGetNextMove_thenMoveIsPlayedAndExposedAsCheckersBoard() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersBoard board = candidate.getNextMove();
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(12)));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player2), is(equalTo(12)));
+		assertThat(board.getNewMove().getYCoord(), is(equalTo(3)));
+	}
+	
+	@Test
+	public void givenMoveTimeBudget_whenCallingGetNextMove_thenMoveIsPlayedWithoutSearchingToTheDepthLimit() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(40)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.useTranspositionTable(true)
+						.setMoveTimeBudget(200)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		long startTime = System.currentTimeMillis();
+		CheckersBoard board = candidate.getNextMove();
+		long timeTaken = System.currentTimeMillis() - startTime;
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(12)));
+		assertThat(board.getNewMove().getYCoord(), is(equalTo(3)));
+		assertThat("search took "+timeTaken+"ms", timeTaken < 2000, is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenMoveOrdering_whenCallingGetNextMove_thenMoveIsPlayed() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.useAlphaBetaPrunning(true)
+						.useMoveOrdering(true)
+						.useBitboards(true)
+						.useTranspositionTable(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersBoard board = candidate.getNextMove();
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(12)));
+		assertThat(board.getNewMove().getYCoord(), is(equalTo(3)));
+		
+		board = candidate.getNextMove();
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player1.getPlayerId().getId())));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player2), is(equalTo(12)));
+	}
+	
+	@Test
+	public void givenPrincipalVariationSearch_whenPlayingMoves_thenSameMovesPickedAsMinMax() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		CheckersGame minMaxGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.useAlphaBetaPrunning(false)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersGame principalVariationGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.setSearchStrategy(CheckersGame.SearchStrategy.PRINCIPAL_VARIATION)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 10; move++){
+			assertThat(principalVariationGame.getNextMove(), is(equalTo(minMaxGame.getNextMove())));
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenPrincipalVariationSearchWithSearchThreads_whenBuilding_thenExceptionThrown(){
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.PRINCIPAL_VARIATION)
+						.setSearchThreads(2)
+						.setStartingTurn(Players.PLAYER1).build();
+	}
+	
+	@Test
+	public void givenMtdf_whenPlayingMoves_thenSameMovesPickedAsMinMax() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		CheckersGame minMaxGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.useAlphaBetaPrunning(false)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersGame mtdfGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MTDF)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 10; move++){
+			assertThat(mtdfGame.getNextMove(), is(equalTo(minMaxGame.getNextMove())));
+		}
+	}
+	
+	@Test
+	public void givenMtdfWithMoveTimeBudget_whenCallingGetNextMove_thenMoveIsPlayed() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(40)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MTDF)
+						.useMoveOrdering(true)
+						.useBitboards(true)
+						.setMoveTimeBudget(200)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		long startTime = System.currentTimeMillis();
+		CheckersBoard board = candidate.getNextMove();
+		long timeTaken = System.currentTimeMillis() - startTime;
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(12)));
+		assertThat(board.getNewMove().getYCoord(), is(equalTo(3)));
+		assertThat("search took "+timeTaken+"ms", timeTaken < 2000, is(equalTo(true)));
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenMtdfWithSearchThreads_whenBuilding_thenExceptionThrown(){
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MTDF)
+						.setSearchThreads(2)
+						.setStartingTurn(Players.PLAYER1).build();
+	}
+	
+	@Test
+	public void givenAspirationWindow_whenPlayingMoves_thenSameMovesPickedAsMinMax() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		CheckersGame minMaxGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.useAlphaBetaPrunning(false)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersGame aspirationGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.setSearchStrategy(CheckersGame.SearchStrategy.ASPIRATION_WINDOW)
+						.setAspirationWindow(1)
+						.useTranspositionTable(true)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 10; move++){
+			assertThat(aspirationGame.getNextMove(), is(equalTo(minMaxGame.getNextMove())));
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenAspirationWindowStrategyWithoutWindow_whenBuilding_thenExceptionThrown(){
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.ASPIRATION_WINDOW)
+						.setStartingTurn(Players.PLAYER1).build();
+	}
+	
+	@Test
+	public void givenLateMoveReductions_whenPlayingMoves_thenMovesArePlayed() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(8)
+						.setSearchStrategy(CheckersGame.SearchStrategy.PRINCIPAL_VARIATION)
+						.useLateMoveReductions(true)
+						.useMoveOrdering(true)
+						.useTranspositionTable(true)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 4; move++){
+			CheckersBoard board = candidate.getNextMove();
+			
+			assertThat(board.getTurn().getId(), is(equalTo(((move % 2 == 0)?player2:player1).getPlayerId().getId())));
+		}
+	}
+	
+	@Test(timeout=30000)
+	public void givenSearchCancelled_whenCallingGetNextMove_thenBestMoveSoFarIsPlayed() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(40) // far deeper then can be searched before the test times out
+						.useTranspositionTable(true)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		Thread canceller = new Thread(){
+			@Override
+			public void run(){
+				try{
+					Thread.sleep(500);
+				} catch (InterruptedException e){
+					return;
+				}
+				candidate.cancelSearch();
+			}
+		};
+		canceller.start();
+		
+		CheckersBoard board = candidate.getNextMove();
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(12)));
+	}
+	
+	@Test
+	public void givenMonteCarloTreeSearch_whenPlayingMoves_thenMovesArePlayed() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MONTE_CARLO_TREE_SEARCH)
+						.setPlayoutLimit(200)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 4; move++){ // each move is searched from the tree of the last
+			CheckersBoard board = candidate.getNextMove();
+			
+			assertThat(board.getTurn().getId(), is(equalTo(((move % 2 == 0)?player2:player1).getPlayerId().getId())));
+		}
+	}
+	
+	@Test
+	public void givenMonteCarloTreeSearchWithSearchThreads_whenPlayingMoves_thenMovesArePlayed() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MONTE_CARLO_TREE_SEARCH)
+						.setSearchThreads(4)
+						.setMoveTimeBudget(100)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 4; move++){
+			CheckersBoard board = candidate.getNextMove();
+			
+			assertThat(board.getTurn().getId(), is(equalTo(((move % 2 == 0)?player2:player1).getPlayerId().getId())));
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenMonteCarloTreeSearchWithHelpers_whenBuilding_thenExceptionThrown(){
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MONTE_CARLO_TREE_SEARCH)
+						.setMoveTimeBudget(100)
+						.setLazySmpHelpers(1)
+						.setStartingTurn(Players.PLAYER1).build();
+	}
+	
+	@Test
+	public void givenPondering_whenComputerPlaysBothSides_thenSameMovesPickedAsWithoutPondering() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		CheckersGame game = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.useTranspositionTable(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersGame ponderingGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.useTranspositionTable(true)
+						.usePondering(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		try{
+			for (int move = 0; move < 6; move++){ // each move stops the pondering of the move before
+				assertThat(ponderingGame.getNextMove(), is(equalTo(game.getNextMove())));
+			}
+		} finally{
+			ponderingGame.setPondering(false);
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenPonderingWithMonteCarloTreeSearch_whenBuilding_thenExceptionThrown(){
+		new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(CheckersGame.SearchStrategy.MONTE_CARLO_TREE_SEARCH)
+						.usePondering(true)
+						.build();
+	}
+	
+	@Test
+	public void givenEachSearchStrategyWithSearchThreads_whenPlayingMoves_thenMovesArePlayed() throws GameFinishedException{
+		for (CheckersGame.SearchStrategy searchStrategy: CheckersGame.SearchStrategy.values()){
+			if (searchStrategy.isSearchThreadsSupported()){
+				playMoves(createStrategyGameBuilder(searchStrategy).setSearchThreads(2));
+			}
+		}
+	}
+	
+	@Test
+	public void givenEachSearchStrategyWithHelpers_whenPlayingMoves_thenMovesArePlayed() throws GameFinishedException{
+		for (CheckersGame.SearchStrategy searchStrategy: CheckersGame.SearchStrategy.values()){
+			if (searchStrategy.isLazySmpHelpersSupported()){
+				playMoves(createStrategyGameBuilder(searchStrategy).setLazySmpHelpers(1));
+			}
+		}
+	}
+	
+	@Test
+	public void givenEachSearchStrategyWithPondering_whenPlayingMoves_thenMovesArePlayed() throws GameFinishedException{
+		for (CheckersGame.SearchStrategy searchStrategy: CheckersGame.SearchStrategy.values()){
+			if (searchStrategy.isPonderingSupported()){
+				playMoves(createStrategyGameBuilder(searchStrategy).usePondering(true));
+			}
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenHelpersWithSearchThreads_whenBuilding_thenExceptionThrown(){
+		createStrategyGameBuilder(CheckersGame.SearchStrategy.ALPHA_BETA)
+						.setSearchThreads(2)
+						.setLazySmpHelpers(1)
+						.build();
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenLateMoveReductionsWithAlphaBeta_whenBuilding_thenExceptionThrown(){
+		createStrategyGameBuilder(CheckersGame.SearchStrategy.ALPHA_BETA)
+						.useLateMoveReductions(true)
+						.build();
+	}
+	
+	/**
+	 * Returns a builder of a game searched by the supplied strategy with the options every strategy can be used with
+	 */
+	private CheckersGame.CheckersGameBuilder createStrategyGameBuilder(CheckersGame.SearchStrategy searchStrategy){
+		CheckersGame.CheckersGameBuilder builder = new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setSearchStrategy(searchStrategy)
+						.setDepthLimit(40)
+						.setMoveTimeBudget(100)
+						.setPlayoutLimit(200)
+						.useMoveOrdering(true)
+						.useTranspositionTable(true)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1);
+		if (searchStrategy == CheckersGame.SearchStrategy.ASPIRATION_WINDOW){
+			builder.setAspirationWindow(50);
+		}
+		return builder;
+	}
+	
+	private void playMoves(CheckersGame.CheckersGameBuilder builder) throws GameFinishedException{
+		CheckersGame game = builder.build();
+		try{
+			for (int move = 0; move < 2; move++){
+				CheckersBoard board = game.getNextMove();
+				
+				assertThat(board.getTurn().getId(), is(equalTo(((move % 2 == 0)?player2:player1).getPlayerId().getId())));
+			}
+		} finally{
+			game.shutdown();
+		}
+	}
+	
+	@Test
+	public void givenEndgameTablebase_whenCallingGetNextMove_thenMoveIsPlayed() throws GameFinishedException, IOException{
+		File directory = File.createTempFile("tablebase", "");
+		directory.delete();
+		new EndgameTablebaseGenerator().generate(2, directory);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(4)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setEndgameTablebase(EndgameTablebase.open(directory))
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersBoard board = candidate.getNextMove();
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+		for (File file: directory.listFiles()){
+			file.delete();
+		}
+		directory.delete();
+	}
+	
+	@Test
+	public void givenPieceSquareTable_whenCallingGetNextMove_thenMoveIsPlayed() throws GameFinishedException{
+		candidate = new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(4)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setPieceSquareTable(PieceSquareTable.loadDefault())
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersBoard board = candidate.getNextMove();
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player2.getPlayerId().getId())));
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenPieceSquareTableWithoutBitboards_whenBuilding_thenExceptionThrown(){
+		new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setPieceSquareTable(PieceSquareTable.loadDefault())
+						.build();
+	}
+	
+	@Test
+	public void givenOpeningBook_whenComputerPlaysBothSides_thenOpeningMovesArePlayedFromTheBook() throws GameFinishedException, IOException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		File bookFile = File.createTempFile("openings", ".book");
+		try{
+			new CheckersOpeningBookGenerator(playerLookup, 4).generate(2, bookFile);
+			
+			candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+							.setDepthLimit(2)
+							.setOpeningBook(OpeningBook.open(bookFile))
+							.setStartingTurn(Players.PLAYER1).build(); // the book is built on bitboards but keys are the same for either board
+			
+			candidate.getNextMove();
+			candidate.getNextMove();
+			candidate.getNextMove();
+			
+			assertThat(candidate.getBookMoves(), is(equalTo(2)));
+		} finally{
+			bookFile.delete();
+		}
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenEndgameTablebaseWithoutBitboards_whenBuilding_thenExceptionThrown() throws IOException{
+		new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setEndgameTablebase(EndgameTablebase.open(new File(System.getProperty("java.io.tmpdir"))))
+						.build();
+	}
+	
+	@Test
+	public void givenParallelSearch_whenPlayingMoves_thenSameMovesPickedAsSerialSearch() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		CheckersGame serialGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useCaching(false)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		CheckersGame parallelGame = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(6)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.useTranspositionTable(true)
+						.setSearchThreads(4)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		for (int move = 0; move < 10; move++){
+			assertThat(parallelGame.getNextMove(), is(equalTo(serialGame.getNextMove())));
+		}
+	}
+	
+	@Test
+	public void givenLazySmpHelpers_whenCallingGetNextMove_thenMoveIsPlayedWithinTheTimeBudget() throws GameFinishedException{
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1,player2);
+		
+		candidate = new CheckersGame.CheckersGameBuilder(playerLookup, new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(40)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setMoveTimeBudget(200)
+						.setLazySmpHelpers(3)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		Turn expectedTurn = Players.PLAYER2;
+		for (int move = 0; move < 3; move++){ // the computer plays both sides
+			long startTime = System.currentTimeMillis();
+			CheckersBoard board = candidate.getNextMove();
+			long timeTaken = System.currentTimeMillis() - startTime;
+			
+			assertThat(board.getTurn(), is(equalTo(expectedTurn)));
+			assertThat("search took "+timeTaken+"ms", timeTaken < 2000, is(equalTo(true)));
+			
+			expectedTurn = expectedTurn.nextTurn();
+		}
+	}
+	
+	@Test
+	public void givenLazySmpHelpersAndPondering_whenShutdown_thenSearchThreadsFinish() throws GameFinishedException, InterruptedException{
+		Set<Thread> existingThreads = Thread.getAllStackTraces().keySet(); // those of other games are left alone
+		candidate = new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(40)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setMoveTimeBudget(100)
+						.setLazySmpHelpers(2)
+						.usePondering(true)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		candidate.getNextMove(); // starts pondering on the predicted reply
+		assertThat(getSearchThreads(existingThreads).isEmpty(), is(equalTo(false)));
+		candidate.shutdown();
+		
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!getSearchThreads(existingThreads).isEmpty()){
+			assertThat("search threads should finish once shutdown", System.currentTimeMillis() < deadline, is(equalTo(true)));
+			Thread.sleep(10);
+		}
+	}
+	
+	@Test
+	public void givenParallelSearch_whenShutdown_thenSearchThreadsFinish() throws GameFinishedException, InterruptedException{
+		Set<Thread> existingThreads = Thread.getAllStackTraces().keySet();
+		candidate = new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setDepthLimit(4)
+						.useAlphaBetaPrunning(true)
+						.useBitboards(true)
+						.setSearchThreads(4)
+						.setStartingTurn(Players.PLAYER1).build();
+		
+		candidate.getNextMove();
+		assertThat(getSearchThreads(existingThreads).isEmpty(), is(equalTo(false)));
+		candidate.shutdown();
+		
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!getSearchThreads(existingThreads).isEmpty()){
+			assertThat("search threads should finish once shutdown", System.currentTimeMillis() < deadline, is(equalTo(true)));
+			Thread.sleep(10);
+		}
+	}
+	
+	private static Set<Thread> getSearchThreads(Set<Thread> existingThreads){
+		Set<Thread> searchThreads = new HashSet<Thread>();
+		for (Thread thread: Thread.getAllStackTraces().keySet()){
+			if (thread.isAlive() && !existingThreads.contains(thread) && (thread.getName().startsWith("lazy-smp-helper") || thread.getName().startsWith("ponderer") || thread.getName().startsWith("ForkJoinPool-"))){
+				searchThreads.add(thread);
+			}
+		}
+		return searchThreads;
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void givenLazySmpHelpersWithoutTimeBudget_whenBuilding_thenExceptionThrown(){
+		new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(player1,player2), new IncrementalBoardIdService(), Players.class)
+						.setLazySmpHelpers(2)
+						.build();
+	}
+	
+	@Test
+	public void givenPermittedMove_whenCallingPlayMove_thenMoveIsPlayed() throws GameFinishedException{
+		candidate.setDepthLimit(1);
+		candidate.getNextMove();
+		
+		CheckersBoard board = candidate.playMove(Collections.singletonList(new Move(new Position(0, 5), new Position(1, 4))));
+		
+		assertThat(board.getTurn().getId(), is(equalTo(player1.getPlayerId().getId())));
+		assertPiece(board, player2, Type.STANDARD, new Position(1, 4));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void givenJumpOverEmptySquare_whenCallingPlayMove_thenExceptionThrown() throws GameFinishedException{
+		candidate.setDepthLimit(1);
+		candidate.getNextMove();
+		
+		candidate.playMove(Collections.singletonList(new Move(new Position(2, 5), new Position(4, 3))));
+	}
+	
 	private void assertPiece(CheckersBoard board, Player<CheckersPieceDescription> player, Type type, Position position){
 		
 		Piece<CheckersPieceDescription> description = CheckersBoard.getPieceAtPosition(board, position);
@@ -13,6 +13,7 @@ import com.ahaines.boardgame.model.PlayerId;
 import com.ahaines.boardgame.model.PlayerLookup;
 import com.ahaines.boardgame.model.Position;
 import com.ahaines.checkers.model.CheckersBoard;
+import com.ahaines.checkers.model.CheckersMove;
 import com.ahaines.checkers.model.CheckersPiece;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
@@ -1019,4 +1020,72 @@ public class CheckersSuccessorServiceUnitTest {
 		assertThat(Iterables.size(successorStates.get(0).getPieces()), is(equalTo(12))); // 2 pieces captured
 		
 	}
+	
+	@Test
+	public void givenFullBoardAndReadyToTake_whenMakingAndUnmakingMoves_thenBoardIsRestored(){
+		int[] state = new int[]{0, 49156, 0, 0, 0, 16392, 0, 16388, 0, 0, 0, 0, 16384, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 16389, 0, 0, 49162, 0, 81929, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 16390, 0, 0, 0, 0, 0, 0, 16391, 0, 0, 49159, 0, 0, 0, 0, 0, 0, 49163, 0, 16394, 0, 16395, 0, 0, 0};
+		board = new CheckersBoard(1, state, Players.PLAYER2, checkersPieceLookup);
+		CheckersBoard original = new CheckersBoard(2, board, Players.PLAYER2);
+		
+		List<CheckersMove> moves = candidate.getMoves(board);
+		List<CheckersBoard> successorStates = Lists.newArrayList(candidate.getSuccessors(board));
+		
+		assertThat(moves.size(), is(equalTo(successorStates.size())));
+		for (int i = 0; i < moves.size(); i++){
+			board.makeMove(moves.get(i));
+			
+			assertThat(board, is(equalTo(successorStates.get(i))));
+			assertThat(board.getTurn(), is(equalTo(successorStates.get(i).getTurn())));
+			assertThat(board.getZobristKey(), is(equalTo(successorStates.get(i).getZobristKey())));
+			assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(successorStates.get(i).getBoardStats().getPieceCountForPlayer(player1))));
+			
+			board.unmakeMove(moves.get(i));
+			
+			assertThat(board, is(equalTo(original)));
+			assertThat(board.getTurn(), is(equalTo((Turn)Players.PLAYER2)));
+			assertThat(board.getZobristKey(), is(equalTo(original.getZobristKey())));
+			assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(original.getBoardStats().getPieceCountForPlayer(player1))));
+		}
+	}
+	
+	@Test
+	public void givenMovesFound_whenFindingMovesOfAnotherBoard_thenFirstMovesAreUnchanged(){
+		int[] state = new int[]{0, 49156, 0, 0, 0, 16392, 0, 16388, 0, 0, 0, 0, 16384, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 16389, 0, 0, 49162, 0, 81929, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 16390, 0, 0, 0, 0, 0, 0, 16391, 0, 0, 49159, 0, 0, 0, 0, 0, 0, 49163, 0, 16394, 0, 16395, 0, 0, 0};
+		board = new CheckersBoard(1, state, Players.PLAYER2, checkersPieceLookup);
+		CheckersBoard otherBoard = new CheckersBoard(2, state, Players.PLAYER1, checkersPieceLookup);
+		
+		List<CheckersMove> moves = candidate.getMoves(board);
+		List<CheckersMove> expectedMoves = Lists.newArrayList(moves);
+		List<CheckersMove> otherMoves = candidate.getMoves(otherBoard);
+		
+		assertThat(moves, is(equalTo(expectedMoves))); // the lists moves are collected in are reused
+		assertThat(candidate.getMoves(board), is(equalTo(expectedMoves)));
+		assertThat(candidate.getMoves(otherBoard), is(equalTo(otherMoves)));
+		assertThat(otherBoard.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(board.getBoardStats().getPieceCountForPlayer(player1))));
+	}
+	
+	@Test
+	public void givenPieceNotOnTheSquare_whenRemoving_thenExceptionThrownAndBoardUnchanged(){
+		board.addPiece(new CheckersPiece(new Position(4, 4), checkersPieceLookup.getPiece(49153)));
+		long key = board.getZobristKey();
+		
+		try{
+			board.removePiece(new CheckersPiece(new Position(4, 4), checkersPieceLookup.getPiece(49154))); // a different piece of alice's
+			assertThat("removing a different piece should fail", false, is(equalTo(true)));
+		} catch (IllegalStateException e){
+			// expected
+		}
+		try{
+			board.removePiece(new CheckersPiece(new Position(2, 2), checkersPieceLookup.getPiece(49153))); // an empty square
+			assertThat("removing from an empty square should fail", false, is(equalTo(true)));
+		} catch (IllegalStateException e){
+			// expected
+		}
+		assertThat(board.getZobristKey(), is(equalTo(key)));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(1)));
+		
+		board.removePiece(new CheckersPiece(new Position(4, 4), checkersPieceLookup.getPiece(49153)));
+		assertThat(board.getBoardStats().getPieceCountForPlayer(player1), is(equalTo(0)));
+		assertThat(Iterables.size(board.getPieces()), is(equalTo(0)));
+	}
 }
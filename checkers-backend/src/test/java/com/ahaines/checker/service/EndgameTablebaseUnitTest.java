@@ -0,0 +1,167 @@
+package com.ahaines.checker.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
+import com.ahaines.ai.search.minmax.service.MinMaxSuccessorService;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.heurstic.service.HeuristicSearchService.HeuristicSearchServiceBuilder;
+import com.ahaines.boardgame.model.Piece;
+import com.ahaines.boardgame.model.Player;
+import com.ahaines.boardgame.model.Player.PlayerType;
+import com.ahaines.boardgame.model.PlayerId;
+import com.ahaines.boardgame.model.PlayerLookup;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.BitboardCheckersBoard.PieceMapping;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class EndgameTablebaseUnitTest {
+
+	private static enum Players implements PlayerId, Turn {
+		PLAYER1(SimpleTurn.MAX, "Alice"),
+		PLAYER2(SimpleTurn.MIN, "Bob");
+
+		private final int id;
+		private final String playerName;
+		private final Turn turn;
+
+		private Players(Turn turn, String playerName){
+			this.id = turn.getMultiplier();
+			this.playerName = playerName;
+			this.turn = turn;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public String getPlayerName() {
+			return playerName;
+		}
+
+		public int getMultiplier() {
+			return turn.getMultiplier();
+		}
+
+		public Turn nextTurn() {
+			return (this == PLAYER1)?PLAYER2:PLAYER1;
+		}
+	}
+
+	private File directory;
+	private EndgameTablebase candidate;
+	private PieceMapping mapping;
+
+	@Before
+	public void before() throws IOException{
+		directory = File.createTempFile("tablebase", "");
+		directory.delete();
+		new EndgameTablebaseGenerator().generate(3, directory);
+		candidate = EndgameTablebase.open(directory);
+
+		Player<CheckersPieceDescription> player1 = new Player<CheckersPieceDescription>(Players.PLAYER1, PlayerType.COMPUTER, Collections.<Piece<CheckersPieceDescription>>emptyList());
+		Player<CheckersPieceDescription> player2 = new Player<CheckersPieceDescription>(Players.PLAYER2, PlayerType.HUMAN, Collections.<Piece<CheckersPieceDescription>>emptyList());
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1, player2);
+		mapping = new PieceMapping(playerLookup, new CheckersPieceLookup(playerLookup));
+	}
+
+	@After
+	public void after(){
+		for (File file: directory.listFiles()){
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void givenEveryPairOfSquares_whenIndexing_thenIndexesAreContiguousAndUnranked(){
+		int pairs = EndgameTablebase.getBinomial(BitboardCheckersBoard.SQUARE_COUNT, 2);
+		boolean[] seen = new boolean[pairs];
+		for (int first = 0; first < BitboardCheckersBoard.SQUARE_COUNT; first++){
+			for (int second = first + 1; second < BitboardCheckersBoard.SQUARE_COUNT; second++){
+				int pieces = (1 << first) | (1 << second);
+				int rank = EndgameTablebase.getIndex(BitboardCheckersBoard.FIRST_PLAYER, pieces, 0, 0) >> 1;
+
+				assertThat("rank "+rank+" should be within the slice", rank < pairs, is(equalTo(true)));
+				assertThat("rank "+rank+" should be unique", seen[rank], is(equalTo(false)));
+				assertThat(EndgameTablebase.getPieces(rank, 2, 0), is(equalTo(pieces)));
+				seen[rank] = true;
+			}
+		}
+		int occupied = 1 << 5;
+		for (int rank = 0; rank < EndgameTablebase.getBinomial(BitboardCheckersBoard.SQUARE_COUNT - 1, 2); rank++){
+			assertThat(EndgameTablebase.getPieces(rank, 2, occupied) & occupied, is(equalTo(0)));
+		}
+	}
+
+	@Test
+	public void givenKingThatCanTakeTheLastPiece_whenProbing_thenWonInOnePly(){
+		int king = 1 << BitboardCheckersBoard.getSquare(2, 3);
+		int opponentKing = 1 << BitboardCheckersBoard.getSquare(3, 4);
+
+		int result = candidate.probe(BitboardCheckersBoard.FIRST_PLAYER, king, opponentKing, king | opponentKing);
+
+		assertThat(EndgameTablebase.isWin(result), is(equalTo(true)));
+		assertThat(EndgameTablebase.getDistance(result), is(equalTo(1)));
+		assertThat(EndgameTablebase.isLoss(candidate.probe(BitboardCheckersBoard.SECOND_PLAYER, king, opponentKing, king | opponentKing)), is(equalTo(false)));
+	}
+
+	@Test
+	public void givenKingsFarApart_whenProbing_thenDrawn(){
+		int king = 1 << BitboardCheckersBoard.getSquare(1, 0);
+		int opponentKing = 1 << BitboardCheckersBoard.getSquare(6, 7);
+
+		assertThat(candidate.probe(BitboardCheckersBoard.FIRST_PLAYER, king, opponentKing, king | opponentKing), is(equalTo(EndgameTablebase.DRAW)));
+	}
+
+	@Test
+	public void givenTwoKingsAgainstOne_whenProbing_thenWonForTheTwoKings(){
+		int kings = (1 << BitboardCheckersBoard.getSquare(1, 0)) | (1 << BitboardCheckersBoard.getSquare(3, 0));
+		int opponentKing = 1 << BitboardCheckersBoard.getSquare(4, 5);
+
+		int result = candidate.probe(BitboardCheckersBoard.FIRST_PLAYER, kings, opponentKing, kings | opponentKing);
+
+		assertThat(EndgameTablebase.isWin(result), is(equalTo(true)));
+		assertThat(EndgameTablebase.isLoss(candidate.probe(BitboardCheckersBoard.SECOND_PLAYER, kings, opponentKing, kings | opponentKing)), is(equalTo(true)));
+		assertThat(candidate.probe(BitboardCheckersBoard.FIRST_PLAYER, kings, opponentKing | (1 << 20), kings | opponentKing), is(equalTo(EndgameTablebase.NOT_FOUND))); // more pieces then were generated
+	}
+
+	@Test
+	public void givenTablebasePosition_whenSearching_thenStartIsExpandedAndAWinningMoveIsCostedHighest(){
+		int kings = (1 << BitboardCheckersBoard.getSquare(1, 0)) | (1 << BitboardCheckersBoard.getSquare(3, 0));
+		int opponentKing = 1 << BitboardCheckersBoard.getSquare(4, 5);
+		BitboardCheckersBoard board = new BitboardCheckersBoard(1, Players.PLAYER1, mapping, kings, opponentKing, kings | opponentKing);
+
+		BitboardCheckersGoalService goalService = new BitboardCheckersGoalService();
+		MinMaxSuccessorService<BitboardCheckersBoard> minMaxSuccessorService = new MinMaxSuccessorService<BitboardCheckersBoard>(new BitboardCheckersSuccessorService(new IncrementalBoardIdService()), new EndgameTablebaseGoalService(goalService, candidate), new EndgameTablebaseCostFunctionService(new BitboardCheckersCostFunctionService(goalService), BitboardCheckersCostFunctionService.POINTS_FOR_A_WIN, candidate));
+
+		Node<MinMaxState<BitboardCheckersBoard>> startNode = new Node<MinMaxState<BitboardCheckersBoard>>(null, new MinMaxState<BitboardCheckersBoard>(board));
+		new HeuristicSearchServiceBuilder<MinMaxState<BitboardCheckersBoard>>(minMaxSuccessorService).build().depthFirstSearch(startNode, 4);
+
+		List<Node<MinMaxState<BitboardCheckersBoard>>> children = Lists.newArrayList(startNode.getChildren());
+		assertThat("the start state should be expanded", children.isEmpty(), is(equalTo(false)));
+
+		Node<MinMaxState<BitboardCheckersBoard>> best = children.get(0);
+		for (Node<MinMaxState<BitboardCheckersBoard>> child: children){
+			assertThat("successors in the tablebase should not be searched further", child.getChildren().iterator().hasNext(), is(equalTo(false)));
+			if (child.getState().getCost() > best.getState().getCost()){
+				best = child;
+			}
+		}
+		assertThat(EndgameTablebase.isLoss(candidate.probe(best.getState().getActualState())), is(equalTo(true)));
+	}
+}
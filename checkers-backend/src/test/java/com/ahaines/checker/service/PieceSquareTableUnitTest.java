@@ -0,0 +1,185 @@
+package com.ahaines.checker.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
+import com.ahaines.boardgame.model.Piece;
+import com.ahaines.boardgame.model.Player;
+import com.ahaines.boardgame.model.Player.PlayerType;
+import com.ahaines.boardgame.model.PlayerId;
+import com.ahaines.boardgame.model.PlayerLookup;
+import com.ahaines.checkers.model.BitboardCheckersBoard;
+import com.ahaines.checkers.model.BitboardCheckersBoard.PieceMapping;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class PieceSquareTableUnitTest {
+
+	private static enum Players implements PlayerId, Turn {
+		PLAYER1(SimpleTurn.MAX, "Alice"),
+		PLAYER2(SimpleTurn.MIN, "Bob");
+
+		private final int id;
+		private final String playerName;
+		private final Turn turn;
+
+		private Players(Turn turn, String playerName){
+			this.id = turn.getMultiplier();
+			this.playerName = playerName;
+			this.turn = turn;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public String getPlayerName() {
+			return playerName;
+		}
+
+		public int getMultiplier() {
+			return turn.getMultiplier();
+		}
+
+		public Turn nextTurn() {
+			return (this == PLAYER1)?PLAYER2:PLAYER1;
+		}
+	}
+
+	private PieceSquareTable candidate;
+	private PieceMapping mapping;
+	private PieceSquareTableCostFunctionService costFunctionService;
+
+	@Before
+	public void before(){
+		candidate = PieceSquareTable.loadDefault();
+
+		Player<CheckersPieceDescription> player1 = new Player<CheckersPieceDescription>(Players.PLAYER1, PlayerType.COMPUTER, Collections.<Piece<CheckersPieceDescription>>emptyList());
+		Player<CheckersPieceDescription> player2 = new Player<CheckersPieceDescription>(Players.PLAYER2, PlayerType.HUMAN, Collections.<Piece<CheckersPieceDescription>>emptyList());
+		PlayerLookup<CheckersPieceDescription> playerLookup = new CheckersPlayerLookup(player1, player2);
+		mapping = new PieceMapping(playerLookup, new CheckersPieceLookup(playerLookup));
+		costFunctionService = new PieceSquareTableCostFunctionService(new BitboardCheckersGoalService(), candidate);
+	}
+
+	@Test
+	public void givenDefaultWeights_whenWrittenAndLoaded_thenSameWeightsAreRead() throws IOException{
+		File file = File.createTempFile("weights", ".txt");
+		try{
+			candidate.write(file);
+			PieceSquareTable loaded = PieceSquareTable.load(file);
+
+			for (int phase = 0; phase < PieceSquareTable.PHASE_COUNT; phase++){
+				for (int type = 0; type < PieceSquareTable.TYPE_COUNT; type++){
+					for (int square = 0; square < BitboardCheckersBoard.SQUARE_COUNT; square++){
+						assertThat(loaded.getWeight(phase, type, square), is(equalTo(candidate.getWeight(phase, type, square))));
+					}
+				}
+			}
+		} finally{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void givenPositionTurnedAround_whenCosting_thenCostIsTheSame(){
+		int firstPlayerPieces = (1 << 1) | (1 << 6) | (1 << 13) | (1 << 22);
+		int secondPlayerPieces = (1 << 30) | (1 << 25) | (1 << 19) | (1 << 16) | (1 << 10);
+		int kings = (1 << 22) | (1 << 10);
+		BitboardCheckersBoard board = new BitboardCheckersBoard(1, Players.PLAYER1, mapping, firstPlayerPieces, secondPlayerPieces, kings);
+
+		// turning the board around maps square s to 31 - s, which reverses the bits of each mask
+		BitboardCheckersBoard turnedBoard = new BitboardCheckersBoard(2, Players.PLAYER2, mapping, Integer.reverse(secondPlayerPieces), Integer.reverse(firstPlayerPieces), Integer.reverse(kings));
+
+		assertThat(costFunctionService.calculateCost(turnedBoard), is(equalTo(costFunctionService.calculateCost(board))));
+	}
+
+	@Test
+	public void givenFewPiecesLeft_whenCosting_thenEndgameWeightsAreUsed(){
+		int man = 1 << BitboardCheckersBoard.getSquare(1, 6);
+		int opponentMan = 1 << BitboardCheckersBoard.getSquare(0, 7);
+		BitboardCheckersBoard board = new BitboardCheckersBoard(1, Players.PLAYER2, mapping, man, opponentMan, 0);
+
+		int opening = candidate.getScore(BitboardCheckersBoard.FIRST_PLAYER, PieceSquareTable.OPENING, man, 0) - candidate.getScore(BitboardCheckersBoard.SECOND_PLAYER, PieceSquareTable.OPENING, opponentMan, 0);
+		int endgame = candidate.getScore(BitboardCheckersBoard.FIRST_PLAYER, PieceSquareTable.ENDGAME, man, 0) - candidate.getScore(BitboardCheckersBoard.SECOND_PLAYER, PieceSquareTable.ENDGAME, opponentMan, 0);
+
+		assertThat(costFunctionService.calculateCost(board), is(equalTo((opening * 2 + endgame * 22) / PieceSquareTableCostFunctionService.OPENING_PIECE_COUNT)));
+	}
+
+	@Test(expected=IOException.class)
+	public void givenSectionMissingAWeight_whenLoading_thenExceptionThrown() throws IOException{
+		StringBuilder weights = new StringBuilder();
+		for (String section: new String[]{"opening man", "opening king", "endgame man", "endgame king"}){
+			weights.append(section).append('\n');
+			for (int square = 0; square < BitboardCheckersBoard.SQUARE_COUNT - 1; square++){
+				weights.append(" 100");
+			}
+			weights.append('\n');
+		}
+		PieceSquareTable.load(new ByteArrayInputStream(weights.toString().getBytes("UTF-8")));
+	}
+
+	@Test
+	public void givenPositionsFile_whenLoading_thenPositionsAreRead() throws IOException{
+		File file = File.createTempFile("positions", ".txt");
+		try{
+			PrintWriter out = new PrintWriter(new FileWriter(file));
+			out.println("# first second kings result");
+			out.println("00000fff fff00000 00000000 0.5");
+			out.println("");
+			out.println("80000001 00001000 80000000 1 # a crowned man");
+			out.close();
+
+			TuningPositions positions = TuningPositions.load(file);
+
+			assertThat(positions.size(), is(equalTo(2)));
+			assertThat(positions.getSecondPlayerPieces(0), is(equalTo(0xfff00000)));
+			assertThat(positions.getResult(0), is(equalTo(TuningPositions.DRAW)));
+			assertThat(positions.getFirstPlayerPieces(1), is(equalTo(0x80000001)));
+			assertThat(positions.getKings(1), is(equalTo(0x80000000)));
+			assertThat(positions.getResult(1), is(equalTo(TuningPositions.WIN)));
+		} finally{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void givenGamesWonByAdvancedMen_whenTuning_thenErrorFallsAndAdvancedMenAreWeightedHigher(){
+		TuningPositions positions = new TuningPositions();
+		int advancedSquare = BitboardCheckersBoard.getSquare(3, 4);
+		for (int i = 0; i < 1000; i++){
+			int square = i % 12;
+			int firstPlayerPieces = (1 << square) | (1 << advancedSquare);
+			int secondPlayerPieces = (1 << (BitboardCheckersBoard.SQUARE_COUNT - 1 - square)) | (1 << (BitboardCheckersBoard.SQUARE_COUNT - 1 - (square + 4) % 12));
+			positions.add(firstPlayerPieces, secondPlayerPieces, 0, (i % 4 == 0)?TuningPositions.DRAW:TuningPositions.WIN);
+		}
+		int advancedWeight = candidate.getWeight(PieceSquareTable.ENDGAME, PieceSquareTable.MAN, advancedSquare);
+
+		PieceSquareTableTuner serialTuner = new PieceSquareTableTuner(candidate, positions, PieceSquareTableTuner.DEFAULT_SCALE, 1);
+		PieceSquareTableTuner tuner = new PieceSquareTableTuner(candidate, positions, PieceSquareTableTuner.DEFAULT_SCALE, 3);
+		try{
+			double startingError = tuner.calculateError();
+			assertThat("errors should be the same whatever the number of threads", Math.abs(serialTuner.calculateError() - startingError) < 1e-12, is(equalTo(true)));
+
+			double error = tuner.tune(10);
+
+			assertThat("error "+error+" should be less then "+startingError, error < startingError, is(equalTo(true)));
+			assertThat(error, is(equalTo(tuner.calculateError())));
+			assertThat("advanced men should be worth more", candidate.getWeight(PieceSquareTable.ENDGAME, PieceSquareTable.MAN, advancedSquare) > advancedWeight, is(equalTo(true)));
+		} finally{
+			serialTuner.shutdown();
+			tuner.shutdown();
+		}
+	}
+}
@@ -27,11 +27,13 @@ import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
 import com.ahaines.boardgame.model.Piece;
 import com.ahaines.boardgame.model.Position;
 import com.ahaines.checker.service.CheckersGame;
+import com.ahaines.checkers.model.CheckersBoard;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
 import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription.Type;
 import com.ahaines.checkers.model.Move;
+import com.haines.ist.checkers.ui.swing.ComputerMoveWorker.ComputerMoveListener;
 
-public class BoardPanel extends JPanel implements MouseListener, MouseMotionListener, KeyListener{
+public class BoardPanel extends JPanel implements MouseListener, MouseMotionListener, KeyListener, ComputerMoveListener{
 
 	private static final String CHECKERS_IMAGE_LOCATION = "/assets/mainBoard.jpg";
 	private static final String PLAYER1_PIECE_IMAGE_LOCATION = "/assets/ply1_piece.png";
@@ -63,6 +65,8 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 	private final Image player2KingPieceAsset;
 	private final GameWonListener listener;
 	private CheckersGame game;
+	private CheckersBoard board; // the board shown, which is not changed while the computer searches
+	private ComputerMoveWorker computerMove;
 	private boolean dragging;
 	private Position pieceBeingMoved;
 	private Position lastPositionPressed;
@@ -97,7 +101,7 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 		
 		g.drawImage(checkersBoardAsset, 0, 0, getWidth(), getHeight(), null);
 		
-		if (game != null){
+		if (board != null){
 			int xborder = (int)(getWidth()*0.007);
 			int yborder = (int)(getHeight()*0.0060);
 			int xOffset = (int)(getWidth()*0.040);
@@ -108,7 +112,7 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 			int pieceHeight = (int)(boardHeight / 8);
 			
 			
-			for (Piece<CheckersPieceDescription> piece: game.getCurrentState().getPieces()){
+			for (Piece<CheckersPieceDescription> piece: board.getPieces()){
 				
 				Image pieceAsset;
 				if (piece.getPlayer().getPlayerId().getId() == SimpleTurn.MAX.getId()){
@@ -161,20 +165,64 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 		}
 	}
 
+	/**
+	 * Ends the game shown, stopping any search of the computer's move. Once this returns the game is no longer
+	 * searched so can be shutdown.
+	 */
 	public void endGame() {
+		if (computerMove != null){
+			computerMove.cancelSearch();
+			computerMove.waitForMove();
+			computerMove = null;
+		}
 		this.game = null;
+		this.board = null;
 		this.repaint();
 		
 	}
 
 	public void setNewGame(CheckersGame game) {
 		this.game = game;
+		this.board = game.getCurrentState();
 		this.repaint();
 	}
+	
+	/**
+	 * Starts the computer's move in the background. Moves can not be played until it has been made.
+	 */
+	public void makeComputerMove() {
+		computerMove = new ComputerMoveWorker(game, this);
+		computerMove.execute();
+	}
+	
+	private boolean isComputerMoving() {
+		return computerMove != null && !computerMove.isDone();
+	}
+
+	public void computerMoved(CheckersGame game, CheckersBoard board) {
+		if (game == this.game){ // otherwise the game has been ended
+			this.board = board;
+			LOG.debug("computer moved to: "+board.getNewMove());
+			repaint();
+			if (game.isWon()){
+				listener.gameWonForComp();
+			}
+		}
+	}
+
+	public void gameFinished(CheckersGame game) {
+		if (game == this.game){
+			JOptionPane.showMessageDialog(this,
+				    "The game has already been won. Please stop playing!");
+		}
+	}
 
 	public void mouseClicked(MouseEvent e) {}
 
 	public void mousePressed(MouseEvent e) {
+		if (isComputerMoving()){ // moves can not be played until the computer has moved
+			return;
+		}
 		
 		// calculate the x/y position of this piece
 		if (pieceBeingMoved == null){
@@ -200,7 +248,7 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 	}
 
 	public void mouseReleased(MouseEvent event) {
-		if (game != null){
+		if (game != null && !isComputerMoving()){
 
 				this.dragging = false;
 				
@@ -215,15 +263,11 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 					if (!event.isControlDown()){
 						LOG.debug("Releasing position to: "+draggedNewPosition);
 						try {
-							game.playMove(moves);
+							board = game.playMove(moves);
 							if (game.isWon()){
 								listener.gameWonForUser();
 							} else{
-								game.getNextMove();
-								LOG.debug("computer moved to: "+game.getCurrentState().getNewMove());
-								if (game.isWon()){
-									listener.gameWonForComp();
-								}
+								makeComputerMove();
 							}
 						} catch (GameFinishedException e) {
 							JOptionPane.showMessageDialog(this,
@@ -29,7 +29,6 @@ import javax.swing.border.EtchedBorder;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import com.ahaines.ai.search.game.GameFinishedException;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
 import com.ahaines.boardgame.model.Piece;
 import com.ahaines.boardgame.model.Player;
@@ -49,6 +48,8 @@ public class CheckersPanel extends JPanel implements GameWonListener{
 
 	private static final String START_NEW_GAME_TEXT = "Start new game";
 	
+	private static final long STRONGEST_MOVE_TIME_BUDGET = 3000;
+	
 	private JTextField playerName;
 	private JTextField compName;
 	private JSlider difficulty;
@@ -163,28 +164,33 @@ public class CheckersPanel extends JPanel implements GameWonListener{
 					
 					CheckersPlayerLookup playerLookup = new CheckersPlayerLookup(compPlayer, player);
 					
-					game = new CheckersGame.CheckersGameBuilder(playerLookup, boardIdService, SimpleTurn.class)
+					CheckersGame.CheckersGameBuilder builder = new CheckersGame.CheckersGameBuilder(playerLookup, boardIdService, SimpleTurn.class)
 							.setStartingTurn(SimpleTurn.MAX)
 							.useAlphaBetaPrunning(useAlphaBetaPrunning)
 							.useCaching(false)
-							.setDepthLimit(difficulty.getValue())
-							.build();
+							.useBitboards(true)
+							.useTranspositionTable(true)
+							.useMoveOrdering(true)
+							.usePondering(true);
 					
-					try {
-						game.getNextMove();
-					} catch (GameFinishedException e1) {
-						playerName.setEditable(true);
-						boardPanel.endGame();
-						CheckersPanel.this.gameWon(playerLookup.getPlayer(game.getCurrentState().getTurn().getId()).getPlayerId().getPlayerName());
+					if (difficulty.getValue() == difficulty.getMaximum()){ // the strongest setting searches as deep as it can in the time with every processor
+						builder.setMoveTimeBudget(STRONGEST_MOVE_TIME_BUDGET)
+							.setLazySmpHelpers(Runtime.getRuntime().availableProcessors() - 1);
+					} else{
+						builder.setDepthLimit(difficulty.getValue());
 					}
+					game = builder.build();
+					
 					boardPanel.setNewGame(game);
+					boardPanel.makeComputerMove(); // searched in the background so that the game can be withdrawn
 					
 					
 				} else{ // withdraw game
+					boardPanel.endGame(); // cancels any search still running for the withdrawn game
+					game.shutdown();
 					game = null;
 					startGameButton.setText(START_NEW_GAME_TEXT);
 					playerName.setEditable(true);
-					boardPanel.endGame();
 					CheckersPanel.this.gameWon(compName.getText());
 				}
 			}			
@@ -0,0 +1,95 @@
+package com.haines.ist.checkers.ui.swing;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.game.GameFinishedException;
+import com.ahaines.checker.service.CheckersGame;
+import com.ahaines.checkers.model.CheckersBoard;
+
+/**
+ * Makes the computer's move in a {@link CheckersGame} on a worker thread rather then the event dispatch thread, so
+ * that the UI still handles events while the computer searches and the search can be cancelled with
+ * {@link #cancelSearch()}. The listener is told of the move on the event dispatch thread once it has been made.
+ * @author andrewhaines
+ *
+ */
+public class ComputerMoveWorker extends SwingWorker<CheckersBoard, Void>{
+
+	private static final Logger LOG = LoggerFactory.getLogger(ComputerMoveWorker.class);
+
+	private final CheckersGame game;
+	private final ComputerMoveListener listener;
+
+	public ComputerMoveWorker(CheckersGame game, ComputerMoveListener listener){
+		this.game = game;
+		this.listener = listener;
+	}
+
+	@Override
+	protected CheckersBoard doInBackground() throws GameFinishedException {
+		return game.getNextMove();
+	}
+
+	@Override
+	protected void done(){
+		try{
+			listener.computerMoved(game, get());
+		} catch (ExecutionException e){
+			if (e.getCause() instanceof GameFinishedException){
+				listener.gameFinished(game);
+			} else{
+				LOG.error("Error making the computer's move", e.getCause());
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Cancels the search of the computer's move, which then plays the best move found so far. This can be called from
+	 * any thread, even before the search has started.
+	 */
+	public void cancelSearch(){
+		game.cancelSearch();
+	}
+
+	/**
+	 * Waits for the computer's move to be made, which is quick once {@link #cancelSearch()} has been called. The game
+	 * must not be shutdown until the move has been made as pondering is started once it has.
+	 */
+	public void waitForMove(){
+		try{
+			get();
+		} catch (ExecutionException e){
+			// the failure is reported when the listener is told
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Told, on the event dispatch thread, of the outcome of the computer's move
+	 * @author andrewhaines
+	 *
+	 */
+	public static interface ComputerMoveListener{
+
+		/**
+		 * Called once the computer has moved
+		 * @param game
+		 * @param board The board after the computer's move
+		 */
+		void computerMoved(CheckersGame game, CheckersBoard board);
+
+		/**
+		 * Called if the game had already finished so the computer could not move
+		 * @param game
+		 */
+		void gameFinished(CheckersGame game);
+	}
+}
@@ -0,0 +1,112 @@
+package com.haines.ist.checkers.ui.swing;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
+import com.ahaines.boardgame.model.Piece;
+import com.ahaines.boardgame.model.Player;
+import com.ahaines.boardgame.model.Player.PlayerType;
+import com.ahaines.boardgame.model.SimplePlayerId;
+import com.ahaines.checker.service.CheckersGame;
+import com.ahaines.checker.service.CheckersPlayerLookup;
+import com.ahaines.checker.service.IncrementalBoardIdService;
+import com.ahaines.checkers.model.CheckersBoard;
+import com.ahaines.checkers.model.CheckersPiece.CheckersPieceDescription;
+import com.haines.ist.checkers.ui.swing.ComputerMoveWorker.ComputerMoveListener;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class ComputerMoveWorkerUnitTest {
+
+	private CheckersGame game;
+	private RecordingListener listener;
+
+	@Before
+	public void before(){
+		Player<CheckersPieceDescription> compPlayer = new Player<CheckersPieceDescription>(new SimplePlayerId(SimpleTurn.MAX.getId(), "Henry"), PlayerType.COMPUTER, new ArrayList<Piece<CheckersPieceDescription>>());
+		Player<CheckersPieceDescription> player = new Player<CheckersPieceDescription>(new SimplePlayerId(SimpleTurn.MIN.getId(), "George"), PlayerType.HUMAN, new ArrayList<Piece<CheckersPieceDescription>>());
+
+		game = new CheckersGame.CheckersGameBuilder(new CheckersPlayerLookup(compPlayer, player), new IncrementalBoardIdService(), SimpleTurn.class)
+				.setStartingTurn(SimpleTurn.MAX)
+				.useAlphaBetaPrunning(true)
+				.useCaching(false)
+				.useBitboards(true)
+				.setDepthLimit(40) // far too deep to finish
+				.build();
+		listener = new RecordingListener();
+	}
+
+	@After
+	public void after(){
+		game.shutdown();
+	}
+
+	@Test
+	public void givenRunningSearch_whenCancelled_thenBestMoveFoundSoFarIsPlayed() throws InterruptedException{
+		CheckersBoard startingBoard = game.getCurrentState();
+		ComputerMoveWorker candidate = new ComputerMoveWorker(game, listener);
+
+		candidate.execute();
+		Thread.sleep(200);
+		assertThat("the search should still be running", candidate.isDone(), is(equalTo(false)));
+
+		candidate.cancelSearch();
+
+		assertThat("the move should be made once cancelled", listener.moved.await(10, TimeUnit.SECONDS), is(equalTo(true)));
+		assertThat(listener.board, is(equalTo(game.getCurrentState())));
+		assertThat(listener.board.getTurn(), is(equalTo(startingBoard.getTurn().nextTurn())));
+		assertThat("the listener should be told on the event dispatch thread", listener.onEventDispatchThread, is(equalTo(true)));
+	}
+
+	@Test
+	public void givenRunningSearch_whenCancelledAndWaitedFor_thenSearchHasFinished() throws InterruptedException{
+		ComputerMoveWorker candidate = new ComputerMoveWorker(game, listener);
+
+		candidate.execute();
+		Thread.sleep(200);
+
+		long startTime = System.currentTimeMillis();
+		candidate.cancelSearch();
+		candidate.waitForMove();
+
+		assertThat("search took "+(System.currentTimeMillis() - startTime)+"ms to stop", System.currentTimeMillis() - startTime < 5000, is(equalTo(true)));
+		assertThat(candidate.isDone(), is(equalTo(true)));
+	}
+
+	@Test
+	public void givenSearchNotYetStarted_whenCancelled_thenMoveIsMadeOnceStarted() throws InterruptedException{
+		ComputerMoveWorker candidate = new ComputerMoveWorker(game, listener);
+
+		candidate.cancelSearch(); // as the board does if the game is ended straight after the computer is asked to move
+		candidate.execute();
+
+		assertThat("the move should be made as its search was cancelled", listener.moved.await(10, TimeUnit.SECONDS), is(equalTo(true)));
+	}
+
+	private static class RecordingListener implements ComputerMoveListener{
+
+		private final CountDownLatch moved = new CountDownLatch(1);
+		private volatile CheckersBoard board;
+		private volatile boolean onEventDispatchThread;
+
+		public void computerMoved(CheckersGame game, CheckersBoard board) {
+			this.board = board;
+			this.onEventDispatchThread = SwingUtilities.isEventDispatchThread();
+			moved.countDown();
+		}
+
+		public void gameFinished(CheckersGame game) {
+			throw new IllegalStateException("the game has not finished");
+		}
+	}
+}
@@ -58,21 +58,32 @@ public interface Board<T extends PieceDescription<T>> {
 	boolean isValidBoardPosition(Position pos);
 	
 	/**
-	 * Use this method to obtain stats about the board state. This is used to cut down on the amount of {@link Piece} objects that get created using other methods
+	 * Use this method to obtain stats about the board state. This is used to cut down on the amount of {@link Piece} objects that get created using other methods.
+	 * The stats are read only. A board either keeps {@link MutableStats} up to date as its pieces change or, like a bitboard, derives them from its own
+	 * representation when asked, so they are never altered by callers.
 	 * @return
 	 */
 	public Stats<T> getBoardStats();
 	
+	/**
+	 * A read only view of the pieces on a board
+	 */
 	public static interface Stats<T extends PieceDescription<T>> {
 		
+		public int getPieceCountForPlayer(Player<?> player);
+	}
+	
+	/**
+	 * Stats that a board updates as pieces are added to and removed from it
+	 */
+	public static interface MutableStats<T extends PieceDescription<T>> extends Stats<T> {
+		
 		public void removePiece(T piece);
 		
 		public void addPiece(T piece);
-		
-		public int getPieceCountForPlayer(Player<?> player);
 	}
 	
-	public static class SimpleStats<T extends PieceDescription<T>> implements Stats<T>{
+	public static class SimpleStats<T extends PieceDescription<T>> implements MutableStats<T>{
 
 		private final Map<Player<?>, AtomicInteger> pieceCounts;
 		
@@ -8,13 +8,14 @@ import java.util.Iterator;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 
-public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S extends com.ahaines.boardgame.model.Board.Stats<T>> implements Board<T>{
+public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S extends com.ahaines.boardgame.model.Board.MutableStats<T>> implements Board<T>, ZobristHashable{
 
 	private static final int NO_PIECE_ID = 0;
 	protected final int[] state;
 	private final Position extremity;
 	private final PieceLookup<T> pieceLookup;
-	private final S stats;
+	private S stats;
+	private long zobristKey;
 	
 	private Position newMove;
 	
@@ -25,6 +26,7 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 		this.extremity = board.getBoardExtremity();
 		this.pieceLookup = board.pieceLookup;
 		this.stats = createStat(board.stats);
+		this.zobristKey = board.zobristKey;
 	}
 	
 	protected SimpleArrayBackedBoard(PieceLookup<T> pieceLookup, int boardXMax, int boardYMax){
@@ -32,6 +34,7 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 		this.pieceLookup = pieceLookup;
 		this.extremity = new Position(boardXMax, boardYMax);
 		this.stats = createStat();
+		this.zobristKey = 0;
 	}
 	
 	protected SimpleArrayBackedBoard(int[] state, PieceLookup<T> pieceLookup, int boardXMax, int boardYMax){
@@ -39,6 +42,7 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 		this.extremity = new Position(boardXMax, boardYMax);
 		this.pieceLookup = pieceLookup;
 		this.stats = generateStats();
+		this.zobristKey = generateZobristKey();
 	}
 	
 	private S generateStats() {
@@ -47,15 +51,50 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 		
 		for(int i = 0; i < state.length; i++){
 			if (state[i] != NO_PIECE_ID){
-				addPieceStat(stats, pieceLookup.getPiece(state[i]));
+				addPieceStat(stats, pieceLookup.getPiece(state[i]), i);
 			}
 		}
 		return stats;
 	}
 	
+	private long generateZobristKey() {
+		long key = 0;
+		
+		for(int i = 0; i < state.length; i++){
+			if (state[i] != NO_PIECE_ID){
+				key ^= ZobristKeys.getPieceKey(i, getZobristPieceKind(pieceLookup.getPiece(state[i])));
+			}
+		}
+		return key;
+	}
+	
+	/**
+	 * Replaces the contents of this board with a copy of the supplied board. This allows a board to be reused
+	 * rather then allocating a new one.
+	 * @param board
+	 */
+	protected void copyFrom(SimpleArrayBackedBoard<T, S> board){
+		System.arraycopy(board.state, 0, this.state, 0, board.state.length);
+		this.stats = copyStat(board.stats, this.stats);
+		this.zobristKey = board.zobristKey;
+		this.newMove = board.newMove;
+	}
+	
 	protected abstract S createStat();
 	
 	protected abstract S createStat(S stat);
+	
+	/**
+	 * Returns a copy of the supplied stats for a board being reused by {@link #copyFrom(SimpleArrayBackedBoard)}.
+	 * Boards whose stats can be overwritten should copy them in to the existing stats and return them so that
+	 * nothing is allocated. By default a new copy is created.
+	 * @param stat The stats to copy
+	 * @param existingStat The stats of this board, which are no longer needed
+	 * @return
+	 */
+	protected S copyStat(S stat, S existingStat){
+		return createStat(stat);
+	}
 
 	protected void addPieceStat(S stat, T pieceType){
 		stat.addPiece(pieceType);
@@ -64,6 +103,29 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 	protected void removePieceStat(S stats, T stat){
 		stats.removePiece(stat);
 	}
+	
+	/**
+	 * Adds the piece placed at the supplied index of the state array to the stats. This is called whenever a piece is
+	 * placed so that stats that depend on where pieces are can be kept up to date as the board changes rather then
+	 * being recalculated. By default the index is ignored.
+	 * @param stats
+	 * @param piece
+	 * @param idx
+	 */
+	protected void addPieceStat(S stats, T piece, int idx){
+		addPieceStat(stats, piece);
+	}
+	
+	/**
+	 * Removes the piece taken from the supplied index of the state array from the stats. See
+	 * {@link #addPieceStat(com.ahaines.boardgame.model.Board.MutableStats, PieceDescription, int)}
+	 * @param stats
+	 * @param piece
+	 * @param idx
+	 */
+	protected void removePieceStat(S stats, T piece, int idx){
+		removePieceStat(stats, piece);
+	}
 
 	private Position getPositionFromIndex(int i) {
 		int x = (int)Math.floor(i / extremity.getYCoord());
@@ -105,7 +167,16 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 	}
 	
 	public boolean holdsPieceAtPoint(Player<T> player, Position pos){
-		int idx = getIdxFromPosition(pos);
+		return holdsPieceAtIndex(player, getIdxFromPosition(pos));
+	}
+	
+	/**
+	 * Returns true if the player holds the piece at the supplied index of the state array
+	 * @param player
+	 * @param idx
+	 * @return
+	 */
+	public boolean holdsPieceAtIndex(Player<T> player, int idx){
 		if (state[idx] == NO_PIECE_ID){
 			return false;
 		} else{
@@ -153,8 +224,12 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 
 	public void removePiece(Piece<T> piece) {
 		int idx = getIdxFromPosition(piece.getPlacement());
+		if (state[idx] == NO_PIECE_ID || state[idx] != getIdFromPiece(piece.getPiece())){ // the key and stats must be changed by the same piece
+			throw new IllegalStateException("State does not contain piece at this position: "+piece);
+		}
+		zobristKey ^= ZobristKeys.getPieceKey(idx, getZobristPieceKind(piece.getPiece()));
 		state[idx] = NO_PIECE_ID;
-		removePieceStat(stats, piece.getPiece());
+		removePieceStat(stats, piece.getPiece(), idx);
 	}
 
 	public void addPiece(Piece<T> piece) {
@@ -167,13 +242,62 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 		}
 		T pieceDescription = piece.getPiece();
 		state[idx] = getIdFromPiece(pieceDescription);
+		zobristKey ^= ZobristKeys.getPieceKey(idx, getZobristPieceKind(pieceDescription));
 		newMove = piece.getPlacement();
-		addPieceStat(stats, pieceDescription);
+		addPieceStat(stats, pieceDescription, idx);
+	}
+	
+	/**
+	 * Places the piece with the supplied id at the index of the state array without creating any {@link Piece}s.
+	 * Unlike {@link #addPiece(Piece)}, the last move made on the board is not changed.
+	 * @param idx
+	 * @param pieceId
+	 */
+	protected void placePiece(int idx, int pieceId){
+		T pieceDescription = pieceLookup.getPiece(pieceId);
+		state[idx] = pieceId;
+		zobristKey ^= ZobristKeys.getPieceKey(idx, getZobristPieceKind(pieceDescription));
+		addPieceStat(stats, pieceDescription, idx);
+	}
+	
+	/**
+	 * Removes any piece at the index of the state array without creating any {@link Piece}s.
+	 * @param idx
+	 */
+	protected void clearPiece(int idx){
+		if (state[idx] != NO_PIECE_ID){
+			T pieceDescription = pieceLookup.getPiece(state[idx]);
+			zobristKey ^= ZobristKeys.getPieceKey(idx, getZobristPieceKind(pieceDescription));
+			removePieceStat(stats, pieceDescription, idx);
+			state[idx] = NO_PIECE_ID;
+		}
+	}
+	
+	protected void setNewMove(int idx){
+		this.newMove = getPositionFromIndex(idx);
 	}
 	
 	protected int getIdFromPiece(T piece){
 		return piece.getPlayer().getPlayerId().getId();
 	}
+	
+	/**
+	 * Returns the kind of the supplied piece for the purposes of the Zobrist key. Pieces of the same kind are
+	 * interchangeable so positions that only differ by swapping them share a key. By default the id of the
+	 * piece is used as its kind.
+	 * @param piece
+	 * @return
+	 */
+	protected int getZobristPieceKind(T piece){
+		return getIdFromPiece(piece);
+	}
+	
+	/**
+	 * Returns the Zobrist key of the pieces on this board. This is maintained as pieces are added and removed.
+	 */
+	public long getZobristKey(){
+		return zobristKey;
+	}
 
 	public Position getNewMove() {
 		return newMove;
@@ -185,7 +309,7 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 	
 	@Override
 	public int hashCode(){
-		return state.hashCode();
+		return (int)(zobristKey ^ (zobristKey >>> 32));
 	}
 	
 	@Override
@@ -193,7 +317,7 @@ public abstract class SimpleArrayBackedBoard<T extends PieceDescription<T>, S ex
 		if (obj instanceof SimpleArrayBackedBoard){
 			@SuppressWarnings("unchecked")
 			SimpleArrayBackedBoard<T, S> other = (SimpleArrayBackedBoard<T, S>)obj;
-			return Arrays.equals(this.state, other.state);
+			return zobristKey == other.zobristKey && Arrays.equals(this.state, other.state); // different keys can never be equal boards
 		}
 		
 		return false;
@@ -0,0 +1,17 @@
+package com.ahaines.boardgame.model;
+
+/**
+ * Implemented by states that maintain a 64 bit Zobrist key of their contents. The key is the XOR of a
+ * pseudo random value for each (square, piece) pairing on the board, plus any other state that identifies
+ * a position (such as the side to move). As XOR is its own inverse, the key can be updated in constant time
+ * as each piece is added or removed rather then being recalculated from the whole board.
+ * 
+ * Equal positions always have equal keys. The converse does not hold but the chance of two different
+ * positions sharing a key is small enough for the key to be used in place of the position in caches.
+ * @author andrewhaines
+ *
+ */
+public interface ZobristHashable {
+
+	long getZobristKey();
+}
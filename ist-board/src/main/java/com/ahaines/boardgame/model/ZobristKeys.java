@@ -0,0 +1,43 @@
+package com.ahaines.boardgame.model;
+
+/**
+ * Generates the pseudo random values that make up a Zobrist key (see {@link ZobristHashable}). Rather then
+ * holding tables of random numbers, each value is derived by mixing its inputs through the finalizer of the
+ * SplitMix64 generator. This means keys do not depend on the board size or number of pieces and are the same
+ * across runs, so they can be persisted.
+ * @author andrewhaines
+ *
+ */
+public final class ZobristKeys {
+
+	private static final long PIECE_SEED = 0x5DEECE66DL;
+	private static final long TURN_SEED = 0x2545F4914F6CDD1DL;
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+	
+	private ZobristKeys(){}
+	
+	/**
+	 * Returns the value for a piece of the supplied kind occupying the supplied square
+	 * @param square
+	 * @param pieceKind
+	 * @return
+	 */
+	public static long getPieceKey(int square, int pieceKind){
+		return mix(PIECE_SEED + (((long)pieceKind << 32) | (square & 0xFFFFFFFFL)) * GOLDEN_RATIO);
+	}
+	
+	/**
+	 * Returns the value mixed in when the supplied player has the move
+	 * @param turnId
+	 * @return
+	 */
+	public static long getTurnKey(int turnId){
+		return mix(TURN_SEED + turnId * GOLDEN_RATIO);
+	}
+	
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
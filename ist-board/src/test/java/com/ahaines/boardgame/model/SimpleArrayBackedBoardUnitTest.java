@@ -8,7 +8,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import com.ahaines.boardgame.model.Board.Stats;
+import com.ahaines.boardgame.model.Board.MutableStats;
 import com.ahaines.boardgame.model.Player.PlayerType;
 
 import static org.mockito.Mockito.when;
@@ -129,7 +129,7 @@ public class SimpleArrayBackedBoardUnitTest {
 		
 	}
 	
-	private static class TestStats implements Stats<TestPieceDescription>{
+	private static class TestStats implements MutableStats<TestPieceDescription>{
 
 		public void removePiece(TestPieceDescription piece) {
 			// TODO Auto-generated method stub
@@ -0,0 +1,154 @@
+package com.ahaines.ai.search.game;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.minmax.service.IterativeDeepeningSuccessorService;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.DaemonThreadFactory;
+import com.ahaines.ai.search.service.SearchService;
+import com.google.common.collect.Lists;
+
+/**
+ * Searches the current state on a number of helper threads while {@link TurnDrivenGameService} searches it within
+ * its move time budget (Lazy SMP). The helpers share nothing with the main search other then a
+ * {@link com.ahaines.ai.search.minmax.model.TranspositionTable} which their search services must record to. The
+ * results the helpers record there let the main search resolve states it would otherwise search itself.
+ *
+ * So that the helpers do not all search the same states at the same time, every other helper searches one ply
+ * deeper then the main search and each should rotate the successors it searches by a different amount (see
+ * {@link IterativeDeepeningSuccessorService#IterativeDeepeningSuccessorService(com.ahaines.ai.search.service.SuccessorNodeService, int)}).
+ * The trees the helpers search are discarded; only the move found by the main search is played.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class LazySmpSearchService<T extends TurnDrivenState> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LazySmpSearchService.class);
+	private final List<Helper<T>> helpers;
+	private final ExecutorService executorService;
+	private final List<Future<?>> runningHelpers;
+
+	public LazySmpSearchService(){
+		this.helpers = Lists.newArrayList();
+		this.runningHelpers = Lists.newArrayList();
+		this.executorService = Executors.newCachedThreadPool(new DaemonThreadFactory("lazy-smp-helper"));
+	}
+
+	/**
+	 * Adds a helper that searches with the supplied search service. The iterative deepening service must be part of
+	 * the successor services of the search service and neither may be used by another search.
+	 * @param searchService
+	 * @param iterativeDeepeningService
+	 */
+	public void addHelper(SearchService<MinMaxState<T>> searchService, IterativeDeepeningSuccessorService<T> iterativeDeepeningService){
+		helpers.add(new Helper<T>(searchService, iterativeDeepeningService, helpers.size() % 2 == 0?1:0));
+	}
+
+	public int getHelperCount(){
+		return helpers.size();
+	}
+
+	/**
+	 * Starts each helper searching the state by iterative deepening until the deadline passes, the depth limit is
+	 * reached or {@link #stopHelpers()} is called.
+	 * @param state
+	 * @param depthLimit
+	 * @param deadline The time in millis since the epoch after which the helpers stop
+	 */
+	public void startHelpers(T state, int depthLimit, long deadline){
+		stopHelpers();
+		for (Helper<T> helper: helpers){
+			helper.reset(state, depthLimit, deadline);
+			runningHelpers.add(executorService.submit(helper));
+		}
+	}
+
+	/**
+	 * Stops the helpers, waiting until each has finished with its search service.
+	 */
+	public void stopHelpers(){
+		for (Helper<T> helper: helpers){
+			helper.stop();
+		}
+		for (Future<?> runningHelper: runningHelpers){
+			try{
+				runningHelper.get();
+			} catch (ExecutionException e){
+				LOG.error("helper search failed", e.getCause());
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		runningHelpers.clear();
+	}
+
+	/**
+	 * Stops the helpers and releases their threads. No further searches can be started.
+	 */
+	public void shutdown(){
+		stopHelpers();
+		executorService.shutdown();
+	}
+
+	private static class Helper<T extends TurnDrivenState> implements Runnable{
+
+		private final SearchService<MinMaxState<T>> searchService;
+		private final IterativeDeepeningSuccessorService<T> iterativeDeepeningService;
+		private final int depthOffset;
+		private T state;
+		private int depthLimit;
+		private long deadline;
+		private volatile boolean stopped;
+
+		private Helper(SearchService<MinMaxState<T>> searchService, IterativeDeepeningSuccessorService<T> iterativeDeepeningService, int depthOffset){
+			this.searchService = searchService;
+			this.iterativeDeepeningService = iterativeDeepeningService;
+			this.depthOffset = depthOffset;
+		}
+
+		private void reset(T state, int depthLimit, long deadline){
+			this.state = state;
+			this.depthLimit = depthLimit;
+			this.deadline = deadline;
+			this.stopped = false;
+		}
+
+		private void stop(){
+			stopped = true;
+			iterativeDeepeningService.abortIteration();
+		}
+
+		public void run() {
+			List<T> principalVariation = Collections.emptyList();
+			try{
+				for (int depth = 1 + depthOffset; depth <= depthLimit; depth++){
+					iterativeDeepeningService.startIteration(principalVariation, deadline);
+					if (stopped){ // checked after starting the iteration so that a stop is never overwritten by the new deadline
+						break;
+					}
+					Node<MinMaxState<T>> startNode = new Node<MinMaxState<T>>(null, new MinMaxState<T>(state));
+					searchService.depthFirstSearch(startNode, depth);
+
+					if (iterativeDeepeningService.isTimedOut() || !iterativeDeepeningService.isDepthLimited()){
+						break;
+					}
+					principalVariation = IterativeDeepeningSuccessorService.getPrincipalVariation(startNode);
+				}
+			} finally{
+				iterativeDeepeningService.finishIterations();
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.ahaines.ai.search.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * The moves to play from the opening positions of a game, read from a file written by {@link OpeningBookBuilder}.
+ * Each entry of the file is the key of a position (see {@link com.ahaines.ai.search.service.StateKeyService})
+ * followed by the key of the position the move leads to. Entries are sorted by the key of their position so that a
+ * position is found by a binary search of the file, which is memory mapped so that the book is not held on the
+ * heap and a look up creates no objects.
+ * @author andrewhaines
+ *
+ */
+public class OpeningBook {
+
+	/**
+	 * Returned when the position is not in the book
+	 */
+	public static final long NO_MOVE = 0;
+
+	static final int MAGIC = 0x434F4231;
+	static final int HEADER_SIZE = 8;
+	static final int ENTRY_SIZE = 16;
+
+	private final MappedByteBuffer entries;
+	private final int size;
+
+	private OpeningBook(MappedByteBuffer entries, int size){
+		this.entries = entries;
+		this.size = size;
+	}
+
+	/**
+	 * Maps the supplied book file
+	 * @param file
+	 * @return
+	 * @throws IOException if the file can not be mapped or was not written by {@link OpeningBookBuilder}
+	 */
+	public static OpeningBook open(File file) throws IOException{
+		RandomAccessFile bookFile = new RandomAccessFile(file, "r");
+		try{
+			MappedByteBuffer entries = bookFile.getChannel().map(MapMode.READ_ONLY, 0, bookFile.length()); // the mapping remains valid once the file is closed
+			if (entries.capacity() < HEADER_SIZE || entries.getInt(0) != MAGIC){
+				throw new IOException("not an opening book file: "+file);
+			}
+			int size = entries.getInt(4);
+			if (entries.capacity() != HEADER_SIZE + (long)size * ENTRY_SIZE){
+				throw new IOException("opening book file is truncated: "+file);
+			}
+			return new OpeningBook(entries, size);
+		} finally{
+			bookFile.close();
+		}
+	}
+
+	/**
+	 * Returns the number of positions in the book
+	 * @return
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns the key of the position to move to from the position with the supplied key or {@link #NO_MOVE}
+	 * @param positionKey
+	 * @return
+	 */
+	public long getMove(long positionKey){
+		int low = 0;
+		int high = size - 1;
+		while (low <= high){
+			int mid = (low + high) >>> 1;
+			long midKey = entries.getLong(HEADER_SIZE + mid * ENTRY_SIZE);
+			if (midKey < positionKey){
+				low = mid + 1;
+			} else if (midKey > positionKey){
+				high = mid - 1;
+			} else{
+				return entries.getLong(HEADER_SIZE + mid * ENTRY_SIZE + 8);
+			}
+		}
+		return NO_MOVE;
+	}
+
+	static void write(SortedMap<Long, Long> moves, File file) throws IOException{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(moves.size());
+			for (Map.Entry<Long, Long> move: moves.entrySet()){
+				out.writeLong(move.getKey());
+				out.writeLong(move.getValue());
+			}
+		} finally{
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.ahaines.ai.search.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.SearchService;
+import com.ahaines.ai.search.service.StateKeyService;
+import com.ahaines.ai.search.service.heurstic.service.CostStateComparator;
+import com.google.common.collect.Lists;
+
+/**
+ * Builds an {@link OpeningBook} offline by searching every position reachable within a number of plies of a
+ * starting state, typically to a greater depth then can be afforded during a game. The best move found for each
+ * position is recorded. As every move is followed from each position, the book covers the moves of either side
+ * whatever the opponent replies.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class OpeningBookBuilder<T extends TurnDrivenState> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OpeningBookBuilder.class);
+	private final SearchService<MinMaxState<T>> searchService;
+	private final TurnDrivenGoalService<T> goalService;
+	private final StateKeyService<T> keyService;
+	private final int searchDepthLimit;
+	private final Comparator<Node<MinMaxState<T>>> comparator;
+	private final SortedMap<Long, Long> moves;
+	private TranspositionTable transpositionTable;
+
+	public OpeningBookBuilder(SearchService<MinMaxState<T>> searchService, TurnDrivenGoalService<T> goalService, StateKeyService<T> keyService, int searchDepthLimit){
+		this.searchService = searchService;
+		this.goalService = goalService;
+		this.keyService = keyService;
+		this.searchDepthLimit = searchDepthLimit;
+		this.comparator = new CostStateComparator<MinMaxState<T>>();
+		this.moves = new TreeMap<Long, Long>();
+	}
+
+	/**
+	 * Sets the transposition table recorded to by the search service, whose entries are then aged once for each
+	 * position searched (see {@link TurnDrivenGameService#setTranspositionTable(TranspositionTable)})
+	 * @param transpositionTable
+	 * @return
+	 */
+	public OpeningBookBuilder<T> setTranspositionTable(TranspositionTable transpositionTable){
+		this.transpositionTable = transpositionTable;
+
+		return this;
+	}
+
+	/**
+	 * Adds the best move of every position within the supplied number of plies of the starting state that is not
+	 * already in the book
+	 * @param startingState
+	 * @param plies
+	 * @return
+	 */
+	public OpeningBookBuilder<T> addOpenings(T startingState, int plies){
+		addPosition(startingState, plies);
+		LOG.info("opening book holds {} positions", moves.size());
+
+		return this;
+	}
+
+	private void addPosition(T state, int plies){
+		long key = keyService.getKey(state);
+		if (plies == 0 || moves.containsKey(key) || isStateWon(state)){
+			return;
+		}
+		if (transpositionTable != null){
+			transpositionTable.newSearch();
+		}
+		Node<MinMaxState<T>> startNode = new Node<MinMaxState<T>>(null, new MinMaxState<T>(state));
+		searchService.depthFirstSearch(startNode, searchDepthLimit);
+
+		List<Node<MinMaxState<T>>> children = Lists.newArrayList(startNode.getChildren());
+		if (children.isEmpty()){
+			return;
+		}
+		Collections.sort(children, comparator);
+		long moveKey = keyService.getKey(children.get(0).getState().getActualState());
+		if (moveKey == OpeningBook.NO_MOVE){ // can not be told apart from a position that is not in the book
+			return;
+		}
+		moves.put(key, moveKey);
+
+		for (Node<MinMaxState<T>> child: children){
+			addPosition(child.getState().getActualState(), plies - 1);
+		}
+	}
+
+	private boolean isStateWon(T state){
+		return goalService.isStateWon(state, state.getTurn().getId()) || goalService.isStateWon(state, state.getTurn().nextTurn().getId());
+	}
+
+	/**
+	 * Returns the number of positions added to the book
+	 * @return
+	 */
+	public int size(){
+		return moves.size();
+	}
+
+	/**
+	 * Writes the book to the supplied file, which can then be read with {@link OpeningBook#open(File)}
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException{
+		OpeningBook.write(moves, file);
+	}
+}
@@ -3,65 +3,350 @@ package com.ahaines.ai.search.game;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ahaines.ai.search.mcts.service.MonteCarloTreeSearchService;
 import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.minmax.service.IterativeDeepeningSuccessorService;
 import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
 import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.CancellationToken;
+import com.ahaines.ai.search.service.DaemonThreadFactory;
+import com.ahaines.ai.search.service.SearchService;
+import com.ahaines.ai.search.service.StateKeyService;
+import com.ahaines.ai.search.service.SuccessorService;
+import com.ahaines.ai.search.service.WorkerFutures;
 import com.ahaines.ai.search.service.heurstic.service.CostStateComparator;
-import com.ahaines.ai.search.service.heurstic.service.HeuristicSearchService;
 import com.google.common.collect.Lists;
 
 public class TurnDrivenGameService<T extends TurnDrivenState> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(TurnDrivenGameService.class);
+	public static final long NO_TIME_BUDGET = 0;
 	private final Comparator<Node<MinMaxState<T>>> comparator;
-	private final HeuristicSearchService<MinMaxState<T>> searchService;
+	private final SearchService<MinMaxState<T>> searchService;
 	private final TurnDrivenGoalService<T> goalService;
+	private final IterativeDeepeningSuccessorService<T> iterativeDeepeningService;
+	private LazySmpSearchService<T> lazySmpSearchService;
+	private TranspositionTable transpositionTable;
+	private MonteCarloTreeSearchService<T> monteCarloTreeSearchService;
+	private volatile CancellationToken cancellationToken;
+	private ExecutorService ponderExecutor;
+	private Ponder ponder;
+	private int ponderHits;
+	private OpeningBook openingBook;
+	private StateKeyService<T> openingBookKeyService;
+	private SuccessorService<T> openingBookSuccessorService;
+	private int bookMoves;
 	private T currentState;
 	private int searchDepthLimit;
+	private long moveTimeBudget;
 	
-	public TurnDrivenGameService(HeuristicSearchService<MinMaxState<T>> searchService, T startingState, TurnDrivenGoalService<T> goalService, int searchDepthLimit){
+	public TurnDrivenGameService(SearchService<MinMaxState<T>> searchService, T startingState, TurnDrivenGoalService<T> goalService, int searchDepthLimit){
+		this(searchService, startingState, goalService, searchDepthLimit, null);
+	}
+	
+	/**
+	 * Creates a game service that can search iteratively within a time budget. The supplied iterative deepening service
+	 * must be part of the successor services of the search service.
+	 * @param searchService
+	 * @param startingState
+	 * @param goalService
+	 * @param searchDepthLimit
+	 * @param iterativeDeepeningService
+	 */
+	public TurnDrivenGameService(SearchService<MinMaxState<T>> searchService, T startingState, TurnDrivenGoalService<T> goalService, int searchDepthLimit, IterativeDeepeningSuccessorService<T> iterativeDeepeningService){
 		this.searchService = searchService;
 		this.currentState = startingState;
 		this.goalService = goalService;
 		this.comparator = new CostStateComparator<MinMaxState<T>>();
 		this.searchDepthLimit = searchDepthLimit;
+		this.iterativeDeepeningService = iterativeDeepeningService;
+		this.moveTimeBudget = NO_TIME_BUDGET;
+		this.cancellationToken = new CancellationToken();
 	}
 	
 	public boolean playNextMove() throws GameFinishedException{
-		Node<MinMaxState<T>> startNode = getNodeForState(currentState, searchDepthLimit);
+		try{
+			return makeNextMove();
+		} finally{
+			this.cancellationToken = new CancellationToken(); // armed before the next move starts so that it can be cancelled before its search does
+		}
+	}
+	
+	private boolean makeNextMove() throws GameFinishedException{
+		Ponder ponder = this.ponder;
+		this.ponder = null;
+		if (ponder != null && !ponder.isHit()){ // the opponent has not moved so the state pondered is of no use
+			ponder.stop();
+			ponder = null;
+		}
+		long bookMoveKey = getBookMoveKey(currentState);
+		if (bookMoveKey != OpeningBook.NO_MOVE && ponder != null){ // the move is known so the search pondered is not needed
+			ponder.stop();
+			ponder = null;
+		}
+		T bookState = getBookState(currentState, bookMoveKey);
+		if (bookState != null){
+			LOG.debug("playing book move to state: {}", bookState);
+			bookMoves++;
+			this.currentState = bookState;
+			
+			return isStateWon();
+		}
+		CancellationToken cancellationToken = this.cancellationToken;
+		if (ponder != null){ // a pondered search started its own search and token
+			this.cancellationToken = ponder.cancellationToken;
+			if (cancellationToken.isCancelled()){ // the move was cancelled before it started
+				ponder.cancellationToken.cancel();
+			}
+			cancellationToken = ponder.cancellationToken;
+		} else{
+			newSearch();
+		}
+		
+		if (monteCarloTreeSearchService != null){
+			checkForGameOver(getNodeForState(currentState, 1));
+			
+			this.currentState = monteCarloTreeSearchService.search(currentState, moveTimeBudget, cancellationToken);
+			
+			return isStateWon();
+		}
+		Node<MinMaxState<T>> startNode;
+		if (ponder != null){
+			startNode = ponder.getStartNode();
+		} else if (moveTimeBudget == NO_TIME_BUDGET){
+			startNode = getNodeForState(currentState, searchDepthLimit, cancellationToken);
+		} else{
+			startNode = getNodeForStateWithinTimeBudget(currentState, System.currentTimeMillis() + moveTimeBudget, cancellationToken);
+		}
 		
 		checkForGameOver(startNode);
 		
-		List<Node<MinMaxState<T>>> children = Lists.newArrayList(startNode.getChildren());
+		List<Node<MinMaxState<T>>> children = getSearchedChildren(startNode);
 		
 		if (!children.isEmpty()){
 			Collections.sort(children, comparator);
 			this.currentState = children.get(0).getState().getActualState();
 		}
 		
-		return isStateWon();
+		boolean isWon = isStateWon();
+		if (!isWon && ponderExecutor != null && !children.isEmpty()){
+			startPondering(children.get(0));
+		}
+		return isWon;
+	}
+	
+	/**
+	 * Returns the children of the start node whose search was not abandoned, as the costs of those that were only come
+	 * from a shallow evaluation and can not be compared with the rest. If the search of every child was abandoned they
+	 * are all returned so that there is still a move to play.
+	 * @param startNode
+	 * @return
+	 */
+	private List<Node<MinMaxState<T>>> getSearchedChildren(Node<MinMaxState<T>> startNode){
+		List<Node<MinMaxState<T>>> children = Lists.newArrayList(startNode.getChildren());
+		List<Node<MinMaxState<T>>> searchedChildren = Lists.newArrayListWithCapacity(children.size());
+		
+		for (Node<MinMaxState<T>> child: children){
+			if (!child.isSearchAbandoned()){
+				searchedChildren.add(child);
+			}
+		}
+		return searchedChildren.isEmpty()?children:searchedChildren;
 	}
 	
 	public T getCurrentState(){
 		return currentState;
 	}
 	
+	/**
+	 * Cancels the search of the move currently being made by {@link #playNextMove()}, which then plays the best move
+	 * found so far among the moves whose search was completed. This can be called from a thread other then the one searching. If no move is being made the next
+	 * one is cancelled, so a move can be cancelled as soon as it has been asked for even if its search has not yet
+	 * started.
+	 */
+	public void cancelSearch(){
+		CancellationToken cancellationToken = this.cancellationToken;
+		if (cancellationToken != null){
+			cancellationToken.cancel();
+		}
+	}
+	
+	/**
+	 * Returns the number of times the opponent has played the move that was predicted and pondered on. See
+	 * {@link #setPondering(boolean)}
+	 * @return
+	 */
+	public int getPonderHits(){
+		return ponderHits;
+	}
+	
+	/**
+	 * Returns the number of moves that have been played from the opening book. See
+	 * {@link #setOpeningBook(OpeningBook, StateKeyService, SuccessorService)}
+	 * @return
+	 */
+	public int getBookMoves(){
+		return bookMoves;
+	}
+	
+	/**
+	 * Returns the key of the state the opening book moves to from the supplied state, or {@link OpeningBook#NO_MOVE}
+	 * if the state is not in the book
+	 */
+	private long getBookMoveKey(T state){
+		if (openingBook == null){
+			return OpeningBook.NO_MOVE;
+		}
+		return openingBook.getMove(openingBookKeyService.getKey(state));
+	}
+	
+	/**
+	 * Returns the successor of the supplied state with the key of the book move, or null if there is no book move or
+	 * it is not one of its successors (as can happen if two states share a key). Successors are generated by the
+	 * successor service of the book rather then the search service, which may still be in use by a search pondered on.
+	 */
+	private T getBookState(T state, long moveKey){
+		if (moveKey == OpeningBook.NO_MOVE){
+			return null;
+		}
+		for (T successorState: openingBookSuccessorService.getSuccessors(state)){
+			if (openingBookKeyService.getKey(successorState) == moveKey){
+				return successorState;
+			}
+		}
+		LOG.warn("book move from state {} is not permitted", state);
+		return null;
+	}
+	
+	/**
+	 * Searches the state the opponent is predicted to move to from the principal variation of the move just played, so
+	 * that the search is underway before they have moved. The state is not pondered when nothing is known about the
+	 * replies to the move or the game would be over.
+	 * @param moveNode
+	 */
+	private void startPondering(Node<MinMaxState<T>> moveNode){
+		List<T> principalVariation = IterativeDeepeningSuccessorService.getPrincipalVariation(moveNode);
+		if (principalVariation.size() < 2){
+			return;
+		}
+		T predictedState = principalVariation.get(1);
+		if (isStateWon(predictedState)){
+			return;
+		}
+		LOG.debug("pondering on predicted state: {}", predictedState);
+		newSearch(); // the search pondered is the search of the next move
+		Ponder ponder = new Ponder(predictedState);
+		ponder.start();
+		this.ponder = ponder;
+	}
+	
+	/**
+	 * Ages the entries of the transposition table, if there is one, so that those of earlier moves can be replaced
+	 */
+	private void newSearch(){
+		if (transpositionTable != null){
+			transpositionTable.newSearch();
+		}
+	}
+	
+	/**
+	 * Stops any search of the predicted move of the opponent, waiting for it to finish
+	 */
+	private void stopPondering(){
+		Ponder ponder = this.ponder;
+		this.ponder = null;
+		if (ponder != null){
+			ponder.stop();
+		}
+	}
+	
 	private Node<MinMaxState<T>> getNodeForState(T state, int depth){
+		return getNodeForState(state, depth, null);
+	}
+	
+	private Node<MinMaxState<T>> getNodeForState(T state, int depth, CancellationToken cancellationToken){
 		Node<MinMaxState<T>> startNode = new Node<MinMaxState<T>>(null, new MinMaxState<T>(state));
-		searchService.depthFirstSearch(startNode, depth);
+		searchService.depthFirstSearch(startNode, depth, cancellationToken);
 		
 		return startNode;
 	}
 	
+	/**
+	 * Searches the state with depth limits of 1, 2, 3... up to the search depth limit until the move time budget runs
+	 * out. The tree of the last iteration to complete is returned. The first iteration is always completed so that
+	 * there is a move to play, unless the search is cancelled in which case as much of it as was searched is returned.
+	 * Iterations started after the deadline of the cancellation token has been moved forward also keep to it.
+	 * @param state
+	 * @param deadline
+	 * @param cancellationToken
+	 * @return
+	 */
+	private Node<MinMaxState<T>> getNodeForStateWithinTimeBudget(T state, long deadline, CancellationToken cancellationToken){
+		Node<MinMaxState<T>> completedStartNode = null;
+		List<T> principalVariation = Collections.emptyList();
+		
+		if (lazySmpSearchService != null){
+			lazySmpSearchService.startHelpers(state, searchDepthLimit, deadline);
+		}
+		try{
+			for (int depth = 1; depth <= searchDepthLimit; depth++){
+				iterativeDeepeningService.startIteration(principalVariation, (depth == 1)?IterativeDeepeningSuccessorService.NO_DEADLINE:Math.min(deadline, cancellationToken.getDeadline()));
+				Node<MinMaxState<T>> startNode = getNodeForState(state, depth, cancellationToken);
+				
+				if (iterativeDeepeningService.isTimedOut()){
+					LOG.debug("search to depth {} ran out of time", depth);
+					break;
+				}
+				if (cancellationToken.isCancelled()){
+					LOG.debug("search to depth {} was cancelled", depth);
+					if (completedStartNode == null){
+						completedStartNode = startNode;
+					}
+					break;
+				}
+				completedStartNode = startNode;
+				principalVariation = IterativeDeepeningSuccessorService.getPrincipalVariation(startNode);
+				LOG.debug("completed search to depth {}", depth);
+				
+				if (!iterativeDeepeningService.isDepthLimited()){ // the whole tree has been searched
+					break;
+				}
+			}
+		} finally{
+			if (lazySmpSearchService != null){
+				lazySmpSearchService.stopHelpers();
+			}
+			iterativeDeepeningService.finishIterations();
+		}
+		return completedStartNode;
+	}
+	
 	public boolean playNextMove(T proposedState) throws GameFinishedException{
 		if (proposedState.getTurn() != currentState.getTurn().nextTurn()){
 			throw new IllegalArgumentException("it is not your turn to make a move");
 		}
+		Ponder ponder = this.ponder;
+		if (ponder != null){
+			if (ponder.predictedState.equals(proposedState)){ // ponder hit so the search of the reply carries on
+				LOG.debug("ponder hit on state: {}", proposedState);
+				ponder.hit();
+				ponderHits++;
+				currentState = ponder.predictedState;
+				
+				return false; // only states that are not won are pondered
+			}
+			stopPondering();
+		}
 		
 		Node<MinMaxState<T>> startNode = getNodeForState(currentState, 1); // depth of 1 to work out if this is a valid move
 		checkForGameOver(startNode);
@@ -90,15 +375,23 @@ public class TurnDrivenGameService<T extends TurnDrivenState> {
 	}
 	
 	public boolean isGameOver(Node<MinMaxState<T>> startNode){
-		return isStateWon() || !startNode.getChildren().iterator().hasNext();
+		// the successors of the start node are already known so the state is not searched again, as that would evaluate the successors cached from the search of the start node
+		return goalService.isStateWon(currentState, currentState.getTurn().getId()) || !startNode.getChildren().iterator().hasNext();
 	}
 	
 	public boolean isStateWon(){
-		if (goalService.isStateWon(currentState, currentState.getTurn().getId())){
+		if (ponder != null){ // only states that are not won are pondered on and the search service is in use
+			return false;
+		}
+		return isStateWon(currentState);
+	}
+	
+	private boolean isStateWon(T state){
+		if (goalService.isStateWon(state, state.getTurn().getId())){
 			return true;
 		} else{ // check to see if there is actually a move the current player can make
 			
-			Node<MinMaxState<T>> startNode = getNodeForState(currentState, 1); // depth of 1 to work out if this is a valid move
+			Node<MinMaxState<T>> startNode = getNodeForState(state, 1); // depth of 1 to work out if this is a valid move
 			return !startNode.getChildren().iterator().hasNext();
 		}
 	}
@@ -108,4 +401,161 @@ public class TurnDrivenGameService<T extends TurnDrivenState> {
 		this.searchDepthLimit = newDepthLimit;
 	}
 	
+	/**
+	 * Sets the time in milliseconds that each move is searched for. Moves are then searched by iterative deepening up to
+	 * the depth limit, playing the best move of the deepest search that completes within the budget, or by Monte Carlo
+	 * tree search for the whole budget when a {@link MonteCarloTreeSearchService} has been set. Use
+	 * {@link #NO_TIME_BUDGET} to search to the depth limit regardless of time.
+	 * @param moveTimeBudget
+	 */
+	public void setMoveTimeBudget(long moveTimeBudget) {
+		if (moveTimeBudget < 0){
+			throw new IllegalArgumentException("move time budget can not be negative: "+moveTimeBudget);
+		}
+		if (moveTimeBudget != NO_TIME_BUDGET && iterativeDeepeningService == null && monteCarloTreeSearchService == null){
+			throw new IllegalStateException("an iterative deepening service is required to search within a time budget");
+		}
+		LOG.info("changing move time budget to: "+moveTimeBudget+"ms");
+		this.moveTimeBudget = moveTimeBudget;
+	}
+	
+	/**
+	 * Sets the helpers that search alongside each move searched within the move time budget. See
+	 * {@link LazySmpSearchService}. Helpers are only used when there is a move time budget.
+	 * @param lazySmpSearchService the helpers or null to search on a single thread
+	 */
+	public void setLazySmpSearchService(LazySmpSearchService<T> lazySmpSearchService) {
+		if (lazySmpSearchService != null && iterativeDeepeningService == null){
+			throw new IllegalStateException("an iterative deepening service is required to search with helpers");
+		}
+		this.lazySmpSearchService = lazySmpSearchService;
+	}
+	
+	/**
+	 * Sets the transposition table recorded to by the search service and any helpers (see
+	 * {@link #setLazySmpSearchService(LazySmpSearchService)}). Its entries are aged once at the start of the search of
+	 * each move, rather then by every search made while choosing it, so that the entries recorded by every iteration
+	 * and helper of the move are kept in preference to those of earlier moves.
+	 * @param transpositionTable the table or null if the search service does not record to one
+	 */
+	public void setTranspositionTable(TranspositionTable transpositionTable) {
+		this.transpositionTable = transpositionTable;
+	}
+	
+	/**
+	 * Stops any search pondered on and releases the threads of the service and of its helpers and Monte Carlo tree
+	 * search service. No further moves can be searched.
+	 */
+	public void shutdown(){
+		setPondering(false);
+		if (lazySmpSearchService != null){
+			lazySmpSearchService.shutdown();
+		}
+		if (monteCarloTreeSearchService != null){
+			monteCarloTreeSearchService.shutdown();
+		}
+	}
+	
+	/**
+	 * Chooses the moves of the computer by Monte Carlo tree search in place of the search service, which is then only
+	 * used to find the moves that are available. Each move is searched for the move time budget (see
+	 * {@link #setMoveTimeBudget(long)}), or until the playout limit of the service when there is no budget.
+	 * @param monteCarloTreeSearchService the service to search with or null to search with the search service
+	 */
+	public void setMonteCarloTreeSearchService(MonteCarloTreeSearchService<T> monteCarloTreeSearchService) {
+		if (monteCarloTreeSearchService != null && ponderExecutor != null){
+			throw new IllegalStateException("pondering can not be used with Monte Carlo tree search");
+		}
+		this.monteCarloTreeSearchService = monteCarloTreeSearchService;
+	}
+	
+	/**
+	 * Plays the moves of the computer from the supplied opening book, searching only when the current state is not in
+	 * it. States are looked up by the key given by the supplied key service, which must be the one the book was built
+	 * with (see {@link OpeningBookBuilder}). The move of the book is found among the successors given by the supplied
+	 * successor service, so that the search service is not used while a search pondered on is being stopped.
+	 * @param openingBook the book or null to search every move
+	 * @param keyService
+	 * @param successorService generates the successors of a state, such as the successor service the search service
+	 * evaluates
+	 */
+	public void setOpeningBook(OpeningBook openingBook, StateKeyService<T> keyService, SuccessorService<T> successorService) {
+		this.openingBook = openingBook;
+		this.openingBookKeyService = keyService;
+		this.openingBookSuccessorService = successorService;
+	}
+	
+	/**
+	 * Sets whether the computer searches while the opponent is thinking (pondering). After each move of the computer
+	 * the reply the opponent is predicted to make is searched in the background. If the opponent then makes that move
+	 * the search carries on as the search of the next move of the computer, with the move time budget counted from
+	 * when the opponent moved. Otherwise it is stopped, although what it stored in the transposition table or cache
+	 * is still used by the search that follows. While pondering, {@link #isStateWon()} does not search.
+	 * @param pondering
+	 */
+	public void setPondering(boolean pondering) {
+		if (pondering && monteCarloTreeSearchService != null){
+			throw new IllegalStateException("pondering can not be used with Monte Carlo tree search");
+		}
+		stopPondering();
+		if (pondering && ponderExecutor == null){
+			ponderExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("ponderer"));
+		} else if (!pondering && ponderExecutor != null){
+			ponderExecutor.shutdown();
+			ponderExecutor = null;
+		}
+	}
+	
+	/**
+	 * A search, made in the background, of the state the opponent is predicted to move to
+	 * @author andrewhaines
+	 *
+	 */
+	private class Ponder implements Callable<Node<MinMaxState<T>>>{
+		
+		private final T predictedState;
+		private final CancellationToken cancellationToken;
+		private Future<Node<MinMaxState<T>>> startNode;
+		private boolean hit;
+		
+		private Ponder(T predictedState){
+			this.predictedState = predictedState;
+			this.cancellationToken = new CancellationToken();
+		}
+		
+		private void start(){
+			startNode = ponderExecutor.submit(this);
+		}
+		
+		public Node<MinMaxState<T>> call() {
+			if (moveTimeBudget == NO_TIME_BUDGET){
+				return getNodeForState(predictedState, searchDepthLimit, cancellationToken);
+			}
+			return getNodeForStateWithinTimeBudget(predictedState, IterativeDeepeningSuccessorService.NO_DEADLINE, cancellationToken); // the deadline is set by a ponder hit
+		}
+		
+		/**
+		 * Makes the search the search of the next move, which must then finish within the move time budget
+		 */
+		private void hit(){
+			hit = true;
+			if (moveTimeBudget != NO_TIME_BUDGET){
+				cancellationToken.setDeadline(System.currentTimeMillis() + moveTimeBudget);
+			}
+		}
+		
+		private boolean isHit(){
+			return hit;
+		}
+		
+		private void stop(){
+			cancellationToken.cancel();
+			getStartNode();
+		}
+		
+		private Node<MinMaxState<T>> getStartNode(){
+			return WorkerFutures.waitFor(startNode, "pondering");
+		}
+	}
+	
 }
@@ -0,0 +1,181 @@
+package com.ahaines.ai.search.mcts.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A state in the tree searched by a Monte Carlo tree search. The statistics of each successor are held by its parent
+ * in arrays indexed by the position of the successor, rather then in a node of its own, so that selecting the
+ * successor to search only reads the arrays of a single node. The node of a successor is only created once it is
+ * selected.
+ *
+ * Rewards are recorded from the perspective of the player that moves in to each successor, so a successor with a
+ * high average reward is a good move to make from this node. They are counted in half points (see {@link #WIN}) so
+ * that a draw is a whole number.
+ *
+ * Nodes can be searched by many threads at once without locking. The statistics are held in atomic arrays and a visit
+ * is counted as soon as a successor is selected, before its reward is known, so that the successor looks like a loss
+ * to other threads until the reward is added (a virtual loss). This steers the threads down different paths of the
+ * tree. A node is only expanded, and the node of a successor only created, by the first thread to do so.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class MonteCarloNode<T> {
+
+	public static final int WIN = 2;
+	public static final int DRAW = 1;
+	public static final int LOSS = 0;
+
+	/**
+	 * Marks a node that is not terminal
+	 */
+	public static final int NOT_TERMINAL = -1;
+
+	private final T state;
+	private final AtomicReference<Successors<T>> successors;
+	private final AtomicInteger totalVisits;
+	private volatile int terminalReward;
+
+	public MonteCarloNode(T state){
+		this.state = state;
+		this.successors = new AtomicReference<Successors<T>>();
+		this.totalVisits = new AtomicInteger();
+		this.terminalReward = NOT_TERMINAL;
+	}
+
+	public T getState(){
+		return state;
+	}
+
+	/**
+	 * Expands this node in place with the supplied successors, whose statistics start at 0, unless another thread has
+	 * already expanded it.
+	 * @param successorStates
+	 * @return true if this call expanded the node
+	 */
+	public boolean expand(List<T> successorStates){
+		return successors.compareAndSet(null, new Successors<T>(successorStates.toArray()));
+	}
+
+	public boolean isExpanded(){
+		return successors.get() != null;
+	}
+
+	public int getSuccessorCount(){
+		return successors.get().states.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getSuccessor(int idx){
+		return (T)successors.get().states[idx];
+	}
+
+	/**
+	 * Returns the node of the successor, creating it if it has not been selected before
+	 * @param idx
+	 * @return
+	 */
+	public MonteCarloNode<T> getChild(int idx){
+		AtomicReferenceArray<MonteCarloNode<T>> children = successors.get().children;
+		MonteCarloNode<T> child = children.get(idx);
+		if (child == null){
+			children.compareAndSet(idx, null, new MonteCarloNode<T>(getSuccessor(idx)));
+			child = children.get(idx); // another thread may have created it first
+		}
+		return child;
+	}
+
+	/**
+	 * Returns the node of the successor or null if it has never been selected
+	 * @param idx
+	 * @return
+	 */
+	public MonteCarloNode<T> getExistingChild(int idx){
+		return successors.get().children.get(idx);
+	}
+
+	public int getVisits(int idx){
+		return successors.get().visits.get(idx);
+	}
+
+	public int getRewards(int idx){
+		return successors.get().rewards.get(idx);
+	}
+
+	public int getTotalVisits(){
+		return totalVisits.get();
+	}
+
+	/**
+	 * Counts a visit to the successor when it is selected, which stands as a loss until the reward of the playout is
+	 * added by {@link #addReward(int, int)}.
+	 * @param idx
+	 */
+	public void addVisit(int idx){
+		successors.get().visits.incrementAndGet(idx);
+		totalVisits.incrementAndGet();
+	}
+
+	/**
+	 * Records the result of a playout through the successor
+	 * @param idx
+	 * @param reward The reward of the playout to the player that moves in to the successor, between {@link #LOSS} and
+	 * {@link #WIN}
+	 */
+	public void addReward(int idx, int reward){
+		successors.get().rewards.addAndGet(idx, reward);
+	}
+
+	public boolean isTerminal(){
+		return terminalReward != NOT_TERMINAL;
+	}
+
+	/**
+	 * Returns the reward of the finished game to the player that moved in to this state
+	 * @return
+	 */
+	public int getTerminalReward(){
+		return terminalReward;
+	}
+
+	public void setTerminalReward(int terminalReward){
+		this.terminalReward = terminalReward;
+	}
+
+	/**
+	 * Returns the index of the successor that has been visited most, which is the most reliable choice of move, or -1
+	 * if there are no successors.
+	 * @return
+	 */
+	public int getMostVisitedSuccessor(){
+		int best = -1;
+		for (int i = 0; i < getSuccessorCount(); i++){
+			if (best == -1 || getVisits(i) > getVisits(best)){
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The successors of an expanded node and their statistics
+	 */
+	private static class Successors<T>{
+
+		private final Object[] states;
+		private final AtomicReferenceArray<MonteCarloNode<T>> children;
+		private final AtomicIntegerArray visits;
+		private final AtomicIntegerArray rewards;
+
+		private Successors(Object[] states){
+			this.states = states;
+			this.children = new AtomicReferenceArray<MonteCarloNode<T>>(states.length);
+			this.visits = new AtomicIntegerArray(states.length);
+			this.rewards = new AtomicIntegerArray(states.length);
+		}
+	}
+}
@@ -0,0 +1,446 @@
+package com.ahaines.ai.search.mcts.service;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.mcts.model.MonteCarloNode;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
+import com.ahaines.ai.search.service.CancellationToken;
+import com.ahaines.ai.search.service.DaemonThreadFactory;
+import com.ahaines.ai.search.service.SuccessorService;
+import com.ahaines.ai.search.service.WorkerFutures;
+import com.google.common.collect.Lists;
+
+/**
+ * Chooses moves by Monte Carlo tree search rather then by searching every successor to a depth limit. Each playout
+ * descends the tree from the start state, choosing the successor at each node by UCT (the average reward of the
+ * successor plus an exploration term that favours successors that have been visited less), until it selects a
+ * successor that is not yet in the tree. That successor is added to the tree and the rest of the game is played out
+ * with a {@link RolloutPolicy}, the result of which is recorded against every successor selected on the way down. The
+ * move played is the successor of the start state that was visited most.
+ *
+ * No cost function is needed: a game is won when the {@link TurnDrivenGoalService} says so and a playout that ends
+ * without a winner, either because there are no moves left or because it reached the rollout depth limit, is a draw.
+ *
+ * Playouts are made until either the time budget or the playout limit runs out. The tree searched for a move is kept
+ * so that, when the state searched next was reached by the move played and the reply to it, the statistics already
+ * gathered for it are reused. As the service holds this tree it must not be shared between games.
+ *
+ * Playouts can be made by a number of threads at once, all searching the same tree. The threads share nothing but the
+ * tree, whose statistics are updated without locking, and the count of playouts made. Each successor selected is
+ * counted as a loss until its playout finishes (see {@link MonteCarloNode}) so that the threads spread out over the
+ * tree rather then all following the same path. The rollout policy must be safe to use from each of the threads.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class MonteCarloTreeSearchService<T extends TurnDrivenState> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MonteCarloTreeSearchService.class);
+	public static final long NO_TIME_BUDGET = 0;
+	public static final double DEFAULT_EXPLORATION_CONSTANT = Math.sqrt(2);
+	public static final int DEFAULT_PLAYOUT_LIMIT = 10000;
+	public static final int DEFAULT_ROLLOUT_DEPTH_LIMIT = 200;
+	private static final int WIN = MonteCarloNode.WIN;
+	private static final int DRAW = MonteCarloNode.DRAW;
+	private static final int LOSS = MonteCarloNode.LOSS;
+	private static final int REUSE_DEPTH = 2; // the move played and the reply to it
+	private final SuccessorService<T> successorService;
+	private final TurnDrivenGoalService<T> goalService;
+	private final RolloutPolicy<T> rolloutPolicy;
+	private final double explorationConstant;
+	private final int playoutLimit;
+	private final int rolloutDepthLimit;
+	private final boolean reuseTree;
+	private final int searchThreads;
+	private final ExecutorService executorService;
+	private MonteCarloNode<T> root;
+	private double playoutsPerSecondPerThread;
+
+	private MonteCarloTreeSearchService(SuccessorService<T> successorService, TurnDrivenGoalService<T> goalService, RolloutPolicy<T> rolloutPolicy, double explorationConstant, int playoutLimit, int rolloutDepthLimit, boolean reuseTree, int searchThreads){
+		this.successorService = successorService;
+		this.goalService = goalService;
+		this.rolloutPolicy = rolloutPolicy;
+		this.explorationConstant = explorationConstant;
+		this.playoutLimit = playoutLimit;
+		this.rolloutDepthLimit = rolloutDepthLimit;
+		this.reuseTree = reuseTree;
+		this.searchThreads = searchThreads;
+		this.executorService = (searchThreads > 1)?Executors.newFixedThreadPool(searchThreads - 1, new DaemonThreadFactory("mcts-searcher")):null;
+	}
+
+	/**
+	 * Returns the successor of the state to play, searching until the time budget or the playout limit runs out.
+	 * @param state
+	 * @param timeBudget The time in milliseconds to search for or {@link #NO_TIME_BUDGET} to make every playout up to
+	 * the playout limit
+	 * @return The successor to play or null if the state has no successors
+	 */
+	public T search(T state, long timeBudget){
+		return search(state, timeBudget, null);
+	}
+
+	/**
+	 * Returns the successor of the state to play, searching until the time budget or the playout limit runs out or
+	 * the token is cancelled.
+	 * @param state
+	 * @param timeBudget
+	 * @param cancellationToken The token to stop the search with or null if the search can not be cancelled
+	 * @return The successor to play or null if the state has no successors
+	 */
+	public T search(T state, long timeBudget, CancellationToken cancellationToken){
+		long startTime = System.currentTimeMillis();
+		long deadline = (timeBudget == NO_TIME_BUDGET)?Long.MAX_VALUE:startTime + timeBudget;
+		MonteCarloNode<T> startNode = getStartNode(state);
+
+		if (!startNode.isExpanded()){
+			startNode.expand(getSuccessors(state));
+		}
+		if (startNode.getSuccessorCount() == 0){
+			return null;
+		}
+		AtomicInteger playouts = new AtomicInteger();
+		List<Future<Integer>> searchers = Lists.newArrayList();
+		for (int i = 1; i < searchThreads; i++){
+			searchers.add(executorService.submit(new Searcher(startNode, playouts, deadline, cancellationToken)));
+		}
+		int playoutsMade = new Searcher(startNode, playouts, deadline, cancellationToken).call(); // this thread searches as well
+		for (Future<Integer> searcher: searchers){
+			playoutsMade += WorkerFutures.waitFor(searcher, "playouts");
+		}
+		long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+		playoutsPerSecondPerThread = (playoutsMade * 1000.0) / elapsedTime / searchThreads;
+
+		LOG.debug("made {} playouts, {} in total, at {} playouts per second per thread", new Object[]{playoutsMade, startNode.getTotalVisits(), (long)playoutsPerSecondPerThread});
+		root = reuseTree?startNode:null;
+
+		return startNode.getSuccessor(startNode.getMostVisitedSuccessor());
+	}
+
+	/**
+	 * Returns the rate at which each thread made playouts during the last search
+	 * @return
+	 */
+	public double getPlayoutsPerSecondPerThread(){
+		return playoutsPerSecondPerThread;
+	}
+
+	/**
+	 * Releases the threads of the service. No further searches can be made.
+	 */
+	public void shutdown(){
+		if (executorService != null){
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the node of the state in the tree kept from the last search or a new node if it is not there
+	 */
+	private MonteCarloNode<T> getStartNode(T state){
+		if (root != null){
+			MonteCarloNode<T> startNode = findNode(root, state, REUSE_DEPTH);
+			root = null; // the rest of the tree can never be reached again
+			if (startNode != null){
+				LOG.debug("reusing tree of {} playouts", startNode.getTotalVisits());
+				return startNode;
+			}
+		}
+		return new MonteCarloNode<T>(state);
+	}
+
+	private MonteCarloNode<T> findNode(MonteCarloNode<T> node, T state, int depth){
+		if (node.getState().equals(state)){
+			return node;
+		}
+		if (depth == 0 || !node.isExpanded()){
+			return null;
+		}
+		for (int i = 0; i < node.getSuccessorCount(); i++){
+			MonteCarloNode<T> child = node.getExistingChild(i);
+			if (child != null){
+				MonteCarloNode<T> found = findNode(child, state, depth - 1);
+				if (found != null){
+					return found;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the successor of an expanded node to search next. Successors that have never been visited are always
+	 * chosen first, in the order they were generated.
+	 */
+	private int select(MonteCarloNode<T> node){
+		double logTotalVisits = Math.log(node.getTotalVisits());
+		int best = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < node.getSuccessorCount(); i++){
+			int visits = node.getVisits(i);
+			if (visits == 0){
+				return i;
+			}
+			double value = ((double)node.getRewards(i) / (visits * WIN)) + explorationConstant * Math.sqrt(logTotalVisits / visits);
+			if (value > bestValue){
+				bestValue = value;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Adds the node to the tree, marking it as terminal if the game is over, and returns the reward of a playout from
+	 * it to the player that moved in to it
+	 */
+	private int expand(MonteCarloNode<T> node){
+		T state = node.getState();
+		int terminalReward = getTerminalReward(state);
+		if (terminalReward != MonteCarloNode.NOT_TERMINAL){
+			node.setTerminalReward(terminalReward);
+			return terminalReward;
+		}
+		List<T> successors = getSuccessors(state);
+		if (successors.isEmpty()){
+			node.setTerminalReward(DRAW);
+			return DRAW;
+		}
+		node.expand(successors); // if another thread has already expanded it there are just 2 playouts from the node
+
+		return rollout(state, successors);
+	}
+
+	/**
+	 * Plays the game out from the state with the rollout policy, returning the reward to the player that moved in to
+	 * the state
+	 */
+	private int rollout(T state, List<T> successors){
+		boolean sameMover = true;
+		for (int ply = 0; ply < rolloutDepthLimit; ply++){
+			state = rolloutPolicy.selectSuccessor(state, successors);
+			sameMover = !sameMover;
+
+			int terminalReward = getTerminalReward(state);
+			if (terminalReward != MonteCarloNode.NOT_TERMINAL){
+				return sameMover?terminalReward:WIN - terminalReward;
+			}
+			successors = getSuccessors(state);
+			if (successors.isEmpty()){
+				return DRAW;
+			}
+		}
+		return DRAW;
+	}
+
+	/**
+	 * Returns the reward to the player that moved in to the state if the game is won or {@link MonteCarloNode#NOT_TERMINAL}
+	 */
+	private int getTerminalReward(T state){
+		if (goalService.isStateWon(state, state.getTurn().getId())){
+			return WIN;
+		} else if (goalService.isStateWon(state, state.getTurn().nextTurn().getId())){
+			return LOSS;
+		}
+		return MonteCarloNode.NOT_TERMINAL;
+	}
+
+	private List<T> getSuccessors(T state){
+		Iterable<T> successors = successorService.getSuccessors(state);
+		if (successors instanceof List){
+			return (List<T>)successors;
+		}
+		return Lists.newArrayList(successors);
+	}
+
+	/**
+	 * Makes playouts from the start node until the playout limit or the deadline is reached or the search is cancelled,
+	 * returning the number it made
+	 */
+	private class Searcher implements Callable<Integer>{
+
+		private final MonteCarloNode<T> startNode;
+		private final AtomicInteger playouts;
+		private final long deadline;
+		private final CancellationToken cancellationToken;
+		private final List<MonteCarloNode<T>> path;
+		private int[] pathSuccessors;
+
+		private Searcher(MonteCarloNode<T> startNode, AtomicInteger playouts, long deadline, CancellationToken cancellationToken){
+			this.startNode = startNode;
+			this.playouts = playouts;
+			this.deadline = deadline;
+			this.cancellationToken = cancellationToken;
+			this.path = Lists.newArrayList();
+			this.pathSuccessors = new int[64];
+		}
+
+		public Integer call(){
+			int playoutsMade = 0;
+			while (playouts.getAndIncrement() < playoutLimit){
+				playout();
+				playoutsMade++;
+				if (System.currentTimeMillis() >= deadline || (cancellationToken != null && cancellationToken.isCancelled())){
+					break;
+				}
+			}
+			return playoutsMade;
+		}
+
+		/**
+		 * Makes a single playout from the start node, adding the first node selected that is not yet in the tree
+		 */
+		private void playout(){
+			path.clear();
+			MonteCarloNode<T> node = startNode;
+			int reward;
+			while (true){
+				int successor = select(node);
+				node.addVisit(successor);
+				addToPath(node, successor);
+
+				MonteCarloNode<T> child = node.getChild(successor);
+				if (child.isTerminal()){
+					reward = child.getTerminalReward();
+					break;
+				}
+				if (!child.isExpanded()){
+					reward = expand(child);
+					break;
+				}
+				node = child;
+			}
+			// each node on the path was moved in to by the opponent of the player moving in to the next
+			for (int i = path.size() - 1; i >= 0; i--){
+				path.get(i).addReward(pathSuccessors[i], reward);
+				reward = WIN - reward;
+			}
+		}
+
+		private void addToPath(MonteCarloNode<T> node, int successor){
+			if (path.size() == pathSuccessors.length){
+				int[] newPathSuccessors = new int[pathSuccessors.length * 2];
+				System.arraycopy(pathSuccessors, 0, newPathSuccessors, 0, pathSuccessors.length);
+				pathSuccessors = newPathSuccessors;
+			}
+			pathSuccessors[path.size()] = successor;
+			path.add(node);
+		}
+	}
+
+	/**
+	 * Constructs {@link MonteCarloTreeSearchService}s
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	public static class MonteCarloTreeSearchServiceBuilder<T extends TurnDrivenState>{
+
+		private final SuccessorService<T> successorService;
+		private final TurnDrivenGoalService<T> goalService;
+		private RolloutPolicy<T> rolloutPolicy;
+		private double explorationConstant;
+		private int playoutLimit;
+		private int rolloutDepthLimit;
+		private boolean reuseTree;
+		private int searchThreads;
+
+		public MonteCarloTreeSearchServiceBuilder(SuccessorService<T> successorService, TurnDrivenGoalService<T> goalService){
+			this.successorService = successorService;
+			this.goalService = goalService;
+			this.rolloutPolicy = new RandomRolloutPolicy<T>();
+			this.explorationConstant = DEFAULT_EXPLORATION_CONSTANT;
+			this.playoutLimit = DEFAULT_PLAYOUT_LIMIT;
+			this.rolloutDepthLimit = DEFAULT_ROLLOUT_DEPTH_LIMIT;
+			this.reuseTree = true;
+			this.searchThreads = 1;
+		}
+
+		/**
+		 * Sets the policy used to play games out. Defaults to {@link RandomRolloutPolicy}
+		 * @param rolloutPolicy
+		 * @return
+		 */
+		public MonteCarloTreeSearchServiceBuilder<T> setRolloutPolicy(RolloutPolicy<T> rolloutPolicy){
+			this.rolloutPolicy = rolloutPolicy;
+			return this;
+		}
+
+		/**
+		 * Sets the weight of the exploration term of UCT. Higher values search successors more evenly, lower values
+		 * concentrate on the successors that have done best so far.
+		 * @param explorationConstant
+		 * @return
+		 */
+		public MonteCarloTreeSearchServiceBuilder<T> setExplorationConstant(double explorationConstant){
+			if (explorationConstant < 0){
+				throw new IllegalArgumentException("exploration constant can not be negative: "+explorationConstant);
+			}
+			this.explorationConstant = explorationConstant;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of playouts made for each move
+		 * @param playoutLimit
+		 * @return
+		 */
+		public MonteCarloTreeSearchServiceBuilder<T> setPlayoutLimit(int playoutLimit){
+			if (playoutLimit < 1){
+				throw new IllegalArgumentException("at least 1 playout is required: "+playoutLimit);
+			}
+			this.playoutLimit = playoutLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the number of moves a playout makes before it is abandoned as a draw, so that games that can go on
+		 * indefinitely always finish.
+		 * @param rolloutDepthLimit
+		 * @return
+		 */
+		public MonteCarloTreeSearchServiceBuilder<T> setRolloutDepthLimit(int rolloutDepthLimit){
+			if (rolloutDepthLimit < 0){
+				throw new IllegalArgumentException("rollout depth limit can not be negative: "+rolloutDepthLimit);
+			}
+			this.rolloutDepthLimit = rolloutDepthLimit;
+			return this;
+		}
+
+		/**
+		 * Sets whether the tree searched for a move is kept to search the next move from. Defaults to true.
+		 * @param reuseTree
+		 * @return
+		 */
+		public MonteCarloTreeSearchServiceBuilder<T> reuseTree(boolean reuseTree){
+			this.reuseTree = reuseTree;
+			return this;
+		}
+
+		/**
+		 * Sets the number of threads that make playouts, including the thread that calls
+		 * {@link MonteCarloTreeSearchService#search(TurnDrivenState, long)}. Defaults to 1.
+		 * @param searchThreads
+		 * @return
+		 */
+		public MonteCarloTreeSearchServiceBuilder<T> setSearchThreads(int searchThreads){
+			if (searchThreads < 1){
+				throw new IllegalArgumentException("at least 1 search thread is required: "+searchThreads);
+			}
+			this.searchThreads = searchThreads;
+			return this;
+		}
+
+		public MonteCarloTreeSearchService<T> build(){
+			return new MonteCarloTreeSearchService<T>(successorService, goalService, rolloutPolicy, explorationConstant, playoutLimit, rolloutDepthLimit, reuseTree, searchThreads);
+		}
+	}
+}
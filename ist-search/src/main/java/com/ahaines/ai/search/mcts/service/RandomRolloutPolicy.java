@@ -0,0 +1,39 @@
+package com.ahaines.ai.search.mcts.service;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+
+/**
+ * Plays a successor chosen uniformly at random. This is the cheapest policy there is and, as playouts are averaged
+ * over many games, is often good enough. Unless a random is supplied each thread uses its own, so that threads making
+ * playouts at the same time do not contend for it.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class RandomRolloutPolicy<T extends TurnDrivenState> implements RolloutPolicy<T>{
+
+	private final Random random;
+
+	public RandomRolloutPolicy(){
+		this(null);
+	}
+
+	/**
+	 * Creates a policy that chooses successors using the supplied random, so that a seeded random can be used to
+	 * repeat the same playouts. The random is shared by every thread that uses the policy.
+	 * @param random
+	 */
+	public RandomRolloutPolicy(Random random){
+		this.random = random;
+	}
+
+	public T selectSuccessor(T state, List<T> successors) {
+		Random random = (this.random == null)?ThreadLocalRandom.current():this.random;
+
+		return successors.get(random.nextInt(successors.size()));
+	}
+}
@@ -0,0 +1,23 @@
+package com.ahaines.ai.search.mcts.service;
+
+import java.util.List;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+
+/**
+ * Chooses the moves played during the playouts of a {@link MonteCarloTreeSearchService}. As a playout is made for
+ * every state added to the tree, the policy should be cheap to evaluate.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public interface RolloutPolicy<T extends TurnDrivenState> {
+
+	/**
+	 * Returns the successor to play next
+	 * @param state
+	 * @param successors The successors of the state. Never empty
+	 * @return
+	 */
+	public T selectSuccessor(T state, List<T> successors);
+}
@@ -0,0 +1,27 @@
+package com.ahaines.ai.search.minmax.model;
+
+/**
+ * Describes how a score held in a {@link TranspositionTable} relates to the actual cost of the state it was
+ * recorded against.
+ * @author andrewhaines
+ *
+ */
+public enum BoundType {
+
+	/**
+	 * The subtree was fully searched so the score is the cost of the state at the recorded depth
+	 */
+	EXACT,
+	
+	/**
+	 * No successor of the state was better then the window it was searched in (it failed low) so, as costs are
+	 * negmax, the actual cost is greater then or equal to the score
+	 */
+	LOWER,
+	
+	/**
+	 * The search of the subtree was cut off after finding a successor at least as good as the window it was
+	 * searched in (it failed high) so the actual cost is less then or equal to the score
+	 */
+	UPPER
+}
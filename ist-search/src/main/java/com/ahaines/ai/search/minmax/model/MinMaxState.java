@@ -6,31 +6,52 @@ import com.ahaines.ai.search.service.heuristic.model.CostState;
 public class MinMaxState<T extends TurnDrivenState> implements Identifiable, CostState<T>, TurnDrivenState, Comparable<MinMaxState<T>>{
 	
 	private final T costState;
-	private Integer lowerBound;
+	private Integer costBound;
 	private int cost;
+	private boolean resolved;
+	private boolean searchComplete;
+	private boolean searchAbandoned;
+	private boolean depthLimited;
+	private int alpha;
+	private int beta;
+	private Integer bestSuccessorCost;
 	
 	public MinMaxState(T actualState){
 		this.costState = actualState;
 		this.cost = 0;
+		this.resolved = false;
+		this.searchComplete = true;
+		this.alpha = -Integer.MAX_VALUE;
+		this.beta = Integer.MAX_VALUE;
 	}	
 
 	/**
-	 * sets the lower bound with the supplied value only if the suppiled value is less then
-	 * it's current cost.
-	 * @param currentCost
+	 * Sets the cost bound with the supplied value only if the supplied value is less then its
+	 * current bound. Costs are negmax so, once a successor has been searched, this state costs
+	 * no more then the negation of the successor's cost.
+	 * @param bound the negation of the cost of a searched successor
 	 */
-	public void compareAndSetLowerBound(int currentCost){
-		if (lowerBound == null || lowerBound > currentCost){
-			lowerBound = currentCost;
+	public void compareAndSetCostBound(int bound){
+		if (costBound == null || costBound > bound){
+			costBound = bound;
 		}
 	}
 	
 	/**
-	 * Returns the lower bound
+	 * Returns the most this state can cost given the successors searched so far (an upper bound
+	 * on its cost), or null if none have been
 	 * @return
 	 */
-	public Integer getLowerBound(){
-		return lowerBound;
+	public Integer getCostBound(){
+		return costBound;
+	}
+	
+	/**
+	 * Clears the cost bound so that a state that is searched again, such as one that has been cached, is not
+	 * bounded by the successors searched the last time.
+	 */
+	public void clearCostBound(){
+		costBound = null;
 	}
 
 	public int getId() {
@@ -78,4 +99,103 @@ public class MinMaxState<T extends TurnDrivenState> implements Identifiable, Cos
 	public void setCost(int cost) {
 		this.cost = cost;
 	}
+	
+	/**
+	 * Sets the cost of this state from a previous search of an equivalent state. Once resolved, the
+	 * successors of this state do not need to be searched and its cost should not be re-evaluated.
+	 * @param cost
+	 */
+	public void resolveCost(int cost){
+		this.cost = cost;
+		this.resolved = true;
+	}
+	
+	public boolean isResolved(){
+		return resolved;
+	}
+	
+	/**
+	 * Marks that not all the successors of this state were searched (for example they were pruned) so the
+	 * cost is only valid in the context of where this state was found in the search tree.
+	 */
+	public void markSearchIncomplete(){
+		this.searchComplete = false;
+	}
+	
+	public boolean isSearchComplete(){
+		return searchComplete;
+	}
+	
+	/**
+	 * Marks that the search of this state was cut short, for example as it ran out of time, so its cost is neither
+	 * the actual cost or a bound on it.
+	 */
+	public void markSearchAbandoned(){
+		this.searchAbandoned = true;
+		markSearchIncomplete();
+	}
+	
+	public boolean isSearchAbandoned(){
+		return searchAbandoned;
+	}
+	
+	/**
+	 * Sets whether any line below this state was cut short by the depth limit. If not, every line ended the game
+	 * and searching this state deeper would find the same cost.
+	 * @param depthLimited
+	 */
+	public void setDepthLimited(boolean depthLimited){
+		this.depthLimited = depthLimited;
+	}
+	
+	public boolean isDepthLimited(){
+		return depthLimited;
+	}
+	
+	/**
+	 * Sets the window that the cost of the best successor of this state is searched within. Successors costing
+	 * alpha or less will not be picked and, once a successor costing beta or more is found, this state will not
+	 * be picked by its parent so the rest of its successors need not be searched. 
+	 * @param alpha
+	 * @param beta
+	 */
+	public void setWindow(int alpha, int beta){
+		this.alpha = alpha;
+		this.beta = beta;
+	}
+	
+	public int getAlpha(){
+		return alpha;
+	}
+	
+	public int getBeta(){
+		return beta;
+	}
+	
+	/**
+	 * Records the cost of a successor that has been searched, keeping the highest.
+	 * @param successorCost
+	 */
+	public void compareAndSetBestSuccessorCost(int successorCost){
+		if (bestSuccessorCost == null || bestSuccessorCost < successorCost){
+			bestSuccessorCost = successorCost;
+		}
+	}
+	
+	/**
+	 * Returns the cost of the best successor searched so far or null if none have been
+	 * @return
+	 */
+	public Integer getBestSuccessorCost(){
+		return bestSuccessorCost;
+	}
+	
+	/**
+	 * Returns the lower end of the window the remaining successors are searched in: the higher of alpha and the cost
+	 * of the best successor searched so far.
+	 * @return
+	 */
+	public int getSuccessorAlpha(){
+		return (bestSuccessorCost == null)?alpha:Math.max(alpha, bestSuccessorCost);
+	}
 }
@@ -0,0 +1,258 @@
+package com.ahaines.ai.search.minmax.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size table of search results keyed by a hash of the state's contents. The table is sized to a power of 2
+ * so that the slot of a key is found by masking its low bits. Each slot holds a single entry. An entry is replaced
+ * by a result for a different key when the existing entry was stored in an earlier search or was searched to the
+ * same depth or less, so that deeper results survive within a search.
+ *
+ * Scores are held alongside the ply (distance from the root of the search) they were recorded at as costs can be
+ * scaled by the number of transitions it took to reach them.
+ *
+ * Each entry also records whether any line below the state was cut short by the depth limit. When none were, every
+ * line ended the game and searching the state deeper would find the same result.
+ *
+ * The table can be shared by many searching threads without locking. Each entry is packed into 3 longs: the
+ * data (score, depth, ply, bound, generation and depth limited flag), the best move and a check word holding the
+ * XOR of the key with the other two. An entry is only returned when its check word matches so an entry that is read while
+ * another thread is part way through writing it is treated as missing rather then returning a mix of the two.
+ * Similarly concurrent stores to the same slot may lose one of the results, which only costs a search.
+ * @author andrewhaines
+ *
+ */
+public class TranspositionTable {
+
+	public static final long NO_MOVE = 0;
+
+	private static final int LONGS_PER_ENTRY = 3;
+	private static final int CHECK_OFFSET = 0;
+	private static final int DATA_OFFSET = 1;
+	private static final int MOVE_OFFSET = 2;
+
+	private static final int DEPTH_SHIFT = 32;
+	private static final int PLY_SHIFT = 44;
+	private static final int BOUND_SHIFT = 54;
+	private static final int GENERATION_SHIFT = 56;
+	private static final int DEPTH_LIMITED_SHIFT = 63;
+	private static final int MAX_DEPTH = (1 << (PLY_SHIFT - DEPTH_SHIFT)) - 1;
+	private static final int MAX_PLY = (1 << (BOUND_SHIFT - PLY_SHIFT)) - 1;
+	private static final long BOUND_MASK = 0x3;
+	private static final long GENERATION_MASK = 0x7F;
+
+	private static final int EMPTY = 0;
+	private static final int EXACT_BOUND = BoundType.EXACT.ordinal() + 1;
+	private static final BoundType[] BOUND_TYPES = BoundType.values();
+
+	private final int mask;
+	private final AtomicLongArray entries;
+	private volatile int generation;
+
+	/**
+	 * Creates a table that can hold at least the supplied number of entries
+	 * @param size
+	 */
+	public TranspositionTable(int size){
+		if (size <= 0){
+			throw new IllegalArgumentException("size of table must be positive: "+size);
+		}
+		int capacity = Integer.highestOneBit(size);
+		if (capacity < size){
+			capacity <<= 1;
+		}
+		this.mask = capacity - 1;
+		this.entries = new AtomicLongArray(capacity * LONGS_PER_ENTRY);
+		this.generation = 0;
+	}
+
+	/**
+	 * Returns the entry stored against the key or null if there is none
+	 * @param key
+	 * @return
+	 */
+	public Entry probe(long key){
+		int idx = getSlot(key) * LONGS_PER_ENTRY;
+		long data = entries.get(idx + DATA_OFFSET);
+		long bestMove = entries.get(idx + MOVE_OFFSET);
+		long check = entries.get(idx + CHECK_OFFSET);
+
+		if (getBound(data) == EMPTY || (check ^ data ^ bestMove) != key){
+			return null;
+		}
+		return new Entry(key, getDepth(data), getPly(data), BOUND_TYPES[getBound(data) - 1], getScore(data), bestMove, isDepthLimited(data));
+	}
+
+	/**
+	 * Stores a search result against the supplied key that may have been cut short by the depth limit.
+	 * @param key The key of the state
+	 * @param depth The depth of the search below the state
+	 * @param ply The distance of the state from the root of the search
+	 * @param bound How the score relates to the actual cost of the state
+	 * @param score
+	 * @param bestMove The key of the best successor of the state or {@link #NO_MOVE}
+	 */
+	public void store(long key, int depth, int ply, BoundType bound, int score, long bestMove){
+		store(key, depth, ply, bound, score, bestMove, true);
+	}
+
+	/**
+	 * Stores a search result against the supplied key.
+	 * @param key The key of the state
+	 * @param depth The depth of the search below the state
+	 * @param ply The distance of the state from the root of the search
+	 * @param bound How the score relates to the actual cost of the state
+	 * @param score
+	 * @param bestMove The key of the best successor of the state or {@link #NO_MOVE}
+	 * @param depthLimited Whether any line below the state was cut short by the depth limit
+	 */
+	public void store(long key, int depth, int ply, BoundType bound, int score, long bestMove, boolean depthLimited){
+		if (ply > MAX_PLY){ // can not be held so could be mistaken for a result at another ply
+			return;
+		}
+		depth = Math.min(depth, MAX_DEPTH); // deeper results are recorded as the maximum depth which is always safe
+		int currentGeneration = generation & (int)GENERATION_MASK;
+		int idx = getSlot(key) * LONGS_PER_ENTRY;
+		long existingData = entries.get(idx + DATA_OFFSET);
+		long existingMove = entries.get(idx + MOVE_OFFSET);
+		boolean sameKey = (entries.get(idx + CHECK_OFFSET) ^ existingData ^ existingMove) == key;
+
+		if (getBound(existingData) != EMPTY && getGeneration(existingData) == currentGeneration){
+			if (!sameKey && getDepth(existingData) > depth){ // keep the deeper result
+				return;
+			}
+			if (sameKey && getDepth(existingData) >= depth && getBound(existingData) == EXACT_BOUND && bound != BoundType.EXACT){ // do not lose an exact result to a bound
+				return;
+			}
+		}
+		if (bestMove == NO_MOVE && sameKey && getBound(existingData) != EMPTY){ // retain the move from the previous search of this state
+			bestMove = existingMove;
+		}
+		long data = (score & 0xFFFFFFFFL)
+				| ((long)depth << DEPTH_SHIFT)
+				| ((long)ply << PLY_SHIFT)
+				| ((long)(bound.ordinal() + 1) << BOUND_SHIFT)
+				| ((long)currentGeneration << GENERATION_SHIFT)
+				| ((depthLimited?1L:0L) << DEPTH_LIMITED_SHIFT);
+
+		entries.set(idx + DATA_OFFSET, data);
+		entries.set(idx + MOVE_OFFSET, bestMove);
+		entries.set(idx + CHECK_OFFSET, key ^ data ^ bestMove);
+	}
+
+	/**
+	 * Called at the start of each new search. Entries from previous searches are kept but are then
+	 * always eligible to be replaced.
+	 */
+	public void newSearch(){
+		generation++;
+	}
+
+	/**
+	 * Removes all entries from the table
+	 */
+	public void clear(){
+		for (int i = 0; i < entries.length(); i++){
+			entries.set(i, 0);
+		}
+	}
+
+	public int getSize(){
+		return entries.length() / LONGS_PER_ENTRY;
+	}
+
+	private int getSlot(long key){
+		return (int)(key ^ (key >>> 32)) & mask;
+	}
+
+	private static int getScore(long data){
+		return (int)data;
+	}
+
+	private static int getDepth(long data){
+		return (int)(data >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	private static int getPly(long data){
+		return (int)(data >>> PLY_SHIFT) & MAX_PLY;
+	}
+
+	private static int getBound(long data){
+		return (int)((data >>> BOUND_SHIFT) & BOUND_MASK);
+	}
+
+	private static int getGeneration(long data){
+		return (int)((data >>> GENERATION_SHIFT) & GENERATION_MASK);
+	}
+
+	private static boolean isDepthLimited(long data){
+		return (data >>> DEPTH_LIMITED_SHIFT) != 0;
+	}
+
+	/**
+	 * A snapshot of an entry in the table
+	 * @author andrewhaines
+	 *
+	 */
+	public static class Entry {
+
+		private final long key;
+		private final int depth;
+		private final int ply;
+		private final BoundType bound;
+		private final int score;
+		private final long bestMove;
+		private final boolean depthLimited;
+
+		public Entry(long key, int depth, int ply, BoundType bound, int score, long bestMove, boolean depthLimited){
+			this.key = key;
+			this.depth = depth;
+			this.ply = ply;
+			this.bound = bound;
+			this.score = score;
+			this.bestMove = bestMove;
+			this.depthLimited = depthLimited;
+		}
+
+		public long getKey() {
+			return key;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		public int getPly() {
+			return ply;
+		}
+
+		public BoundType getBound() {
+			return bound;
+		}
+
+		public int getScore() {
+			return score;
+		}
+
+		public long getBestMove() {
+			return bestMove;
+		}
+
+		public boolean hasBestMove(){
+			return bestMove != NO_MOVE;
+		}
+
+		/**
+		 * Returns true if any line below the state was cut short by the depth limit
+		 * @return
+		 */
+		public boolean isDepthLimited(){
+			return depthLimited;
+		}
+
+		@Override
+		public String toString(){
+			return "key: "+key+", depth: "+depth+", ply: "+ply+", bound: "+bound+", score: "+score+", depth limited: "+depthLimited;
+		}
+	}
+}
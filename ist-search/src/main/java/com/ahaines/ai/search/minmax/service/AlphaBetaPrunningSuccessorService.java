@@ -1,6 +1,7 @@
 package com.ahaines.ai.search.minmax.service;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +11,7 @@ import com.ahaines.ai.search.minmax.model.TurnDrivenState;
 import com.ahaines.ai.search.model.Node;
 import com.ahaines.ai.search.service.NodeType;
 import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SplitService;
 import com.ahaines.ai.search.service.SuccessorNodeService;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -39,19 +41,43 @@ import com.google.common.collect.Lists;
  * at this level rather then at the node above and filtering this node from even being created, 
  * induces negligible overhead (extra jump statement for each successor and extra Node object creation but this is it).
  * in comparison to the simplicity in design by proxing existing implementations. The decision to
- * Evaluate further successors from N3 is cached via setting the parent (N3 in the above case) to have finished
- * evaluating.
+ * Evaluate further successors from N3 is cached via marking the parent (N3 in the above case) as cut off. The parent
+ * is also cut off as soon as the successor whose cost prunes it has been visited, so that its later successors (N6)
+ * are not even created.
+ * 
+ * When the successors of a node are searched in parallel (see {@link SplitService}), each is searched beneath a
+ * private copy of the parent. The copies share a single bound, so the cost of a successor is published to the
+ * workers searching its siblings as soon as it is known and they prune against it straight away. When joined in
+ * order, a successor that was pruned against a bound that the siblings before it do not give is searched again so
+ * that the same move is chosen as the serial search.
+ * 
+ * As the fewest nodes are searched when the best successor is searched first, successors can be ordered by a
+ * {@link MoveOrderingService} before they are searched. The successor that causes a node to be pruned is recorded
+ * with the ordering service so that the same move is tried early elsewhere in the tree.
  * 
  * @author andrewhaines
  *
  */
-public class AlphaBetaPrunningSuccessorService<T extends TurnDrivenState> implements SuccessorNodeService<MinMaxState<T>>, NodeVisitor<MinMaxState<T>>{
+public class AlphaBetaPrunningSuccessorService<T extends TurnDrivenState> implements SuccessorNodeService<MinMaxState<T>>, NodeVisitor<MinMaxState<T>>, SplitService<MinMaxState<T>>{
 	
 	private static final Logger LOG = LoggerFactory.getLogger(AlphaBetaPrunningSuccessorService.class);
 	private final MinMaxSuccessorService<T> workerSuccessor;
+	private final MoveOrderingService<T> moveOrderingService;
+	private MinMaxState<T> sharedBoundOwner;
+	private SharedBound sharedBound;
 	
 	public AlphaBetaPrunningSuccessorService(MinMaxSuccessorService<T> workerSuccessor){
+		this(workerSuccessor, null);
+	}
+	
+	/**
+	 * Creates a service that searches successors in the order given by the supplied service
+	 * @param workerSuccessor
+	 * @param moveOrderingService The service to order successors with or null to search them in the order they are generated
+	 */
+	public AlphaBetaPrunningSuccessorService(MinMaxSuccessorService<T> workerSuccessor, MoveOrderingService<T> moveOrderingService){
 		this.workerSuccessor = workerSuccessor;
+		this.moveOrderingService = moveOrderingService;
 	}
 
 	public Iterable<Node<MinMaxState<T>>> getSuccessors(Node<MinMaxState<T>> node, NodeType type) {
@@ -59,34 +85,73 @@ public class AlphaBetaPrunningSuccessorService<T extends TurnDrivenState> implem
 			MinMaxState<T> parentState = node.getParent().getState();
 			MinMaxState<T> grandParentState = node.getParent().getParent().getState();
 			if(isNodeEligableForPruning(parentState, grandParentState)){ // we are filtering so return no successors back.
-				node.getParent().setEvaluatedComplete(); // ensures that other children of it's parent are not considered either.
+				prune(node.getParent()); // ensures that other children of it's parent are not considered either.
+				node.getState().markSearchIncomplete(); // the cost is now only valid in this part of the tree
 				//LOG.debug("pruning node: "+node.getId()+" type: "+type+" and turn: "+node.getState().getTurn());
 				return Collections.emptyList();
 			} 
 		}
 		// if we get here then we were unable to prune
-		return workerSuccessor.getSuccessors(node, type);
+		Iterable<Node<MinMaxState<T>>> successors = workerSuccessor.getSuccessors(node, type);
+		if (moveOrderingService != null){
+			return moveOrderingService.order(node, successors);
+		}
+		return successors;
 	}
 
-	private boolean isNodeEligableForPruning(MinMaxState<T> parentState, MinMaxState<T> grandParentState) {
-		Integer upperBound = parentState.getLowerBound(); // this will be inverted due to neg max so is actually the upperbound here!
-		Integer lowerBound = grandParentState.getLowerBound();
-		// TODO rename above method names so they are more consistent???
-		
-		if (lowerBound != null && upperBound != null && lowerBound > upperBound ){ // the direct parent will never be chosen so ignore this nodes successors
-			return true;
+	/**
+	 * Cuts off the rest of the successors of the node, whose cost is then only valid in this part of the tree
+	 */
+	private void prune(Node<MinMaxState<T>> node){
+		MinMaxState<T> state = node.getState();
+		MinMaxState<T> parentState = node.getParent().getState();
+		if (parentState instanceof SplitParentState){ // the prune is checked when the successor is joined
+			((SplitParentState<T>)parentState).recordPrune(state.getCostBound());
 		}
-		return false;
+		node.setCutOff(true);
+		state.markSearchIncomplete();
+	}
+	
+	private boolean isNodeEligableForPruning(MinMaxState<T> parentState, MinMaxState<T> grandParentState) {
+		return isPrunable(parentState.getCostBound(), grandParentState.getCostBound());
+	}
+	
+	/**
+	 * Returns true if a parent with the supplied bound will never be chosen by a grandparent with the supplied bound.
+	 * The cost bound of a state is the negation of the highest cost of its successors searched so far (see
+	 * {@link #updateBounds(Node)}), which is the most the state can cost as its cost only falls as more successors
+	 * are searched. The grandparent therefore has a successor costing the negation of its bound, and a parent that
+	 * can cost no more then this will not be picked.
+	 */
+	private static boolean isPrunable(Integer parentBound, Integer grandParentBound){
+		return parentBound != null && grandParentBound != null && parentBound <= -grandParentBound;
 	}
 
 	public void preNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
-		// NO OP
-		
+		node.getState().clearCostBound(); // a cached state keeps the bound of its last search
+		if (type == NodeType.START && moveOrderingService != null){
+			moveOrderingService.startSearch(node.getState().getActualState());
+		}
 	}
 
 	public void postNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
-		if (type != NodeType.START){ // we have no parent on the start node.
+		if (type == NodeType.START){ // all the successors have been joined
+			sharedBoundOwner = null;
+			sharedBound = null;
+		}
+		if (type != NodeType.START && node.getParent() != null){ // we have no parent on the start node, which is a leaf when it has no successors
+			Node<MinMaxState<T>> parent = node.getParent();
+			Node<MinMaxState<T>> grandParent = parent.getParent();
+			boolean prunable = grandParent != null && isNodeEligableForPruning(parent.getState(), grandParent.getState());
+			
 			updateBounds(node);
+			
+			if (!prunable && grandParent != null && isNodeEligableForPruning(parent.getState(), grandParent.getState())){ // this node has caused the rest of its siblings to be pruned
+				prune(parent);
+				if (moveOrderingService != null){
+					moveOrderingService.recordCutoff(parent, node, depth);
+				}
+			}
 		}
 		
 	}
@@ -94,8 +159,8 @@ public class AlphaBetaPrunningSuccessorService<T extends TurnDrivenState> implem
 	private void updateBounds(Node<MinMaxState<T>> node) {
 		
 		/* 
-		 * use this to update the parents lower bound (The Turn implementation uses neg max
-		 * so this will only ever need to work out the lower bound (always maximises))
+		 * use this to update the parents bound (The Turn implementation uses neg max
+		 * so this will only ever need to keep the lowest negated cost (always maximises))
 		 */
 		int currentCost = node.getState().getCost();
 		
@@ -103,12 +168,118 @@ public class AlphaBetaPrunningSuccessorService<T extends TurnDrivenState> implem
 			LOG.debug("detected null node at: "+node);
 		}
 		MinMaxState<?> parentState = node.getParent().getState();
-		parentState.compareAndSetLowerBound(currentCost);
+		if (parentState instanceof SplitParentState && !node.getState().isSearchComplete()){
+			return; // only costs that are not just bounds are shared with the workers searching the siblings
+		}
+		parentState.compareAndSetCostBound(-currentCost); // negmax so the parent costs no more then the negation of any of its successors
+	}
+
+	public Node<MinMaxState<T>> split(Node<MinMaxState<T>> parent, Node<MinMaxState<T>> successor) {
+		if (sharedBound == null || sharedBoundOwner != parent.getState()){
+			sharedBoundOwner = parent.getState();
+			sharedBound = new SharedBound(sharedBoundOwner.getCostBound());
+		}
+		Node<MinMaxState<T>> splitParent = new Node<MinMaxState<T>>(null, new SplitParentState<T>(parent.getState(), sharedBound), parent.getComparator());
+		
+		return new Node<MinMaxState<T>>(splitParent, new MinMaxState<T>(successor.getState().getActualState()), successor.getComparator());
 	}
 
+	public boolean join(Node<MinMaxState<T>> parent, Node<MinMaxState<T>> splitNode) {
+		SplitParentState<T> splitParentState = (SplitParentState<T>)splitNode.getParent().getState();
+		MinMaxState<T> parentState = parent.getState();
+		
+		// a successor pruned against the cost of a sibling after it may not have been pruned by the serial search
+		if (!splitParentState.isPruneValid(parentState.getCostBound())){
+			return false;
+		}
+		if (!splitParentState.isSearchComplete()){
+			parentState.markSearchIncomplete();
+		}
+		splitNode.setParent(parent);
+		updateBounds(splitNode);
+		
+		return true;
+	}
+	
 	@SuppressWarnings("unchecked")
 	public Iterable<NodeVisitor<MinMaxState<T>>> getRequestedVisitors() {
 		return Iterables.concat(workerSuccessor.getRequestedVisitors(), Lists.<NodeVisitor<MinMaxState<T>>>newArrayList(this));
 	}
 
+	/**
+	 * The cost bound of a parent whose successors are searched in parallel. This is read and lowered by all the
+	 * workers at once so is held atomically.
+	 * @author andrewhaines
+	 *
+	 */
+	private static class SharedBound{
+		
+		private final AtomicReference<Integer> bound;
+		
+		private SharedBound(Integer bound){
+			this.bound = new AtomicReference<Integer>(bound);
+		}
+		
+		/**
+		 * Sets the cost bound with the supplied value only if the supplied value is less then its current value. See
+		 * {@link MinMaxState#compareAndSetCostBound(int)}
+		 * @param newBound
+		 */
+		public void compareAndSetCostBound(int newBound){
+			Integer currentBound;
+			do{
+				currentBound = bound.get();
+				if (currentBound != null && currentBound <= newBound){
+					return;
+				}
+			} while (!bound.compareAndSet(currentBound, newBound));
+		}
+		
+		public Integer get(){
+			return bound.get();
+		}
+	}
+
+	/**
+	 * The private copy of a parent that a split successor is searched beneath. Its bound is the bound shared by all
+	 * the successors of the parent. The bound of the successor when it was pruned is kept to check the prune against
+	 * the bound of the parent once it is joined.
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	private static class SplitParentState<T extends TurnDrivenState> extends MinMaxState<T>{
+		
+		private final SharedBound sharedBound;
+		private Integer prunedBound;
+		
+		private SplitParentState(MinMaxState<T> parentState, SharedBound sharedBound){
+			super(parentState.getActualState());
+			this.sharedBound = sharedBound;
+		}
+		
+		@Override
+		public void compareAndSetCostBound(int bound){
+			sharedBound.compareAndSetCostBound(bound);
+		}
+		
+		@Override
+		public Integer getCostBound(){
+			return sharedBound.get();
+		}
+		
+		public void recordPrune(Integer successorBound){
+			this.prunedBound = successorBound;
+		}
+		
+		/**
+		 * Returns true if the successor was not pruned or the supplied bound, which the serial search would have had,
+		 * would also have pruned it.
+		 * @param bound
+		 * @return
+		 */
+		public boolean isPruneValid(Integer bound){
+			return prunedBound == null || isPrunable(prunedBound, bound);
+		}
+	}
 }
@@ -0,0 +1,138 @@
+package com.ahaines.ai.search.minmax.service;
+
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.CancellationToken;
+import com.ahaines.ai.search.service.DepthReductionPolicy;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SuccessorNodeService;
+
+/**
+ * Searches the start node within a narrow window (an aspiration window) centred on the cost found when the same state
+ * was last searched, such as by the previous iteration of iterative deepening. Once the cost has settled between
+ * iterations the narrow window lets far more of the tree be pruned then a full window.
+ *
+ * If the cost of the best successor falls outside of the window (the search fails low or high) the costs found are
+ * only bounds, so the start node is searched again with the failing side of the window twice as far from the centre,
+ * until the cost falls within it. States that have not been searched before are searched with a full window.
+ *
+ * As with {@link MtdfSearchService} the successor services must contain a
+ * {@link PrincipalVariationSearchSuccessorService} and should contain a {@link TranspositionTableSuccessorService} so
+ * that the search repeated after a fail does not search the tree again from scratch.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class AspirationWindowSearchService<T extends TurnDrivenState> extends WindowedSearchService<T>{
+
+	private static final Logger LOG = LoggerFactory.getLogger(AspirationWindowSearchService.class);
+	private final int windowSize;
+	private T lastSearchedState;
+	private int lastCost;
+
+	private AspirationWindowSearchService(SuccessorNodeService<MinMaxState<T>> successorService, Iterable<NodeVisitor<MinMaxState<T>>> visitors, IterativeDeepeningSuccessorService<T> iterativeDeepeningService, DepthReductionPolicy<MinMaxState<T>> depthReductionPolicy, int windowSize){
+		super(successorService, visitors, iterativeDeepeningService, depthReductionPolicy);
+		this.windowSize = windowSize;
+	}
+
+	@Override
+	public void depthFirstSearch(Node<MinMaxState<T>> startNode, int depthLimit, CancellationToken cancellationToken){
+		T state = startNode.getState().getActualState();
+		int alpha = -Integer.MAX_VALUE;
+		int beta = Integer.MAX_VALUE;
+		if (state.equals(lastSearchedState)){
+			alpha = widen(lastCost, -windowSize);
+			beta = widen(lastCost, windowSize);
+		}
+		long delta = windowSize;
+		Node<MinMaxState<T>> searchNode;
+		while (true){
+			searchNode = searchWithinWindow(startNode, alpha, beta, depthLimit, cancellationToken);
+
+			Integer cost = searchNode.getState().getBestSuccessorCost();
+			if (cost == null || isTimedOut(cancellationToken)){
+				break;
+			}
+			if (cost <= alpha && alpha > -Integer.MAX_VALUE){
+				delta *= 2;
+				LOG.debug("search failed low at {}, searching again with alpha {}", cost, widen(lastCost, -delta));
+				alpha = widen(lastCost, -delta);
+			} else if (cost >= beta && beta < Integer.MAX_VALUE){
+				delta *= 2;
+				LOG.debug("search failed high at {}, searching again with beta {}", cost, widen(lastCost, delta));
+				beta = widen(lastCost, delta);
+			} else{
+				lastSearchedState = state;
+				lastCost = cost;
+				break;
+			}
+		}
+		useSearch(searchNode, startNode);
+	}
+
+	/**
+	 * Returns the cost moved by delta, limited to the full window
+	 */
+	private static int widen(int cost, long delta){
+		long widenedCost = cost + delta;
+
+		return (int)Math.max(-Integer.MAX_VALUE, Math.min(Integer.MAX_VALUE, widenedCost));
+	}
+
+	/**
+	 * Constructs {@link AspirationWindowSearchService}s
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	public static class AspirationWindowSearchServiceBuilder<T extends TurnDrivenState> extends WindowedSearchServiceBuilder<T>{
+
+		private final int windowSize;
+
+		/**
+		 * Creates a builder of services whose windows initially extend the supplied size either side of the last cost
+		 * @param successorService
+		 * @param windowSize
+		 */
+		public AspirationWindowSearchServiceBuilder(SuccessorNodeService<MinMaxState<T>> successorService, int windowSize) {
+			super(successorService);
+			if (windowSize < 1){
+				throw new IllegalArgumentException("the aspiration window must be at least 1: "+windowSize);
+			}
+			this.windowSize = windowSize;
+		}
+
+		@Override
+		public AspirationWindowSearchServiceBuilder<T> registerVisitor(NodeVisitor<? super MinMaxState<T>> visitor){
+			super.registerVisitor(visitor);
+			return this;
+		}
+
+		@Override
+		public AspirationWindowSearchServiceBuilder<T> useDepthReductionPolicy(DepthReductionPolicy<MinMaxState<T>> depthReductionPolicy){
+			super.useDepthReductionPolicy(depthReductionPolicy);
+			return this;
+		}
+
+		@Override
+		public AspirationWindowSearchServiceBuilder<T> setIterativeDeepeningService(IterativeDeepeningSuccessorService<T> iterativeDeepeningService){
+			super.setIterativeDeepeningService(iterativeDeepeningService);
+			return this;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public AspirationWindowSearchService<T> build(){
+			if (forkJoinPool != null){
+				throw new IllegalStateException("aspiration window searches can not be made in parallel");
+			}
+			return new AspirationWindowSearchService<T>(successorService, (Collection)visitors, iterativeDeepeningService, depthReductionPolicy, windowSize);
+		}
+	}
+}
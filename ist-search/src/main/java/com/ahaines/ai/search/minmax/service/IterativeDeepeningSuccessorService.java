@@ -0,0 +1,177 @@
+package com.ahaines.ai.search.minmax.service;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.NodeType;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SuccessorNodeService;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Supports searching a state repeatedly with increasing depth limits (iterative deepening) until a
+ * deadline passes. See {@link com.ahaines.ai.search.game.TurnDrivenGameService#setMoveTimeBudget(long)}.
+ *
+ * Before each iteration is started the principal variation (the sequence of states expected to be
+ * played) found by the previous iteration is supplied. Successors that continue this variation are
+ * searched first so that, with {@link AlphaBetaPrunningSuccessorService}, the best line found so far
+ * gives the tightest bounds on the rest of the tree.
+ *
+ * Once the deadline passes no further successors, other than those of the start node, are returned so the
+ * search unwinds quickly. The states that were cut short are marked as abandoned so that their costs are
+ * not recorded as results and the iteration should then be discarded.
+ *
+ * Helper searches (see {@link com.ahaines.ai.search.game.LazySmpSearchService}) can be given a successor rotation
+ * so that they search the successors of states away from the principal variation in a different order to the
+ * main search.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class IterativeDeepeningSuccessorService<T extends TurnDrivenState> implements SuccessorNodeService<MinMaxState<T>>, NodeVisitor<MinMaxState<T>>{
+
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final SuccessorNodeService<MinMaxState<T>> workerSuccessorService;
+	private final int successorRotation;
+	private List<T> principalVariation;
+	private volatile long deadline;
+	private volatile boolean timedOut;
+	private volatile boolean depthLimited;
+
+	public IterativeDeepeningSuccessorService(SuccessorNodeService<MinMaxState<T>> workerSuccessorService){
+		this(workerSuccessorService, 0);
+	}
+	
+	/**
+	 * Creates a service that rotates the successors of states that are not on the principal variation by the supplied
+	 * number of places.
+	 * @param workerSuccessorService
+	 * @param successorRotation
+	 */
+	public IterativeDeepeningSuccessorService(SuccessorNodeService<MinMaxState<T>> workerSuccessorService, int successorRotation){
+		this.workerSuccessorService = workerSuccessorService;
+		this.successorRotation = successorRotation;
+		finishIterations();
+	}
+
+	/**
+	 * Called before each iteration is searched.
+	 * @param principalVariation The states of the best line found by the previous iteration, starting with the state searched from
+	 * @param deadline The time in millis since the epoch after which the iteration should be abandoned or {@link #NO_DEADLINE}
+	 */
+	public void startIteration(List<T> principalVariation, long deadline){
+		this.principalVariation = principalVariation;
+		this.deadline = deadline;
+		this.timedOut = false;
+		this.depthLimited = false;
+	}
+
+	/**
+	 * Abandons the iteration currently being searched. This can be called from a thread other then the one searching.
+	 */
+	public void abortIteration(){
+		this.deadline = 0;
+	}
+
+	/**
+	 * Called once the iterations have finished so that subsequent searches are neither ordered or time limited.
+	 */
+	public void finishIterations(){
+		startIteration(Collections.<T>emptyList(), NO_DEADLINE);
+	}
+
+	/**
+	 * Returns true if the deadline passed during the last iteration, in which case its results are incomplete.
+	 * @return
+	 */
+	public boolean isTimedOut(){
+		return timedOut;
+	}
+
+	/**
+	 * Returns true if any line of the last iteration may have been cut short by the depth limit. If not, every
+	 * line searched ended the game and deeper iterations will search the same states.
+	 * @return
+	 */
+	public boolean isDepthLimited(){
+		return depthLimited;
+	}
+
+	public Iterable<Node<MinMaxState<T>>> getSuccessors(Node<MinMaxState<T>> node, NodeType type) {
+		if (type != NodeType.START && (timedOut || System.currentTimeMillis() >= deadline)){ // always expand the start node as other services expect it to have successors
+			timedOut = true;
+			for (Node<MinMaxState<T>> incompleteNode = node; incompleteNode != null; incompleteNode = incompleteNode.getParent()){
+				incompleteNode.getState().markSearchAbandoned();
+			}
+			return Collections.emptyList();
+		}
+		Iterable<Node<MinMaxState<T>>> successors = workerSuccessorService.getSuccessors(node, type);
+
+		int ply = node.getDepthFromStart();
+		if (ply + 1 < principalVariation.size() && node.getState().getActualState().equals(principalVariation.get(ply))){
+			return orderPrincipalVariationFirst(successors, principalVariation.get(ply + 1));
+		} else if (successorRotation != 0){
+			List<Node<MinMaxState<T>>> rotatedSuccessors = Lists.newArrayList(successors);
+			Collections.rotate(rotatedSuccessors, successorRotation);
+			
+			return rotatedSuccessors;
+		}
+		return successors;
+	}
+
+	private Iterable<Node<MinMaxState<T>>> orderPrincipalVariationFirst(Iterable<Node<MinMaxState<T>>> successors, T principalState){
+		List<Node<MinMaxState<T>>> orderedSuccessors = Lists.newArrayList(successors);
+
+		for (int i = 0; i < orderedSuccessors.size(); i++){
+			if (orderedSuccessors.get(i).getState().getActualState().equals(principalState)){
+				orderedSuccessors.add(0, orderedSuccessors.remove(i));
+				break;
+			}
+		}
+		return orderedSuccessors;
+	}
+
+	public void preNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
+		if (type == NodeType.LEAF || (node.getState().isResolved() && node.getState().isDepthLimited())){ // a resolved state is only cut short if the search it was resolved from was
+			depthLimited = true;
+		}
+	}
+
+	public void postNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
+		// no op
+	}
+
+	/**
+	 * Returns the principal variation of a searched tree: the sequence of states reached by each player
+	 * picking their highest cost successor.
+	 * @param startNode
+	 * @return
+	 */
+	public static <T extends TurnDrivenState> List<T> getPrincipalVariation(Node<MinMaxState<T>> startNode){
+		List<T> principalVariation = Lists.newArrayList();
+
+		Node<MinMaxState<T>> currentNode = startNode;
+		while (currentNode != null){
+			principalVariation.add(currentNode.getState().getActualState());
+
+			Node<MinMaxState<T>> bestChild = null;
+			for (Node<MinMaxState<T>> child: currentNode.getChildren()){
+				if (bestChild == null || child.getState().getCost() > bestChild.getState().getCost()){ // negmax so each player picks the highest cost successor
+					bestChild = child;
+				}
+			}
+			currentNode = bestChild;
+		}
+		return principalVariation;
+	}
+
+	@SuppressWarnings("unchecked")
+	public Iterable<NodeVisitor<MinMaxState<T>>> getRequestedVisitors() {
+		return Iterables.concat(workerSuccessorService.getRequestedVisitors(), Lists.<NodeVisitor<MinMaxState<T>>>newArrayList(this));
+	}
+}
@@ -0,0 +1,65 @@
+package com.ahaines.ai.search.minmax.service;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.DepthReductionPolicy;
+
+/**
+ * Reduces the depth that quiet moves (those that do not capture) are searched to when they come late in the order
+ * successors are searched (Late Move Reductions). With successors ordered by a {@link MoveOrderingService} the best
+ * move is usually among the first few so later ones are unlikely to matter and a shallower search is enough to show
+ * it.
+ *
+ * Reductions rely on {@link PrincipalVariationSearchSuccessorService} to search a reduced successor again to the
+ * full depth when it turns out to be better then the best successor found so far. Successors of the start node are
+ * never reduced so the move played is always searched to the full depth.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class LateMoveReductionPolicy<T extends TurnDrivenState> implements DepthReductionPolicy<MinMaxState<T>>{
+
+	public static final int DEFAULT_FULL_DEPTH_SUCCESSORS = 3;
+	public static final int DEFAULT_MIN_REDUCTION_DEPTH = 3;
+	public static final int DEFAULT_REDUCTION = 1;
+
+	private final MoveDescriptionService<T> moveDescriptionService;
+	private final int fullDepthSuccessors;
+	private final int minReductionDepth;
+	private final int reduction;
+
+	public LateMoveReductionPolicy(MoveDescriptionService<T> moveDescriptionService){
+		this(moveDescriptionService, DEFAULT_FULL_DEPTH_SUCCESSORS, DEFAULT_MIN_REDUCTION_DEPTH, DEFAULT_REDUCTION);
+	}
+
+	/**
+	 * Creates a policy with the supplied thresholds
+	 * @param moveDescriptionService Identifies the successors that are reached by a capture, which are never reduced
+	 * @param fullDepthSuccessors The number of successors of each state searched to the full depth before any are reduced
+	 * @param minReductionDepth The depth a successor must otherwise be searched to for it to be reduced
+	 * @param reduction The number of plies a reduced successor is searched short of the full depth
+	 */
+	public LateMoveReductionPolicy(MoveDescriptionService<T> moveDescriptionService, int fullDepthSuccessors, int minReductionDepth, int reduction){
+		if (fullDepthSuccessors < 1){
+			throw new IllegalArgumentException("at least the first successor must be searched to the full depth: "+fullDepthSuccessors);
+		}
+		if (reduction < 1 || reduction >= minReductionDepth){
+			throw new IllegalArgumentException("reduction must be at least 1 and less then the minimum reduction depth: "+reduction);
+		}
+		this.moveDescriptionService = moveDescriptionService;
+		this.fullDepthSuccessors = fullDepthSuccessors;
+		this.minReductionDepth = minReductionDepth;
+		this.reduction = reduction;
+	}
+
+	public int getDepthReduction(Node<MinMaxState<T>> parent, Node<MinMaxState<T>> successor, int successorIndex, int successorDepth) {
+		if (parent.getParent() == null || successorIndex < fullDepthSuccessors || successorDepth < minReductionDepth){
+			return 0;
+		}
+		if (moveDescriptionService.isCapture(parent.getState().getActualState(), successor.getState().getActualState())){
+			return 0;
+		}
+		return reduction;
+	}
+}
@@ -1,23 +1,39 @@
 package com.ahaines.ai.search.minmax.service;
 
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Iterator;
 
 import com.ahaines.ai.search.minmax.model.MinMaxState;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState;
 import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.CachedIterable;
 import com.ahaines.ai.search.service.NodeType;
 import com.ahaines.ai.search.service.NodeVisitor;
 import com.ahaines.ai.search.service.SuccessorNodeService;
 import com.ahaines.ai.search.service.SuccessorService;
 import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
 import com.ahaines.ai.search.service.heurstic.service.GoalFilteringSuccessorService;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 
 /**
  * Successor service used to construct the correct state representations for performing min max search.
  * Note that this just delegates to underlying state services that actually generate the successor
  * states.
+ *
+ * Leaf states can optionally be evaluated by a quiescence search: rather then statically evaluating a leaf that has
+ * captures pending, the captures are played out (without creating nodes) until a state with no captures is
+ * reached or the quiescence depth limit is hit. This avoids the horizon effect of evaluating a state just before
+ * a piece is lost. The captures are generated by a separate successor service that only returns the successors
+ * reached by a capture, so the boards of quiet moves are never created. Captures are taken to be forced, as they
+ * are in checkers, so the side to move can not decline them to keep the static evaluation of the state (stand pat).
+ *
+ * States the goal service reports as goals are not searched any further, other then the start state which is
+ * always expanded unless the game has actually been won. This lets a goal service end the search at states whose
+ * result is already known, such as those in an endgame tablebase.
+ *
+ * Successors are wrapped as they are iterated over, so nodes are only created for the successors that the search
+ * gets to before the rest are pruned.
  * @author andrewhaines
  *
  * @param <T>
@@ -25,27 +41,69 @@ import com.google.common.collect.Lists;
 public class MinMaxSuccessorService<T extends TurnDrivenState> implements SuccessorNodeService<MinMaxState<T>>, NodeVisitor<MinMaxState<T>> {
 
 	private final SuccessorService<T> successorService;
+	private final SuccessorService<T> startSuccessorService;
+	private final TurnDrivenGoalService<T> goalService;
 	private final CostFunctionService<T> costFunctionService;
+	private final SuccessorService<T> captureSuccessorService;
+	private final int quiescenceDepthLimit;
 	
 	public MinMaxSuccessorService(SuccessorService<T> staticEvaluationWorkerSuccessorService, TurnDrivenGoalService<T> goalService, CostFunctionService<T> costFunctionService){
+		this(staticEvaluationWorkerSuccessorService, goalService, costFunctionService, null, 0);
+	}
+	
+	/**
+	 * Creates a service that evaluates leaf states by a quiescence search.
+	 * @param staticEvaluationWorkerSuccessorService
+	 * @param goalService
+	 * @param costFunctionService
+	 * @param captureSuccessorService Returns only the successors of a state that are reached by a capture, none when
+	 * the side to move has no capture to make
+	 * @param quiescenceDepthLimit The maximum number of captures played out beyond a leaf state, 0 to evaluate leaf states statically
+	 */
+	public MinMaxSuccessorService(SuccessorService<T> staticEvaluationWorkerSuccessorService, TurnDrivenGoalService<T> goalService, CostFunctionService<T> costFunctionService, SuccessorService<T> captureSuccessorService, int quiescenceDepthLimit){
+		if (quiescenceDepthLimit < 0){
+			throw new IllegalArgumentException("quiescence depth limit can not be negative: "+quiescenceDepthLimit);
+		}
+		if (quiescenceDepthLimit > 0 && captureSuccessorService == null){
+			throw new NullPointerException("a capture successor service is required for quiescence search");
+		}
 		this.successorService = new GoalFilteringSuccessorService<T>(goalService, staticEvaluationWorkerSuccessorService);
+		this.startSuccessorService = staticEvaluationWorkerSuccessorService;
+		this.goalService = goalService;
 		this.costFunctionService = costFunctionService;
+		this.captureSuccessorService = captureSuccessorService == null ? null : new GoalFilteringSuccessorService<T>(goalService, captureSuccessorService);
+		this.quiescenceDepthLimit = quiescenceDepthLimit;
 	}
 	public Iterable<Node<MinMaxState<T>>> getSuccessors(Node<MinMaxState<T>> node, NodeType type) {
-
-		return wrapCostStates(node, successorService.getSuccessors(node.getState().getActualState()));
+		if (node.getState().isResolved()){ // cost is already known so there is no need to search further
+			return Collections.emptyList();
+		}
+		T state = node.getState().getActualState();
+		if (type == NodeType.START && !isGameWon(state)){ // the goal service may end the search at states that are not won, but there must be a move to choose
+			return wrapCostStates(node, startSuccessorService.getSuccessors(state));
+		}
+		return wrapCostStates(node, successorService.getSuccessors(state));
 	}
 	
-	private Iterable<Node<MinMaxState<T>>> wrapCostStates(Node<MinMaxState<T>> currentNode, Iterable<T> successorStates){
-		Collection<Node<MinMaxState<T>>> minMaxSuccessors = new LinkedList<Node<MinMaxState<T>>>(); // TODO these conversions are resulting in a lot of wasted lists. We could consider CachedIterables to avoid them 
-		// now we have the new states, iterate over them and construct new MinMaxStates and construct nodes for them
-		
-		for (T successor: successorStates){
-			MinMaxState<T> minMaxSuccessor = new MinMaxState<T>(successor);
-			minMaxSuccessors.add(new Node<MinMaxState<T>>(currentNode, minMaxSuccessor, currentNode.getComparator()));
-		}
+	private boolean isGameWon(T state){
+		return goalService.isStateWon(state, state.getTurn().getId()) || goalService.isStateWon(state, state.getTurn().nextTurn().getId());
+	}
+	
+	private Iterable<Node<MinMaxState<T>>> wrapCostStates(final Node<MinMaxState<T>> currentNode, Iterable<T> successorStates){
+		final Iterator<T> successors = successorStates.iterator();
 		
-		return minMaxSuccessors;
+		// construct new MinMaxStates and nodes for them as the new states are iterated over
+		return new CachedIterable<Node<MinMaxState<T>>>(new AbstractIterator<Node<MinMaxState<T>>>(){
+
+			@Override
+			protected Node<MinMaxState<T>> computeNext() {
+				if (!successors.hasNext()){
+					return endOfData();
+				}
+				MinMaxState<T> minMaxSuccessor = new MinMaxState<T>(successors.next());
+				return new Node<MinMaxState<T>>(currentNode, minMaxSuccessor, currentNode.getComparator());
+			}
+		});
 	}
 	
 	public void preNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
@@ -54,6 +112,9 @@ public class MinMaxSuccessorService<T extends TurnDrivenState> implements Succes
 
 	public void postNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
 		
+		if (node.getState().isResolved()){
+			return;
+		}
 		if (type != NodeType.LEAF){
 			setDynamicCostEvaluations(node);
 		} else{
@@ -62,12 +123,23 @@ public class MinMaxSuccessorService<T extends TurnDrivenState> implements Succes
 	}
 	
 	private void setStaticCostEvaluation(Node<MinMaxState<T>> node, NodeType type) {
-		int cost = costFunctionService.calculateCost(node.getState().getActualState());
+		T state = node.getState().getActualState();
+		int cost;
+		if (quiescenceDepthLimit > 0){
+			cost = getQuiescentCost(state, node.getDepthFromStart(), 0);
+		} else{
+			cost = getStaticCost(state, node.getDepthFromStart());
+		}
+		node.getState().setCost(cost);
+	}
+	
+	private int getStaticCost(T state, int depthFromStart){
+		int cost = costFunctionService.calculateCost(state);
 		
 		// adapt cost to a scaling factor based on how many transitions it took to calculate
 		double scaledCost = cost;
-		if (cost != 0 && node.getDepthFromStart() != 0){
-			scaledCost = ((cost / node.getDepthFromStart()) * 10000);
+		if (cost != 0 && depthFromStart != 0){
+			scaledCost = ((cost / depthFromStart) * 10000);
 		}
 		
 		if (scaledCost > 0){
@@ -75,8 +147,24 @@ public class MinMaxSuccessorService<T extends TurnDrivenState> implements Succes
 		} else if (scaledCost < 0){
 			cost = (int)Math.round(scaledCost - 1);
 		}
-		
-		node.getState().setCost(cost);
+		return cost;
+	}
+	
+	/**
+	 * Returns the negmax cost of the state found by playing out its captures
+	 */
+	private int getQuiescentCost(T state, int depthFromStart, int quiescenceDepth){
+		if (quiescenceDepth == quiescenceDepthLimit){
+			return getStaticCost(state, depthFromStart);
+		}
+		int captureMax = Integer.MIN_VALUE;
+		for (T successor: captureSuccessorService.getSuccessors(state)){
+			captureMax = Math.max(captureMax, getQuiescentCost(successor, depthFromStart + 1, quiescenceDepth + 1));
+		}
+		if (captureMax == Integer.MIN_VALUE){ // the state is quiet
+			return getStaticCost(state, depthFromStart);
+		}
+		return captureMax * -1; // negmax, the captures are forced so the static cost of this state plays no part
 	}
 	private void setDynamicCostEvaluations(Node<MinMaxState<T>> node) {
 		int childMax = Integer.MIN_VALUE;
@@ -0,0 +1,36 @@
+package com.ahaines.ai.search.minmax.service;
+
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+
+/**
+ * Describes the move that takes a state to one of its successors so that moves can be ordered by
+ * {@link MoveOrderingService} without the search knowing anything of the game being played.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public interface MoveDescriptionService<T extends TurnDrivenState> {
+
+	/**
+	 * Returns the number of distinct move keys, which are numbered from 0
+	 * @return
+	 */
+	public int getMoveKeyCount();
+
+	/**
+	 * Returns a key for the move from the state to the successor, typically made up of the squares moved from and to,
+	 * or {@link MoveOrderingService#NO_MOVE_KEY} if the move can not be described.
+	 * @param state
+	 * @param successor
+	 * @return
+	 */
+	public int getMoveKey(T state, T successor);
+
+	/**
+	 * Returns true if the move from the state to the successor captures an opponents piece
+	 * @param state
+	 * @param successor
+	 * @return
+	 */
+	public boolean isCapture(T state, T successor);
+}
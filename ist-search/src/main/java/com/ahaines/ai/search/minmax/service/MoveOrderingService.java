@@ -0,0 +1,192 @@
+package com.ahaines.ai.search.minmax.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
+import com.ahaines.ai.search.minmax.model.TranspositionTable.Entry;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.StateKeyService;
+import com.google.common.collect.Lists;
+
+/**
+ * Orders the successors of a state before they are searched so that {@link AlphaBetaPrunningSuccessorService}
+ * finds the best successor early and can prune the rest. Successors are searched in the following order:
+ *
+ * 1. The hash move: the best successor recorded for the state in a {@link TranspositionTable}, if one is supplied.
+ * 2. Captures.
+ * 3. Killer moves: the last 2 moves that caused a cut off at the same ply elsewhere in the tree.
+ * 4. The remaining moves by their history score: how often, and how deeply, the same move (as described by its
+ *    key from {@link MoveDescriptionService}) has caused a cut off.
+ *
+ * Killers and the history are kept between searches of the same state (such as the iterations of iterative
+ * deepening). When a different state is searched the killers are cleared, as they are held by ply, and the history is
+ * halved. Updates are not synchronised; when searched from many threads an update may be lost, which only affects
+ * the order moves are searched in.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class MoveOrderingService<T extends TurnDrivenState> {
+
+	public static final int NO_MOVE_KEY = -1;
+
+	private static final int KILLER_SLOTS = 2;
+	private static final int MAX_PLY = 128;
+	private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+	private static final int CAPTURE_SCORE = HASH_MOVE_SCORE - 1;
+	private static final int KILLER_SCORE = CAPTURE_SCORE - KILLER_SLOTS;
+	private static final int MAX_HISTORY_SCORE = 1 << 24; // history is halved when reached so never overtakes a killer
+
+	private final MoveDescriptionService<T> moveDescriptionService;
+	private final TranspositionTable transpositionTable;
+	private final StateKeyService<T> stateKeyService;
+	private final int[][] killers;
+	private final int[] history;
+	private T searchedState;
+
+	public MoveOrderingService(MoveDescriptionService<T> moveDescriptionService){
+		this(moveDescriptionService, null, null);
+	}
+
+	/**
+	 * Creates a service that searches the best successor recorded in the transposition table first.
+	 * @param moveDescriptionService
+	 * @param transpositionTable
+	 * @param stateKeyService Provides the same keys that the table is recorded with
+	 */
+	public MoveOrderingService(MoveDescriptionService<T> moveDescriptionService, TranspositionTable transpositionTable, StateKeyService<T> stateKeyService){
+		this.moveDescriptionService = moveDescriptionService;
+		this.transpositionTable = transpositionTable;
+		this.stateKeyService = stateKeyService;
+		this.killers = new int[MAX_PLY][KILLER_SLOTS];
+		this.history = new int[moveDescriptionService.getMoveKeyCount()];
+		clearKillers();
+	}
+
+	/**
+	 * Called when a search is started from the supplied state.
+	 * @param state
+	 */
+	public void startSearch(T state){
+		if (!state.equals(searchedState)){
+			clearKillers();
+			ageHistory();
+			searchedState = state;
+		}
+	}
+
+	/**
+	 * Returns the successors of the node in the order they should be searched
+	 * @param node
+	 * @param successors
+	 * @return
+	 */
+	public List<Node<MinMaxState<T>>> order(Node<MinMaxState<T>> node, Iterable<Node<MinMaxState<T>>> successors){
+		List<Node<MinMaxState<T>>> orderedSuccessors = Lists.newArrayList(successors);
+		if (orderedSuccessors.size() < 2){
+			return orderedSuccessors;
+		}
+		T state = node.getState().getActualState();
+		long hashMove = getHashMove(state);
+		int ply = node.getDepthFromStart() + 1;
+
+		int[] scores = new int[orderedSuccessors.size()];
+		for (int i = 0; i < scores.length; i++){
+			scores[i] = getScore(state, orderedSuccessors.get(i).getState().getActualState(), hashMove, ply);
+		}
+		// insertion sort as there are few successors and the generated order should be kept between equal scores
+		for (int i = 1; i < scores.length; i++){
+			int score = scores[i];
+			Node<MinMaxState<T>> successor = orderedSuccessors.get(i);
+			int j = i - 1;
+			for (; j >= 0 && scores[j] < score; j--){
+				scores[j + 1] = scores[j];
+				orderedSuccessors.set(j + 1, orderedSuccessors.get(j));
+			}
+			scores[j + 1] = score;
+			orderedSuccessors.set(j + 1, successor);
+		}
+		return orderedSuccessors;
+	}
+
+	private int getScore(T state, T successor, long hashMove, int ply){
+		if (hashMove != TranspositionTable.NO_MOVE && stateKeyService.getKey(successor) == hashMove){
+			return HASH_MOVE_SCORE;
+		}
+		if (moveDescriptionService.isCapture(state, successor)){
+			return CAPTURE_SCORE;
+		}
+		int moveKey = moveDescriptionService.getMoveKey(state, successor);
+		if (moveKey == NO_MOVE_KEY){
+			return 0;
+		}
+		if (ply < MAX_PLY){
+			for (int slot = 0; slot < KILLER_SLOTS; slot++){
+				if (killers[ply][slot] == moveKey){
+					return KILLER_SCORE - slot;
+				}
+			}
+		}
+		return history[moveKey];
+	}
+
+	private long getHashMove(T state){
+		if (transpositionTable == null){
+			return TranspositionTable.NO_MOVE;
+		}
+		Entry entry = transpositionTable.probe(stateKeyService.getKey(state));
+
+		return (entry == null)?TranspositionTable.NO_MOVE:entry.getBestMove();
+	}
+
+	/**
+	 * Records that the successor was good enough for the rest of the successors of the parent to be pruned.
+	 * @param parent
+	 * @param successor
+	 * @param depth The depth the successor was searched to
+	 */
+	public void recordCutoff(Node<MinMaxState<T>> parent, Node<MinMaxState<T>> successor, int depth){
+		T state = parent.getState().getActualState();
+		T successorState = successor.getState().getActualState();
+		if (moveDescriptionService.isCapture(state, successorState)){ // captures are already searched early
+			return;
+		}
+		int moveKey = moveDescriptionService.getMoveKey(state, successorState);
+		if (moveKey == NO_MOVE_KEY){
+			return;
+		}
+		int ply = successor.getDepthFromStart();
+		if (ply < MAX_PLY && killers[ply][0] != moveKey){
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = moveKey;
+		}
+		history[moveKey] += (depth + 1) * (depth + 1); // cut offs found deeper in the tree save more
+		if (history[moveKey] >= MAX_HISTORY_SCORE){
+			ageHistory();
+		}
+	}
+
+	/**
+	 * Returns the history score of the move key. Higher scores are searched earlier.
+	 * @param moveKey
+	 * @return
+	 */
+	public int getHistoryScore(int moveKey){
+		return history[moveKey];
+	}
+
+	private void clearKillers(){
+		for (int[] plyKillers: killers){
+			Arrays.fill(plyKillers, NO_MOVE_KEY);
+		}
+	}
+
+	private void ageHistory(){
+		for (int i = 0; i < history.length; i++){
+			history[i] >>= 1;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.ahaines.ai.search.minmax.service;
+
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.CancellationToken;
+import com.ahaines.ai.search.service.DepthReductionPolicy;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SuccessorNodeService;
+
+/**
+ * Finds the cost of the start node by MTD(f): a series of searches with a null window (see
+ * {@link MinMaxState#setWindow(int, int)}) around a guess of the cost. Each search proves that the cost of the best
+ * successor is either above or below the guess and returns a bound on it that becomes the next guess, until the
+ * upper and lower bounds meet. The first guess is the cost found by the previous search.
+ *
+ * As each search only proves a bound, they prune far more of the tree then a search with a full window. The
+ * successor services must contain a {@link PrincipalVariationSearchSuccessorService}, to search within the window,
+ * and a {@link TranspositionTableSuccessorService} so that the bounds proved by each search are not searched again by
+ * the next. Searches can be driven by iterative deepening in the same way as a
+ * {@link com.ahaines.ai.search.service.SearchService}, in which case the {@link IterativeDeepeningSuccessorService}
+ * should be supplied so that no further searches are made once it has timed out. Likewise no further searches are
+ * made once the search is cancelled.
+ *
+ * The successors of the start node are those of the last search that proved the lower bound, as the best of these is
+ * the one that achieves the cost.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class MtdfSearchService<T extends TurnDrivenState> extends WindowedSearchService<T>{
+
+	private static final Logger LOG = LoggerFactory.getLogger(MtdfSearchService.class);
+	private int firstGuess;
+
+	private MtdfSearchService(SuccessorNodeService<MinMaxState<T>> successorService, Iterable<NodeVisitor<MinMaxState<T>>> visitors, IterativeDeepeningSuccessorService<T> iterativeDeepeningService, DepthReductionPolicy<MinMaxState<T>> depthReductionPolicy){
+		super(successorService, visitors, iterativeDeepeningService, depthReductionPolicy);
+		this.firstGuess = 0;
+	}
+
+	@Override
+	public void depthFirstSearch(Node<MinMaxState<T>> startNode, int depthLimit, CancellationToken cancellationToken){
+		int lowerBound = -Integer.MAX_VALUE;
+		int upperBound = Integer.MAX_VALUE;
+		int guess = firstGuess;
+		Node<MinMaxState<T>> bestSearch = null;
+		int searches = 0;
+
+		while (lowerBound < upperBound){
+			int beta = (guess == lowerBound)?guess + 1:guess;
+
+			Node<MinMaxState<T>> searchNode = searchWithinWindow(startNode, beta - 1, beta, depthLimit, cancellationToken);
+			searches++;
+
+			Integer cost = searchNode.getState().getBestSuccessorCost();
+			if (cost == null){ // no successors so there is nothing to converge on
+				bestSearch = searchNode;
+				break;
+			}
+			guess = cost;
+			if (guess < beta){
+				upperBound = guess;
+			} else{
+				lowerBound = guess;
+				bestSearch = searchNode;
+			}
+			if (bestSearch == null){
+				bestSearch = searchNode; // there is always a move to play
+			}
+			if (isTimedOut(cancellationToken)){
+				break;
+			}
+		}
+		LOG.debug("converged on {} after {} searches", guess, searches);
+		firstGuess = guess;
+
+		useSearch(bestSearch, startNode);
+	}
+
+	/**
+	 * Constructs {@link MtdfSearchService}s
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	public static class MtdfSearchServiceBuilder<T extends TurnDrivenState> extends WindowedSearchServiceBuilder<T>{
+
+		public MtdfSearchServiceBuilder(SuccessorNodeService<MinMaxState<T>> successorService) {
+			super(successorService);
+		}
+
+		@Override
+		public MtdfSearchServiceBuilder<T> registerVisitor(NodeVisitor<? super MinMaxState<T>> visitor){
+			super.registerVisitor(visitor);
+			return this;
+		}
+
+		@Override
+		public MtdfSearchServiceBuilder<T> useDepthReductionPolicy(DepthReductionPolicy<MinMaxState<T>> depthReductionPolicy){
+			super.useDepthReductionPolicy(depthReductionPolicy);
+			return this;
+		}
+
+		@Override
+		public MtdfSearchServiceBuilder<T> setIterativeDeepeningService(IterativeDeepeningSuccessorService<T> iterativeDeepeningService){
+			super.setIterativeDeepeningService(iterativeDeepeningService);
+			return this;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public MtdfSearchService<T> build(){
+			if (forkJoinPool != null){
+				throw new IllegalStateException("MTD(f) searches can not be made in parallel");
+			}
+			return new MtdfSearchService<T>(successorService, (Collection)visitors, iterativeDeepeningService, depthReductionPolicy);
+		}
+	}
+}
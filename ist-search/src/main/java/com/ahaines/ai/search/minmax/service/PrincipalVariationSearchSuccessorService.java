@@ -0,0 +1,143 @@
+package com.ahaines.ai.search.minmax.service;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.NodeType;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SuccessorNodeService;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * An alternative to {@link AlphaBetaPrunningSuccessorService} that searches each state within an explicit window
+ * (see {@link MinMaxState#setWindow(int, int)}) and narrows the window of later successors as better ones are
+ * found (Principal Variation Search or NegaScout).
+ *
+ * The first successor of a state is expected to be the best so is searched with the full window of the state. The
+ * rest are searched with a null window, which only proves whether they are worse then the best found so far and so
+ * prunes far more of their subtrees. When a successor proves to be better (it fails high) it is searched again
+ * with the full window (see {@link Node#setResearchNode(Node)}) to find its actual cost. As this only pays off when
+ * the best successor is usually searched first, successors should be ordered by a {@link MoveOrderingService}.
+ *
+ * Costs are negmax: a state picks the successor with the highest cost and costs the negation of it. The window of a
+ * successor is therefore the negation of its parent's window. States whose cost falls outside of their window are
+ * only bounds on their actual cost and are marked as incomplete.
+ *
+ * Successors searched to a reduced depth (see {@link LateMoveReductionPolicy}) that prove to be better then the
+ * best so far are searched again to the full depth before their cost is used.
+ *
+ * The successors of a state share its window so they can not be searched in parallel.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class PrincipalVariationSearchSuccessorService<T extends TurnDrivenState> implements SuccessorNodeService<MinMaxState<T>>, NodeVisitor<MinMaxState<T>>{
+
+	private final MinMaxSuccessorService<T> workerSuccessor;
+	private final MoveOrderingService<T> moveOrderingService;
+
+	public PrincipalVariationSearchSuccessorService(MinMaxSuccessorService<T> workerSuccessor){
+		this(workerSuccessor, null);
+	}
+
+	/**
+	 * Creates a service that searches successors in the order given by the supplied service
+	 * @param workerSuccessor
+	 * @param moveOrderingService The service to order successors with or null to search them in the order they are generated
+	 */
+	public PrincipalVariationSearchSuccessorService(MinMaxSuccessorService<T> workerSuccessor, MoveOrderingService<T> moveOrderingService){
+		this.workerSuccessor = workerSuccessor;
+		this.moveOrderingService = moveOrderingService;
+	}
+
+	public Iterable<Node<MinMaxState<T>>> getSuccessors(Node<MinMaxState<T>> node, NodeType type) {
+		Iterable<Node<MinMaxState<T>>> successors = workerSuccessor.getSuccessors(node, type);
+		if (moveOrderingService != null){
+			return moveOrderingService.order(node, successors);
+		}
+		return successors;
+	}
+
+	public void preNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
+		if (type == NodeType.START){ // the start node keeps the window it was created with, which is unbounded by default
+			if (moveOrderingService != null){
+				moveOrderingService.startSearch(node.getState().getActualState());
+			}
+			return;
+		}
+		if (node.getState() instanceof ResearchState){ // the window was set when the re-search was requested
+			return;
+		}
+		MinMaxState<T> parentState = node.getParent().getState();
+		int alpha = parentState.getSuccessorAlpha();
+
+		if (isNullWindowSearch(node)){
+			node.getState().setWindow(-alpha - 1, -alpha);
+		} else{
+			node.getState().setWindow(-parentState.getBeta(), -alpha);
+		}
+	}
+
+	/**
+	 * Returns true if the node is searched with a null window: it is not the first successor of its parent to be
+	 * searched, it is not a re-search and its parent's window is wider then a null window.
+	 */
+	private boolean isNullWindowSearch(Node<MinMaxState<T>> node){
+		MinMaxState<T> parentState = node.getParent().getState();
+
+		return parentState.getBestSuccessorCost() != null && !(node.getState() instanceof ResearchState)
+				&& parentState.getBeta() - parentState.getSuccessorAlpha() > 1;
+	}
+
+	public void postNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
+		MinMaxState<T> state = node.getState();
+		Integer bestSuccessorCost = state.getBestSuccessorCost();
+		if (bestSuccessorCost != null && (bestSuccessorCost <= state.getAlpha() || bestSuccessorCost >= state.getBeta())){ // the cost is only a bound
+			state.markSearchIncomplete();
+		}
+		if (type == NodeType.START || node.getParent() == null){ // we have no parent on the start node, which is a leaf when it has no successors
+			return;
+		}
+		Node<MinMaxState<T>> parent = node.getParent();
+		MinMaxState<T> parentState = parent.getState();
+		int cost = state.getCost();
+
+		if (node.getDepthReduction() > 0 && cost > parentState.getSuccessorAlpha()){ // the reduced depth may have hidden why it is better
+			node.setResearchNode(new Node<MinMaxState<T>>(parent, new MinMaxState<T>(state.getActualState()), node.getComparator()));
+			return;
+		}
+		if (isNullWindowSearch(node) && cost > parentState.getSuccessorAlpha() && cost < parentState.getBeta()){ // better then the best so far so find out by how much
+			ResearchState<T> researchState = new ResearchState<T>(state.getActualState());
+			researchState.setWindow(-parentState.getBeta(), -parentState.getSuccessorAlpha()); // the window it would have had as the first successor
+			node.setResearchNode(new Node<MinMaxState<T>>(parent, researchState, node.getComparator()));
+		}
+		boolean cutOff = parentState.getSuccessorAlpha() >= parentState.getBeta();
+		parentState.compareAndSetBestSuccessorCost(cost);
+
+		if (!cutOff && parentState.getSuccessorAlpha() >= parentState.getBeta()){ // the parent will not be picked so ignore the rest of its successors
+			parent.setCutOff(true);
+			if (moveOrderingService != null){
+				moveOrderingService.recordCutoff(parent, node, depth);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public Iterable<NodeVisitor<MinMaxState<T>>> getRequestedVisitors() {
+		return Iterables.concat(workerSuccessor.getRequestedVisitors(), Lists.<NodeVisitor<MinMaxState<T>>>newArrayList(this));
+	}
+
+	/**
+	 * The state of a successor that is searched again with the full window after failing high.
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	private static class ResearchState<T extends TurnDrivenState> extends MinMaxState<T>{
+
+		private ResearchState(T actualState){
+			super(actualState);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.ahaines.ai.search.minmax.service;
+
+import java.util.Collections;
+
+import com.ahaines.ai.search.minmax.model.BoundType;
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
+import com.ahaines.ai.search.minmax.model.TranspositionTable.Entry;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.NodeType;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.StateKeyService;
+import com.ahaines.ai.search.service.SuccessorNodeService;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Recognises states that have already been searched, even if they were reached by a different sequence of moves
+ * (a transposition), by recording the result of each search against a key of the state's contents in a
+ * {@link TranspositionTable}. Unlike {@link com.ahaines.ai.search.service.CachedSuccessorService}, which caches
+ * on the identity of a node, this allows whole subtrees to be skipped when an equivalent state is found elsewhere
+ * in the tree.
+ *
+ * When a state is visited with an exact result recorded at the same ply and at least the same depth, its cost is
+ * resolved from the table and no successors are returned for it. The ply has to match as leaf costs are scaled by
+ * their distance from the start of the search.
+ *
+ * Costs of states whose successors were pruned by {@link AlphaBetaPrunningSuccessorService} depend on where they
+ * were found in the tree so they are only recorded as bounds. These are never used to resolve a state but, along
+ * with the best successor recorded for every state, are available to services that order moves.
+ *
+ * Each result records whether the search of the state was cut short by the depth limit, which is set on the states
+ * resolved from it (see {@link MinMaxState#isDepthLimited()}) so that {@link IterativeDeepeningSuccessorService} can
+ * tell when a tree has been searched to the end of every line.
+ *
+ * States searched within a window (see {@link MinMaxState#setWindow(int, int)}) record whether they failed high or
+ * low. A bound is used to resolve a state when it shows that the state falls outside of the window it is now searched
+ * in, in which case the state is marked as incomplete. This lets searches made up of many narrow windows, such as
+ * {@link MtdfSearchService}, carry what each has proved on to the next.
+ *
+ * Entries are not aged by this service, as a move is chosen by many searches that may run at the same time, such as
+ * the iterations of {@link IterativeDeepeningSuccessorService} and the helpers of
+ * {@link com.ahaines.ai.search.game.LazySmpSearchService}. {@link TranspositionTable#newSearch()} should instead be
+ * called once for each move, as {@link com.ahaines.ai.search.game.TurnDrivenGameService} does.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class TranspositionTableSuccessorService<T extends TurnDrivenState> implements SuccessorNodeService<MinMaxState<T>>, NodeVisitor<MinMaxState<T>>{
+
+	private final SuccessorNodeService<MinMaxState<T>> workerSuccessorService;
+	private final TranspositionTable transpositionTable;
+	private final StateKeyService<T> stateKeyService;
+
+	public TranspositionTableSuccessorService(SuccessorNodeService<MinMaxState<T>> workerSuccessorService, TranspositionTable transpositionTable, StateKeyService<T> stateKeyService){
+		this.workerSuccessorService = workerSuccessorService;
+		this.transpositionTable = transpositionTable;
+		this.stateKeyService = stateKeyService;
+	}
+
+	public Iterable<Node<MinMaxState<T>>> getSuccessors(Node<MinMaxState<T>> node, NodeType type) {
+		if (node.getState().isResolved()){
+			return Collections.emptyList();
+		}
+		return workerSuccessorService.getSuccessors(node, type);
+	}
+
+	public void preNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
+		if (type == NodeType.START){ // never resolve the start node as we need its successors to pick a move
+			return;
+		}
+		Entry entry = transpositionTable.probe(getKey(node));
+
+		if (entry != null && entry.getDepth() >= depth && entry.getPly() == node.getDepthFromStart()){
+			MinMaxState<T> state = node.getState();
+			if (entry.getBound() == BoundType.EXACT){
+				state.resolveCost(entry.getScore());
+				state.setDepthLimited(isDepthLimited(entry, node, depth));
+			} else if (isOutsideWindow(entry, state)){
+				state.resolveCost(entry.getScore());
+				state.markSearchIncomplete();
+				state.setDepthLimited(isDepthLimited(entry, node, depth));
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the result may have been cut short of where the state would be searched to without any depth
+	 * reduction (see {@link com.ahaines.ai.search.service.DepthReductionPolicy})
+	 */
+	private boolean isDepthLimited(Entry entry, Node<MinMaxState<T>> node, int depth){
+		return entry.isDepthLimited() || entry.getDepth() < depth + node.getDepthReduction();
+	}
+
+	/**
+	 * Returns true if the bound shows that the best successor of the state will cost alpha or less or beta or more.
+	 * Costs are negmax so the successor costs the negation of the state.
+	 */
+	private boolean isOutsideWindow(Entry entry, MinMaxState<T> state){
+		if (entry.getBound() == BoundType.LOWER){
+			return -entry.getScore() <= state.getAlpha();
+		}
+		return -entry.getScore() >= state.getBeta();
+	}
+
+	public void postNodeVisited(Node<MinMaxState<T>> node, int depth, NodeType type) {
+		MinMaxState<T> state = node.getState();
+		if (state.isResolved() || state.isSearchAbandoned() || node.isSearchAbandoned()){ // already held in the table or the cost means nothing
+			return;
+		}
+		long bestMove = TranspositionTable.NO_MOVE;
+		int bestCost = Integer.MIN_VALUE;
+		for (Node<MinMaxState<T>> child: node.getChildren()){
+			if (child.getState().getCost() > bestCost){ // negmax so the opponent picks the highest cost successor
+				bestCost = child.getState().getCost();
+				bestMove = getKey(child);
+			}
+		}
+		BoundType bound = getBound(state);
+		state.setDepthLimited(isDepthLimited(node, depth));
+
+		transpositionTable.store(getKey(node), depth, node.getDepthFromStart(), bound, state.getCost(), bestMove, state.isDepthLimited());
+	}
+
+	/**
+	 * Returns true if the node was a leaf at the depth limit or any of its successors were cut short by it
+	 */
+	private boolean isDepthLimited(Node<MinMaxState<T>> node, int depth){
+		if (depth <= 0){
+			return true;
+		}
+		for (Node<MinMaxState<T>> child: node.getChildren()){
+			if (child.getState().isDepthLimited()){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private BoundType getBound(MinMaxState<T> state){
+		Integer bestSuccessorCost = state.getBestSuccessorCost();
+		if (bestSuccessorCost != null && bestSuccessorCost <= state.getAlpha()){
+			return BoundType.LOWER;
+		}
+		return state.isSearchComplete()?BoundType.EXACT:BoundType.UPPER;
+	}
+
+	private long getKey(Node<MinMaxState<T>> node){
+		return stateKeyService.getKey(node.getState().getActualState());
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return transpositionTable;
+	}
+
+	@SuppressWarnings("unchecked")
+	public Iterable<NodeVisitor<MinMaxState<T>>> getRequestedVisitors() {
+		return Iterables.concat(workerSuccessorService.getRequestedVisitors(), Lists.<NodeVisitor<MinMaxState<T>>>newArrayList(this));
+	}
+}
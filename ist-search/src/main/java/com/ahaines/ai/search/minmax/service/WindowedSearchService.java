@@ -0,0 +1,120 @@
+package com.ahaines.ai.search.minmax.service;
+
+import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TurnDrivenState;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.CancellationToken;
+import com.ahaines.ai.search.service.DepthReductionPolicy;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SearchService;
+import com.ahaines.ai.search.service.SuccessorNodeService;
+
+/**
+ * Base of the search services that find the cost of the start node through a number of searches, each made with the
+ * start node restricted to a window (see {@link MinMaxState#setWindow(int, int)}). Each search is made from a fresh
+ * copy of the start node and the tree of the search that found the cost is then moved on to the start node.
+ *
+ * The successor services must contain a {@link PrincipalVariationSearchSuccessorService} to search within the
+ * window and, so that later searches do not repeat the work of earlier ones, should contain a
+ * {@link TranspositionTableSuccessorService}.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public abstract class WindowedSearchService<T extends TurnDrivenState> extends SearchService<MinMaxState<T>>{
+
+	private final IterativeDeepeningSuccessorService<T> iterativeDeepeningService;
+
+	protected WindowedSearchService(SuccessorNodeService<MinMaxState<T>> successorService, Iterable<NodeVisitor<MinMaxState<T>>> visitors, IterativeDeepeningSuccessorService<T> iterativeDeepeningService, DepthReductionPolicy<MinMaxState<T>> depthReductionPolicy){
+		super(successorService, visitors, null, null, depthReductionPolicy);
+		this.iterativeDeepeningService = iterativeDeepeningService;
+	}
+
+	/**
+	 * Searches a copy of the start node with its best successor costed within the window.
+	 * @param startNode
+	 * @param alpha
+	 * @param beta
+	 * @param depthLimit
+	 * @param cancellationToken
+	 * @return The searched copy of the start node
+	 */
+	protected Node<MinMaxState<T>> searchWithinWindow(Node<MinMaxState<T>> startNode, int alpha, int beta, int depthLimit, CancellationToken cancellationToken){
+		Node<MinMaxState<T>> searchNode = new Node<MinMaxState<T>>(null, new MinMaxState<T>(startNode.getState().getActualState()), startNode.getComparator());
+		searchNode.getState().setWindow(alpha, beta);
+		super.depthFirstSearch(searchNode, depthLimit, cancellationToken);
+
+		return searchNode;
+	}
+
+	/**
+	 * Moves the cost and successors of a searched copy on to the start node.
+	 * @param searchNode
+	 * @param startNode
+	 */
+	protected void useSearch(Node<MinMaxState<T>> searchNode, Node<MinMaxState<T>> startNode){
+		MinMaxState<T> startState = startNode.getState();
+		startState.setCost(searchNode.getState().getCost());
+		if (!searchNode.getState().isSearchComplete()){
+			startState.markSearchIncomplete();
+		}
+		if (searchNode.isSearchAbandoned()){
+			startNode.markSearchAbandoned();
+		}
+		for (Node<MinMaxState<T>> child: searchNode.getChildren()){
+			child.setParent(startNode);
+			startNode.addChild(child);
+		}
+	}
+
+	/**
+	 * Returns true if the iterative deepening service, if one was supplied, has run out of time or the search has been
+	 * cancelled, in which case no further searches should be made.
+	 * @param cancellationToken
+	 * @return
+	 */
+	protected boolean isTimedOut(CancellationToken cancellationToken){
+		return (iterativeDeepeningService != null && iterativeDeepeningService.isTimedOut()) || (cancellationToken != null && cancellationToken.isCancelled());
+	}
+
+	/**
+	 * Constructs {@link WindowedSearchService}s
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	public static abstract class WindowedSearchServiceBuilder<T extends TurnDrivenState> extends SearchServiceBuilder<MinMaxState<T>>{
+
+		protected IterativeDeepeningSuccessorService<T> iterativeDeepeningService;
+
+		protected WindowedSearchServiceBuilder(SuccessorNodeService<MinMaxState<T>> successorService) {
+			super(successorService);
+		}
+
+		@Override
+		public WindowedSearchServiceBuilder<T> registerVisitor(NodeVisitor<? super MinMaxState<T>> visitor){
+			super.registerVisitor(visitor);
+			return this;
+		}
+
+		@Override
+		public WindowedSearchServiceBuilder<T> useDepthReductionPolicy(DepthReductionPolicy<MinMaxState<T>> depthReductionPolicy){
+			super.useDepthReductionPolicy(depthReductionPolicy);
+			return this;
+		}
+
+		/**
+		 * Sets the iterative deepening service that is part of the successor services, so that searches stop once it
+		 * has timed out.
+		 * @param iterativeDeepeningService
+		 * @return
+		 */
+		public WindowedSearchServiceBuilder<T> setIterativeDeepeningService(IterativeDeepeningSuccessorService<T> iterativeDeepeningService){
+			this.iterativeDeepeningService = iterativeDeepeningService;
+			return this;
+		}
+
+		@Override
+		public abstract WindowedSearchService<T> build();
+	}
+}
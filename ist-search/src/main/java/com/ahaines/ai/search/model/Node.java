@@ -12,8 +12,12 @@ public class Node<T extends Identifiable> implements Identifiable{
 	private final T state;
 	private int workToBeCompleted;
 	private boolean isEvaluated;
+	private boolean cutOff;
 	private final Comparator<Node<T>> comparator;
 	private final int depthFromStart;
+	private Node<T> researchNode;
+	private int depthReduction;
+	private volatile boolean searchAbandoned;
 	
 	public Node(Node<T> parent, T state, Comparator<Node<T>> heuristicSorter){
 		this.parent = parent;
@@ -102,6 +106,19 @@ public class Node<T extends Identifiable> implements Identifiable{
 	public void setEvaluatedComplete(){
 		isEvaluated = true;
 	}
+	
+	/**
+	 * Returns true if the rest of the successors of this node have been pruned so should not be searched. Unlike
+	 * {@link #isEvaluated()} this is not reset as children are added.
+	 * @return
+	 */
+	public boolean isCutOff() {
+		return cutOff;
+	}
+	
+	public void setCutOff(boolean cutOff) {
+		this.cutOff = cutOff;
+	}
 
 	public int getId() {
 		return state.getId();
@@ -119,4 +136,46 @@ public class Node<T extends Identifiable> implements Identifiable{
 	public Comparator<Node<T>> getComparator() {
 		return comparator;
 	}
+	
+	/**
+	 * Returns the node to search in place of this one once it has been searched or null if this node's result stands.
+	 * @return
+	 */
+	public Node<T> getResearchNode() {
+		return researchNode;
+	}
+	
+	/**
+	 * Requests that the search of this node is repeated using the supplied node, which should share this node's
+	 * parent. Only the node searched last is added to the parent.
+	 * @param researchNode
+	 */
+	public void setResearchNode(Node<T> researchNode) {
+		this.researchNode = researchNode;
+	}
+	
+	/**
+	 * Returns the number of plies less then the full depth that this node is searched to. See
+	 * {@link com.ahaines.ai.search.service.DepthReductionPolicy}
+	 * @return
+	 */
+	public int getDepthReduction() {
+		return depthReduction;
+	}
+	
+	public void setDepthReduction(int depthReduction) {
+		this.depthReduction = depthReduction;
+	}
+	
+	/**
+	 * Marks that the search of this node was cut short as the search was cancelled (see
+	 * {@link com.ahaines.ai.search.service.CancellationToken}), so the results of its successors are incomplete.
+	 */
+	public void markSearchAbandoned() {
+		this.searchAbandoned = true;
+	}
+	
+	public boolean isSearchAbandoned() {
+		return searchAbandoned;
+	}
 }
@@ -0,0 +1,54 @@
+package com.ahaines.ai.search.service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.google.common.collect.Lists;
+
+/**
+ * An iterable whose elements are only generated, by the supplied iterator, as they are iterated over. This lets
+ * successors be created on demand so that a search that stops iterating over them early (for instance when the rest
+ * are pruned) never creates the rest. Elements are kept once generated so that the iterable can be iterated over
+ * again, returning the same elements, as is done by {@link CachedSuccessorService}.
+ *
+ * Like the successors of a node, an instance is expected to be iterated over by only one thread at a time.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class CachedIterable<T> implements Iterable<T>{
+
+	private final Iterator<T> generator;
+	private final List<T> generated;
+
+	public CachedIterable(Iterator<T> generator){
+		this.generator = generator;
+		this.generated = Lists.newArrayList();
+	}
+
+	public Iterator<T> iterator() {
+		return new Iterator<T>(){
+
+			private int idx = 0;
+
+			public boolean hasNext() {
+				return idx < generated.size() || generator.hasNext();
+			}
+
+			public T next() {
+				if (idx == generated.size()){
+					if (!generator.hasNext()){
+						throw new NoSuchElementException();
+					}
+					generated.add(generator.next());
+				}
+				return generated.get(idx++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("successors can not be removed");
+			}
+		};
+	}
+}
@@ -0,0 +1,62 @@
+package com.ahaines.ai.search.service;
+
+/**
+ * Stops a search before it has finished, either when {@link #cancel()} is called, which can be from any thread, or
+ * once a deadline has passed. The search checks the token every so many nodes (see
+ * {@link SearchService#CANCELLATION_CHECK_INTERVAL}) so that checking does not slow it down, then stops expanding
+ * nodes and returns with the results it has found so far.
+ * @author andrewhaines
+ *
+ */
+public class CancellationToken {
+
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+	private volatile long deadline;
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a token that is only cancelled by {@link #cancel()}
+	 */
+	public CancellationToken(){
+		this(NO_DEADLINE);
+	}
+
+	/**
+	 * Creates a token that is cancelled by {@link #cancel()} or once the deadline passes
+	 * @param deadline The time in millis since the epoch after which the search is cancelled or {@link #NO_DEADLINE}
+	 */
+	public CancellationToken(long deadline){
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Cancels the searches using this token
+	 */
+	public void cancel(){
+		this.cancelled = true;
+	}
+
+	/**
+	 * Moves the deadline of the token, which can be done while it is being used by a search
+	 * @param deadline The time in millis since the epoch after which the search is cancelled or {@link #NO_DEADLINE}
+	 */
+	public void setDeadline(long deadline){
+		this.deadline = deadline;
+	}
+
+	public long getDeadline(){
+		return deadline;
+	}
+
+	/**
+	 * Returns true once the token has been cancelled or its deadline has passed
+	 * @return
+	 */
+	public boolean isCancelled(){
+		long deadline = this.deadline;
+		if (!cancelled && deadline != NO_DEADLINE && System.currentTimeMillis() >= deadline){
+			cancelled = true;
+		}
+		return cancelled;
+	}
+}
@@ -0,0 +1,32 @@
+package com.ahaines.ai.search.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads that searches and other long running calculations share their work with. The threads are
+ * daemons so that they never keep the application alive, and are numbered after the name they are given so that
+ * they can be told apart.
+ * @author andrewhaines
+ *
+ */
+public class DaemonThreadFactory implements ThreadFactory{
+
+	private final String name;
+	private final AtomicInteger threadCount;
+
+	/**
+	 * @param name The name of the threads, which each thread is numbered after
+	 */
+	public DaemonThreadFactory(String name){
+		this.name = name;
+		this.threadCount = new AtomicInteger();
+	}
+
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, name+"-"+threadCount.incrementAndGet());
+		thread.setDaemon(true);
+
+		return thread;
+	}
+}
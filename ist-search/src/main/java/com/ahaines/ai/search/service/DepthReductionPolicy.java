@@ -0,0 +1,25 @@
+package com.ahaines.ai.search.service;
+
+import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.ai.search.model.Node;
+
+/**
+ * Decides whether a successor is searched to less then the full depth. The successor is marked with its reduction
+ * (see {@link Node#getDepthReduction()}) so that visitors can request that it is searched again to the full depth
+ * (see {@link Node#setResearchNode(Node)}) if its result turns out to matter.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public interface DepthReductionPolicy<T extends Identifiable> {
+
+	/**
+	 * Returns the number of plies to reduce the search of the successor by, or 0 to search it to the full depth.
+	 * @param parent
+	 * @param successor
+	 * @param successorIndex The position of the successor in the order the successors of the parent are searched, from 0
+	 * @param successorDepth The depth the successor would be searched to without a reduction
+	 * @return
+	 */
+	public int getDepthReduction(Node<T> parent, Node<T> successor, int successorIndex, int successorDepth);
+}
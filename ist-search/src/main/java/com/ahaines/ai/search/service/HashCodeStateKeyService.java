@@ -0,0 +1,22 @@
+package com.ahaines.ai.search.service;
+
+import com.ahaines.ai.search.model.Identifiable;
+
+/**
+ * Derives the key of a state from its {@link Object#hashCode()}. The hash is spread over the 64 bits of the key
+ * so that the low bits used to index tables are well distributed. Only suitable for states that implement
+ * hashCode based on their contents.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class HashCodeStateKeyService<T extends Identifiable> implements StateKeyService<T>{
+
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+	
+	public long getKey(T state) {
+		long key = state.hashCode() * GOLDEN_RATIO;
+		return key ^ (key >>> 32);
+	}
+
+}
@@ -4,17 +4,45 @@ import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ahaines.ai.search.model.Identifiable;
 import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.SplitService.IndependentSplitService;
+import com.google.common.collect.Lists;
 
 /**
  * Service that performs a search providing relevant callbacks via {@link NodeVisitor} implementations
  * as nodes are expanded in the search. 
+ * 
+ * When created with a {@link ForkJoinPool}, the successors of the start node are searched in parallel.
+ * The first successor is searched on its own so that its result is available to the rest (younger
+ * brothers wait), the remaining successors are then searched concurrently in the pool with the
+ * {@link SplitService} isolating them from each other. The successor and visitor services must be
+ * safe to use from multiple threads in this mode.
+ * 
+ * A visitor can request that a successor is searched again once its search has finished by setting a research
+ * node on it (see {@link Node#setResearchNode(Node)}). This is honoured when searching serially.
+ * 
+ * A successor service or visitor can prune the rest of the successors of a node by marking it as cut off (see
+ * {@link Node#setCutOff(boolean)}). The mark is checked before each successor is generated so that the pruned
+ * successors are never generated.
+ * 
+ * When created with a {@link DepthReductionPolicy}, successors can be searched to a reduced depth when searching
+ * serially. Research nodes are always searched to the full depth.
+ * 
+ * A search can be stopped before it finishes with a {@link CancellationToken}, which is checked every
+ * {@link #CANCELLATION_CHECK_INTERVAL} nodes. Once cancelled no further nodes are expanded, other then the start node
+ * whose successors are always searched so that there is a move to choose, and each node whose search was cut short is
+ * marked as abandoned (see {@link Node#markSearchAbandoned()}). The results found so far are left in the tree.
  * @author andrewhaines
  *
  * @param <T> The type of the state representation.
@@ -23,45 +51,181 @@ public class SearchService<T extends Identifiable> {
 
 	private final SuccessorNodeService<T> successorService;
 	private final Iterable<NodeVisitor<T>> visitors;
+	private final ForkJoinPool forkJoinPool;
+	private final SplitService<T> splitService;
+	private final DepthReductionPolicy<T> depthReductionPolicy;
 	private static final Logger LOG = LoggerFactory.getLogger(SearchService.class);
 	
 	private final static int LEAF_NODE_DEPTH = 0;
 	
+	/**
+	 * The number of nodes expanded between each check of the cancellation token
+	 */
+	public final static int CANCELLATION_CHECK_INTERVAL = 256;
+	
 	/**
 	 * We want to ensure the visitors are immutable so create a SearchService via the Builder
 	 * @param successorService
 	 * @param visitors
 	 */
 	protected SearchService(SuccessorNodeService<T> successorService, Iterable<NodeVisitor<T>> visitors){
+		this(successorService, visitors, null, null);
+	}
+	
+	/**
+	 * Creates a search service that searches the successors of the start node in parallel using the supplied pool. If
+	 * the pool is null the search is performed on the calling thread.
+	 * @param successorService
+	 * @param visitors
+	 * @param forkJoinPool
+	 * @param splitService
+	 */
+	protected SearchService(SuccessorNodeService<T> successorService, Iterable<NodeVisitor<T>> visitors, ForkJoinPool forkJoinPool, SplitService<T> splitService){
+		this(successorService, visitors, forkJoinPool, splitService, null);
+	}
+	
+	/**
+	 * Creates a search service that searches successors to the depths given by the supplied policy
+	 * @param successorService
+	 * @param visitors
+	 * @param forkJoinPool
+	 * @param splitService
+	 * @param depthReductionPolicy The policy or null to search every successor to the full depth
+	 */
+	protected SearchService(SuccessorNodeService<T> successorService, Iterable<NodeVisitor<T>> visitors, ForkJoinPool forkJoinPool, SplitService<T> splitService, DepthReductionPolicy<T> depthReductionPolicy){
 		this.successorService = successorService;
 		this.visitors = visitors;
+		this.forkJoinPool = forkJoinPool;
+		this.splitService = splitService;
+		this.depthReductionPolicy = depthReductionPolicy;
 	}
 	
 	public void depthFirstSearch(Node<T> startNode, int depthLimit){
-		this.recursiveDepthFirstSearch(startNode, depthLimit, NodeType.START);
+		depthFirstSearch(startNode, depthLimit, null);
+	}
+	
+	/**
+	 * Searches from the start node until the depth limit is reached or the token is cancelled.
+	 * @param startNode
+	 * @param depthLimit
+	 * @param cancellationToken The token to stop the search with or null if the search can not be cancelled
+	 */
+	public void depthFirstSearch(Node<T> startNode, int depthLimit, CancellationToken cancellationToken){
+		Cancellation cancellation = new Cancellation(cancellationToken);
+		if (forkJoinPool != null){
+			this.parallelDepthFirstSearch(startNode, depthLimit, cancellation);
+		} else{
+			this.recursiveDepthFirstSearch(startNode, depthLimit, NodeType.START, cancellation);
+		}
 	}
 	
-	private void recursiveDepthFirstSearch(Node<T> currentNode, int depthLimit, NodeType type){
+	private void parallelDepthFirstSearch(Node<T> startNode, int depthLimit, final Cancellation cancellation){
+		startNode.setCutOff(false);
+		notifyPreNodeVisited(startNode, depthLimit, NodeType.START);
+		List<Node<T>> successors = Lists.newArrayList(successorService.getSuccessors(startNode, NodeType.START));
+		
+		final int successorDepth = depthLimit -1;
+		final NodeType successorType = getNodeTypeFromDepth(successorDepth);
+		int successorCount = 0;
+		
+		if (!successors.isEmpty()){
+			// search the eldest successor first so that its result can be used in the search of its siblings
+			recursiveDepthFirstSearch(successors.get(0), successorDepth, successorType, cancellation);
+			startNode.addChild(successors.get(0));
+			successorCount++;
+			
+			List<Node<T>> splitNodes = Lists.newArrayListWithCapacity(successors.size());
+			List<ForkJoinTask<?>> tasks = Lists.newArrayListWithCapacity(successors.size());
+			for (Node<T> successor: successors.subList(1, successors.size())){
+				final Node<T> splitNode = splitService.split(startNode, successor);
+				splitNodes.add(splitNode);
+				tasks.add(forkJoinPool.submit(new RecursiveAction(){
+					@Override
+					protected void compute() {
+						recursiveDepthFirstSearch(splitNode, successorDepth, successorType, cancellation);
+					}
+				}));
+			}
+			
+			// now join the results in order as the serial search would have added them
+			for (int i = 0; i < splitNodes.size(); i++){
+				tasks.get(i).join();
+				if (!startNode.isCutOff()){
+					Node<T> child = splitNodes.get(i);
+					if (!splitService.join(startNode, child)){
+						LOG.debug("searching successor {} again as its search was altered by its siblings", child.getId());
+						child = successors.get(i + 1);
+						recursiveDepthFirstSearch(child, successorDepth, successorType, cancellation);
+					}
+					startNode.addChild(child);
+					successorCount++;
+				}
+			}
+		}
+		notifyPostNodeVisited(startNode, depthLimit, successorCount==0?NodeType.LEAF:NodeType.START);
+	}
+	
+	private void recursiveDepthFirstSearch(Node<T> currentNode, int depthLimit, NodeType type, Cancellation cancellation){
+		currentNode.setCutOff(false); // a cached node may have been cut off when it was last searched
 		notifyPreNodeVisited(currentNode, depthLimit, type);
 		Iterable<Node<T>> successors = Collections.emptyList();
 		if (type != NodeType.LEAF){ // do not consider successors if we are at the limit of search
-			
-			successors = successorService.getSuccessors(currentNode, type);
+			if (type != NodeType.START && cancellation.checkCancelled()){ // always expand the start node so that there is a move to choose
+				markSearchAbandoned(currentNode);
+			} else{
+				successors = successorService.getSuccessors(currentNode, type);
+			}
 		}
 		
 		int successorDepth = depthLimit -1; // depth is the same for all successors
 		NodeType successorType = getNodeTypeFromDepth(successorDepth);
 		int successorCount = 0;
-		for (Node<T> successor: successors){
-			if (!currentNode.isEvaluated()){
-				recursiveDepthFirstSearch(successor, successorDepth, successorType);
-				currentNode.addChild(successor);
-				successorCount++;
+		Iterator<Node<T>> successorIterator = successors.iterator();
+		while (!currentNode.isCutOff() && successorIterator.hasNext()){ // checked first so that pruned successors are never generated
+			if (type != NodeType.START && cancellation.isCancelled()){
+				markSearchAbandoned(currentNode);
+				break;
+			}
+			Node<T> successor = successorIterator.next();
+			successor.setParent(currentNode); // a cached successor may have been found from an equal node of an earlier search
+			int depthReduction = getDepthReduction(currentNode, successor, successorCount, successorDepth);
+			if (depthReduction > 0){
+				successor.setDepthReduction(depthReduction);
+				recursiveDepthFirstSearch(successor, successorDepth - depthReduction, getNodeTypeFromDepth(successorDepth - depthReduction), cancellation);
+			} else{
+				recursiveDepthFirstSearch(successor, successorDepth, successorType, cancellation);
 			}
+			while (successor.getResearchNode() != null){ // a visitor has asked for the successor to be searched again
+				successor = successor.getResearchNode();
+				recursiveDepthFirstSearch(successor, successorDepth, successorType, cancellation);
+			}
+			currentNode.addChild(successor);
+			successorCount++;
 		}
 		notifyPostNodeVisited(currentNode, depthLimit, successorCount==0?NodeType.LEAF:type);
 	}
 	
+	/**
+	 * Marks the node and each of its ancestors as abandoned as none of their results are complete
+	 */
+	private void markSearchAbandoned(Node<T> node){
+		for (Node<T> abandonedNode = node; abandonedNode != null && !abandonedNode.isSearchAbandoned(); abandonedNode = abandonedNode.getParent()){
+			abandonedNode.markSearchAbandoned();
+		}
+	}
+	
+	/**
+	 * Returns the reduction in depth of the successor, limited so that it is searched to at least the leaf depth
+	 */
+	private int getDepthReduction(Node<T> currentNode, Node<T> successor, int successorIndex, int successorDepth){
+		if (depthReductionPolicy == null || successorDepth <= LEAF_NODE_DEPTH){
+			return 0;
+		}
+		int depthReduction = depthReductionPolicy.getDepthReduction(currentNode, successor, successorIndex, successorDepth);
+		
+		return Math.max(0, Math.min(depthReduction, successorDepth - LEAF_NODE_DEPTH));
+	}
+	
 	private void stackdepthFirstSearch(Node<T> startNode, int depthLimit, NodeType type){
 		
 		Deque<SearchNode<T>> open = new ArrayDeque<SearchService.SearchNode<T>>();
@@ -165,6 +329,9 @@ public class SearchService<T extends Identifiable> {
 		
 		protected final Collection<NodeVisitor<? super T>> visitors;
 		protected final SuccessorNodeService<T> successorService;
+		protected ForkJoinPool forkJoinPool;
+		protected SplitService<T> splitService;
+		protected DepthReductionPolicy<T> depthReductionPolicy;
 		
 		public SearchServiceBuilder(SuccessorNodeService<T> successorService){
 			if (successorService == null){
@@ -183,8 +350,70 @@ public class SearchService<T extends Identifiable> {
 			return this;
 		}
 		
+		/**
+		 * Searches the successors of the start node in parallel using the supplied pool. See {@link SearchService}
+		 * @param forkJoinPool
+		 * @param splitService
+		 * @return
+		 */
+		public SearchServiceBuilder<T> useForkJoinPool(ForkJoinPool forkJoinPool, SplitService<T> splitService){
+			this.forkJoinPool = forkJoinPool;
+			this.splitService = splitService;
+			return this;
+		}
+		
+		/**
+		 * Searches the successors of the start node in parallel using the supplied pool. The search of each successor
+		 * must not depend on its siblings.
+		 * @param forkJoinPool
+		 * @return
+		 */
+		public SearchServiceBuilder<T> useForkJoinPool(ForkJoinPool forkJoinPool){
+			return useForkJoinPool(forkJoinPool, new IndependentSplitService<T>());
+		}
+		
+		/**
+		 * Searches successors to the depths given by the supplied policy. See {@link DepthReductionPolicy}
+		 * @param depthReductionPolicy
+		 * @return
+		 */
+		public SearchServiceBuilder<T> useDepthReductionPolicy(DepthReductionPolicy<T> depthReductionPolicy){
+			this.depthReductionPolicy = depthReductionPolicy;
+			return this;
+		}
+		
 		public SearchService<T> build(){
-			return new SearchService<T>(successorService, (Collection)visitors);
+			return new SearchService<T>(successorService, (Collection)visitors, forkJoinPool, splitService, depthReductionPolicy);
+		}
+	}
+	
+	/**
+	 * Checks the cancellation token of a single search, only reading the token every
+	 * {@link SearchService#CANCELLATION_CHECK_INTERVAL} nodes. The count of nodes is not synchronised as, when
+	 * searching in parallel, a count lost to a race only delays the next check.
+	 */
+	private static class Cancellation{
+		private final CancellationToken token;
+		private int nodesSinceCheck;
+		private volatile boolean cancelled;
+		
+		private Cancellation(CancellationToken token){
+			this.token = token;
+		}
+		
+		/**
+		 * Counts a node expanded, checking the token if enough have been expanded since it was last checked
+		 */
+		private boolean checkCancelled(){
+			if (token != null && !cancelled && ++nodesSinceCheck >= CANCELLATION_CHECK_INTERVAL){
+				nodesSinceCheck = 0;
+				cancelled = token.isCancelled();
+			}
+			return cancelled;
+		}
+		
+		private boolean isCancelled(){
+			return cancelled;
 		}
 	}
 	
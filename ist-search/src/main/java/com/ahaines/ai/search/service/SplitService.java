@@ -0,0 +1,54 @@
+package com.ahaines.ai.search.service;
+
+import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.ai.search.model.Node;
+
+/**
+ * Used by a parallel {@link SearchService} to isolate the successors of a node that are searched
+ * concurrently. Services that hold search state across sibling nodes (such as bounds on their parent)
+ * implement this so that each concurrently searched successor works on its own copy of that state and
+ * the results are combined as though the successors were searched one after another.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public interface SplitService<T extends Identifiable> {
+
+	/**
+	 * Called before a successor is searched concurrently with its siblings. Returns the node that is
+	 * searched in its place. The supplied successor must not be altered as it is searched again if
+	 * the result is rejected in {@link #join(Node, Node)}.
+	 * @param parent
+	 * @param successor
+	 * @return
+	 */
+	Node<T> split(Node<T> parent, Node<T> successor);
+
+	/**
+	 * Called, in the order the successors were returned, once the node returned by {@link #split(Node, Node)}
+	 * has been searched. Returns true if the searched node can be added as a child of the parent or false if
+	 * the siblings searched before it would have altered its search, in which case the original successor
+	 * is searched again in order.
+	 * @param parent
+	 * @param splitNode
+	 * @return
+	 */
+	boolean join(Node<T> parent, Node<T> splitNode);
+
+	/**
+	 * A split service for searches where the search of a node does not depend on its siblings.
+	 * @author andrewhaines
+	 *
+	 * @param <T>
+	 */
+	public static class IndependentSplitService<T extends Identifiable> implements SplitService<T>{
+
+		public Node<T> split(Node<T> parent, Node<T> successor) {
+			return successor;
+		}
+
+		public boolean join(Node<T> parent, Node<T> splitNode) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.ahaines.ai.search.service;
+
+import com.ahaines.ai.search.model.Identifiable;
+
+/**
+ * Provides a key for the contents of a state. Unlike {@link Identifiable#getId()}, which is unique to each state
+ * instance generated in a search, two states that represent the same position should return the same key.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public interface StateKeyService<T extends Identifiable> {
+
+	long getKey(T state);
+}
@@ -0,0 +1,34 @@
+package com.ahaines.ai.search.service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Collects the results of work shared with the threads of a pool created by a {@link DaemonThreadFactory}, such as
+ * the playouts of the Monte Carlo searchers.
+ * @author andrewhaines
+ *
+ */
+public final class WorkerFutures {
+
+	private WorkerFutures(){}
+
+	/**
+	 * Waits for work given to another thread to finish, rethrowing any failure of the work as an
+	 * {@link IllegalStateException}. If the waiting thread is interrupted its interrupt status is restored before
+	 * throwing.
+	 * @param result The result of the work
+	 * @param description What the work does, used in the message of any exception
+	 * @return
+	 */
+	public static <V> V waitFor(Future<V> result, String description){
+		try{
+			return result.get();
+		} catch (ExecutionException e){
+			throw new IllegalStateException(description+" failed", e.getCause());
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted waiting for "+description+" to finish", e);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.ahaines.ai.search.service;
+
+import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.boardgame.model.ZobristHashable;
+
+/**
+ * Uses the Zobrist key maintained by the state as its key. As the key is updated as the state is altered this
+ * avoids hashing the whole state each time it is looked up.
+ * @author andrewhaines
+ *
+ * @param <T>
+ */
+public class ZobristStateKeyService<T extends Identifiable & ZobristHashable> implements StateKeyService<T>{
+
+	public long getKey(T state) {
+		return state.getZobristKey();
+	}
+
+}
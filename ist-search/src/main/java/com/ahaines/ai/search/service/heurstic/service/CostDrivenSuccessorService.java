@@ -1,17 +1,19 @@
 package com.ahaines.ai.search.service.heurstic.service;
 
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Iterator;
 
 import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.ai.search.service.CachedIterable;
 import com.ahaines.ai.search.service.SuccessorService;
 import com.ahaines.ai.search.service.heuristic.model.CostState;
 import com.ahaines.ai.search.service.heuristic.model.DefaultCostState;
+import com.google.common.collect.AbstractIterator;
 
 /**
  * On obtaining a new state, this service will run each of the generated states through the cost
  * function to obtain it's heuristic evaluation. The state is then wrapped in a {@link CostState}
- * to encapsulate it's cost. See notes in {@link CostState} regarding this design choice.
+ * to encapsulate it's cost. See notes in {@link CostState} regarding this design choice. States are
+ * wrapped as they are iterated over rather then all at once.
  * @author andrewhaines
  *
  * @param <T>
@@ -34,15 +36,19 @@ public class CostDrivenSuccessorService<T extends Identifiable> implements Succe
 		return calculateCostState(newStates);
 	}
 	
-	protected Collection<CostState<T>> calculateCostState(Iterable<T> newStates){
-		Collection<CostState<T>> costNodes = new LinkedList<CostState<T>>();
+	protected Iterable<CostState<T>> calculateCostState(Iterable<T> newStates){
+		final Iterator<T> newSuccessorStates = newStates.iterator();
 		
-		for (T newSuccessorState: newStates){
-			CostState<T> newSuccessorCostState = new DefaultCostState<T>(newSuccessorState);
-			costNodes.add(newSuccessorCostState);
-		}
-		
-		return costNodes;
+		return new CachedIterable<CostState<T>>(new AbstractIterator<CostState<T>>(){
+
+			@Override
+			protected CostState<T> computeNext() {
+				if (!newSuccessorStates.hasNext()){
+					return endOfData();
+				}
+				return new DefaultCostState<T>(newSuccessorStates.next());
+			}
+		});
 	}
 
 }
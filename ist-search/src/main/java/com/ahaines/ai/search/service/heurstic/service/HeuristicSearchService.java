@@ -2,16 +2,19 @@ package com.ahaines.ai.search.service.heurstic.service;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
 
 import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.ai.search.service.DepthReductionPolicy;
 import com.ahaines.ai.search.service.NodeVisitor;
 import com.ahaines.ai.search.service.SearchService;
+import com.ahaines.ai.search.service.SplitService;
 import com.ahaines.ai.search.service.SuccessorNodeService;
 
 public class HeuristicSearchService<T extends Identifiable> extends SearchService<T>{
 
-	private HeuristicSearchService(SuccessorNodeService<T> successorService, Iterable<NodeVisitor<T>> visitors) {
-		super(successorService, visitors);
+	private HeuristicSearchService(SuccessorNodeService<T> successorService, Iterable<NodeVisitor<T>> visitors, ForkJoinPool forkJoinPool, SplitService<T> splitService, DepthReductionPolicy<T> depthReductionPolicy) {
+		super(successorService, visitors, forkJoinPool, splitService, depthReductionPolicy);
 	}
 
 	public static class HeuristicSearchServiceBuilder<T extends Identifiable> extends SearchServiceBuilder<T>{
@@ -26,9 +29,27 @@ public class HeuristicSearchService<T extends Identifiable> extends SearchServic
 			return this;
 		}
 		
+		@Override
+		public HeuristicSearchServiceBuilder<T> useForkJoinPool(ForkJoinPool forkJoinPool, SplitService<T> splitService){
+			super.useForkJoinPool(forkJoinPool, splitService);
+			return this;
+		}
+		
+		@Override
+		public HeuristicSearchServiceBuilder<T> useForkJoinPool(ForkJoinPool forkJoinPool){
+			super.useForkJoinPool(forkJoinPool);
+			return this;
+		}
+		
+		@Override
+		public HeuristicSearchServiceBuilder<T> useDepthReductionPolicy(DepthReductionPolicy<T> depthReductionPolicy){
+			super.useDepthReductionPolicy(depthReductionPolicy);
+			return this;
+		}
+		
 		@Override
 		public HeuristicSearchService<T> build(){
-			return new HeuristicSearchService<T>(successorService, (Collection)visitors);
+			return new HeuristicSearchService<T>(successorService, (Collection)visitors, forkJoinPool, splitService, depthReductionPolicy);
 		}
 		
 	}
@@ -4,28 +4,57 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import com.ahaines.ai.search.game.GameFinishedException;
+import com.ahaines.ai.search.game.OpeningBook;
+import com.ahaines.ai.search.game.OpeningBookBuilder;
 import com.ahaines.ai.search.game.TurnDrivenGameService;
+import com.ahaines.ai.search.mcts.service.MonteCarloTreeSearchService;
+import com.ahaines.ai.search.mcts.service.MonteCarloTreeSearchService.MonteCarloTreeSearchServiceBuilder;
+import com.ahaines.ai.search.mcts.service.RandomRolloutPolicy;
 import com.ahaines.ai.search.minmax.model.MinMaxState;
+import com.ahaines.ai.search.minmax.model.TranspositionTable;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState.SimpleTurn;
 import com.ahaines.ai.search.minmax.model.TurnDrivenState.Turn;
 import com.ahaines.ai.search.minmax.service.AlphaBetaPrunningSuccessorService;
+import com.ahaines.ai.search.minmax.service.AspirationWindowSearchService;
+import com.ahaines.ai.search.minmax.service.AspirationWindowSearchService.AspirationWindowSearchServiceBuilder;
+import com.ahaines.ai.search.minmax.service.IterativeDeepeningSuccessorService;
+import com.ahaines.ai.search.minmax.service.LateMoveReductionPolicy;
 import com.ahaines.ai.search.minmax.service.MinMaxSuccessorService;
+import com.ahaines.ai.search.minmax.service.MoveDescriptionService;
+import com.ahaines.ai.search.minmax.service.MoveOrderingService;
+import com.ahaines.ai.search.minmax.service.MtdfSearchService;
+import com.ahaines.ai.search.minmax.service.MtdfSearchService.MtdfSearchServiceBuilder;
+import com.ahaines.ai.search.minmax.service.PrincipalVariationSearchSuccessorService;
+import com.ahaines.ai.search.minmax.service.TranspositionTableSuccessorService;
 import com.ahaines.ai.search.minmax.service.TurnDrivenGoalService;
 import com.ahaines.ai.search.model.Identifiable;
+import com.ahaines.ai.search.model.Node;
+import com.ahaines.ai.search.service.CachedIterable;
 import com.ahaines.ai.search.service.CachedSuccessorService;
+import com.ahaines.ai.search.service.CancellationToken;
+import com.ahaines.ai.search.service.NodeType;
+import com.ahaines.ai.search.service.NodeVisitor;
+import com.ahaines.ai.search.service.SearchService;
+import com.ahaines.ai.search.service.SearchService.SearchServiceBuilder;
+import com.ahaines.ai.search.service.StateKeyService;
 import com.ahaines.ai.search.service.SuccessorService;
 import com.ahaines.ai.search.service.heurstic.service.CostFunctionService;
 import com.ahaines.ai.search.service.heurstic.service.HeuristicSearchService;
@@ -40,6 +69,8 @@ import com.ahaines.boardgame.model.PlayerId;
 import com.ahaines.boardgame.model.PlayerLookup;
 import com.ahaines.boardgame.model.Position;
 import com.ahaines.boardgame.model.SimpleArrayBackedBoard;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
 
 /**
  * This tests the min max algorithm using an implementation of the naughts and crosses game.
@@ -66,10 +97,24 @@ public class NaughtsAndCrossesIntegrationTest {
 	private static final int[] INIT_TEST_STATE1 = new int[]{1, 1, 0, 0, -1, 0, 0, 0, 0};
 	private static final int[] INIT_TEST_STATE2 = new int[]{1, 1, -1, 0, -1, 0, 1, 0, 0};
 	private static final Object INIT_TEST_STATE3 = new int[]{1, 1, -1, -1, -1, 1, 1, 0, 0};
+	private static final int[] CORNER_TAKEN_STATE = new int[]{-1, 0, 0, 0, 0, 0, 0, 0, 0}; // only taking the centre does not lose
+	private static final long MOVE_TIME_BUDGET = 10000; // the whole tree is searched well within this
 	private NaughtsAndCrossesGame game;
 	private HeuristicSearchService<MinMaxState<OXBoard>> oxSearchService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxTranspositionTableSearchService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxIterativeDeepeningSearchService;
+	private IterativeDeepeningSuccessorService<OXBoard> iterativeDeepeningService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxSerialSearchService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxParallelSearchService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxMoveOrderingSearchService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxPrincipalVariationSearchService;
+	private MtdfSearchService<OXBoard> oxMtdfSearchService;
+	private AspirationWindowSearchService<OXBoard> oxAspirationWindowSearchService;
+	private HeuristicSearchService<MinMaxState<OXBoard>> oxLateMoveReductionSearchService;
+	private IterativeDeepeningSuccessorService<OXBoard> aspirationIterativeDeepeningService;
 	private OXPlayerLookup playerLookup;
 	private OXCostFunctionService oxCostFunctionService;
+	private OXSuccessorService oxSuccessorService;
 	
 	@Before
 	public void before(){
@@ -77,17 +122,559 @@ public class NaughtsAndCrossesIntegrationTest {
 		Player<OXPiece> player1 = new Player<OXPiece>(new OXPlayerId(SimpleTurn.MAX.getId(), PLAYER_1_NAME), PlayerType.COMPUTER, new ArrayDeque<Piece<OXPiece>>());
 		Player<OXPiece> player2 = new Player<OXPiece>(new OXPlayerId(SimpleTurn.MIN.getId(), PLAYER_2_NAME), PlayerType.HUMAN, new ArrayDeque<Piece<OXPiece>>()); // in this example player 2 will be a human implemented by the test case!
 		playerLookup = new OXPlayerLookup(player1, player2);
-		OXSuccessorService oxSuccessorService = new OXSuccessorService(playerLookup);
+		oxSuccessorService = new OXSuccessorService(playerLookup);
 		oxCostFunctionService = new OXCostFunctionService(playerLookup);
 		MinMaxSuccessorService<OXBoard> minMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
 		AlphaBetaPrunningSuccessorService<OXBoard> abPrunService = new AlphaBetaPrunningSuccessorService<OXBoard>(minMaxSuccessorService);
 		CachedSuccessorService<MinMaxState<OXBoard>> cache = new CachedSuccessorService<MinMaxState<OXBoard>>(abPrunService);
 		oxSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(cache)
 				.build();
+		
+		MinMaxSuccessorService<OXBoard> ttMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		TranspositionTableSuccessorService<OXBoard> ttService = new TranspositionTableSuccessorService<OXBoard>(new AlphaBetaPrunningSuccessorService<OXBoard>(ttMinMaxSuccessorService), new TranspositionTable(1 << 16), new OXStateKeyService());
+		oxTranspositionTableSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(ttService)
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> idMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		iterativeDeepeningService = new IterativeDeepeningSuccessorService<OXBoard>(new AlphaBetaPrunningSuccessorService<OXBoard>(idMinMaxSuccessorService));
+		oxIterativeDeepeningSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(iterativeDeepeningService)
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> serialMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		oxSerialSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new AlphaBetaPrunningSuccessorService<OXBoard>(serialMinMaxSuccessorService))
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> parallelMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		AlphaBetaPrunningSuccessorService<OXBoard> parallelAbPrunService = new AlphaBetaPrunningSuccessorService<OXBoard>(parallelMinMaxSuccessorService);
+		oxParallelSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(parallelAbPrunService)
+				.useForkJoinPool(new ForkJoinPool(4), parallelAbPrunService)
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> orderedMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		TranspositionTable orderingTranspositionTable = new TranspositionTable(1 << 16);
+		MoveOrderingService<OXBoard> moveOrderingService = new MoveOrderingService<OXBoard>(new OXMoveDescriptionService(), orderingTranspositionTable, new OXStateKeyService());
+		oxMoveOrderingSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new TranspositionTableSuccessorService<OXBoard>(new AlphaBetaPrunningSuccessorService<OXBoard>(orderedMinMaxSuccessorService, moveOrderingService), orderingTranspositionTable, new OXStateKeyService()))
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> pvsMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		oxPrincipalVariationSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(pvsMinMaxSuccessorService))
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> mtdfMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		oxMtdfSearchService = new MtdfSearchServiceBuilder<OXBoard>(new TranspositionTableSuccessorService<OXBoard>(new PrincipalVariationSearchSuccessorService<OXBoard>(mtdfMinMaxSuccessorService), new TranspositionTable(1 << 16), new OXStateKeyService()))
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> lmrMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		oxLateMoveReductionSearchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(lmrMinMaxSuccessorService))
+				.useDepthReductionPolicy(new LateMoveReductionPolicy<OXBoard>(new OXMoveDescriptionService(), 1, 2, 1)) // reduce all but the first successor
+				.build();
+		
+		MinMaxSuccessorService<OXBoard> aspirationMinMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		aspirationIterativeDeepeningService = new IterativeDeepeningSuccessorService<OXBoard>(new TranspositionTableSuccessorService<OXBoard>(new PrincipalVariationSearchSuccessorService<OXBoard>(aspirationMinMaxSuccessorService), new TranspositionTable(1 << 16), new OXStateKeyService()));
+		oxAspirationWindowSearchService = new AspirationWindowSearchServiceBuilder<OXBoard>(aspirationIterativeDeepeningService, 1) // small enough that most iterations fail
+				.setIterativeDeepeningService(aspirationIterativeDeepeningService)
+				.build();
 	}
 	
 	private NaughtsAndCrossesGame getGame(int[] startState){
-		return new NaughtsAndCrossesGame(new TurnDrivenGameService<OXBoard>(oxSearchService, new OXBoard(OXBoard.getNextId(), startState, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE), playerLookup);
+		return getGame(startState, oxSearchService);
+	}
+	
+	private NaughtsAndCrossesGame getGame(int[] startState, SearchService<MinMaxState<OXBoard>> searchService){
+		return new NaughtsAndCrossesGame(new TurnDrivenGameService<OXBoard>(searchService, new OXBoard(OXBoard.getNextId(), startState, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE), playerLookup);
+	}
+	
+	private Node<MinMaxState<OXBoard>> createStartNode(int[] startState){
+		return new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(new OXBoard(OXBoard.getNextId(), startState, playerLookup, SimpleTurn.MIN)));
+	}
+	
+	/**
+	 * Returns the number of nodes visited by a min max search of the whole tree from the state, without any pruning
+	 */
+	private int countMinMaxNodes(int[] startState){
+		return countVisitedNodes(new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService)), createStartNode(startState));
+	}
+	
+	/**
+	 * Returns the number of nodes visited by a search of the whole tree from the start node by the service the builder builds
+	 */
+	private int countVisitedNodes(SearchServiceBuilder<MinMaxState<OXBoard>> searchServiceBuilder, Node<MinMaxState<OXBoard>> startNode){
+		return countVisitedNodes(searchServiceBuilder, startNode, Integer.MAX_VALUE);
+	}
+	
+	private int countVisitedNodes(SearchServiceBuilder<MinMaxState<OXBoard>> searchServiceBuilder, Node<MinMaxState<OXBoard>> startNode, int depthLimit){
+		CountingNodeVisitor nodeVisitor = new CountingNodeVisitor();
+		searchServiceBuilder.registerVisitor(nodeVisitor)
+				.build()
+				.depthFirstSearch(startNode, depthLimit);
+		
+		return nodeVisitor.visited;
+	}
+	
+	/**
+	 * Plays the next move within the move time budget, checking that the search stopped once the whole tree was searched
+	 * rather then running until the budget was used up
+	 */
+	private OXBoard getNextMoveWithinTimeBudget(TurnDrivenGameService<OXBoard> gameService) throws GameFinishedException{
+		gameService.setMoveTimeBudget(MOVE_TIME_BUDGET);
+		long startTime = System.currentTimeMillis();
+		OXBoard board = new NaughtsAndCrossesGame(gameService, playerLookup).getNextMove();
+		
+		assertThat("the move should be played once the whole tree is searched", System.currentTimeMillis() - startTime < MOVE_TIME_BUDGET / 2, is(equalTo(true)));
+		return board;
+	}
+	
+	private NaughtsAndCrossesGame getMonteCarloGame(int[] startState){
+		return getMonteCarloGame(startState, new MonteCarloTreeSearchServiceBuilder<OXBoard>(oxSuccessorService, oxCostFunctionService)
+				.setRolloutPolicy(new RandomRolloutPolicy<OXBoard>(new Random(1))) // seeded so that the same playouts are always made
+				.setPlayoutLimit(5000)
+				.build());
+	}
+	
+	private NaughtsAndCrossesGame getMonteCarloGame(int[] startState, MonteCarloTreeSearchService<OXBoard> monteCarloTreeSearchService){
+		TurnDrivenGameService<OXBoard> gameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), startState, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE);
+		gameService.setMonteCarloTreeSearchService(monteCarloTreeSearchService);
+		
+		return new NaughtsAndCrossesGame(gameService, playerLookup);
+	}
+	
+	@Test
+	public void givenTranspositionTable_whenCallingGetNextMove_thenSameMovesPickedAsWithoutTable() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state).getNextMove();
+			OXBoard board = getGame(state, oxTranspositionTableSearchService).getNextMove();
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenCancelledToken_whenSearching_thenSuccessorsOfStartAreSearchedAndSearchIsAbandoned(){
+		Node<MinMaxState<OXBoard>> startNode = new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN)));
+		CancellationToken cancellationToken = new CancellationToken();
+		cancellationToken.cancel();
+		
+		oxSerialSearchService.depthFirstSearch(startNode, Integer.MAX_VALUE, cancellationToken);
+		
+		assertThat(Lists.newArrayList(startNode.getChildren()).size(), is(equalTo(INITIAL_START_STATE.length)));
+		assertThat("search should be abandoned", startNode.isSearchAbandoned(), is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenCancelledSearchWithTranspositionTable_whenCallingGetNextMove_thenSameMovesPickedAsWithoutTable() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, INITIAL_START_STATE)){
+			Node<MinMaxState<OXBoard>> startNode = new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(new OXBoard(OXBoard.getNextId(), state, playerLookup, SimpleTurn.MIN)));
+			CancellationToken cancellationToken = new CancellationToken();
+			cancellationToken.cancel();
+			oxTranspositionTableSearchService.depthFirstSearch(startNode, Integer.MAX_VALUE, cancellationToken); // must not leave abandoned results in the table
+			
+			OXBoard expectedBoard = getGame(state).getNextMove();
+			OXBoard board = getGame(state, oxTranspositionTableSearchService).getNextMove();
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenSearchCancelledAfterFirstMoveIsSearched_whenCallingGetNextMove_thenFirstMoveIsPlayed() throws GameFinishedException{
+		CancellingNodeVisitor nodeVisitor = new CancellingNodeVisitor();
+		SearchService<MinMaxState<OXBoard>> searchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new AlphaBetaPrunningSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService)))
+				.registerVisitor(nodeVisitor)
+				.build();
+		TurnDrivenGameService<OXBoard> gameService = new TurnDrivenGameService<OXBoard>(searchService, new OXBoard(OXBoard.getNextId(), CORNER_TAKEN_STATE, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE);
+		nodeVisitor.gameService = gameService;
+		
+		// the first move loses so the moves whose search was abandoned, which are evaluated as draws, would look better
+		OXBoard board = new NaughtsAndCrossesGame(gameService, playerLookup).getNextMove();
+		
+		assertThat(board.getInternalArrayedState(), is(equalTo(nodeVisitor.firstSearchedState.getInternalArrayedState())));
+	}
+	
+	@Test
+	public void givenMoveTimeBudget_whenCallingGetNextMove_thenSameMovesPickedAsSearchingToTheDepthLimit() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state).getNextMove();
+			
+			TurnDrivenGameService<OXBoard> gameService = new TurnDrivenGameService<OXBoard>(oxIterativeDeepeningSearchService, new OXBoard(OXBoard.getNextId(), state, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE, iterativeDeepeningService);
+			OXBoard board = getNextMoveWithinTimeBudget(gameService);
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenTranspositionTableAndMoveTimeBudget_whenCallingGetNextMove_thenMoveIsPlayedOnceTheWholeTreeIsSearched() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, THIRD_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state).getNextMove();
+			
+			MinMaxSuccessorService<OXBoard> minMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+			IterativeDeepeningSuccessorService<OXBoard> iterativeDeepeningService = new IterativeDeepeningSuccessorService<OXBoard>(new TranspositionTableSuccessorService<OXBoard>(new AlphaBetaPrunningSuccessorService<OXBoard>(minMaxSuccessorService), new TranspositionTable(1 << 16), new OXStateKeyService()));
+			SearchService<MinMaxState<OXBoard>> searchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(iterativeDeepeningService).build();
+			TurnDrivenGameService<OXBoard> gameService = new TurnDrivenGameService<OXBoard>(searchService, new OXBoard(OXBoard.getNextId(), state, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE, iterativeDeepeningService);
+			OXBoard board = getNextMoveWithinTimeBudget(gameService); // states resolved from the table must not stop the search finishing early
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenTranspositionTableAndMoveTimeBudget_whenCallingGetNextMove_thenEntriesAreAgedOnceForTheMove() throws GameFinishedException{
+		CountingTranspositionTable transpositionTable = new CountingTranspositionTable(1 << 16);
+		MinMaxSuccessorService<OXBoard> minMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService);
+		IterativeDeepeningSuccessorService<OXBoard> iterativeDeepeningService = new IterativeDeepeningSuccessorService<OXBoard>(new TranspositionTableSuccessorService<OXBoard>(new AlphaBetaPrunningSuccessorService<OXBoard>(minMaxSuccessorService), transpositionTable, new OXStateKeyService()));
+		SearchService<MinMaxState<OXBoard>> searchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(iterativeDeepeningService).build();
+		
+		TurnDrivenGameService<OXBoard> gameService = new TurnDrivenGameService<OXBoard>(searchService, new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE, iterativeDeepeningService);
+		gameService.setTranspositionTable(transpositionTable);
+		getNextMoveWithinTimeBudget(gameService);
+		
+		assertThat("every iteration of the move should share a generation", transpositionTable.newSearches, is(equalTo(1)));
+	}
+	
+	@Test
+	public void givenAlphaBetaPrunning_whenSearching_thenNoSuccessorIsGeneratedAfterACutOff(){
+		CountingSuccessorService successorService = new CountingSuccessorService(oxSuccessorService);
+		CountingNodeVisitor nodeVisitor = new CountingNodeVisitor();
+		MinMaxSuccessorService<OXBoard> minMaxSuccessorService = new MinMaxSuccessorService<OXBoard>(successorService, oxCostFunctionService, oxCostFunctionService);
+		SearchService<MinMaxState<OXBoard>> searchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new AlphaBetaPrunningSuccessorService<OXBoard>(minMaxSuccessorService))
+				.registerVisitor(nodeVisitor)
+				.build();
+		
+		searchService.depthFirstSearch(createStartNode(INITIAL_START_STATE), Integer.MAX_VALUE);
+		
+		assertThat("some successors should be pruned", nodeVisitor.visited < countMinMaxNodes(INITIAL_START_STATE), is(equalTo(true)));
+		assertThat("every successor generated should be searched", successorService.generated, is(equalTo(nodeVisitor.visited - 1))); // the start node is not a successor
+	}
+	
+	@Test
+	public void givenCachedSuccessors_whenCallingGetNextMove_thenCostsOfTheSearchAreNotOverwrittenBeforeMoveIsPicked() throws GameFinishedException{
+		// only a search deeper then the successors of the start node shows that the opponent must be blocked
+		OXBoard board = getGame(FOURTH_TEST).getNextMove();
+		
+		assertThat(board.getInternalArrayedState(), is(equalTo(FOURTH_TEST_RESULT1)));
+	}
+	
+	@Test
+	public void givenCachedSuccessorsOfAShallowerSearch_whenSearchingTheSameStateUnderANewStartNode_thenSameCostsFoundAsWithoutCache(){
+		SearchService<MinMaxState<OXBoard>> searchService = new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new CachedSuccessorService<MinMaxState<OXBoard>>(new AlphaBetaPrunningSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService))))
+				.build();
+		for (int[] startState: Arrays.asList(THIRD_TEST, FOURTH_TEST, INITIAL_START_STATE)){
+			OXBoard state = new OXBoard(OXBoard.getNextId(), startState, playerLookup, SimpleTurn.MIN);
+			Node<MinMaxState<OXBoard>> uncachedStartNode = new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(state));
+			oxSerialSearchService.depthFirstSearch(uncachedStartNode, Integer.MAX_VALUE);
+			
+			// as iterative deepening does, search the state again from a new start node, reusing the successors cached by the shallower search
+			searchService.depthFirstSearch(new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(state)), 2);
+			Node<MinMaxState<OXBoard>> startNode = new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(state));
+			searchService.depthFirstSearch(startNode, Integer.MAX_VALUE);
+			
+			assertThat(getChildCosts(startNode), is(equalTo(getChildCosts(uncachedStartNode))));
+		}
+	}
+	
+	private static List<Integer> getChildCosts(Node<MinMaxState<OXBoard>> node){
+		List<Integer> costs = Lists.newArrayList();
+		for (Node<MinMaxState<OXBoard>> child: node.getChildren()){
+			costs.add(child.getState().getCost());
+		}
+		return costs;
+	}
+	
+	@Test
+	public void givenMoveOrdering_whenCallingGetNextMove_thenSameMovesPickedAsWithoutOrdering() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, FOURTH_TEST)){
+			OXBoard expectedBoard = getGame(state, oxTranspositionTableSearchService).getNextMove();
+			OXBoard board = getGame(state, oxMoveOrderingSearchService).getNextMove();
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenPrincipalVariationSearch_whenCallingGetNextMove_thenSameMovesPickedAsAlphaBetaPrunning() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, FOURTH_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state, oxSerialSearchService).getNextMove();
+			OXBoard board = getGame(state, oxPrincipalVariationSearchService).getNextMove();
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenPrincipalVariationSearch_whenSearching_thenFewerNodesVisitedThanMinMax(){
+		int nodes = countVisitedNodes(new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService))), createStartNode(INITIAL_START_STATE));
+		
+		assertThat("successors should be cut off", nodes < countMinMaxNodes(INITIAL_START_STATE), is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenNullWindowOfFirstMtdfPass_whenSearching_thenFewerNodesVisitedThanWithFullWindow(){
+		Node<MinMaxState<OXBoard>> nullWindowStartNode = createStartNode(INITIAL_START_STATE);
+		nullWindowStartNode.getState().setWindow(-1, 0); // the first guess is 0
+		
+		int nullWindowNodes = countVisitedNodes(new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService))), nullWindowStartNode);
+		int fullWindowNodes = countVisitedNodes(new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService))), createStartNode(INITIAL_START_STATE));
+		
+		assertThat("a null window should prune more successors", nullWindowNodes < fullWindowNodes, is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenMtdf_whenCallingGetNextMove_thenSameMovesPickedAsPrincipalVariationSearch() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, FOURTH_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state, oxPrincipalVariationSearchService).getNextMove();
+			OXBoard board = getGame(state, oxMtdfSearchService).getNextMove();
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenAspirationWindows_whenCallingGetNextMove_thenSameMovesPickedAsPrincipalVariationSearch() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, FOURTH_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state, oxPrincipalVariationSearchService).getNextMove();
+			
+			TurnDrivenGameService<OXBoard> gameService = new TurnDrivenGameService<OXBoard>(oxAspirationWindowSearchService, new OXBoard(OXBoard.getNextId(), state, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE, aspirationIterativeDeepeningService);
+			OXBoard board = getNextMoveWithinTimeBudget(gameService);
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
+	}
+	
+	@Test
+	public void givenAspirationWindowAroundTheLastCost_whenSearchingAgain_thenFewerNodesVisitedThanWithFullWindow(){
+		CountingNodeVisitor nodeVisitor = new CountingNodeVisitor();
+		SearchService<MinMaxState<OXBoard>> searchService = new AspirationWindowSearchServiceBuilder<OXBoard>(new PrincipalVariationSearchSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService)), 1)
+				.registerVisitor(nodeVisitor)
+				.build();
+		OXBoard state = new OXBoard(OXBoard.getNextId(), THIRD_TEST, playerLookup, SimpleTurn.MIN);
+		
+		searchService.depthFirstSearch(new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(state)), Integer.MAX_VALUE); // not searched before so the window is full
+		int fullWindowNodes = nodeVisitor.visited;
+		nodeVisitor.visited = 0;
+		searchService.depthFirstSearch(new Node<MinMaxState<OXBoard>>(null, new MinMaxState<OXBoard>(state)), Integer.MAX_VALUE);
+		
+		assertThat("the aspiration window should prune more successors", nodeVisitor.visited < fullWindowNodes, is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenLateMoveReductions_whenCallingGetNextMove_thenWinningAndBlockingMovesArePicked() throws GameFinishedException{
+		assertThat(getGame(FIRST_TEST, oxLateMoveReductionSearchService).getNextMove().getInternalArrayedState(), is(equalTo(FIRST_TEST_WON)));
+		assertThat(getGame(SECOND_TEST, oxLateMoveReductionSearchService).getNextMove().getInternalArrayedState(), is(equalTo(SECOND_TEST_RESULT)));
+		assertThat(getGame(THIRD_TEST, oxLateMoveReductionSearchService).getNextMove().getInternalArrayedState(), is(equalTo(THIRD_TEST_RESULT)));
+	}
+	
+	@Test
+	public void givenLateMoveReductions_whenSearching_thenFewerNodesVisitedThanWithoutReductions(){
+		int depthLimit = 5; // deep enough for successors to be reduced but short of the end of the game
+		int reducedNodes = countVisitedNodes(new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService)))
+				.useDepthReductionPolicy(new LateMoveReductionPolicy<OXBoard>(new OXMoveDescriptionService(), 1, 2, 1)), createStartNode(INITIAL_START_STATE), depthLimit);
+		int nodes = countVisitedNodes(new HeuristicSearchServiceBuilder<MinMaxState<OXBoard>>(new PrincipalVariationSearchSuccessorService<OXBoard>(new MinMaxSuccessorService<OXBoard>(oxSuccessorService, oxCostFunctionService, oxCostFunctionService))), createStartNode(INITIAL_START_STATE), depthLimit);
+		assertThat("late successors should be searched to a reduced depth", reducedNodes < nodes, is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenMonteCarloTreeSearch_whenCallingGetNextMove_thenWinningAndBlockingMovesArePicked() throws GameFinishedException{
+		assertThat(getMonteCarloGame(FIRST_TEST).getNextMove().getInternalArrayedState(), is(equalTo(FIRST_TEST_WON)));
+		assertThat(getMonteCarloGame(SECOND_TEST).getNextMove().getInternalArrayedState(), is(equalTo(SECOND_TEST_RESULT)));
+		assertThat(getMonteCarloGame(THIRD_TEST).getNextMove().getInternalArrayedState(), is(equalTo(THIRD_TEST_RESULT)));
+	}
+	
+	@Test
+	public void givenParallelMonteCarloTreeSearch_whenCallingGetNextMove_thenWinningAndBlockingMovesArePicked() throws GameFinishedException{
+		for (int[][] test: new int[][][]{{FIRST_TEST, FIRST_TEST_WON}, {SECOND_TEST, SECOND_TEST_RESULT}, {THIRD_TEST, THIRD_TEST_RESULT}}){
+			MonteCarloTreeSearchService<OXBoard> monteCarloTreeSearchService = new MonteCarloTreeSearchServiceBuilder<OXBoard>(oxSuccessorService, oxCostFunctionService)
+					.setPlayoutLimit(5000)
+					.setSearchThreads(4)
+					.build();
+			try{
+				OXBoard board = getMonteCarloGame(test[0], monteCarloTreeSearchService).getNextMove();
+				
+				assertThat(board.getInternalArrayedState(), is(equalTo(test[1])));
+				assertThat("playouts should have been made", monteCarloTreeSearchService.getPlayoutsPerSecondPerThread() > 0, is(equalTo(true)));
+			} finally{
+				monteCarloTreeSearchService.shutdown();
+			}
+		}
+	}
+	
+	@Test
+	public void givenMonteCarloTreeSearch_whenPlayingAgainstMinMax_thenGameIsNotLost(){
+		NaughtsAndCrossesGame game = getMonteCarloGame(INITIAL_START_STATE);
+		try{
+			while (true){
+				OXBoard board = game.getNextMove(); // searched from the tree kept from the last move
+				
+				TurnDrivenGameService<OXBoard> minMaxGameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), board.getInternalArrayedState(), playerLookup, SimpleTurn.MAX), oxCostFunctionService, Integer.MAX_VALUE);
+				minMaxGameService.playNextMove();
+				
+				int[] nextState = minMaxGameService.getCurrentState().getInternalArrayedState();
+				for (int idx = 0; idx < nextState.length; idx++){
+					if (nextState[idx] != board.getInternalArrayedState()[idx]){
+						game.playMove(new Position(idx / 3, idx % 3));
+					}
+				}
+			}
+		} catch (GameFinishedException e){
+			// game is over
+		}
+		assertThat("min max should never beat monte carlo tree search", oxCostFunctionService.isStateWon(game.getCurrentState(), SimpleTurn.MIN.getId()), is(equalTo(false)));
+	}
+	
+	@Test
+	public void givenPondering_whenOpponentPlaysPredictedMoves_thenSameMovesPickedAsWithoutPondering(){
+		List<int[]> expectedStates = Lists.newArrayList();
+		List<Position> opponentMoves = Lists.newArrayList();
+		
+		NaughtsAndCrossesGame game = getGame(INITIAL_START_STATE, oxSerialSearchService);
+		try{
+			while (true){
+				OXBoard board = game.getNextMove();
+				expectedStates.add(board.getInternalArrayedState());
+				
+				TurnDrivenGameService<OXBoard> minMaxGameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), board.getInternalArrayedState(), playerLookup, SimpleTurn.MAX), oxCostFunctionService, Integer.MAX_VALUE);
+				minMaxGameService.playNextMove();
+				
+				int[] nextState = minMaxGameService.getCurrentState().getInternalArrayedState();
+				for (int idx = 0; idx < nextState.length; idx++){
+					if (nextState[idx] != board.getInternalArrayedState()[idx]){
+						opponentMoves.add(new Position(idx / 3, idx % 3));
+						game.playMove(new Position(idx / 3, idx % 3));
+					}
+				}
+			}
+		} catch (GameFinishedException e){
+			// game is over
+		}
+		
+		TurnDrivenGameService<OXBoard> ponderingGameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE);
+		ponderingGameService.setPondering(true);
+		game = new NaughtsAndCrossesGame(ponderingGameService, playerLookup);
+		int move = 0;
+		try{
+			for (; move < expectedStates.size(); move++){ // the same opponent moves are replayed so that they are not searched while pondering
+				assertThat(game.getNextMove().getInternalArrayedState(), is(equalTo(expectedStates.get(move))));
+				if (move < opponentMoves.size()){
+					game.playMove(opponentMoves.get(move));
+				}
+			}
+		} catch (GameFinishedException e){
+			// game is over
+		} finally{
+			ponderingGameService.setPondering(false);
+		}
+		assertThat(move, is(equalTo(expectedStates.size())));
+		assertThat("the opponent should have played a predicted move", ponderingGameService.getPonderHits() > 0, is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenOpeningBookAndPondering_whenOpponentPlaysPredictedMoveIntoTheBook_thenBookMoveIsPlayed() throws IOException{
+		File bookFile = File.createTempFile("openings", ".book");
+		try{
+			// only the states after the first reply of the opponent are in the book, so the first move is searched and pondered on
+			OpeningBookBuilder<OXBoard> bookBuilder = new OpeningBookBuilder<OXBoard>(oxSerialSearchService, oxCostFunctionService, new OXStateKeyService(), Integer.MAX_VALUE);
+			for (OXBoard firstMove: oxSuccessorService.getSuccessors(new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN))){
+				for (OXBoard reply: oxSuccessorService.getSuccessors(firstMove)){
+					bookBuilder.addOpenings(reply, 1);
+				}
+			}
+			bookBuilder.write(bookFile);
+			
+			List<int[]> expectedStates = Lists.newArrayList();
+			List<Position> opponentMoves = Lists.newArrayList();
+			NaughtsAndCrossesGame game = getGame(INITIAL_START_STATE, oxSerialSearchService);
+			try{
+				while (true){
+					OXBoard board = game.getNextMove();
+					expectedStates.add(board.getInternalArrayedState());
+					
+					TurnDrivenGameService<OXBoard> minMaxGameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), board.getInternalArrayedState(), playerLookup, SimpleTurn.MAX), oxCostFunctionService, Integer.MAX_VALUE);
+					minMaxGameService.playNextMove();
+					
+					int[] nextState = minMaxGameService.getCurrentState().getInternalArrayedState();
+					for (int idx = 0; idx < nextState.length; idx++){
+						if (nextState[idx] != board.getInternalArrayedState()[idx]){
+							opponentMoves.add(new Position(idx / 3, idx % 3));
+							game.playMove(new Position(idx / 3, idx % 3));
+						}
+					}
+				}
+			} catch (GameFinishedException e){
+				// game is over
+			}
+			
+			TurnDrivenGameService<OXBoard> bookGameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE);
+			bookGameService.setOpeningBook(OpeningBook.open(bookFile), new OXStateKeyService(), oxSuccessorService);
+			bookGameService.setPondering(true);
+			game = new NaughtsAndCrossesGame(bookGameService, playerLookup);
+			int move = 0;
+			try{
+				for (; move < expectedStates.size(); move++){
+					assertThat(game.getNextMove().getInternalArrayedState(), is(equalTo(expectedStates.get(move))));
+					if (move == 0){
+						game.playMove(opponentMoves.get(move));
+						assertThat("the first reply should be the one pondered on", bookGameService.getPonderHits(), is(equalTo(1)));
+					} else if (move < opponentMoves.size()){
+						game.playMove(opponentMoves.get(move));
+					}
+				}
+			} catch (GameFinishedException e){
+				// game is over
+			} finally{
+				bookGameService.setPondering(false);
+			}
+			assertThat(move, is(equalTo(expectedStates.size())));
+			assertThat(bookGameService.getBookMoves(), is(equalTo(1)));
+		} finally{
+			bookFile.delete();
+		}
+	}
+	
+	@Test
+	public void givenOpeningBook_whenComputerPlaysBothSides_thenSameMovesPickedAsWithoutBookAndOpeningIsNotSearched() throws IOException{
+		File bookFile = File.createTempFile("openings", ".book");
+		try{
+			new OpeningBookBuilder<OXBoard>(oxSerialSearchService, oxCostFunctionService, new OXStateKeyService(), Integer.MAX_VALUE)
+					.addOpenings(new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN), 3)
+					.write(bookFile);
+			OpeningBook openingBook = OpeningBook.open(bookFile);
+			assertThat(openingBook.size(), is(equalTo(1 + 9 + 9 * 8)));
+			
+			List<int[]> expectedStates = Lists.newArrayList();
+			NaughtsAndCrossesGame game = getGame(INITIAL_START_STATE, oxSerialSearchService);
+			try{
+				while (true){
+					expectedStates.add(game.getNextMove().getInternalArrayedState());
+				}
+			} catch (GameFinishedException e){
+				// game is over
+			}
+			
+			TurnDrivenGameService<OXBoard> bookGameService = new TurnDrivenGameService<OXBoard>(oxSerialSearchService, new OXBoard(OXBoard.getNextId(), INITIAL_START_STATE, playerLookup, SimpleTurn.MIN), oxCostFunctionService, Integer.MAX_VALUE);
+			bookGameService.setOpeningBook(openingBook, new OXStateKeyService(), oxSuccessorService);
+			game = new NaughtsAndCrossesGame(bookGameService, playerLookup);
+			int move = 0;
+			try{
+				for (; move < expectedStates.size(); move++){
+					assertThat(game.getNextMove().getInternalArrayedState(), is(equalTo(expectedStates.get(move))));
+				}
+			} catch (GameFinishedException e){
+				// game is over
+			}
+			assertThat(move, is(equalTo(expectedStates.size())));
+			assertThat(bookGameService.getBookMoves(), is(equalTo(3)));
+		} finally{
+			bookFile.delete();
+		}
+	}
+	
+	@Test
+	public void givenParallelSearch_whenCallingGetNextMove_thenSameMovesPickedAsSerialSearch() throws GameFinishedException{
+		for (int[] state: Arrays.asList(FIRST_TEST, SECOND_TEST, THIRD_TEST, FOURTH_TEST, INITIAL_START_STATE)){
+			OXBoard expectedBoard = getGame(state, oxSerialSearchService).getNextMove();
+			OXBoard board = getGame(state, oxParallelSearchService).getNextMove();
+			
+			assertThat(board.getInternalArrayedState(), is(equalTo(expectedBoard.getInternalArrayedState())));
+		}
 	}
 	
 	@Test
@@ -180,6 +767,83 @@ public class NaughtsAndCrossesIntegrationTest {
 	}
 }
 
+class CountingTranspositionTable extends TranspositionTable{
+	
+	int newSearches;
+	
+	CountingTranspositionTable(int size){
+		super(size);
+	}
+	
+	@Override
+	public void newSearch(){
+		newSearches++;
+		super.newSearch();
+	}
+}
+
+/**
+ * Generates successors lazily, counting each one as it is generated
+ */
+class CountingSuccessorService implements SuccessorService<OXBoard>{
+	
+	private final SuccessorService<OXBoard> successorService;
+	int generated;
+	
+	CountingSuccessorService(SuccessorService<OXBoard> successorService){
+		this.successorService = successorService;
+	}
+	
+	public Iterable<OXBoard> getSuccessors(OXBoard state) {
+		final Iterator<OXBoard> successors = successorService.getSuccessors(state).iterator();
+		
+		return new CachedIterable<OXBoard>(new AbstractIterator<OXBoard>(){
+			
+			@Override
+			protected OXBoard computeNext() {
+				if (!successors.hasNext()){
+					return endOfData();
+				}
+				generated++;
+				return successors.next();
+			}
+		});
+	}
+}
+
+class CountingNodeVisitor implements NodeVisitor<MinMaxState<OXBoard>>{
+	
+	int visited;
+	
+	public void preNodeVisited(Node<MinMaxState<OXBoard>> node, int depth, NodeType type) {
+		visited++;
+	}
+	
+	public void postNodeVisited(Node<MinMaxState<OXBoard>> node, int depth, NodeType type) {
+		// no op
+	}
+}
+
+/**
+ * Cancels the search of the game service once the search of the first successor of the start node has finished
+ */
+class CancellingNodeVisitor implements NodeVisitor<MinMaxState<OXBoard>>{
+	
+	TurnDrivenGameService<OXBoard> gameService;
+	OXBoard firstSearchedState;
+	
+	public void preNodeVisited(Node<MinMaxState<OXBoard>> node, int depth, NodeType type) {
+		// no op
+	}
+	
+	public void postNodeVisited(Node<MinMaxState<OXBoard>> node, int depth, NodeType type) {
+		if (firstSearchedState == null && node.getDepthFromStart() == 1){
+			firstSearchedState = node.getState().getActualState();
+			gameService.cancelSearch();
+		}
+	}
+}
+
 class NaughtsAndCrossesGame{
 	
 	private final TurnDrivenGameService<OXBoard> gameService;
@@ -217,8 +881,35 @@ class NaughtsAndCrossesGame{
 	}
 }
 
+class OXStateKeyService implements StateKeyService<OXBoard>{
+
+	public long getKey(OXBoard state) {
+		return (Arrays.hashCode(state.getInternalArrayedState()) * 31L) + state.getTurn().getId();
+	}
+}
+
+class OXMoveDescriptionService implements MoveDescriptionService<OXBoard>{
+
+	public int getMoveKeyCount() {
+		return 9;
+	}
+
+	public int getMoveKey(OXBoard state, OXBoard successor) {
+		for (int i = 0; i < state.getInternalArrayedState().length; i++){
+			if (state.getInternalArrayedState()[i] != successor.getInternalArrayedState()[i]){
+				return i;
+			}
+		}
+		return MoveOrderingService.NO_MOVE_KEY;
+	}
+
+	public boolean isCapture(OXBoard state, OXBoard successor) {
+		return false;
+	}
+}
+
 class OXBoard extends SimpleArrayBackedBoard<OXPiece, Board.SimpleStats<OXPiece>> implements Identifiable, TurnDrivenState{
-	private static int NEXT_ID = 0;
+	private static final AtomicInteger NEXT_ID = new AtomicInteger(0);
 	private final int id;
 	private final Turn turn;
 	
@@ -241,7 +932,7 @@ class OXBoard extends SimpleArrayBackedBoard<OXPiece, Board.SimpleStats<OXPiece>
 	}
 
 	static int getNextId() {
-		return NEXT_ID++;
+		return NEXT_ID.getAndIncrement();
 	}
 
 	public int getId() {
@@ -0,0 +1,135 @@
+package com.ahaines.ai.search.minmax.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ahaines.ai.search.minmax.model.TranspositionTable.Entry;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class TranspositionTableUnitTest {
+
+	private static final long KEY = 0x1234567890ABCDEFL;
+	private static final long COLLIDING_KEY = KEY + (1L << 20); // same slot bits so will use the same slot
+	private static final long BEST_MOVE = 42;
+	
+	private TranspositionTable candidate;
+	
+	@Before
+	public void before(){
+		candidate = new TranspositionTable(1000);
+	}
+	
+	@Test
+	public void givenNonPowerOf2Size_whenCreatingTable_thenSizeIsRoundedUp(){
+		assertThat(candidate.getSize(), is(equalTo(1024)));
+	}
+	
+	@Test
+	public void givenEmptyTable_whenProbing_thenNullReturned(){
+		assertThat(candidate.probe(KEY), is(nullValue()));
+	}
+	
+	@Test
+	public void givenStoredEntry_whenProbing_thenEntryReturned(){
+		candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE);
+		
+		Entry entry = candidate.probe(KEY);
+		
+		assertThat(entry.getDepth(), is(equalTo(4)));
+		assertThat(entry.getPly(), is(equalTo(2)));
+		assertThat(entry.getBound(), is(equalTo(BoundType.EXACT)));
+		assertThat(entry.getScore(), is(equalTo(150)));
+		assertThat(entry.getBestMove(), is(equalTo(BEST_MOVE)));
+		assertThat(candidate.probe(COLLIDING_KEY), is(nullValue()));
+	}
+	
+	@Test
+	public void givenEntriesWithAndWithoutDepthLimit_whenProbing_thenDepthLimitReturned(){
+		candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE, false);
+		candidate.store(COLLIDING_KEY + 1, 4, 2, BoundType.EXACT, 150, BEST_MOVE, true);
+		
+		assertThat(candidate.probe(KEY).isDepthLimited(), is(equalTo(false)));
+		assertThat(candidate.probe(COLLIDING_KEY + 1).isDepthLimited(), is(equalTo(true)));
+	}
+	
+	@Test
+	public void givenDeeperEntryInSameSearch_whenStoringCollidingShallowerEntry_thenDeeperEntryRetained(){
+		candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE);
+		candidate.store(COLLIDING_KEY, 1, 2, BoundType.EXACT, 10, BEST_MOVE);
+		
+		assertThat(candidate.probe(KEY).getScore(), is(equalTo(150)));
+		assertThat(candidate.probe(COLLIDING_KEY), is(nullValue()));
+	}
+	
+	@Test
+	public void givenDeeperEntryFromPreviousSearch_whenStoringCollidingShallowerEntry_thenEntryReplaced(){
+		candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE);
+		candidate.newSearch();
+		candidate.store(COLLIDING_KEY, 1, 2, BoundType.EXACT, 10, BEST_MOVE);
+		
+		assertThat(candidate.probe(KEY), is(nullValue()));
+		assertThat(candidate.probe(COLLIDING_KEY).getScore(), is(equalTo(10)));
+	}
+	
+	@Test
+	public void givenExactEntry_whenStoringBoundForSameKey_thenExactEntryRetained(){
+		candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE);
+		candidate.store(KEY, 4, 2, BoundType.UPPER, 10, TranspositionTable.NO_MOVE);
+		
+		assertThat(candidate.probe(KEY).getBound(), is(equalTo(BoundType.EXACT)));
+		assertThat(candidate.probe(KEY).getScore(), is(equalTo(150)));
+	}
+	
+	@Test
+	public void givenEntryWithBestMove_whenStoringDeeperResultWithoutMove_thenBestMoveRetained(){
+		candidate.store(KEY, 1, 2, BoundType.EXACT, 150, BEST_MOVE);
+		candidate.store(KEY, 3, 2, BoundType.UPPER, 10, TranspositionTable.NO_MOVE);
+		
+		Entry entry = candidate.probe(KEY);
+		
+		assertThat(entry.getBound(), is(equalTo(BoundType.UPPER)));
+		assertThat(entry.getBestMove(), is(equalTo(BEST_MOVE)));
+	}
+	
+	@Test
+	public void givenStoredEntries_whenClearing_thenNoEntriesReturned(){
+		candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE);
+		candidate.clear();
+		
+		assertThat(candidate.probe(KEY), is(nullValue()));
+	}
+	
+	@Test
+	public void givenEntriesForCollidingKeysStoredConcurrently_whenProbing_thenEntriesAreNeverMixed() throws InterruptedException{
+		Thread writer = new Thread(new Runnable(){
+			
+			public void run() {
+				for (int i = 0; i < 200000; i++){
+					candidate.store(COLLIDING_KEY, 4, 3, BoundType.UPPER, -7, BEST_MOVE + 1);
+				}
+			}
+		});
+		writer.start();
+		
+		for (int i = 0; i < 200000; i++){
+			candidate.store(KEY, 4, 2, BoundType.EXACT, 150, BEST_MOVE);
+			
+			Entry entry = candidate.probe(KEY);
+			if (entry != null){
+				assertThat(entry.getScore(), is(equalTo(150)));
+				assertThat(entry.getPly(), is(equalTo(2)));
+				assertThat(entry.getBestMove(), is(equalTo(BEST_MOVE)));
+			}
+			Entry collidingEntry = candidate.probe(COLLIDING_KEY);
+			if (collidingEntry != null){
+				assertThat(collidingEntry.getScore(), is(equalTo(-7)));
+				assertThat(collidingEntry.getBound(), is(equalTo(BoundType.UPPER)));
+			}
+		}
+		writer.join();
+	}
+}
@@ -11,6 +11,9 @@ import com.ahaines.ai.search.minmax.model.TurnDrivenState;
 import com.ahaines.ai.search.model.Node;
 import com.ahaines.ai.search.service.NodeType;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.never;
@@ -24,6 +27,7 @@ public class AlphaBetaPrunningSuccessorServiceUnitTest {
 	private MinMaxSuccessorService<TurnDrivenState> workerSuccessorMock;
 	
 	private Node<MinMaxState<TurnDrivenState>> testNode;
+	private Node<MinMaxState<TurnDrivenState>> parentNode;
 	private Node<MinMaxState<TurnDrivenState>> uncle;
 	private Node<MinMaxState<TurnDrivenState>> sibling;
 	
@@ -34,7 +38,7 @@ public class AlphaBetaPrunningSuccessorServiceUnitTest {
 		Node<MinMaxState<TurnDrivenState>> grandparent = new Node<MinMaxState<TurnDrivenState>>(null, createNewMinMaxState());
 		uncle = new Node<MinMaxState<TurnDrivenState>>(grandparent, createNewMinMaxState());
 		
-		Node<MinMaxState<TurnDrivenState>> parentNode = new Node<MinMaxState<TurnDrivenState>>(grandparent, createNewMinMaxState());
+		parentNode = new Node<MinMaxState<TurnDrivenState>>(grandparent, createNewMinMaxState());
 		sibling = new Node<MinMaxState<TurnDrivenState>>(parentNode, createNewMinMaxState());
 		
 		grandparent.addChild(parentNode);
@@ -53,17 +57,50 @@ public class AlphaBetaPrunningSuccessorServiceUnitTest {
 		return minMaxState;
 	}
 
+	/*
+	 * Costs are negmax: each state picks the successor with the highest cost and costs the negation of it. The
+	 * grandparent can pick the uncle so the parent is only picked if it costs more then the uncle. As the parent
+	 * costs no more then the negation of the sibling, it can only be picked while the sibling costs less then the
+	 * negation of the uncle.
+	 */
+	
 	@Test
 	public void givenNonPrunnedState_whenCallingGetSuccessors_thenUnderlyingSuccessorInvoked(){
 		uncle.getState().setCost(9);
 		candidate.postNodeVisited(uncle, 1, NodeType.TRANSITION);
 		
-		sibling.getState().setCost(10);
+		sibling.getState().setCost(-10); // the parent can still cost 10, which is more then the uncle
 		candidate.postNodeVisited(sibling, 2, NodeType.TRANSITION);
 		
 		candidate.getSuccessors(testNode, NodeType.TRANSITION);
 		
 		verify(workerSuccessorMock, times(1)).getSuccessors(testNode, NodeType.TRANSITION);
+		assertThat("the parent should not be cut off", parentNode.isCutOff(), is(equalTo(false)));
+	}
+	
+	@Test
+	public void givenSiblingCostingMoreThenNegatedUncle_whenCallingGetSuccessors_thenUnderlyingSuccessorsNotInvoked(){
+		uncle.getState().setCost(9);
+		candidate.postNodeVisited(uncle, 1, NodeType.TRANSITION);
+		
+		sibling.getState().setCost(10); // the parent costs at most -10 so the uncle is always picked over it
+		candidate.postNodeVisited(sibling, 2, NodeType.TRANSITION);
+		
+		candidate.getSuccessors(testNode, NodeType.TRANSITION);
+		
+		verify(workerSuccessorMock, never()).getSuccessors(testNode, NodeType.TRANSITION);
+	}
+	
+	@Test
+	public void givenParentThatCanOnlyTieWithUncle_whenVisitingSibling_thenParentIsCutOff(){
+		uncle.getState().setCost(9);
+		candidate.postNodeVisited(uncle, 1, NodeType.TRANSITION);
+		
+		sibling.getState().setCost(-9); // the parent costs at most 9 so can not be picked over the uncle
+		candidate.postNodeVisited(sibling, 2, NodeType.TRANSITION);
+		
+		assertThat("the rest of the successors of the parent should be cut off", parentNode.isCutOff(), is(equalTo(true)));
+		assertThat("the cost of the parent is only a bound", parentNode.getState().isSearchComplete(), is(equalTo(false)));
 	}
 	
 	@Test